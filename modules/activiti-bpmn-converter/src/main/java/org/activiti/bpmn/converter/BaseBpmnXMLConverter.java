@@ -32,6 +32,7 @@ import org.activiti.bpmn.model.ErrorEventDefinition;
 import org.activiti.bpmn.model.EventDefinition;
 import org.activiti.bpmn.model.ExtensionElement;
 import org.activiti.bpmn.model.FlowElement;
+import org.activiti.bpmn.model.FlowNode;
 import org.activiti.bpmn.model.FormProperty;
 import org.activiti.bpmn.model.FormValue;
 import org.activiti.bpmn.model.Gateway;
@@ -73,6 +74,7 @@ public abstract class BaseBpmnXMLConverter implements BpmnXMLConstants {
     boolean notExclusive = parseNotExclusive(xtr);
     String defaultFlow = xtr.getAttributeValue(null, ATTRIBUTE_DEFAULT);
     boolean isForCompensation = parseForCompensation(xtr);
+    String jobPriority = xtr.getAttributeValue(ACTIVITI_EXTENSIONS_NAMESPACE, ATTRIBUTE_JOB_PRIORITY);
     
     BaseElement parsedElement = convertXMLToElement(xtr);
     
@@ -95,6 +97,10 @@ public abstract class BaseBpmnXMLConverter implements BpmnXMLConstants {
       currentFlowElement.setId(elementId);
       currentFlowElement.setName(elementName);
       
+      if(currentFlowElement instanceof FlowNode && StringUtils.isNotEmpty(jobPriority)) {
+        ((FlowNode) currentFlowElement).setJobPriority(jobPriority);
+      }
+      
       if(currentFlowElement instanceof Activity) {
         
         Activity activity = (Activity) currentFlowElement;
@@ -142,6 +148,10 @@ public abstract class BaseBpmnXMLConverter implements BpmnXMLConstants {
       writeDefaultAttribute(ATTRIBUTE_DEFAULT, activity.getDefaultFlow(), xtw);
     }
     
+    if (baseElement instanceof FlowNode) {
+      writeQualifiedAttribute(ATTRIBUTE_JOB_PRIORITY, ((FlowNode) baseElement).getJobPriority(), xtw);
+    }
+    
     if (baseElement instanceof Gateway) {
       final Gateway gateway = (Gateway) baseElement;
       writeDefaultAttribute(ATTRIBUTE_DEFAULT, gateway.getDefaultFlow(), xtw);
@@ -58,6 +58,10 @@ public class SubProcessParser implements BpmnXMLConstants {
 		
 		subProcess.setAsynchronous(async);
 		subProcess.setNotExclusive(notExclusive);
+		String jobPriority = xtr.getAttributeValue(ACTIVITI_EXTENSIONS_NAMESPACE, ATTRIBUTE_JOB_PRIORITY);
+		if (StringUtils.isNotEmpty(jobPriority)) {
+		  subProcess.setJobPriority(jobPriority);
+		}
     if(StringUtils.isNotEmpty(xtr.getAttributeValue(null, ATTRIBUTE_DEFAULT))) {
       subProcess.setDefaultFlow(xtr.getAttributeValue(null, ATTRIBUTE_DEFAULT));
     }
@@ -22,6 +22,7 @@ public class FlowNode extends FlowElement {
 
   protected List<SequenceFlow> incomingFlows = new ArrayList<SequenceFlow>();
   protected List<SequenceFlow> outgoingFlows = new ArrayList<SequenceFlow>();
+  protected String jobPriority;
 
   public List<SequenceFlow> getIncomingFlows() {
     return incomingFlows;
@@ -38,4 +39,12 @@ public class FlowNode extends FlowElement {
   public void setOutgoingFlows(List<SequenceFlow> outgoingFlows) {
     this.outgoingFlows = outgoingFlows;
   }
+
+  public String getJobPriority() {
+    return jobPriority;
+  }
+
+  public void setJobPriority(String jobPriority) {
+    this.jobPriority = jobPriority;
+  }
 }
@@ -14,6 +14,7 @@
 
 package org.activiti.engine;
 
+import java.io.InputStream;
 import java.util.List;
 
 import org.activiti.engine.history.HistoricActivityInstance;
@@ -66,6 +67,13 @@ public interface HistoryService {
   
   /** Creates a new programmatic query to search for {@link HistoricVariableInstance}s. */
   HistoricVariableInstanceQuery createHistoricVariableInstanceQuery();
+  
+  /** The value of a historic byte[] variable as a stream, which is read from the database while it is consumed 
+   * instead of being loaded in memory. For a serializable variable the stream contains the serialized object. Once it is read, the stream holds a database connection until it is closed, 
+   * so it must always be closed. Returns null if the value of the variable is null.
+   * @throws ActivitiObjectNotFoundException when no historic variable instance is found for the given id.
+   * @throws ActivitiIllegalArgumentException when the variable is not a byte[] or serializable variable. */
+  InputStream getHistoricVariableAsStream(String historicVariableInstanceId);
 
   /**
    * Returns a new {@link org.activiti.engine.query.NativeQuery} for process definitions.
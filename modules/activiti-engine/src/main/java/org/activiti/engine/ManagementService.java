@@ -17,6 +17,7 @@ import java.util.Map;
 
 import org.activiti.engine.impl.interceptor.Command;
 import org.activiti.engine.impl.interceptor.CommandConfig;
+import org.activiti.engine.management.JobExecutorMetrics;
 import org.activiti.engine.management.TableMetaData;
 import org.activiti.engine.management.TablePage;
 import org.activiti.engine.management.TablePageQuery;
@@ -102,6 +103,12 @@ public interface ManagementService {
    */
   String getJobExceptionStacktrace(String jobId);
 
+  /** 
+   * Returns how many jobs the job executor acquired, executed, failed and rejected, 
+   * in total and in the last minute.
+   */
+  JobExecutorMetrics getJobExecutorMetrics();
+
   /** get the list of properties. */
   Map<String, String> getProperties();
   
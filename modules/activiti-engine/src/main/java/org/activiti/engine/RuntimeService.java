@@ -12,6 +12,7 @@
  */
 package org.activiti.engine;
 
+import java.io.InputStream;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -336,6 +337,17 @@ public interface RuntimeService {
    * for the execution (and not searching parent scopes). Returns null when no variable value is found with the given name or when the value is set to null.  */
   Object getVariableLocal(String executionId, String variableName);
   
+  /** The value of a byte[] variable as a stream, which is read from the database while it is consumed instead of 
+   * being loaded in memory. Searching for the variable is done in all scopes that are visible to the given execution 
+   * (including parent scopes). Once it is read, the stream holds a database connection until it is closed, so it must always be closed.
+   * @return the stream or null if the variable is undefined or the value of the variable is null.
+   * @throws ActivitiObjectNotFoundException when no execution is found for the given executionId.
+   * @throws ActivitiIllegalArgumentException when the variable is not a byte[] variable. */
+  InputStream getVariableAsStream(String executionId, String variableName);
+  
+  /** The value of a byte[] variable as a stream, not searching parent scopes. See {@link #getVariableAsStream(String, String)}. */
+  InputStream getVariableLocalAsStream(String executionId, String variableName);
+  
   /** Check whether or not this execution has a local variable set with the given name. */
   boolean hasVariableLocal(String executionId, String variableName);
 
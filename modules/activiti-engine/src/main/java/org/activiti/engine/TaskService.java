@@ -342,6 +342,15 @@ public interface TaskService {
   /** checks whether or not the task has a variable defined with the given name. */
   Object getVariableLocal(String taskId, String variableName);
   
+  /** get the value of a byte[] variable as a stream, searching in the task scope and if available also the execution scopes. 
+   * The value is read from the database while the stream is consumed, and once it is read the stream holds a database connection 
+   * until it is closed, so it must always be closed. Returns null if the variable is undefined or null.
+   * @throws ActivitiIllegalArgumentException when the variable is not a byte[] variable. */
+  InputStream getVariableAsStream(String taskId, String variableName);
+  
+  /** get the value of a byte[] variable as a stream, local task scope only. See {@link #getVariableAsStream(String, String)}. */
+  InputStream getVariableLocalAsStream(String taskId, String variableName);
+  
   /** checks whether or not the task has a variable defined with the given name, local task scope only. */
   boolean hasVariableLocal(String taskId, String variableName);
 
@@ -438,6 +447,11 @@ public interface TaskService {
   /** Retrieve stream content of a particular attachment */
   InputStream getAttachmentContent(String attachmentId);
   
+  /** Retrieve the content of a particular attachment as a stream that is read from the database while it is consumed, 
+   * instead of being loaded in memory first. Once it is read, the stream holds a database connection until it is closed, 
+   * so it must always be closed. */
+  InputStream getAttachmentContentAsStream(String attachmentId);
+  
   /** The list of attachments associated to a task */
   List<Attachment> getTaskAttachments(String taskId);
 
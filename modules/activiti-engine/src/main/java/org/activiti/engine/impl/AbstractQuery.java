@@ -22,6 +22,7 @@ import org.activiti.engine.impl.db.ListQueryParameterObject;
 import org.activiti.engine.impl.interceptor.Command;
 import org.activiti.engine.impl.interceptor.CommandContext;
 import org.activiti.engine.impl.interceptor.CommandExecutor;
+import org.activiti.engine.impl.interceptor.ReadOnlyCommand;
 import org.activiti.engine.query.Query;
 import org.activiti.engine.query.QueryProperty;
 
@@ -31,7 +32,7 @@ import org.activiti.engine.query.QueryProperty;
  *  
  * @author Joram Barrez
  */
-public abstract class AbstractQuery<T extends Query<?,?>, U> extends ListQueryParameterObject implements Command<Object>, Query<T,U>, Serializable {
+public abstract class AbstractQuery<T extends Query<?,?>, U> extends ListQueryParameterObject implements Command<Object>, ReadOnlyCommand, Query<T,U>, Serializable {
       
   private static final long serialVersionUID = 1L;
   
@@ -14,6 +14,7 @@
 
 package org.activiti.engine.impl;
 
+import java.io.InputStream;
 import java.util.List;
 
 import org.activiti.engine.HistoryService;
@@ -31,6 +32,7 @@ import org.activiti.engine.history.NativeHistoricVariableInstanceQuery;
 import org.activiti.engine.impl.cmd.DeleteHistoricProcessInstanceCmd;
 import org.activiti.engine.impl.cmd.DeleteHistoricTaskInstanceCmd;
 import org.activiti.engine.impl.cmd.GetHistoricIdentityLinksForTaskCmd;
+import org.activiti.engine.impl.cmd.GetHistoricVariableAsStreamCmd;
 
 /**
  * @author Tom Baeyens
@@ -63,6 +65,10 @@ public class HistoryServiceImpl extends ServiceImpl implements HistoryService {
   public HistoricVariableInstanceQuery createHistoricVariableInstanceQuery() {
     return new HistoricVariableInstanceQueryImpl(commandExecutor);
   }
+  
+  public InputStream getHistoricVariableAsStream(String historicVariableInstanceId) {
+    return commandExecutor.execute(new GetHistoricVariableAsStreamCmd(historicVariableInstanceId));
+  }
 
   @Override
   public NativeHistoricVariableInstanceQuery createNativeHistoricVariableInstanceQuery() {
@@ -20,6 +20,7 @@ import org.activiti.engine.ManagementService;
 import org.activiti.engine.impl.cmd.DeleteJobCmd;
 import org.activiti.engine.impl.cmd.ExecuteJobsCmd;
 import org.activiti.engine.impl.cmd.GetJobExceptionStacktraceCmd;
+import org.activiti.engine.impl.cmd.GetJobExecutorMetricsCmd;
 import org.activiti.engine.impl.cmd.GetPropertiesCmd;
 import org.activiti.engine.impl.cmd.GetTableCountCmd;
 import org.activiti.engine.impl.cmd.GetTableMetaDataCmd;
@@ -30,6 +31,7 @@ import org.activiti.engine.impl.db.DbSqlSessionFactory;
 import org.activiti.engine.impl.interceptor.Command;
 import org.activiti.engine.impl.interceptor.CommandConfig;
 import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.management.JobExecutorMetrics;
 import org.activiti.engine.management.TableMetaData;
 import org.activiti.engine.management.TablePageQuery;
 import org.activiti.engine.runtime.JobQuery;
@@ -79,6 +81,10 @@ public class ManagementServiceImpl extends ServiceImpl implements ManagementServ
     return commandExecutor.execute(new GetJobExceptionStacktraceCmd(jobId));
   }
 
+  public JobExecutorMetrics getJobExecutorMetrics() {
+    return commandExecutor.execute(new GetJobExecutorMetricsCmd());
+  }
+
   public Map<String, String> getProperties() {
     return commandExecutor.execute(new GetPropertiesCmd());
   }
@@ -12,6 +12,7 @@
  */
 package org.activiti.engine.impl;
 
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -25,6 +26,7 @@ import org.activiti.engine.impl.cmd.ActivateProcessInstanceCmd;
 import org.activiti.engine.impl.cmd.AddIdentityLinkForProcessInstanceCmd;
 import org.activiti.engine.impl.cmd.DeleteProcessInstanceCmd;
 import org.activiti.engine.impl.cmd.FindActiveActivityIdsCmd;
+import org.activiti.engine.impl.cmd.GetExecutionVariableAsStreamCmd;
 import org.activiti.engine.impl.cmd.GetExecutionVariableCmd;
 import org.activiti.engine.impl.cmd.GetExecutionVariablesCmd;
 import org.activiti.engine.impl.cmd.GetIdentityLinksForProcessInstanceCmd;
@@ -133,6 +135,14 @@ public class RuntimeServiceImpl extends ServiceImpl implements RuntimeService {
     return commandExecutor.execute(new GetExecutionVariableCmd(executionId, variableName, true));
   }
   
+  public InputStream getVariableAsStream(String executionId, String variableName) {
+    return commandExecutor.execute(new GetExecutionVariableAsStreamCmd(executionId, variableName, false));
+  }
+  
+  public InputStream getVariableLocalAsStream(String executionId, String variableName) {
+    return commandExecutor.execute(new GetExecutionVariableAsStreamCmd(executionId, variableName, true));
+  }
+  
   @Override
   public boolean hasVariableLocal(String executionId, String variableName) {
     return commandExecutor.execute(new HasExecutionVariableCmd(executionId, variableName, true));
@@ -33,6 +33,7 @@ import org.activiti.engine.impl.cmd.DeleteCommentCmd;
 import org.activiti.engine.impl.cmd.DeleteIdentityLinkCmd;
 import org.activiti.engine.impl.cmd.DeleteTaskCmd;
 import org.activiti.engine.impl.cmd.GetAttachmentCmd;
+import org.activiti.engine.impl.cmd.GetAttachmentContentAsStreamCmd;
 import org.activiti.engine.impl.cmd.GetAttachmentContentCmd;
 import org.activiti.engine.impl.cmd.GetCommentCmd;
 import org.activiti.engine.impl.cmd.GetIdentityLinksForTaskCmd;
@@ -44,6 +45,7 @@ import org.activiti.engine.impl.cmd.GetTaskCommentsByTypeCmd;
 import org.activiti.engine.impl.cmd.GetTaskCommentsCmd;
 import org.activiti.engine.impl.cmd.GetTaskEventCmd;
 import org.activiti.engine.impl.cmd.GetTaskEventsCmd;
+import org.activiti.engine.impl.cmd.GetTaskVariableAsStreamCmd;
 import org.activiti.engine.impl.cmd.GetTaskVariableCmd;
 import org.activiti.engine.impl.cmd.GetTaskVariablesCmd;
 import org.activiti.engine.impl.cmd.GetTypeCommentsCmd;
@@ -228,6 +230,14 @@ public class TaskServiceImpl extends ServiceImpl implements TaskService {
     return commandExecutor.execute(new GetTaskVariableCmd(executionId, variableName, true));
   }
   
+  public InputStream getVariableAsStream(String taskId, String variableName) {
+    return commandExecutor.execute(new GetTaskVariableAsStreamCmd(taskId, variableName, false));
+  }
+  
+  public InputStream getVariableLocalAsStream(String taskId, String variableName) {
+    return commandExecutor.execute(new GetTaskVariableAsStreamCmd(taskId, variableName, true));
+  }
+  
   public boolean hasVariableLocal(String taskId, String variableName) {
     return commandExecutor.execute(new HasTaskVariableCmd(taskId, variableName, true));
   }
@@ -327,6 +337,10 @@ public class TaskServiceImpl extends ServiceImpl implements TaskService {
   public InputStream getAttachmentContent(String attachmentId) {
     return commandExecutor.execute(new GetAttachmentContentCmd(attachmentId));
   }
+  
+  public InputStream getAttachmentContentAsStream(String attachmentId) {
+    return commandExecutor.execute(new GetAttachmentContentAsStreamCmd(attachmentId));
+  }
 
   public void deleteAttachment(String attachmentId) {
     commandExecutor.execute(new DeleteAttachmentCmd(attachmentId));
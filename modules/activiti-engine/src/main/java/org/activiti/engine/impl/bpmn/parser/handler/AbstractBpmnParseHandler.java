@@ -28,6 +28,7 @@ import org.activiti.bpmn.model.DataSpec;
 import org.activiti.bpmn.model.EventDefinition;
 import org.activiti.bpmn.model.EventGateway;
 import org.activiti.bpmn.model.FlowElement;
+import org.activiti.bpmn.model.FlowNode;
 import org.activiti.bpmn.model.Gateway;
 import org.activiti.bpmn.model.ImplementationType;
 import org.activiti.bpmn.model.IntermediateCatchEvent;
@@ -108,6 +109,16 @@ public abstract class AbstractBpmnParseHandler<T extends BaseElement> implements
     } else if (flowElement instanceof Gateway) {
       activity.setProperty("default", ((Gateway) flowElement).getDefaultFlow());
     }
+    if (flowElement instanceof FlowNode) {
+      String jobPriority = ((FlowNode) flowElement).getJobPriority();
+      if (jobPriority != null) {
+        try {
+          activity.setJobPriority(Integer.parseInt(jobPriority.trim()));
+        } catch (NumberFormatException e) {
+          bpmnParse.getBpmnModel().addProblem("jobPriority '" + jobPriority + "' is not an integer", flowElement);
+        }
+      }
+    }
     activity.setProperty("type", xmlLocalName);
     
     return activity;
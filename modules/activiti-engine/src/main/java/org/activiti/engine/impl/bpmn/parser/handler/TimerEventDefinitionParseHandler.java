@@ -126,6 +126,9 @@ public class TimerEventDefinitionParseHandler extends AbstractBpmnParseHandler<T
     TimerDeclarationImpl timerDeclaration = new TimerDeclarationImpl(expression, type, jobHandlerType);
     timerDeclaration.setJobHandlerConfiguration(timerActivity.getId());
     timerDeclaration.setExclusive(true);
+    if (timerActivity instanceof ActivityImpl) {
+      timerDeclaration.setJobPriority(((ActivityImpl) timerActivity).getJobPriority());
+    }
     return timerDeclaration;
   }
   
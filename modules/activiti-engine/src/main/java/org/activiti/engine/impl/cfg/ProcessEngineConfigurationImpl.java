@@ -94,8 +94,10 @@ import org.activiti.engine.impl.calendar.DurationBusinessCalendar;
 import org.activiti.engine.impl.calendar.MapBusinessCalendarManager;
 import org.activiti.engine.impl.cfg.standalone.StandaloneMybatisTransactionContextFactory;
 import org.activiti.engine.impl.db.DbIdGenerator;
+import org.activiti.engine.impl.db.DbSequenceIdGenerator;
 import org.activiti.engine.impl.db.DbSqlSessionFactory;
 import org.activiti.engine.impl.db.IbatisVariableTypeHandler;
+import org.activiti.engine.impl.db.PrefetchingDbIdGenerator;
 import org.activiti.engine.impl.delegate.DefaultDelegateInterceptor;
 import org.activiti.engine.impl.el.ExpressionManager;
 import org.activiti.engine.impl.event.CompensationEventHandler;
@@ -142,6 +144,8 @@ import org.activiti.engine.impl.persistence.GenericManagerFactory;
 import org.activiti.engine.impl.persistence.GroupEntityManagerFactory;
 import org.activiti.engine.impl.persistence.MembershipEntityManagerFactory;
 import org.activiti.engine.impl.persistence.UserEntityManagerFactory;
+import org.activiti.engine.impl.persistence.deploy.ActivityCountWeigher;
+import org.activiti.engine.impl.persistence.deploy.ConcurrentDeploymentCache;
 import org.activiti.engine.impl.persistence.deploy.DefaultDeploymentCache;
 import org.activiti.engine.impl.persistence.deploy.Deployer;
 import org.activiti.engine.impl.persistence.deploy.DeploymentCache;
@@ -176,8 +180,10 @@ import org.activiti.engine.impl.scripting.ScriptingEngines;
 import org.activiti.engine.impl.scripting.VariableScopeResolverFactory;
 import org.activiti.engine.impl.util.IoUtil;
 import org.activiti.engine.impl.util.ReflectUtil;
+import org.activiti.engine.impl.variable.BinaryCodecType;
 import org.activiti.engine.impl.variable.BooleanType;
 import org.activiti.engine.impl.variable.ByteArrayType;
+import org.activiti.engine.impl.variable.CompactBinaryCodec;
 import org.activiti.engine.impl.variable.CustomObjectType;
 import org.activiti.engine.impl.variable.DateType;
 import org.activiti.engine.impl.variable.DefaultVariableTypes;
@@ -192,6 +198,7 @@ import org.activiti.engine.impl.variable.SerializableType;
 import org.activiti.engine.impl.variable.ShortType;
 import org.activiti.engine.impl.variable.StringType;
 import org.activiti.engine.impl.variable.UUIDType;
+import org.activiti.engine.impl.variable.VariableCodec;
 import org.activiti.engine.impl.variable.VariableType;
 import org.activiti.engine.impl.variable.VariableTypes;
 import org.activiti.engine.parse.BpmnParseHandler;
@@ -271,6 +278,18 @@ public abstract class ProcessEngineConfigurationImpl extends ProcessEngineConfig
   protected DeploymentManager deploymentManager;
   
   protected int processDefinitionCacheLimit = -1; // By default, no limit
+  /** 
+   * Use the thread-safe {@link ConcurrentDeploymentCache} as process definition cache, 
+   * limited by the processDefinitionCacheLimit or, when set, by the processDefinitionCacheMaxWeight 
+   * (the total number of activities of the cached process definitions).
+   */
+  protected boolean concurrentProcessDefinitionCacheEnabled = false;
+  protected int processDefinitionCacheMaxWeight = -1;
+  /**
+   * Remember the latest version of each process definition key, so starting a process instance 
+   * by key doesn't query the database. Only enable this when no other engine deploys to the same database.
+   */
+  protected boolean latestProcessDefinitionKeyCacheEnabled = false;
   protected DeploymentCache<ProcessDefinitionEntity> processDefinitionCache;
   
   protected int knowledgeBaseCacheLimit = -1;
@@ -292,6 +311,21 @@ public abstract class ProcessEngineConfigurationImpl extends ProcessEngineConfig
   protected DataSource idGeneratorDataSource;
   protected String idGeneratorDataSourceJndiName;
   
+  /** 
+   * When enabled, the {@link PrefetchingDbIdGenerator} is used: ids are handed out without locking, 
+   * and the next idBlockPrefetchCount blocks are fetched in the background 
+   * when fewer than idBlockLowWaterMark ids are left in the current block.
+   */
+  protected boolean idBlockPrefetchEnabled = false;
+  protected int idBlockPrefetchCount = 1;
+  protected int idBlockLowWaterMark = -1; // By default, a quarter of the block size
+  
+  /** 
+   * When enabled, the {@link DbSequenceIdGenerator} takes the id blocks from the ACT_GE_ID_SEQ
+   * database sequence instead of from the next.dbid property. Takes precedence over idBlockPrefetchEnabled.
+   */
+  protected boolean dbSequenceIdGeneratorEnabled = false;
+  
   // BPMN PARSER //////////////////////////////////////////////////////////////
   
   protected List<BpmnParseHandler> preBpmnParseHandlers;
@@ -313,6 +347,19 @@ public abstract class ProcessEngineConfigurationImpl extends ProcessEngineConfig
   protected List<VariableType> customPostVariableTypes;
   protected VariableTypes variableTypes;
   
+  /** 
+   * classes of serializable variables whose objects are never changed after they are created, 
+   * so they are not serialized again at the end of every command that read them 
+   */
+  protected List<Class<?>> immutableVariableClasses;
+  
+  /** 
+   * names of the classes (or packages, as 'org.example.*') whose variables are stored with the 
+   * variableCodec instead of java serialization, see {@link BinaryCodecType} 
+   */
+  protected List<String> variableCodecClasses;
+  protected VariableCodec variableCodec;
+  
   protected ExpressionManager expressionManager;
   protected List<String> customScriptingEngineClasses;
   protected ScriptingEngines scriptingEngines;
@@ -356,6 +403,41 @@ public abstract class ProcessEngineConfigurationImpl extends ProcessEngineConfig
   protected int batchSizeProcessInstances = 25;
   protected int batchSizeTasks = 25;
   
+  /**
+   * When enabled, the inserts, updates and deletes of a flush are sent to the database
+   * in JDBC batches instead of one round trip per statement. The inserts are grouped
+   * per entity type to make the batches as large as possible.
+   * 
+   * Disabled by default, as not all JDBC drivers return reliable update counts 
+   * for batched statements (which are needed for the optimistic locking checks).
+   */
+  protected boolean jdbcBatchEnabled = false;
+  
+  /**
+   * When enabled, the inserts of the high-volume runtime and history tables 
+   * (variables, identity links, historic activities, details and variables) are done 
+   * with multi-row insert statements, containing at most maxNrOfStatementsInBulkInsert rows each.
+   */
+  protected boolean bulkInsertEnabled = false;
+  protected int maxNrOfStatementsInBulkInsert = 100;
+  
+  /**
+   * When enabled, updates of executions and tasks only set the columns 
+   * that changed since the entity was loaded (and the revision), 
+   * instead of writing the full row.
+   */
+  protected boolean partialUpdateEnabled = false;
+  
+  /**
+   * Contents of ACT_GE_BYTEARRAY (serialized variables, deployment resources, 
+   * job exception stacktraces, ...) of at least this many bytes are stored compressed.
+   * Rows stored without compression are still read, so this can be changed at any time. 
+   * 
+   * Negative (the default) to not compress anything, as engines of earlier versions 
+   * can't read the compressed rows.
+   */
+  protected int byteArrayCompressionThreshold = -1;
+  
   // buildProcessEngine ///////////////////////////////////////////////////////
   
   public ProcessEngine buildProcessEngine() {
@@ -671,6 +753,11 @@ public abstract class ProcessEngineConfigurationImpl extends ProcessEngineConfig
       dbSqlSessionFactory.setDbHistoryUsed(isDbHistoryUsed);
       dbSqlSessionFactory.setDatabaseTablePrefix(databaseTablePrefix);
       dbSqlSessionFactory.setDatabaseSchema(databaseSchema);
+      dbSqlSessionFactory.setJdbcBatchEnabled(jdbcBatchEnabled);
+      dbSqlSessionFactory.setBulkInsertEnabled(bulkInsertEnabled);
+      dbSqlSessionFactory.setMaxNrOfStatementsInBulkInsert(maxNrOfStatementsInBulkInsert);
+      dbSqlSessionFactory.setPartialUpdateEnabled(partialUpdateEnabled);
+      dbSqlSessionFactory.setByteArrayCompressionThreshold(byteArrayCompressionThreshold);
       addSessionFactory(dbSqlSessionFactory);
       
       addSessionFactory(new GenericManagerFactory(AttachmentEntityManager.class));
@@ -740,7 +827,13 @@ public abstract class ProcessEngineConfigurationImpl extends ProcessEngineConfig
       
       // Process Definition cache
       if (processDefinitionCache == null) {
-        if (processDefinitionCacheLimit <= 0) {
+        if (concurrentProcessDefinitionCacheEnabled) {
+          if (processDefinitionCacheMaxWeight > 0) {
+            processDefinitionCache = new ConcurrentDeploymentCache<ProcessDefinitionEntity>(processDefinitionCacheMaxWeight, new ActivityCountWeigher());
+          } else {
+            processDefinitionCache = new ConcurrentDeploymentCache<ProcessDefinitionEntity>(processDefinitionCacheLimit);
+          }
+        } else if (processDefinitionCacheLimit <= 0) {
           processDefinitionCache = new DefaultDeploymentCache<ProcessDefinitionEntity>();
         } else {
           processDefinitionCache = new DefaultDeploymentCache<ProcessDefinitionEntity>(processDefinitionCacheLimit);
@@ -758,6 +851,7 @@ public abstract class ProcessEngineConfigurationImpl extends ProcessEngineConfig
       
       deploymentManager.setProcessDefinitionCache(processDefinitionCache);
       deploymentManager.setKnowledgeBaseCache(knowledgeBaseCache);
+      deploymentManager.setLatestProcessDefinitionKeyCacheEnabled(latestProcessDefinitionKeyCacheEnabled);
     }
   }
 
@@ -973,7 +1067,17 @@ public abstract class ProcessEngineConfigurationImpl extends ProcessEngineConfig
         idGeneratorCommandExecutor = getCommandExecutor();
       }
       
-      DbIdGenerator dbIdGenerator = new DbIdGenerator();
+      DbIdGenerator dbIdGenerator = null;
+      if (dbSequenceIdGeneratorEnabled) {
+        dbIdGenerator = new DbSequenceIdGenerator();
+      } else if (idBlockPrefetchEnabled) {
+        PrefetchingDbIdGenerator prefetchingDbIdGenerator = new PrefetchingDbIdGenerator();
+        prefetchingDbIdGenerator.setNrOfPrefetchedBlocks(idBlockPrefetchCount);
+        prefetchingDbIdGenerator.setLowWaterMark(idBlockLowWaterMark);
+        dbIdGenerator = prefetchingDbIdGenerator;
+      } else {
+        dbIdGenerator = new DbIdGenerator();
+      }
       dbIdGenerator.setIdBlockSize(idBlockSize);
       dbIdGenerator.setCommandExecutor(idGeneratorCommandExecutor);
       dbIdGenerator.setCommandConfig(getDefaultCommandConfig().transactionRequiresNew());
@@ -1014,7 +1118,17 @@ public abstract class ProcessEngineConfigurationImpl extends ProcessEngineConfig
       variableTypes.addType(new DoubleType());
       variableTypes.addType(new UUIDType());
       variableTypes.addType(new ByteArrayType());
-      variableTypes.addType(new SerializableType());
+      if (variableCodecClasses!=null && !variableCodecClasses.isEmpty()) {
+        if (variableCodec==null) {
+          variableCodec = new CompactBinaryCodec();
+        }
+        variableTypes.addType(new BinaryCodecType(variableCodec, variableCodecClasses));
+      }
+      SerializableType serializableType = new SerializableType();
+      if (immutableVariableClasses!=null) {
+        serializableType.addImmutableClasses(immutableVariableClasses);
+      }
+      variableTypes.addType(serializableType);
       variableTypes.addType(new CustomObjectType("item", ItemInstance.class));
       variableTypes.addType(new CustomObjectType("message", MessageInstance.class));
       if (customPostVariableTypes!=null) {
@@ -1513,6 +1627,33 @@ public abstract class ProcessEngineConfigurationImpl extends ProcessEngineConfig
     this.customPostVariableTypes = customPostVariableTypes;
     return this;
   }
+  
+  public List<Class<?>> getImmutableVariableClasses() {
+    return immutableVariableClasses;
+  }
+
+  public ProcessEngineConfigurationImpl setImmutableVariableClasses(List<Class<?>> immutableVariableClasses) {
+    this.immutableVariableClasses = immutableVariableClasses;
+    return this;
+  }
+  
+  public List<String> getVariableCodecClasses() {
+    return variableCodecClasses;
+  }
+
+  public ProcessEngineConfigurationImpl setVariableCodecClasses(List<String> variableCodecClasses) {
+    this.variableCodecClasses = variableCodecClasses;
+    return this;
+  }
+  
+  public VariableCodec getVariableCodec() {
+    return variableCodec;
+  }
+
+  public ProcessEngineConfigurationImpl setVariableCodec(VariableCodec variableCodec) {
+    this.variableCodec = variableCodec;
+    return this;
+  }
 
   public List<BpmnParseHandler> getPreBpmnParseHandlers() {
     return preBpmnParseHandlers;
@@ -1653,6 +1794,42 @@ public abstract class ProcessEngineConfigurationImpl extends ProcessEngineConfig
     return this;
   }
   
+  public boolean isIdBlockPrefetchEnabled() {
+    return idBlockPrefetchEnabled;
+  }
+
+  public ProcessEngineConfigurationImpl setIdBlockPrefetchEnabled(boolean idBlockPrefetchEnabled) {
+    this.idBlockPrefetchEnabled = idBlockPrefetchEnabled;
+    return this;
+  }
+
+  public int getIdBlockPrefetchCount() {
+    return idBlockPrefetchCount;
+  }
+
+  public ProcessEngineConfigurationImpl setIdBlockPrefetchCount(int idBlockPrefetchCount) {
+    this.idBlockPrefetchCount = idBlockPrefetchCount;
+    return this;
+  }
+
+  public int getIdBlockLowWaterMark() {
+    return idBlockLowWaterMark;
+  }
+
+  public ProcessEngineConfigurationImpl setIdBlockLowWaterMark(int idBlockLowWaterMark) {
+    this.idBlockLowWaterMark = idBlockLowWaterMark;
+    return this;
+  }
+
+  public boolean isDbSequenceIdGeneratorEnabled() {
+    return dbSequenceIdGeneratorEnabled;
+  }
+
+  public ProcessEngineConfigurationImpl setDbSequenceIdGeneratorEnabled(boolean dbSequenceIdGeneratorEnabled) {
+    this.dbSequenceIdGeneratorEnabled = dbSequenceIdGeneratorEnabled;
+    return this;
+  }
+
   public String getIdGeneratorDataSourceJndiName() {
     return idGeneratorDataSourceJndiName;
   }
@@ -1680,6 +1857,51 @@ public abstract class ProcessEngineConfigurationImpl extends ProcessEngineConfig
     return this;
   }
   
+  public boolean isJdbcBatchEnabled() {
+    return jdbcBatchEnabled;
+  }
+  
+  public ProcessEngineConfigurationImpl setJdbcBatchEnabled(boolean jdbcBatchEnabled) {
+    this.jdbcBatchEnabled = jdbcBatchEnabled;
+    return this;
+  }
+  
+  public boolean isBulkInsertEnabled() {
+    return bulkInsertEnabled;
+  }
+  
+  public ProcessEngineConfigurationImpl setBulkInsertEnabled(boolean bulkInsertEnabled) {
+    this.bulkInsertEnabled = bulkInsertEnabled;
+    return this;
+  }
+  
+  public int getMaxNrOfStatementsInBulkInsert() {
+    return maxNrOfStatementsInBulkInsert;
+  }
+  
+  public ProcessEngineConfigurationImpl setMaxNrOfStatementsInBulkInsert(int maxNrOfStatementsInBulkInsert) {
+    this.maxNrOfStatementsInBulkInsert = maxNrOfStatementsInBulkInsert;
+    return this;
+  }
+  
+  public boolean isPartialUpdateEnabled() {
+    return partialUpdateEnabled;
+  }
+  
+  public ProcessEngineConfigurationImpl setPartialUpdateEnabled(boolean partialUpdateEnabled) {
+    this.partialUpdateEnabled = partialUpdateEnabled;
+    return this;
+  }
+  
+  public int getByteArrayCompressionThreshold() {
+    return byteArrayCompressionThreshold;
+  }
+  
+  public ProcessEngineConfigurationImpl setByteArrayCompressionThreshold(int byteArrayCompressionThreshold) {
+    this.byteArrayCompressionThreshold = byteArrayCompressionThreshold;
+    return this;
+  }
+  
   public int getProcessDefinitionCacheLimit() {
     return processDefinitionCacheLimit;
   }
@@ -1689,6 +1911,33 @@ public abstract class ProcessEngineConfigurationImpl extends ProcessEngineConfig
     return this;
   }
   
+  public boolean isConcurrentProcessDefinitionCacheEnabled() {
+    return concurrentProcessDefinitionCacheEnabled;
+  }
+  
+  public ProcessEngineConfigurationImpl setConcurrentProcessDefinitionCacheEnabled(boolean concurrentProcessDefinitionCacheEnabled) {
+    this.concurrentProcessDefinitionCacheEnabled = concurrentProcessDefinitionCacheEnabled;
+    return this;
+  }
+  
+  public int getProcessDefinitionCacheMaxWeight() {
+    return processDefinitionCacheMaxWeight;
+  }
+  
+  public ProcessEngineConfigurationImpl setProcessDefinitionCacheMaxWeight(int processDefinitionCacheMaxWeight) {
+    this.processDefinitionCacheMaxWeight = processDefinitionCacheMaxWeight;
+    return this;
+  }
+
+  public boolean isLatestProcessDefinitionKeyCacheEnabled() {
+    return latestProcessDefinitionKeyCacheEnabled;
+  }
+  
+  public ProcessEngineConfigurationImpl setLatestProcessDefinitionKeyCacheEnabled(boolean latestProcessDefinitionKeyCacheEnabled) {
+    this.latestProcessDefinitionKeyCacheEnabled = latestProcessDefinitionKeyCacheEnabled;
+    return this;
+  }
+
   public DeploymentCache<ProcessDefinitionEntity> getProcessDefinitionCache() {
     return processDefinitionCache;
   }
@@ -135,11 +135,11 @@ public abstract class AbstractSetProcessDefinitionStateCmd implements Command<Vo
       SuspensionStateUtil.setSuspensionState(processDefinition, getProcessDefinitionSuspensionState());
       
       // Evict cache
-      Context
+      DeploymentManager deploymentManager = Context
         .getProcessEngineConfiguration()
-        .getDeploymentManager()
-        .getProcessDefinitionCache()
-        .remove(processDefinition.getId());
+        .getDeploymentManager();
+      deploymentManager.getProcessDefinitionCache().remove(processDefinition.getId());
+      deploymentManager.invalidateLatestProcessDefinition(processDefinition.getKey());
       
       // Suspend process instances (if needed)
       if (includeProcessInstances) {
@@ -15,14 +15,20 @@ package org.activiti.engine.impl.cmd;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.activiti.engine.impl.Page;
 import org.activiti.engine.impl.interceptor.Command;
 import org.activiti.engine.impl.interceptor.CommandContext;
 import org.activiti.engine.impl.jobexecutor.AcquiredJobs;
+import org.activiti.engine.impl.jobexecutor.JobAcquisitionPartition;
 import org.activiti.engine.impl.jobexecutor.JobExecutor;
 import org.activiti.engine.impl.persistence.entity.JobEntity;
+import org.activiti.engine.impl.persistence.entity.MessageEntity;
 import org.activiti.engine.impl.util.ClockUtil;
 
 
@@ -33,25 +39,87 @@ import org.activiti.engine.impl.util.ClockUtil;
 public class AcquireJobsCmd implements Command<AcquiredJobs> {
 
   private final JobExecutor jobExecutor;
+  private final JobAcquisitionPartition partition;
+  private final int maxJobsPerAcquisition;
 
   public AcquireJobsCmd(JobExecutor jobExecutor) {
+    this(jobExecutor, JobAcquisitionPartition.ALL);
+  }
+  
+  /** acquires up to the maxJobsPerAcquisition that the job executor has when the command is executed */
+  public AcquireJobsCmd(JobExecutor jobExecutor, JobAcquisitionPartition partition) {
+    this(jobExecutor, partition, -1);
+  }
+  
+  /** acquires up to the given number of jobs, as decided by the acquisition thread */
+  public AcquireJobsCmd(JobExecutor jobExecutor, JobAcquisitionPartition partition, int maxJobsPerAcquisition) {
     this.jobExecutor = jobExecutor;
+    this.partition = partition;
+    this.maxJobsPerAcquisition = maxJobsPerAcquisition;
   }
   
   public AcquiredJobs execute(CommandContext commandContext) {
     
     String lockOwner = jobExecutor.getLockOwner();
     int lockTimeInMillis = jobExecutor.getLockTimeInMillis();
-    int maxNonExclusiveJobsPerAcquisition = jobExecutor.getMaxJobsPerAcquisition();
+    int maxNonExclusiveJobsPerAcquisition = (maxJobsPerAcquisition >= 0 ? maxJobsPerAcquisition : jobExecutor.getMaxJobsPerAcquisition());
+    boolean jobSnapshotsEnabled = jobExecutor.isJobSnapshotsEnabled();
+    int jobsPerTransaction = jobExecutor.getJobsPerTransaction();
     
     AcquiredJobs acquiredJobs = new AcquiredJobs();
     List<JobEntity> jobs = commandContext
       .getJobEntityManager()
-      .findNextJobsToExecute(new Page(0, maxNonExclusiveJobsPerAcquisition));
+      .findNextJobsToExecute(partition, new Page(0, maxNonExclusiveJobsPerAcquisition));
 
+    // the jobs that are executed in one transaction, at most one per process instance
+    List<String> transactionJobIds = new ArrayList<String>();
+    Set<String> transactionProcessInstanceIds = new HashSet<String>();
+    int transactionPriority = JobEntity.DEFAULT_PRIORITY;
+    
+    // the exclusive jobs that are executed in the lanes of their process instances
+    boolean exclusiveJobsRouted = (jobExecutor.getExclusiveJobRouter() != null);
+    Map<String, List<JobEntity>> routedExclusiveJobs = new LinkedHashMap<String, List<JobEntity>>();
+    
     for (JobEntity job: jobs) {
+      if (jobsPerTransaction > 1 
+              && job != null 
+              && isExecutableInOneTransaction(job, transactionProcessInstanceIds)) {
+        lockJob(job, lockOwner, lockTimeInMillis);
+        if (jobSnapshotsEnabled) {
+          acquiredJobs.addJobSnapshot(job);
+        }
+        transactionPriority = (transactionJobIds.isEmpty() ? job.getPriority() : Math.max(transactionPriority, job.getPriority()));
+        transactionJobIds.add(job.getId());
+        if (job.getProcessInstanceId() != null) {
+          transactionProcessInstanceIds.add(job.getProcessInstanceId());
+        }
+        if (transactionJobIds.size() >= jobsPerTransaction) {
+          addJobIdBatchInOneTransaction(acquiredJobs, transactionJobIds, transactionPriority);
+          transactionJobIds = new ArrayList<String>();
+          transactionProcessInstanceIds.clear();
+        }
+        continue;
+      }
+      
+      if (exclusiveJobsRouted 
+              && job != null 
+              && job.isExclusive() 
+              && job.getProcessInstanceId() != null) {
+        // the other exclusive jobs of the process instance are not selected: if they are 
+        // acquired later, they are queued in the same lane
+        List<JobEntity> processInstanceJobs = routedExclusiveJobs.get(job.getProcessInstanceId());
+        if (processInstanceJobs == null) {
+          processInstanceJobs = new ArrayList<JobEntity>();
+          routedExclusiveJobs.put(job.getProcessInstanceId(), processInstanceJobs);
+        }
+        processInstanceJobs.add(job);
+        continue;
+      }
+      
       List<String> jobIds = new ArrayList<String>();
+      int priority = JobEntity.DEFAULT_PRIORITY;
       if (job != null && !acquiredJobs.contains(job.getId())) {
+        priority = job.getPriority();
         if (job.isExclusive() && job.getProcessInstanceId() != null) {
           // acquire all exclusive jobs in the same process instance
           // (includes the current job)
@@ -61,20 +129,68 @@ public class AcquireJobsCmd implements Command<AcquiredJobs> {
             if(exclusiveJob != null) {
               lockJob(exclusiveJob, lockOwner, lockTimeInMillis);
               jobIds.add(exclusiveJob.getId());
+              priority = Math.max(priority, exclusiveJob.getPriority());
+              if (jobSnapshotsEnabled) {
+                acquiredJobs.addJobSnapshot(exclusiveJob);
+              }
             }
           }
         } else {
           lockJob(job, lockOwner, lockTimeInMillis);
           jobIds.add(job.getId());
+          if (jobSnapshotsEnabled) {
+            acquiredJobs.addJobSnapshot(job);
+          }
         }
         
       }
 
-      acquiredJobs.addJobIdBatch(jobIds);
+      acquiredJobs.addJobIdBatch(jobIds, priority);
+    }
+    
+    if (!transactionJobIds.isEmpty()) {
+      addJobIdBatchInOneTransaction(acquiredJobs, transactionJobIds, transactionPriority);
+    }
+    
+    for (Map.Entry<String, List<JobEntity>> processInstanceJobs : routedExclusiveJobs.entrySet()) {
+      List<String> jobIds = new ArrayList<String>();
+      int priority = processInstanceJobs.getValue().get(0).getPriority();
+      for (JobEntity exclusiveJob : processInstanceJobs.getValue()) {
+        lockJob(exclusiveJob, lockOwner, lockTimeInMillis);
+        jobIds.add(exclusiveJob.getId());
+        priority = Math.max(priority, exclusiveJob.getPriority());
+        if (jobSnapshotsEnabled) {
+          acquiredJobs.addJobSnapshot(exclusiveJob);
+        }
+      }
+      acquiredJobs.addExclusiveJobIdBatch(processInstanceJobs.getKey(), jobIds, priority);
     }
 
     return acquiredJobs;
   }
+  
+  /** 
+   * Only messages qualify, and only one job per process instance, as executing a job 
+   * can change the other jobs of its process instance. Exclusive jobs of a process instance
+   * are acquired together and executed one after the other instead.
+   */
+  protected boolean isExecutableInOneTransaction(JobEntity job, Set<String> transactionProcessInstanceIds) {
+    if (!(job instanceof MessageEntity)) {
+      return false;
+    }
+    if (job.getProcessInstanceId() == null) {
+      return true;
+    }
+    return !job.isExclusive() && !transactionProcessInstanceIds.contains(job.getProcessInstanceId());
+  }
+  
+  protected void addJobIdBatchInOneTransaction(AcquiredJobs acquiredJobs, List<String> jobIds, int priority) {
+    if (jobIds.size() == 1) {
+      acquiredJobs.addJobIdBatch(jobIds, priority);
+    } else {
+      acquiredJobs.addJobIdBatchInOneTransaction(jobIds, priority);
+    }
+  }
 
   protected void lockJob(JobEntity job, String lockOwner, int lockTimeInMillis) {    
     job.setLockOwner(lockOwner);
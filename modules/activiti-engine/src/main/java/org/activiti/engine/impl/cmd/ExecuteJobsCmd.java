@@ -23,8 +23,10 @@ import org.activiti.engine.impl.interceptor.Command;
 import org.activiti.engine.impl.interceptor.CommandContext;
 import org.activiti.engine.impl.interceptor.CommandExecutor;
 import org.activiti.engine.impl.jobexecutor.FailedJobListener;
+import org.activiti.engine.impl.jobexecutor.JobExecutor;
 import org.activiti.engine.impl.jobexecutor.JobExecutorContext;
 import org.activiti.engine.impl.persistence.entity.JobEntity;
+import org.activiti.engine.impl.util.ClockUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,10 +41,18 @@ public class ExecuteJobsCmd implements Command<Object>, Serializable {
   private static Logger log = LoggerFactory.getLogger(ExecuteJobsCmd.class);
   
   protected String jobId;
+  /** not serialized, a command that was serialized selects the job again */
+  protected transient JobEntity jobSnapshot;
  
   public ExecuteJobsCmd(String jobId) {
     this.jobId = jobId;
   }
+  
+  /** executes the job as it was loaded by the job acquisition, without selecting it again */
+  public ExecuteJobsCmd(JobEntity jobSnapshot) {
+    this.jobId = jobSnapshot.getId();
+    this.jobSnapshot = jobSnapshot;
+  }
 
   public Object execute(CommandContext commandContext) {
     
@@ -54,21 +64,35 @@ public class ExecuteJobsCmd implements Command<Object>, Serializable {
       log.debug("Executing job {}", jobId);
     }
     
-    JobEntity job = commandContext
-      .getJobEntityManager()
-      .findJobById(jobId);
+    JobEntity job = null;
+    if (jobSnapshot != null) {
+      job = commandContext
+        .getJobEntityManager()
+        .attachJob(jobSnapshot);
+    } else {
+      job = commandContext
+        .getJobEntityManager()
+        .findJobById(jobId);
+    }
     
     if (job == null) {
       throw new JobNotFoundException(jobId);
     }
     
     JobExecutorContext jobExecutorContext = Context.getJobExecutorContext();
+    JobExecutor jobExecutor = null;
     if (jobExecutorContext != null) { // if null, then we are not called by the job executor     
       jobExecutorContext.setCurrentJob(job);
+      jobExecutor = Context.getProcessEngineConfiguration().getJobExecutor();
+      recordJobLag(jobExecutor, job);
     }
     
+    long start = System.nanoTime();
     try {
       job.execute(commandContext);
+      if (jobExecutor != null) {
+        jobExecutor.recordJobExecutionTime(job.getJobHandlerType(), (System.nanoTime() - start) / 1000000L);
+      }
     } catch (Throwable exception) {
       // When transaction is rolled back, decrement retries
       CommandExecutor commandExecutor = Context
@@ -89,6 +113,13 @@ public class ExecuteJobsCmd implements Command<Object>, Serializable {
     return null;
   }
   
+  protected static void recordJobLag(JobExecutor jobExecutor, JobEntity job) {
+    if (job.getDuedate() != null) {
+      long lag = ClockUtil.getCurrentTime().getTime() - job.getDuedate().getTime();
+      jobExecutor.recordJobLag(job.getJobHandlerType(), lag);
+    }
+  }
+  
   public String getJobId() {
 		return jobId;
 	}
@@ -0,0 +1,112 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.cmd;
+
+import java.io.Serializable;
+import java.util.List;
+
+import org.activiti.engine.ActivitiIllegalArgumentException;
+import org.activiti.engine.JobNotFoundException;
+import org.activiti.engine.impl.context.Context;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.jobexecutor.JobExecutor;
+import org.activiti.engine.impl.jobexecutor.JobExecutorContext;
+import org.activiti.engine.impl.persistence.entity.JobEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Executes jobs of different process instances in one transaction. 
+ * 
+ * Unlike the {@link ExecuteJobsCmd}, a failing job doesn't decrement its retries: 
+ * the caller is expected to execute the jobs again one by one when the transaction 
+ * is rolled back, so that only the failing job is affected.
+ */
+public class ExecuteJobsInOneTransactionCmd implements Command<Object>, Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private static Logger log = LoggerFactory.getLogger(ExecuteJobsInOneTransactionCmd.class);
+  
+  protected List<String> jobIds;
+  protected List<JobEntity> jobSnapshots;
+ 
+  public ExecuteJobsInOneTransactionCmd(List<String> jobIds) {
+    this(jobIds, null);
+  }
+  
+  /** 
+   * @param jobSnapshots the jobs as they were loaded by the job acquisition, in the order 
+   *        of the job ids, or null for the jobs that must be selected again 
+   */
+  public ExecuteJobsInOneTransactionCmd(List<String> jobIds, List<JobEntity> jobSnapshots) {
+    this.jobIds = jobIds;
+    this.jobSnapshots = jobSnapshots;
+  }
+
+  public Object execute(CommandContext commandContext) {
+    if (jobIds == null || jobIds.isEmpty()) {
+      throw new ActivitiIllegalArgumentException("jobIds is null or empty");
+    }
+    
+    if (log.isDebugEnabled()) {
+      log.debug("Executing jobs {} in one transaction", jobIds);
+    }
+    
+    JobExecutorContext jobExecutorContext = Context.getJobExecutorContext();
+    JobExecutor jobExecutor = (jobExecutorContext != null ? Context.getProcessEngineConfiguration().getJobExecutor() : null);
+    for (int i=0; i<jobIds.size(); i++) {
+      String jobId = jobIds.get(i);
+      JobEntity jobSnapshot = (jobSnapshots != null ? jobSnapshots.get(i) : null);
+      
+      JobEntity job = null;
+      if (jobSnapshot != null) {
+        job = commandContext
+          .getJobEntityManager()
+          .attachJob(jobSnapshot);
+      } else {
+        job = commandContext
+          .getJobEntityManager()
+          .findJobById(jobId);
+      }
+      
+      if (job == null) {
+        throw new JobNotFoundException(jobId);
+      }
+      
+      if (jobExecutorContext != null) { // if null, then we are not called by the job executor
+        jobExecutorContext.setCurrentJob(job);
+        ExecuteJobsCmd.recordJobLag(jobExecutor, job);
+      }
+      long start = System.nanoTime();
+      try {
+        job.execute(commandContext);
+        if (jobExecutor != null) {
+          jobExecutor.recordJobExecutionTime(job.getJobHandlerType(), (System.nanoTime() - start) / 1000000L);
+        }
+      } finally {
+        if (jobExecutorContext != null) {
+          jobExecutorContext.setCurrentJob(null);
+        }
+      }
+    }
+    return null;
+  }
+  
+  public List<String> getJobIds() {
+    return jobIds;
+  }
+
+}
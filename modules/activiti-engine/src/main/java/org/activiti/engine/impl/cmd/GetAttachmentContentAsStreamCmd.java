@@ -0,0 +1,64 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.cmd;
+
+import java.io.InputStream;
+import java.io.Serializable;
+
+import org.activiti.engine.ActivitiIllegalArgumentException;
+import org.activiti.engine.ActivitiObjectNotFoundException;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.interceptor.ReadOnlyCommand;
+import org.activiti.engine.impl.persistence.entity.AttachmentEntity;
+import org.activiti.engine.task.Attachment;
+
+
+/**
+ * Streams the content of an attachment, without loading it in memory.
+ * 
+ * @see GetAttachmentContentCmd
+ */
+public class GetAttachmentContentAsStreamCmd implements Command<InputStream>, ReadOnlyCommand, Serializable {
+
+  private static final long serialVersionUID = 1L;
+  protected String attachmentId;
+  
+  public GetAttachmentContentAsStreamCmd(String attachmentId) {
+    this.attachmentId = attachmentId;
+  }
+
+  public InputStream execute(CommandContext commandContext) {
+    if(attachmentId == null) {
+      throw new ActivitiIllegalArgumentException("attachmentId is null");
+    }
+    
+    AttachmentEntity attachment = commandContext
+      .getDbSqlSession()
+      .selectById(AttachmentEntity.class, attachmentId);
+    
+    if (attachment==null) {
+      throw new ActivitiObjectNotFoundException("attachment "+attachmentId+" doesn't exist", Attachment.class);
+    }
+    
+    String contentId = attachment.getContentId();
+    if (contentId==null) {
+      return null;
+    }
+    
+    return commandContext
+      .getByteArrayEntityManager()
+      .openStream(contentId);
+  }
+
+}
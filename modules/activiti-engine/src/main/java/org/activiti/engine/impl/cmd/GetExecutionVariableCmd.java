@@ -18,6 +18,7 @@ import org.activiti.engine.ActivitiIllegalArgumentException;
 import org.activiti.engine.ActivitiObjectNotFoundException;
 import org.activiti.engine.impl.interceptor.Command;
 import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.interceptor.ReadOnlyCommand;
 import org.activiti.engine.impl.persistence.entity.ExecutionEntity;
 import org.activiti.engine.runtime.Execution;
 
@@ -25,7 +26,7 @@ import org.activiti.engine.runtime.Execution;
 /**
  * @author Tom Baeyens
  */
-public class GetExecutionVariableCmd implements Command<Object>, Serializable {
+public class GetExecutionVariableCmd implements Command<Object>, ReadOnlyCommand, Serializable {
 
   private static final long serialVersionUID = 1L;
   protected String executionId;
@@ -21,6 +21,7 @@ import org.activiti.engine.ActivitiIllegalArgumentException;
 import org.activiti.engine.ActivitiObjectNotFoundException;
 import org.activiti.engine.impl.interceptor.Command;
 import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.interceptor.ReadOnlyCommand;
 import org.activiti.engine.impl.persistence.entity.ExecutionEntity;
 import org.activiti.engine.runtime.Execution;
 
@@ -28,7 +29,7 @@ import org.activiti.engine.runtime.Execution;
 /**
  * @author Tom Baeyens
  */
-public class GetExecutionVariablesCmd implements Command<Map<String, Object>>, Serializable {
+public class GetExecutionVariablesCmd implements Command<Map<String, Object>>, ReadOnlyCommand, Serializable {
 
   private static final long serialVersionUID = 1L;
   protected String executionId;
@@ -0,0 +1,71 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.cmd;
+
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.List;
+
+import org.activiti.engine.ActivitiIllegalArgumentException;
+import org.activiti.engine.ActivitiObjectNotFoundException;
+import org.activiti.engine.history.HistoricVariableInstance;
+import org.activiti.engine.impl.HistoricVariableInstanceQueryImpl;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.interceptor.ReadOnlyCommand;
+import org.activiti.engine.impl.persistence.entity.HistoricVariableInstanceEntity;
+import org.activiti.engine.impl.variable.ByteArrayType;
+import org.activiti.engine.impl.variable.NullType;
+import org.activiti.engine.impl.variable.SerializableType;
+
+
+/**
+ * Streams the value of a historic byte[] variable, or the serialized form of a historic serializable
+ * variable, without loading it in memory.
+ */
+public class GetHistoricVariableAsStreamCmd implements Command<InputStream>, ReadOnlyCommand, Serializable {
+
+  private static final long serialVersionUID = 1L;
+  protected String historicVariableInstanceId;
+
+  public GetHistoricVariableAsStreamCmd(String historicVariableInstanceId) {
+    this.historicVariableInstanceId = historicVariableInstanceId;
+  }
+
+  public InputStream execute(CommandContext commandContext) {
+    if(historicVariableInstanceId == null) {
+      throw new ActivitiIllegalArgumentException("historicVariableInstanceId is null");
+    }
+    
+    HistoricVariableInstanceQueryImpl query = new HistoricVariableInstanceQueryImpl();
+    query.id(historicVariableInstanceId);
+    List<HistoricVariableInstance> historicVariableInstances = commandContext
+      .getHistoricVariableInstanceEntityManager()
+      .findHistoricVariableInstancesByQueryCriteria(query, null);
+    
+    if (historicVariableInstances.isEmpty()) {
+      throw new ActivitiObjectNotFoundException("historic variable instance "+historicVariableInstanceId+" doesn't exist", HistoricVariableInstance.class);
+    }
+    
+    HistoricVariableInstanceEntity historicVariableInstance = (HistoricVariableInstanceEntity) historicVariableInstances.get(0);
+    if (historicVariableInstance.getVariableType() instanceof NullType) {
+      return null;
+    }
+    String typeName = historicVariableInstance.getVariableTypeName();
+    if (!ByteArrayType.TYPE_NAME.equals(typeName) && !SerializableType.TYPE_NAME.equals(typeName)) {
+      throw new ActivitiIllegalArgumentException("historic variable instance "+historicVariableInstanceId+" is of type '"+typeName+"', only byte[] and serializable variables can be streamed");
+    }
+    
+    return historicVariableInstance.getBytesAsStream();
+  }
+}
@@ -0,0 +1,75 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.cmd;
+
+import java.util.List;
+
+import org.activiti.engine.ActivitiException;
+import org.activiti.engine.impl.db.DbSequenceIdGenerator;
+import org.activiti.engine.impl.db.DbSqlSession;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+
+
+/**
+ * Takes the next idBlockSize values from the ACT_GE_ID_SEQ sequence, or from the 
+ * ACT_GE_ID_SEQ table on databases without native sequences.
+ */
+public class GetNextIdSequenceValuesCmd implements Command<long[]> {
+  
+  private static final long serialVersionUID = 1L;
+  protected int idBlockSize;
+  
+  public GetNextIdSequenceValuesCmd(int idBlockSize) {
+    this.idBlockSize = idBlockSize;
+  }
+
+  public long[] execute(CommandContext commandContext) {
+    DbSqlSession dbSqlSession = commandContext.getDbSqlSession();
+    String databaseType = dbSqlSession.getDbSqlSessionFactory().getDatabaseType();
+    if (DbSequenceIdGenerator.isNativeSequenceSupported(databaseType)) {
+      return selectNextSequenceValues(dbSqlSession);
+    } else {
+      return incrementSequenceTable(dbSqlSession);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  protected long[] selectNextSequenceValues(DbSqlSession dbSqlSession) {
+    List<Number> values = dbSqlSession.selectList("selectNextIdSequenceValues", idBlockSize);
+    if (values.size()!=idBlockSize) {
+      throw new ActivitiException("expected "+idBlockSize+" values from the id sequence, but got "+values.size());
+    }
+    long[] ids = new long[values.size()];
+    for (int i=0; i<ids.length; i++) {
+      ids[i] = values.get(i).longValue();
+    }
+    return ids;
+  }
+
+  protected long[] incrementSequenceTable(DbSqlSession dbSqlSession) {
+    // the update locks the counter row until the end of the transaction, 
+    // so the value that is selected next is ours
+    int updatedRows = dbSqlSession.directUpdate("updateIdSequence", idBlockSize);
+    if (updatedRows==0) {
+      throw new ActivitiException("id sequence row 'activiti.id' not found in ACT_GE_ID_SEQ");
+    }
+    Number nextValue = (Number) dbSqlSession.selectOne("selectIdSequence", null);
+    long lastId = nextValue.longValue()-1;
+    long[] ids = new long[idBlockSize];
+    for (int i=0; i<ids.length; i++) {
+      ids[i] = lastId-idBlockSize+1+i;
+    }
+    return ids;
+  }
+}
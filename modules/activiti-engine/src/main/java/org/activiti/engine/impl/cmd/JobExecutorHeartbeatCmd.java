@@ -0,0 +1,59 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.cmd;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.activiti.engine.impl.db.DbSqlSession;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.util.ClockUtil;
+
+
+/**
+ * Writes the heartbeat of a job executor to ACT_RU_JOB_HEARTBEAT and releases, with one update, 
+ * the locks of all job executors whose heartbeat is older than the heartbeat timeout. 
+ * Returns the number of released job locks.
+ */
+public class JobExecutorHeartbeatCmd implements Command<Integer> {
+  
+  protected String lockOwner;
+  protected long heartbeatTimeoutInMillis;
+  
+  public JobExecutorHeartbeatCmd(String lockOwner, long heartbeatTimeoutInMillis) {
+    this.lockOwner = lockOwner;
+    this.heartbeatTimeoutInMillis = heartbeatTimeoutInMillis;
+  }
+
+  public Integer execute(CommandContext commandContext) {
+    DbSqlSession dbSqlSession = commandContext.getDbSqlSession();
+    Date now = ClockUtil.getCurrentTime();
+    
+    Map<String, Object> heartbeat = new HashMap<String, Object>();
+    heartbeat.put("lockOwner", lockOwner);
+    heartbeat.put("heartbeatTime", now);
+    int updatedRows = dbSqlSession.directUpdate("updateJobHeartbeat", heartbeat);
+    if (updatedRows==0) {
+      dbSqlSession.directInsert("insertJobHeartbeat", heartbeat);
+    }
+    
+    Map<String, Object> expired = new HashMap<String, Object>();
+    expired.put("expiredBefore", new Date(now.getTime() - heartbeatTimeoutInMillis));
+    int releasedLocks = dbSqlSession.directUpdate("releaseJobLocksOfExpiredOwners", expired);
+    dbSqlSession.directDelete("deleteExpiredJobHeartbeats", expired);
+    
+    return releasedLocks;
+  }
+}
@@ -0,0 +1,46 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.cmd;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.activiti.engine.impl.db.DbSqlSession;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+
+
+/**
+ * Releases the locks that the given lock owner holds on the given jobs, eg. for the jobs that 
+ * a job executor acquired but didn't start before it was shut down.
+ * Returns the number of released job locks.
+ */
+public class ReleaseJobLocksCmd implements Command<Integer> {
+  
+  protected String lockOwner;
+  protected List<String> jobIds;
+  
+  public ReleaseJobLocksCmd(String lockOwner, List<String> jobIds) {
+    this.lockOwner = lockOwner;
+    this.jobIds = jobIds;
+  }
+
+  public Integer execute(CommandContext commandContext) {
+    DbSqlSession dbSqlSession = commandContext.getDbSqlSession();
+    Map<String, Object> parameters = new HashMap<String, Object>();
+    parameters.put("lockOwner", lockOwner);
+    parameters.put("jobIds", jobIds);
+    return dbSqlSession.directUpdate("releaseJobLocks", parameters);
+  }
+}
@@ -0,0 +1,137 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.db;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import org.activiti.engine.impl.util.CompressionUtil;
+import org.apache.ibatis.session.SqlSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A stream that reads the bytes of a row of ACT_GE_BYTEARRAY straight from its JDBC result set.
+ * 
+ * The query is only executed when the stream is read for the first time, with a session of its own
+ * that is opened with the configured transaction factory and closed when the stream is closed. 
+ * So the stream can be created in a command and read after the command has finished, without 
+ * holding a second connection while the command still holds its own. Reading a stream of a byte 
+ * array that was deleted in the meantime fails with an {@link IOException}.
+ */
+public class DbInputStream extends InputStream {
+  
+  private static Logger log = LoggerFactory.getLogger(DbInputStream.class);
+  
+  protected DbSqlSessionFactory dbSqlSessionFactory;
+  protected String byteArrayId;
+  
+  protected SqlSession sqlSession;
+  protected PreparedStatement statement;
+  protected ResultSet resultSet;
+  protected InputStream inputStream;
+  protected boolean closed;
+
+  public DbInputStream(DbSqlSessionFactory dbSqlSessionFactory, String byteArrayId) {
+    this.dbSqlSessionFactory = dbSqlSessionFactory;
+    this.byteArrayId = byteArrayId;
+  }
+  
+  protected InputStream getInputStream() throws IOException {
+    if (closed) {
+      throw new IOException("stream of byte array " + byteArrayId + " is closed");
+    }
+    if (inputStream == null) {
+      String sql = "select BYTES_ from " + dbSqlSessionFactory.getDatabaseTablePrefix() + "ACT_GE_BYTEARRAY where ID_ = ?";
+      sqlSession = dbSqlSessionFactory.getSqlSessionFactory().openSession();
+      boolean rowFound = false;
+      try {
+        statement = sqlSession.getConnection().prepareStatement(sql);
+        statement.setString(1, byteArrayId);
+        resultSet = statement.executeQuery();
+        rowFound = resultSet.next();
+        InputStream bytesStream = (rowFound ? resultSet.getBinaryStream(1) : null);
+        if (bytesStream != null) {
+          inputStream = CompressionUtil.decompress(bytesStream);
+        } else {
+          inputStream = new ByteArrayInputStream(new byte[0]);
+        }
+      } catch (Exception e) {
+        close();
+        throw new IOException("couldn't read the bytes of byte array " + byteArrayId + ": " + e.getMessage(), e);
+      }
+      if (!rowFound) {
+        // the byte array was deleted after the stream was created, which must not read as empty data
+        close();
+        throw new IOException("byte array " + byteArrayId + " doesn't exist anymore");
+      }
+    }
+    return inputStream;
+  }
+  
+  @Override
+  public int read() throws IOException {
+    return getInputStream().read();
+  }
+  
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    return getInputStream().read(b, off, len);
+  }
+  
+  @Override
+  public long skip(long n) throws IOException {
+    return getInputStream().skip(n);
+  }
+  
+  @Override
+  public int available() throws IOException {
+    return (inputStream != null && !closed ? inputStream.available() : 0);
+  }
+  
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      if (inputStream != null) {
+        inputStream.close();
+      }
+    } finally {
+      closeSession();
+    }
+  }
+  
+  protected void closeSession() {
+    try {
+      if (resultSet != null) {
+        resultSet.close();
+      }
+      if (statement != null) {
+        statement.close();
+      }
+    } catch (Exception e) {
+      log.warn("couldn't close result set of byte array {}: {}", byteArrayId, e.getMessage());
+    } finally {
+      if (sqlSession != null) {
+        sqlSession.close();
+      }
+    }
+  }
+
+}
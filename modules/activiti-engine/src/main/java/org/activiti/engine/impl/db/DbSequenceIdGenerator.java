@@ -0,0 +1,61 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.db;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.activiti.engine.impl.cmd.GetNextIdSequenceValuesCmd;
+
+
+/**
+ * {@link DbIdGenerator} that takes its ids from the ACT_GE_ID_SEQ database sequence
+ * instead of from the next.dbid property, so that fetching a block of ids doesn't 
+ * need an optimistically locked update that fails when engines compete for it.
+ * 
+ * On databases with native sequences (see {@link #NATIVE_SEQUENCE_DATABASE_TYPES}) 
+ * a block of idBlockSize values is selected from the sequence in one statement. 
+ * On the other databases ACT_GE_ID_SEQ is a table with a single counter row that 
+ * is incremented with idBlockSize in one update.
+ * 
+ * Switching an existing database from the next.dbid property to the sequence
+ * requires the sequence to start after the highest id that was handed out,
+ * which the upgrade scripts take care of.
+ */
+public class DbSequenceIdGenerator extends DbIdGenerator {
+  
+  public static final Set<String> NATIVE_SEQUENCE_DATABASE_TYPES = Collections.unmodifiableSet(
+    new HashSet<String>(Arrays.asList("postgres", "oracle", "db2")));
+
+  protected long[] ids = new long[0];
+  protected int nextIndex = 0;
+  
+  public synchronized String getNextId() {
+    if (nextIndex>=ids.length) {
+      getNewBlock();
+    }
+    long _nextId = ids[nextIndex++];
+    return Long.toString(_nextId);
+  }
+
+  protected synchronized void getNewBlock() {
+    this.ids = commandExecutor.execute(commandConfig, new GetNextIdSequenceValuesCmd(idBlockSize));
+    this.nextIndex = 0;
+  }
+
+  public static boolean isNativeSequenceSupported(String databaseType) {
+    return NATIVE_SEQUENCE_DATABASE_TYPES.contains(databaseType);
+  }
+}
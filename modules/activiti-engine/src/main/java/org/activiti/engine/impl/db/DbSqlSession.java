@@ -24,9 +24,12 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -60,6 +63,9 @@ import org.activiti.engine.impl.persistence.entity.VariableInstanceEntity;
 import org.activiti.engine.impl.util.IoUtil;
 import org.activiti.engine.impl.util.ReflectUtil;
 import org.activiti.engine.impl.variable.DeserializedObject;
+import org.activiti.engine.impl.variable.VariableCodec;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -84,22 +90,40 @@ public class DbSqlSession implements Session {
   protected List<PersistentObject> insertedObjects = new ArrayList<PersistentObject>();
   protected Map<Class<?>, Map<String, CachedObject>> cachedObjects = new HashMap<Class<?>, Map<String,CachedObject>>();
   protected List<DeleteOperation> deleteOperations = new ArrayList<DeleteOperation>();
+  /** the {@link CheckedDeleteOperation}s of {@link #deleteOperations}, indexed by class and id */
+  protected Map<Class<?>, Map<String, CheckedDeleteOperation>> checkedDeleteOperations = new HashMap<Class<?>, Map<String, CheckedDeleteOperation>>();
   protected List<DeserializedObject> deserializedObjects = new ArrayList<DeserializedObject>();
   protected String connectionMetadataDefaultCatalog;
   protected String connectionMetadataDefaultSchema;
+  
+  /** objects of which the batched update or delete must have hit a row, 
+   * only used when {@link DbSqlSessionFactory#isJdbcBatchEnabled() jdbc batching} is enabled */
+  protected Set<Object> optimisticLockingCheckedObjects = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
 
   public DbSqlSession(DbSqlSessionFactory dbSqlSessionFactory) {
     this.dbSqlSessionFactory = dbSqlSessionFactory;
-    this.sqlSession = dbSqlSessionFactory
-      .getSqlSessionFactory()
-      .openSession();
+    if (dbSqlSessionFactory.isJdbcBatchEnabled()) {
+      this.sqlSession = dbSqlSessionFactory
+        .getSqlSessionFactory()
+        .openSession(ExecutorType.BATCH);
+    } else {
+      this.sqlSession = dbSqlSessionFactory
+        .getSqlSessionFactory()
+        .openSession();
+    }
   }
 
   public DbSqlSession(DbSqlSessionFactory dbSqlSessionFactory, Connection connection, String catalog, String schema) {
     this.dbSqlSessionFactory = dbSqlSessionFactory;
-    this.sqlSession = dbSqlSessionFactory
-      .getSqlSessionFactory()
-      .openSession(connection);
+    if (dbSqlSessionFactory.isJdbcBatchEnabled()) {
+      this.sqlSession = dbSqlSessionFactory
+        .getSqlSessionFactory()
+        .openSession(ExecutorType.BATCH, connection);
+    } else {
+      this.sqlSession = dbSqlSessionFactory
+        .getSqlSessionFactory()
+        .openSession(connection);
+    }
     this.connectionMetadataDefaultCatalog = catalog;
     this.connectionMetadataDefaultSchema = schema;
   }
@@ -121,6 +145,23 @@ public class DbSqlSession implements Session {
     cachePut(persistentObject, false);
   }
   
+  /**
+   * Executes the update statement at the end of the flush, in order with the deletes.
+   * So the statement can update rows that are only inserted in the same flush. 
+   */
+  public void update(String statement, Object parameter) {
+    deleteOperations.add(new BulkUpdateOperation(statement, parameter));
+  }
+  
+  /**
+   * Like {@link #update(String, Object)}, for a statement that updates the given object 
+   * with an optimistic locking check on its revision (eg. an update of a single column). 
+   * See {@link CheckedUpdateOperation}.
+   */
+  public void checkedUpdate(String statement, PersistentObject persistentObject) {
+    deleteOperations.add(new CheckedUpdateOperation(statement, persistentObject));
+  }
+  
   // delete ///////////////////////////////////////////////////////////////////
 
   public void delete(String statement, Object parameter) {
@@ -128,14 +169,29 @@ public class DbSqlSession implements Session {
   }
   
   public void delete(PersistentObject persistentObject) {
-    for (DeleteOperation deleteOperation: deleteOperations) {
-        if (deleteOperation.sameIdentity(persistentObject)) {
-          log.debug("skipping redundant delete: {}", persistentObject);
-          return; // Skip this delete. It was already added.
-        }
+    if (findCheckedDeleteOperation(persistentObject)!=null) {
+      log.debug("skipping redundant delete: {}", persistentObject);
+      return; // Skip this delete. It was already added.
     }
     
-    deleteOperations.add(new CheckedDeleteOperation(persistentObject));
+    CheckedDeleteOperation deleteOperation = new CheckedDeleteOperation(persistentObject);
+    deleteOperations.add(deleteOperation);
+    
+    Map<String, CheckedDeleteOperation> classDeleteOperations = checkedDeleteOperations.get(persistentObject.getClass());
+    if (classDeleteOperations==null) {
+      classDeleteOperations = new HashMap<String, CheckedDeleteOperation>();
+      checkedDeleteOperations.put(persistentObject.getClass(), classDeleteOperations);
+    }
+    classDeleteOperations.put(persistentObject.getId(), deleteOperation);
+  }
+  
+  /** returns the {@link CheckedDeleteOperation} that deletes an object with the same class and id, or null */
+  protected CheckedDeleteOperation findCheckedDeleteOperation(PersistentObject persistentObject) {
+    Map<String, CheckedDeleteOperation> classDeleteOperations = checkedDeleteOperations.get(persistentObject.getClass());
+    if (classDeleteOperations==null) {
+      return null;
+    }
+    return classDeleteOperations.get(persistentObject.getId());
   }
 
   public interface DeleteOperation {
@@ -191,6 +247,83 @@ public class DbSqlSession implements Session {
     }
   }
   
+  /**
+   * Executes a dedicated update statement in the place of a delete operation, 
+   * see {@link DbSqlSession#update(String, Object)}.
+   */
+  public class BulkUpdateOperation implements DeleteOperation {
+    private String statement;
+    private Object parameter;
+    
+    public BulkUpdateOperation(String statement, Object parameter) {
+      this.statement = dbSqlSessionFactory.mapStatement(statement);
+      this.parameter = parameter;
+    }
+    
+    @Override
+    public boolean sameIdentity(PersistentObject other) {
+      return false;
+    }
+
+    @Override
+    public void clearCache() {
+    }
+    
+    @Override
+    public void execute() {
+      sqlSession.update(statement, parameter);
+    }
+    
+    @Override
+    public String toString() {
+      return "bulk update: " + statement + "(" + parameter + ")";
+    }
+  }
+  
+  /**
+   * Executes a dedicated update statement of a persistent object in the place of a delete operation, 
+   * see {@link DbSqlSession#checkedUpdate(String, PersistentObject)}. The statement has to update 
+   * the revision like the regular update does, when it doesn't hit a row the object was updated 
+   * by another transaction and an {@link ActivitiOptimisticLockingException} is thrown.
+   */
+  public class CheckedUpdateOperation implements DeleteOperation {
+    protected final String statement;
+    protected final PersistentObject persistentObject;
+    
+    public CheckedUpdateOperation(String statement, PersistentObject persistentObject) {
+      this.statement = dbSqlSessionFactory.mapStatement(statement);
+      this.persistentObject = persistentObject;
+    }
+    
+    @Override
+    public boolean sameIdentity(PersistentObject other) {
+      return false;
+    }
+
+    @Override
+    public void clearCache() {
+    }
+    
+    @Override
+    public void execute() {
+      int updatedRows = sqlSession.update(statement, persistentObject);
+      if (dbSqlSessionFactory.isJdbcBatchEnabled()) {
+        // the number of updated rows is only known when the batch is executed
+        optimisticLockingCheckedObjects.add(persistentObject);
+      } else if (updatedRows==0) {
+        throw new ActivitiOptimisticLockingException(persistentObject + " was updated by another transaction concurrently");
+      }
+      if (persistentObject instanceof HasRevision) {
+        ((HasRevision) persistentObject).setRevision(((HasRevision) persistentObject).getRevisionNext());
+      }
+    }
+    
+    @Override
+    public String toString() {
+      return "checked update: " + statement + "(" + persistentObject + ")";
+    }
+  }
+  
   /**
    * A {@link DeleteOperation} that checks for concurrent modifications if the persistent object implements {@link HasRevision}.
    * That is, it employs optimisting concurrency control. Used when the persistent object has been fetched already.
@@ -221,7 +354,11 @@ public class DbSqlSession implements Session {
       }
       
       // It only makes sense to check for optimistic locking exceptions for objects that actually have a revision
-      if (persistentObject instanceof HasRevision) {
+      if (persistentObject instanceof HasRevision && dbSqlSessionFactory.isJdbcBatchEnabled()) {
+        // the number of deleted rows is only known when the batch is executed
+        sqlSession.delete(deleteStatement, persistentObject);
+        optimisticLockingCheckedObjects.add(persistentObject);
+      } else if (persistentObject instanceof HasRevision) {
         int nrOfRowsDeleted = sqlSession.delete(deleteStatement, persistentObject);
         if (nrOfRowsDeleted == 0) {
           throw new ActivitiOptimisticLockingException(persistentObject + " was updated by another transaction concurrently");
@@ -241,6 +378,16 @@ public class DbSqlSession implements Session {
     }
   }
   
+  /** true if the object is inserted in this session and isn't flushed yet */
+  public boolean isInserted(PersistentObject persistentObject) {
+    for (PersistentObject insertedObject: insertedObjects) {
+      if (insertedObject == persistentObject) {
+        return true;
+      }
+    }
+    return false;
+  }
+  
   // select ///////////////////////////////////////////////////////////////////
 
   @SuppressWarnings({ "rawtypes" })
@@ -283,12 +430,14 @@ public class DbSqlSession implements Session {
     if (firstResult == -1 ||  maxResults == -1) {
       return Collections.EMPTY_LIST;
     }    
+    flushBatchStatementsBeforeSelect();
     List loadedObjects = sqlSession.selectList(statement, parameter);
     return filterLoadedObjects(loadedObjects);
   }  
 
   public Object selectOne(String statement, Object parameter) {
     statement = dbSqlSessionFactory.mapStatement(statement);
+    flushBatchStatementsBeforeSelect();
     Object result = sqlSession.selectOne(statement, parameter);
     if (result instanceof PersistentObject) {
       PersistentObject loadedObject = (PersistentObject) result;
@@ -305,6 +454,7 @@ public class DbSqlSession implements Session {
     }
     String selectStatement = dbSqlSessionFactory.getSelectStatement(entityClass);
     selectStatement = dbSqlSessionFactory.mapStatement(selectStatement);
+    flushBatchStatementsBeforeSelect();
     persistentObject = (T) sqlSession.selectOne(selectStatement, id);
     if (persistentObject==null) {
       return null;
@@ -343,6 +493,14 @@ public class DbSqlSession implements Session {
     return cachedObject;
   }
   
+  /** adds an object that was loaded by another session to the cache, as if it was 
+   * selected by this session.  its changes are flushed with an optimistic lock 
+   * check against the revision it had when it was loaded. */
+  @SuppressWarnings("unchecked")
+  public <T extends PersistentObject> T attach(T persistentObject) {
+    return (T) cacheFilter(persistentObject);
+  }
+  
   /** returns the object in the cache.  if this object was loaded before, 
    * then the original object is returned.  if this is the first time 
    * this object is loaded, then the loadedObject is added to the cache. */
@@ -399,10 +557,21 @@ public class DbSqlSession implements Session {
     
     public CachedObject(PersistentObject persistentObject, boolean storeState) {
       this.persistentObject = persistentObject;
-      if (storeState) {
+      if (persistentObject instanceof HasDirtyFlag) {
+        // objects that are not loaded are always flushed, like when no state is stored
+        ((HasDirtyFlag) persistentObject).setDirty(!storeState);
+      } else if (storeState) {
         this.persistentObjectState = persistentObject.getPersistentState();
       }
     }
+    
+    /** whether the persistent object changed since it was put in the cache */
+    public boolean isUpdated() {
+      if (persistentObject instanceof HasDirtyFlag) {
+        return ((HasDirtyFlag) persistentObject).isDirty();
+      }
+      return !persistentObject.getPersistentState().equals(persistentObjectState);
+    }
 
     public PersistentObject getPersistentObject() {
       return persistentObject;
@@ -418,6 +587,10 @@ public class DbSqlSession implements Session {
   public void addDeserializedObject(Object deserializedObject, byte[] serializedBytes, VariableInstanceEntity variableInstanceEntity) {
     deserializedObjects.add(new DeserializedObject(deserializedObject, serializedBytes, variableInstanceEntity));
   }
+  
+  public void addDeserializedObject(Object deserializedObject, byte[] serializedBytes, VariableInstanceEntity variableInstanceEntity, VariableCodec codec) {
+    deserializedObjects.add(new DeserializedObject(deserializedObject, serializedBytes, variableInstanceEntity, codec));
+  }
 
   // flush ////////////////////////////////////////////////////////////////////
 
@@ -443,6 +616,10 @@ public class DbSqlSession implements Session {
     flushInserts();
     flushUpdates(updatedObjects);
     flushDeletes();
+    
+    if (dbSqlSessionFactory.isJdbcBatchEnabled()) {
+      flushBatchStatements();
+    }
   }
 
   /**
@@ -451,22 +628,39 @@ public class DbSqlSession implements Session {
    */
   protected void removeUnnecessaryOperations() {
     
-    for (Iterator<DeleteOperation> deleteIt = deleteOperations.iterator(); deleteIt.hasNext();) {
-      DeleteOperation deleteOperation = deleteIt.next();
-      
-      for (Iterator<PersistentObject> insertIt = insertedObjects.iterator(); insertIt.hasNext();) {
-        PersistentObject insertedObject = insertIt.next();
+    Set<DeleteOperation> cancelledDeleteOperations = null;
+    if (!checkedDeleteOperations.isEmpty()) {
+      List<PersistentObject> remainingInsertedObjects = new ArrayList<PersistentObject>(insertedObjects.size());
+      for (PersistentObject insertedObject: insertedObjects) {
+        CheckedDeleteOperation deleteOperation = findCheckedDeleteOperation(insertedObject);
         
         // if the deleted object is inserted,
-        if (deleteOperation.sameIdentity(insertedObject)) {
+        if (deleteOperation!=null) {
           // remove the insert and the delete, they cancel each other
-          insertIt.remove();
-          deleteIt.remove();
+          if (cancelledDeleteOperations==null) {
+            cancelledDeleteOperations = Collections.newSetFromMap(new IdentityHashMap<DeleteOperation, Boolean>());
+          }
+          cancelledDeleteOperations.add(deleteOperation);
+          checkedDeleteOperations.get(insertedObject.getClass()).remove(insertedObject.getId());
+        } else {
+          remainingInsertedObjects.add(insertedObject);
         }
       }
+      if (cancelledDeleteOperations!=null) {
+        insertedObjects = remainingInsertedObjects;
+      }
+    }
+    
+    for (Iterator<DeleteOperation> deleteIt = deleteOperations.iterator(); deleteIt.hasNext();) {
+      DeleteOperation deleteOperation = deleteIt.next();
       
       // in any case, remove the deleted object from the cache
       deleteOperation.clearCache();
+      
+      if (cancelledDeleteOperations!=null && cancelledDeleteOperations.contains(deleteOperation)) {
+        // remove the delete before the flush lists it
+        deleteIt.remove();
+      }
     }
     
     for (PersistentObject insertedObject: insertedObjects) {
@@ -490,8 +684,7 @@ public class DbSqlSession implements Session {
         
         PersistentObject persistentObject = cachedObject.getPersistentObject();
         if (!isPersistentObjectDeleted(persistentObject)) {
-          Object originalState = cachedObject.getPersistentObjectState();
-          if (!persistentObject.getPersistentState().equals(originalState)) {
+          if (cachedObject.isUpdated()) {
             updatedObjects.add(persistentObject);
           } else {
             log.trace("loaded object '{}' was not updated", persistentObject);
@@ -505,46 +698,110 @@ public class DbSqlSession implements Session {
   }
   
   protected boolean isPersistentObjectDeleted(PersistentObject persistentObject) {
-    for (DeleteOperation deleteOperation : deleteOperations) {
-      if (deleteOperation.sameIdentity(persistentObject)) {
-        return true;
-      }
-    }
-    return false;
+    return findCheckedDeleteOperation(persistentObject)!=null;
   }
   
   public <T extends PersistentObject> List<T> pruneDeletedEntities(List<T> listToPrune) {   
-    List<T> prunedList = new ArrayList<T>(listToPrune);
+    if (checkedDeleteOperations.isEmpty()) {
+      return new ArrayList<T>(listToPrune);
+    }
+    List<T> prunedList = new ArrayList<T>(listToPrune.size());
     for (T potentiallyDeleted : listToPrune) {
-      for (DeleteOperation deleteOperation: deleteOperations) {
-          
-        if (deleteOperation.sameIdentity(potentiallyDeleted)) {
-          prunedList.remove(potentiallyDeleted);
-        }
-          
+      if (!isPersistentObjectDeleted(potentiallyDeleted)) {
+        prunedList.add(potentiallyDeleted);
       }
     }
     return prunedList;
   }
 
   protected void flushInserts() {
-    for (PersistentObject insertedObject: insertedObjects) {
-      String insertStatement = dbSqlSessionFactory.getInsertStatement(insertedObject);
-      insertStatement = dbSqlSessionFactory.mapStatement(insertStatement);
-
-      if (insertStatement==null) {
-        throw new ActivitiException("no insert statement for "+insertedObject.getClass()+" in the ibatis mapping files");
+    if (dbSqlSessionFactory.isJdbcBatchEnabled() || dbSqlSessionFactory.isBulkInsertEnabled()) {
+      // group the inserts per type, so they can share the same (bulk) statement
+      for (List<PersistentObject> objectsOfType : groupByEntityType(insertedObjects)) {
+        if (dbSqlSessionFactory.isBulkInsertEnabled() 
+                && objectsOfType.size() > 1
+                && dbSqlSessionFactory.isBulkInsertable(objectsOfType.get(0).getClass())) {
+          flushBulkInsert(objectsOfType);
+        } else {
+          for (PersistentObject insertedObject : objectsOfType) {
+            flushInsert(insertedObject);
+          }
+        }
       }
-      
-      log.debug("inserting: {}", insertedObject);
-      sqlSession.insert(insertStatement, insertedObject);
-      
-      // See http://jira.codehaus.org/browse/ACT-1290
+    } else {
+      for (PersistentObject insertedObject: insertedObjects) {
+        flushInsert(insertedObject);
+      }
+    }
+    insertedObjects.clear();
+  }
+  
+  protected void flushInsert(PersistentObject insertedObject) {
+    String insertStatement = dbSqlSessionFactory.getInsertStatement(insertedObject);
+    insertStatement = dbSqlSessionFactory.mapStatement(insertStatement);
+
+    if (insertStatement==null) {
+      throw new ActivitiException("no insert statement for "+insertedObject.getClass()+" in the ibatis mapping files");
+    }
+    
+    log.debug("inserting: {}", insertedObject);
+    sqlSession.insert(insertStatement, insertedObject);
+    
+    // See http://jira.codehaus.org/browse/ACT-1290
+    if (insertedObject instanceof HasRevision) {
+      ((HasRevision) insertedObject).setRevision(((HasRevision) insertedObject).getRevisionNext());
+    }
+  }
+  
+  /**
+   * Inserts objects of the same type with multi-row insert statements, 
+   * each statement containing at most {@link DbSqlSessionFactory#getMaxNrOfStatementsInBulkInsert()} rows.
+   */
+  protected void flushBulkInsert(List<PersistentObject> objectsOfType) {
+    Class<?> entityClass = objectsOfType.get(0).getClass();
+    String bulkInsertStatement = dbSqlSessionFactory.getBulkInsertStatement(entityClass);
+    bulkInsertStatement = dbSqlSessionFactory.mapStatement(bulkInsertStatement);
+    
+    int maxNrOfRows = dbSqlSessionFactory.getMaxNrOfStatementsInBulkInsert();
+    for (int fromIndex = 0; fromIndex < objectsOfType.size(); fromIndex += maxNrOfRows) {
+      List<PersistentObject> chunk = objectsOfType.subList(fromIndex, Math.min(fromIndex + maxNrOfRows, objectsOfType.size()));
+      log.debug("bulk inserting {} objects of {}", chunk.size(), entityClass);
+      sqlSession.insert(bulkInsertStatement, chunk);
+    }
+    
+    // See http://jira.codehaus.org/browse/ACT-1290
+    for (PersistentObject insertedObject : objectsOfType) {
       if (insertedObject instanceof HasRevision) {
         ((HasRevision) insertedObject).setRevision(((HasRevision) insertedObject).getRevisionNext());
       }
     }
-    insertedObjects.clear();
+  }
+  
+  /**
+   * Groups the given objects per type, following the {@link EntityDependencyOrder#INSERT_ORDER}.
+   * The order of objects of the same type is retained.
+   */
+  protected List<List<PersistentObject>> groupByEntityType(List<PersistentObject> persistentObjects) {
+    Map<Class<?>, List<PersistentObject>> objectsByType = new LinkedHashMap<Class<?>, List<PersistentObject>>();
+    for (PersistentObject persistentObject : persistentObjects) {
+      List<PersistentObject> objectsOfType = objectsByType.get(persistentObject.getClass());
+      if (objectsOfType == null) {
+        objectsOfType = new ArrayList<PersistentObject>();
+        objectsByType.put(persistentObject.getClass(), objectsOfType);
+      }
+      objectsOfType.add(persistentObject);
+    }
+    
+    List<List<PersistentObject>> groupedObjects = new ArrayList<List<PersistentObject>>(objectsByType.size());
+    for (Class<?> entityClass : EntityDependencyOrder.INSERT_ORDER) {
+      List<PersistentObject> objectsOfType = objectsByType.remove(entityClass);
+      if (objectsOfType != null) {
+        groupedObjects.add(objectsOfType);
+      }
+    }
+    // custom entities
+    groupedObjects.addAll(objectsByType.values());
+    return groupedObjects;
   }
   
   protected void flushUpdates(List<PersistentObject> updatedObjects) {
@@ -561,9 +818,21 @@ public class DbSqlSession implements Session {
         throw new ActivitiException("no update statement for "+updatedObject.getClass()+" in the ibatis mapping files");
       }
       
+      Object updateParameter = updatedObject;
+      if (dbSqlSessionFactory.isPartialUpdateEnabled() && dbSqlSessionFactory.isPartiallyUpdatable(updatedObject.getClass())) {
+        Set<String> changedProperties = getChangedProperties(updatedObject);
+        if (changedProperties!=null) {
+          updateStatement = dbSqlSessionFactory.mapStatement(dbSqlSessionFactory.getPartialUpdateStatement(updatedObject.getClass()));
+          updateParameter = new PartialUpdateParameterObject(updatedObject, changedProperties);
+        }
+      }
+      
       log.debug("updating: {}", updatedObject);
-      int updatedRecords = sqlSession.update(updateStatement, updatedObject);
-      if (updatedRecords!=1) {
+      int updatedRecords = sqlSession.update(updateStatement, updateParameter);
+      if (dbSqlSessionFactory.isJdbcBatchEnabled()) {
+        // the number of updated rows is only known when the batch is executed
+        optimisticLockingCheckedObjects.add(updateParameter);
+      } else if (updatedRecords!=1) {
         throw new ActivitiOptimisticLockingException(updatedObject + " was updated by another transaction concurrently");
       } 
       
@@ -576,12 +845,104 @@ public class DbSqlSession implements Session {
     updatedObjects.clear();
   }
 
+  /**
+   * The properties that changed since the object was loaded, 
+   * or null if that is unknown (eg. when the object was not loaded in this session).
+   */
+  @SuppressWarnings("unchecked")
+  protected Set<String> getChangedProperties(PersistentObject updatedObject) {
+    Map<String, CachedObject> classCache = cachedObjects.get(updatedObject.getClass());
+    CachedObject cachedObject = (classCache!=null ? classCache.get(updatedObject.getId()) : null);
+    if (cachedObject==null || cachedObject.getPersistentObject()!=updatedObject) {
+      return null;
+    }
+    Object originalState = cachedObject.getPersistentObjectState();
+    Object currentState = updatedObject.getPersistentState();
+    if (!(originalState instanceof Map) || !(currentState instanceof Map)) {
+      return null;
+    }
+    return PartialUpdateParameterObject.getChangedProperties((Map<String, Object>) originalState, (Map<String, Object>) currentState);
+  }
+
   protected void flushDeletes() {
     for (DeleteOperation delete: deleteOperations) {
       log.debug("executing: {}", delete);
       delete.execute();
     }
     deleteOperations.clear();
+    checkedDeleteOperations.clear();
+  }
+  
+  /**
+   * Sends the statements that were collected by the batch executor to the database.
+   * Consecutive statements with the same sql are sent as one JDBC batch.
+   * An update or delete that has to do an optimistic locking check and didn't hit
+   * any row results in an {@link ActivitiOptimisticLockingException}.
+   */
+  protected List<BatchResult> flushBatchStatements() {
+    log.debug("executing batched statements");
+    try {
+      List<BatchResult> batchResults = sqlSession.flushStatements();
+      for (BatchResult batchResult : batchResults) {
+        int[] updateCounts = batchResult.getUpdateCounts();
+        List<Object> parameterObjects = batchResult.getParameterObjects();
+        for (int i=0; i<updateCounts.length; i++) {
+          // some drivers return Statement.SUCCESS_NO_INFO instead of the real count, which can't be checked
+          if (updateCounts[i]==0 && optimisticLockingCheckedObjects.contains(parameterObjects.get(i))) {
+            throw new ActivitiOptimisticLockingException(parameterObjects.get(i) + " was updated by another transaction concurrently");
+          }
+        }
+      }
+      return batchResults;
+    } finally {
+      optimisticLockingCheckedObjects.clear();
+    }
+  }
+  
+  /**
+   * Executes the update statement right away instead of at the flush, and returns the number 
+   * of updated rows, also when {@link DbSqlSessionFactory#isJdbcBatchEnabled() jdbc batching} is enabled.
+   */
+  public int directUpdate(String statement, Object parameter) {
+    String updateStatement = dbSqlSessionFactory.mapStatement(statement);
+    int updatedRows = sqlSession.update(updateStatement, parameter);
+    if (dbSqlSessionFactory.isJdbcBatchEnabled()) {
+      updatedRows = getLastUpdateCount(flushBatchStatements());
+    }
+    return updatedRows;
+  }
+  
+  /** Like {@link #directUpdate(String, Object)}, for an insert statement. */
+  public int directInsert(String statement, Object parameter) {
+    return directUpdate(statement, parameter);
+  }
+  
+  /** Like {@link #directUpdate(String, Object)}, for a delete statement. */
+  public int directDelete(String statement, Object parameter) {
+    return directUpdate(statement, parameter);
+  }
+  
+  /**
+   * The update count of the last executed statement, which is the last one of 
+   * the last {@link BatchResult} as MyBatis keeps the order of the statements.
+   */
+  protected int getLastUpdateCount(List<BatchResult> batchResults) {
+    if (batchResults.isEmpty()) {
+      throw new ActivitiException("no batched statement was executed");
+    }
+    int[] updateCounts = batchResults.get(batchResults.size()-1).getUpdateCounts();
+    return updateCounts[updateCounts.length-1];
+  }
+  
+  /**
+   * The batch executor of MyBatis executes the pending statements itself before a select, 
+   * and drops their results. So they are executed here first, to make sure their 
+   * optimistic locking checks aren't lost.
+   */
+  protected void flushBatchStatementsBeforeSelect() {
+    if (dbSqlSessionFactory.isJdbcBatchEnabled()) {
+      flushBatchStatements();
+    }
   }
 
   public void close() {
@@ -16,10 +16,20 @@ package org.activiti.engine.impl.db;
 import org.activiti.engine.impl.cfg.IdGenerator;
 import org.activiti.engine.impl.interceptor.Session;
 import org.activiti.engine.impl.interceptor.SessionFactory;
+import org.activiti.engine.impl.persistence.entity.ExecutionEntity;
+import org.activiti.engine.impl.persistence.entity.HistoricActivityInstanceEntity;
+import org.activiti.engine.impl.persistence.entity.HistoricDetailVariableInstanceUpdateEntity;
+import org.activiti.engine.impl.persistence.entity.HistoricFormPropertyEntity;
+import org.activiti.engine.impl.persistence.entity.HistoricVariableInstanceEntity;
+import org.activiti.engine.impl.persistence.entity.IdentityLinkEntity;
+import org.activiti.engine.impl.persistence.entity.TaskEntity;
+import org.activiti.engine.impl.persistence.entity.VariableInstanceEntity;
 import org.apache.ibatis.session.SqlSessionFactory;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 
@@ -86,6 +96,7 @@ public class DbSqlSessionFactory implements SessionFactory {
     addDatabaseSpecificStatement("postgres", "selectCommentsByType", "selectCommentsByType_postgres");
     addDatabaseSpecificStatement("postgres", "selectCommentsByTaskIdAndType", "selectCommentsByTaskIdAndType_postgres");
     addDatabaseSpecificStatement("postgres", "selectEventsByTaskId", "selectEventsByTaskId_postgres");
+    addDatabaseSpecificStatement("postgres", "selectNextIdSequenceValues", "selectNextIdSequenceValues_postgres");
         
     // oracle
     databaseSpecificLimitBeforeStatements.put("oracle", "select * from ( select a.*, ROWNUM rnum from (");
@@ -94,6 +105,13 @@ public class DbSqlSessionFactory implements SessionFactory {
     databaseOuterJoinLimitBetweenStatements.put("oracle", "");
     databaseSpecificOrderByStatements.put("oracle", defaultOrderBy);
     addDatabaseSpecificStatement("oracle", "selectExclusiveJobsToExecute", "selectExclusiveJobsToExecute_integerBoolean");
+    addDatabaseSpecificStatement("oracle", "bulkInsertHistoricActivityInstance", "bulkInsertHistoricActivityInstance_oracle");
+    addDatabaseSpecificStatement("oracle", "bulkInsertHistoricFormProperty", "bulkInsertHistoricFormProperty_oracle");
+    addDatabaseSpecificStatement("oracle", "bulkInsertHistoricDetailVariableInstanceUpdate", "bulkInsertHistoricDetailVariableInstanceUpdate_oracle");
+    addDatabaseSpecificStatement("oracle", "bulkInsertHistoricVariableInstance", "bulkInsertHistoricVariableInstance_oracle");
+    addDatabaseSpecificStatement("oracle", "bulkInsertVariableInstance", "bulkInsertVariableInstance_oracle");
+    addDatabaseSpecificStatement("oracle", "bulkInsertIdentityLink", "bulkInsertIdentityLink_oracle");
+    addDatabaseSpecificStatement("oracle", "selectNextIdSequenceValues", "selectNextIdSequenceValues_oracle");
     
     // db2
     databaseSpecificLimitBeforeStatements.put("db2", "SELECT SUB.* FROM (");
@@ -103,6 +121,7 @@ public class DbSqlSessionFactory implements SessionFactory {
     databaseSpecificOrderByStatements.put("db2", "");
     databaseSpecificLimitBeforeNativeQueryStatements.put("db2", "SELECT SUB.* FROM ( select RES.* , row_number() over (ORDER BY ${orderBy}) rnk FROM (");
     addDatabaseSpecificStatement("db2", "selectExclusiveJobsToExecute", "selectExclusiveJobsToExecute_integerBoolean");
+    addDatabaseSpecificStatement("db2", "createIdSequence", "createIdSequence_db2");
     addDatabaseSpecificStatement("db2", "selectExecutionByNativeQuery", "selectExecutionByNativeQuery_mssql_or_db2");
     addDatabaseSpecificStatement("db2", "selectHistoricActivityInstanceByNativeQuery", "selectHistoricActivityInstanceByNativeQuery_mssql_or_db2");
     addDatabaseSpecificStatement("db2", "selectHistoricProcessInstanceByNativeQuery", "selectHistoricProcessInstanceByNativeQuery_mssql_or_db2");
@@ -119,6 +138,7 @@ public class DbSqlSessionFactory implements SessionFactory {
     addDatabaseSpecificStatement("db2", "selectProcessInstanceWithVariablesByQueryCriteria", "selectProcessInstanceWithVariablesByQueryCriteria_mssql_or_db2");
     addDatabaseSpecificStatement("db2", "selectHistoricProcessInstancesWithVariablesByQueryCriteria", "selectHistoricProcessInstancesWithVariablesByQueryCriteria_mssql_or_db2");
     addDatabaseSpecificStatement("db2", "selectHistoricTaskInstancesWithVariablesByQueryCriteria", "selectHistoricTaskInstancesWithVariablesByQueryCriteria_mssql_or_db2");
+    addDatabaseSpecificStatement("db2", "selectNextIdSequenceValues", "selectNextIdSequenceValues_db2");
 
     // mssql
     databaseSpecificLimitBeforeStatements.put("mssql", "SELECT SUB.* FROM (");
@@ -159,11 +179,36 @@ public class DbSqlSessionFactory implements SessionFactory {
   protected IdGenerator idGenerator;
   protected Map<String, String> statementMappings;
   protected Map<Class<?>,String>  insertStatements = new ConcurrentHashMap<Class<?>, String>();
+  protected Map<Class<?>,String>  bulkInsertStatements = new ConcurrentHashMap<Class<?>, String>();
   protected Map<Class<?>,String>  updateStatements = new ConcurrentHashMap<Class<?>, String>();
+  protected Map<Class<?>,String>  partialUpdateStatements = new ConcurrentHashMap<Class<?>, String>();
   protected Map<Class<?>,String>  deleteStatements = new ConcurrentHashMap<Class<?>, String>();
   protected Map<Class<?>,String>  selectStatements = new ConcurrentHashMap<Class<?>, String>();
   protected boolean isDbIdentityUsed = true;
   protected boolean isDbHistoryUsed = true;
+  protected boolean isJdbcBatchEnabled = false;
+  protected boolean isBulkInsertEnabled = false;
+  /** mssql doesn't allow more than 2100 parameters in one statement, which limits the number of rows */
+  protected int maxNrOfStatementsInBulkInsert = 100;
+  /** entity types that have a bulkInsert statement in the mapping files */
+  protected Set<Class<?>> bulkInsertableEntityClasses = new HashSet<Class<?>>();
+  protected boolean isPartialUpdateEnabled = false;
+  /** entity types that have a partialUpdate statement in the mapping files */
+  protected Set<Class<?>> partiallyUpdatableEntityClasses = new HashSet<Class<?>>();
+  /** minimum length of the contents of ACT_GE_BYTEARRAY that are stored compressed, negative for no compression */
+  protected int byteArrayCompressionThreshold = -1;
+  
+  public DbSqlSessionFactory() {
+    bulkInsertableEntityClasses.add(HistoricActivityInstanceEntity.class);
+    bulkInsertableEntityClasses.add(HistoricFormPropertyEntity.class);
+    bulkInsertableEntityClasses.add(HistoricDetailVariableInstanceUpdateEntity.class);
+    bulkInsertableEntityClasses.add(HistoricVariableInstanceEntity.class);
+    bulkInsertableEntityClasses.add(VariableInstanceEntity.class);
+    bulkInsertableEntityClasses.add(IdentityLinkEntity.class);
+    
+    partiallyUpdatableEntityClasses.add(ExecutionEntity.class);
+    partiallyUpdatableEntityClasses.add(TaskEntity.class);
+  }
 
   public Class< ? > getSessionType() {
     return DbSqlSession.class;
@@ -179,6 +224,14 @@ public class DbSqlSessionFactory implements SessionFactory {
     return getStatement(object.getClass(), insertStatements, "insert");
   }
   
+  public String getBulkInsertStatement(Class<?> persistentObjectClass) {
+    return getStatement(persistentObjectClass, bulkInsertStatements, "bulkInsert");
+  }
+  
+  public boolean isBulkInsertable(Class<?> persistentObjectClass) {
+    return bulkInsertableEntityClasses.contains(persistentObjectClass);
+  }
+  
   public String getAMGInsertStatement(PersistentObject object) {
       return getStatement(object.getClass(), insertStatements, "insertAMG");
   }
@@ -187,6 +240,14 @@ public class DbSqlSessionFactory implements SessionFactory {
     return getStatement(object.getClass(), updateStatements, "update");
   }
   
+  public String getPartialUpdateStatement(Class<?> persistentObjectClass) {
+    return getStatement(persistentObjectClass, partialUpdateStatements, "partialUpdate");
+  }
+  
+  public boolean isPartiallyUpdatable(Class<?> persistentObjectClass) {
+    return partiallyUpdatableEntityClasses.contains(persistentObjectClass);
+  }
+  
   public String getAMGUpdateStatement(PersistentObject object) {
       return getStatement(object.getClass(), updateStatements, "updateAMG");
   }
@@ -329,6 +390,62 @@ public class DbSqlSessionFactory implements SessionFactory {
     this.isDbHistoryUsed = isDbHistoryUsed;
   }
 
+  public boolean isJdbcBatchEnabled() {
+    return isJdbcBatchEnabled;
+  }
+  
+  public void setJdbcBatchEnabled(boolean isJdbcBatchEnabled) {
+    this.isJdbcBatchEnabled = isJdbcBatchEnabled;
+  }
+
+  public boolean isBulkInsertEnabled() {
+    return isBulkInsertEnabled;
+  }
+  
+  public void setBulkInsertEnabled(boolean isBulkInsertEnabled) {
+    this.isBulkInsertEnabled = isBulkInsertEnabled;
+  }
+  
+  public int getMaxNrOfStatementsInBulkInsert() {
+    return maxNrOfStatementsInBulkInsert;
+  }
+  
+  public void setMaxNrOfStatementsInBulkInsert(int maxNrOfStatementsInBulkInsert) {
+    this.maxNrOfStatementsInBulkInsert = maxNrOfStatementsInBulkInsert;
+  }
+  
+  public Set<Class<?>> getBulkInsertableEntityClasses() {
+    return bulkInsertableEntityClasses;
+  }
+  
+  public void setBulkInsertableEntityClasses(Set<Class<?>> bulkInsertableEntityClasses) {
+    this.bulkInsertableEntityClasses = bulkInsertableEntityClasses;
+  }
+  
+  public boolean isPartialUpdateEnabled() {
+    return isPartialUpdateEnabled;
+  }
+  
+  public void setPartialUpdateEnabled(boolean isPartialUpdateEnabled) {
+    this.isPartialUpdateEnabled = isPartialUpdateEnabled;
+  }
+  
+  public int getByteArrayCompressionThreshold() {
+    return byteArrayCompressionThreshold;
+  }
+  
+  public void setByteArrayCompressionThreshold(int byteArrayCompressionThreshold) {
+    this.byteArrayCompressionThreshold = byteArrayCompressionThreshold;
+  }
+  
+  public Set<Class<?>> getPartiallyUpdatableEntityClasses() {
+    return partiallyUpdatableEntityClasses;
+  }
+  
+  public void setPartiallyUpdatableEntityClasses(Set<Class<?>> partiallyUpdatableEntityClasses) {
+    this.partiallyUpdatableEntityClasses = partiallyUpdatableEntityClasses;
+  }
+
   public void setDatabaseTablePrefix(String databaseTablePrefix) {
     this.databaseTablePrefix = databaseTablePrefix;
   }
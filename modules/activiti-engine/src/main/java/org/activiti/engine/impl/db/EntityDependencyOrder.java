@@ -0,0 +1,129 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.activiti.engine.impl.db;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.activiti.engine.impl.persistence.entity.AttachmentEntity;
+import org.activiti.engine.impl.persistence.entity.ByteArrayEntity;
+import org.activiti.engine.impl.persistence.entity.CommentEntity;
+import org.activiti.engine.impl.persistence.entity.CompensateEventSubscriptionEntity;
+import org.activiti.engine.impl.persistence.entity.DeploymentEntity;
+import org.activiti.engine.impl.persistence.entity.ExecutionEntity;
+import org.activiti.engine.impl.persistence.entity.GroupEntity;
+import org.activiti.engine.impl.persistence.entity.HistoricActivityInstanceEntity;
+import org.activiti.engine.impl.persistence.entity.HistoricDetailAssignmentEntity;
+import org.activiti.engine.impl.persistence.entity.HistoricDetailTransitionInstanceEntity;
+import org.activiti.engine.impl.persistence.entity.HistoricDetailVariableInstanceUpdateEntity;
+import org.activiti.engine.impl.persistence.entity.HistoricFormPropertyEntity;
+import org.activiti.engine.impl.persistence.entity.HistoricIdentityLinkEntity;
+import org.activiti.engine.impl.persistence.entity.HistoricProcessInstanceEntity;
+import org.activiti.engine.impl.persistence.entity.HistoricTaskInstanceEntity;
+import org.activiti.engine.impl.persistence.entity.HistoricVariableInstanceEntity;
+import org.activiti.engine.impl.persistence.entity.IdentityInfoEntity;
+import org.activiti.engine.impl.persistence.entity.IdentityLinkEntity;
+import org.activiti.engine.impl.persistence.entity.MembershipEntity;
+import org.activiti.engine.impl.persistence.entity.MessageEntity;
+import org.activiti.engine.impl.persistence.entity.MessageEventSubscriptionEntity;
+import org.activiti.engine.impl.persistence.entity.ModelEntity;
+import org.activiti.engine.impl.persistence.entity.ProcessDefinitionEntity;
+import org.activiti.engine.impl.persistence.entity.PropertyEntity;
+import org.activiti.engine.impl.persistence.entity.ResourceEntity;
+import org.activiti.engine.impl.persistence.entity.SignalEventSubscriptionEntity;
+import org.activiti.engine.impl.persistence.entity.TaskEntity;
+import org.activiti.engine.impl.persistence.entity.TimerEntity;
+import org.activiti.engine.impl.persistence.entity.UserEntity;
+import org.activiti.engine.impl.persistence.entity.VariableInstanceEntity;
+
+/**
+ * The order in which entities of different types can be inserted without
+ * violating the foreign key constraints of the Activiti tables.
+ *
+ * Used when the inserts of a flush are grouped per entity type
+ * (eg. for JDBC batching), as the order in which the entities were
+ * created in the command is lost then. Entities of the same type keep their
+ * relative order, which takes care of self-referencing tables (eg. ACT_RU_EXECUTION).
+ *
+ * Types that are not in this list (eg. custom entities) are inserted after
+ * the ones that are.
+ */
+public class EntityDependencyOrder {
+
+  public static final List<Class<? extends PersistentObject>> INSERT_ORDER;
+
+  static {
+    List<Class<? extends PersistentObject>> insertOrder = new ArrayList<Class<? extends PersistentObject>>();
+
+    // no FK
+    insertOrder.add(PropertyEntity.class);
+    insertOrder.add(DeploymentEntity.class);
+
+    // FK to deployment
+    insertOrder.add(ResourceEntity.class);
+    insertOrder.add(ByteArrayEntity.class);
+
+    // FK to deployment and byte array
+    insertOrder.add(ModelEntity.class);
+
+    // no FK, but referenced by the runtime tables
+    insertOrder.add(ProcessDefinitionEntity.class);
+
+    // FK to process definition and to itself
+    insertOrder.add(ExecutionEntity.class);
+
+    // FK to execution and process definition
+    insertOrder.add(TaskEntity.class);
+
+    // FK to task, execution and process definition
+    insertOrder.add(IdentityLinkEntity.class);
+
+    // FK to execution and byte array
+    insertOrder.add(VariableInstanceEntity.class);
+
+    // FK to byte array
+    insertOrder.add(MessageEntity.class);
+    insertOrder.add(TimerEntity.class);
+
+    // FK to execution
+    insertOrder.add(MessageEventSubscriptionEntity.class);
+    insertOrder.add(SignalEventSubscriptionEntity.class);
+    insertOrder.add(CompensateEventSubscriptionEntity.class);
+
+    // identity
+    insertOrder.add(GroupEntity.class);
+    insertOrder.add(UserEntity.class);
+    insertOrder.add(MembershipEntity.class);
+    insertOrder.add(IdentityInfoEntity.class);
+
+    // no FK
+    insertOrder.add(AttachmentEntity.class);
+    insertOrder.add(CommentEntity.class);
+
+    // history tables don't have any FK
+    insertOrder.add(HistoricProcessInstanceEntity.class);
+    insertOrder.add(HistoricActivityInstanceEntity.class);
+    insertOrder.add(HistoricTaskInstanceEntity.class);
+    insertOrder.add(HistoricVariableInstanceEntity.class);
+    insertOrder.add(HistoricDetailAssignmentEntity.class);
+    insertOrder.add(HistoricDetailTransitionInstanceEntity.class);
+    insertOrder.add(HistoricDetailVariableInstanceUpdateEntity.class);
+    insertOrder.add(HistoricFormPropertyEntity.class);
+    insertOrder.add(HistoricIdentityLinkEntity.class);
+
+    INSERT_ORDER = Collections.unmodifiableList(insertOrder);
+  }
+
+}
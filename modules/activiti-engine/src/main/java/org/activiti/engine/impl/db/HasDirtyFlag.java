@@ -0,0 +1,28 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.db;
+
+/**
+ * Entities that keep track of their own modifications can implement this interface.
+ * The {@link DbSqlSession} then doesn't keep a copy of the {@link PersistentObject#getPersistentState() persistent state}
+ * of these entities when they are loaded, but only updates them on flush when they are dirty.
+ * 
+ * Every change to the persistent state must go through a method that marks the entity dirty.
+ * The {@link DbSqlSession} clears the flag when the entity is loaded.
+ */
+public interface HasDirtyFlag extends PersistentObject {
+  
+  boolean isDirty();
+  void setDirty(boolean dirty);
+
+}
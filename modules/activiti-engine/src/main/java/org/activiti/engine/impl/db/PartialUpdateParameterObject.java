@@ -0,0 +1,66 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.db;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.ObjectUtils;
+
+
+/**
+ * Parameter of a partialUpdate statement: the updated object and the keys of its 
+ * {@link PersistentObject#getPersistentState() persistent state} that changed since it was loaded.
+ * The statement only sets the columns of the changed properties (and the revision).
+ */
+public class PartialUpdateParameterObject {
+  
+  protected PersistentObject persistentObject;
+  protected Set<String> changedProperties;
+  
+  public PartialUpdateParameterObject(PersistentObject persistentObject, Set<String> changedProperties) {
+    this.persistentObject = persistentObject;
+    this.changedProperties = changedProperties;
+  }
+  
+  /** the keys of which the value differs between the two persistent state maps */
+  public static Set<String> getChangedProperties(Map<String, Object> originalState, Map<String, Object> currentState) {
+    Set<String> changedProperties = new HashSet<String>();
+    for (Map.Entry<String, Object> entry : currentState.entrySet()) {
+      if (!ObjectUtils.equals(entry.getValue(), originalState.get(entry.getKey()))) {
+        changedProperties.add(entry.getKey());
+      }
+    }
+    // properties that are left out of the state when they became null
+    for (Map.Entry<String, Object> entry : originalState.entrySet()) {
+      if (!currentState.containsKey(entry.getKey()) && entry.getValue()!=null) {
+        changedProperties.add(entry.getKey());
+      }
+    }
+    return changedProperties;
+  }
+
+  public PersistentObject getPersistentObject() {
+    return persistentObject;
+  }
+  
+  public Set<String> getChangedProperties() {
+    return changedProperties;
+  }
+  
+  @Override
+  public String toString() {
+    return persistentObject.toString();
+  }
+}
@@ -0,0 +1,164 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.db;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.activiti.engine.impl.cmd.GetNextIdBlockCmd;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * {@link DbIdGenerator} that hands out the ids of the current block without locking,
+ * and fetches the next blocks in the background before the current block runs out.
+ * 
+ * When fewer than lowWaterMark ids are left in the current block, a background thread 
+ * makes sure nrOfPrefetchedBlocks blocks are ready to be used. Only when no prefetched 
+ * block is available (eg. right after startup), the thread that needs an id fetches 
+ * the next block itself.
+ * 
+ * Holding more blocks, or larger ones, means fewer updates of the next.dbid property, 
+ * at the cost of larger gaps in the ids when the engine is stopped.
+ */
+public class PrefetchingDbIdGenerator extends DbIdGenerator {
+  
+  private static final Logger log = LoggerFactory.getLogger(PrefetchingDbIdGenerator.class);
+  
+  protected int lowWaterMark = -1;
+  protected int nrOfPrefetchedBlocks = 1;
+
+  protected AtomicReference<IdRange> currentRange = new AtomicReference<IdRange>(new IdRange(0, -1));
+  protected Queue<IdBlock> prefetchedBlocks = new ConcurrentLinkedQueue<IdBlock>();
+  protected AtomicBoolean prefetching = new AtomicBoolean(false);
+  protected ExecutorService prefetchExecutor;
+  
+  public String getNextId() {
+    while (true) {
+      IdRange range = currentRange.get();
+      long id = range.nextId.getAndIncrement();
+      if (id <= range.lastId) {
+        if (range.lastId - id == getLowWaterMark()) {
+          prefetch();
+        }
+        return Long.toString(id);
+      }
+      nextRange(range);
+    }
+  }
+
+  /** replaces the exhausted range, unless another thread already did so */
+  protected synchronized void nextRange(IdRange exhaustedRange) {
+    if (currentRange.get() != exhaustedRange) {
+      return;
+    }
+    IdBlock idBlock = prefetchedBlocks.poll();
+    if (idBlock == null) {
+      idBlock = fetchBlock();
+    }
+    currentRange.set(new IdRange(idBlock.getNextId(), idBlock.getLastId()));
+    prefetch();
+  }
+  
+  protected IdBlock fetchBlock() {
+    return commandExecutor.execute(commandConfig, new GetNextIdBlockCmd(idBlockSize));
+  }
+  
+  protected void prefetch() {
+    if (prefetchedBlocks.size() >= nrOfPrefetchedBlocks || !prefetching.compareAndSet(false, true)) {
+      return;
+    }
+    try {
+      getPrefetchExecutor().execute(new Runnable() {
+        public void run() {
+          try {
+            while (prefetchedBlocks.size() < nrOfPrefetchedBlocks) {
+              prefetchedBlocks.offer(fetchBlock());
+            }
+          } catch (RuntimeException e) {
+            // the next block will be fetched when it is needed
+            log.warn("Could not prefetch id block", e);
+          } finally {
+            prefetching.set(false);
+          }
+        }
+      });
+    } catch (RuntimeException e) {
+      prefetching.set(false);
+      throw e;
+    }
+  }
+  
+  protected synchronized ExecutorService getPrefetchExecutor() {
+    if (prefetchExecutor == null) {
+      prefetchExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "activiti-id-block-prefetch");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+    return prefetchExecutor;
+  }
+  
+  /** stops the background thread when the process engine is closed, the blocks that were prefetched are not used anymore */
+  public synchronized void shutdown() {
+    if (prefetchExecutor != null) {
+      prefetchExecutor.shutdown();
+      prefetchExecutor = null;
+    }
+    prefetchedBlocks.clear();
+  }
+  
+  // getters and setters //////////////////////////////////////////////////////
+  
+  /** defaults to a quarter of the block size */
+  public int getLowWaterMark() {
+    if (lowWaterMark < 0) {
+      return idBlockSize / 4;
+    }
+    return lowWaterMark;
+  }
+
+  public void setLowWaterMark(int lowWaterMark) {
+    this.lowWaterMark = lowWaterMark;
+  }
+
+  public int getNrOfPrefetchedBlocks() {
+    return nrOfPrefetchedBlocks;
+  }
+
+  public void setNrOfPrefetchedBlocks(int nrOfPrefetchedBlocks) {
+    this.nrOfPrefetchedBlocks = nrOfPrefetchedBlocks;
+  }
+  
+  protected static class IdRange {
+    
+    protected final AtomicLong nextId;
+    protected final long lastId;
+    
+    public IdRange(long nextId, long lastId) {
+      this.nextId = new AtomicLong(nextId);
+      this.lastId = lastId;
+    }
+  }
+
+}
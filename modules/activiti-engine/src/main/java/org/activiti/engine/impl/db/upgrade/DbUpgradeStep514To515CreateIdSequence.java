@@ -0,0 +1,41 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.activiti.engine.impl.db.upgrade;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.activiti.engine.impl.db.DbSqlSession;
+import org.activiti.engine.impl.persistence.entity.PropertyEntity;
+
+
+/**
+ * Creates the ACT_GE_ID_SEQ sequence on databases that can't set the start
+ * value of a sequence from a query: the sequence starts at the current value of 
+ * the next.dbid property so that its ids don't clash with the ones that were 
+ * already handed out. The sequence is created with the createIdSequence statement,
+ * so its name gets the same table prefix as the statements that read it.
+ */
+public class DbUpgradeStep514To515CreateIdSequence implements DbUpgradeStep {
+
+  public void execute(DbSqlSession dbSqlSession) throws Exception {
+    PropertyEntity nextDbidProperty = dbSqlSession.selectById(PropertyEntity.class, "next.dbid");
+    long startValue = Long.parseLong(nextDbidProperty.getValue());
+    
+    Map<String, Object> parameters = new HashMap<String, Object>();
+    parameters.put("startValue", startValue);
+    dbSqlSession.directUpdate("createIdSequence", parameters);
+  }
+
+}
@@ -0,0 +1,27 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.interceptor;
+
+
+/**
+ * Marks a {@link Command} that only reads, such as queries and the commands that get 
+ * variables. It doesn't run any process code, so the objects it deserializes can't be 
+ * changed before the end of the command, and the changes made to them by the caller 
+ * are not stored anyway. These objects are not dirty checked when the command is flushed.
+ * 
+ * Only the command that a {@link CommandContext} was created for counts; read-only 
+ * commands that reuse the context of another command are dirty checked as usual.
+ */
+public interface ReadOnlyCommand {
+
+}
@@ -18,6 +18,8 @@ import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.activiti.engine.ActivitiOptimisticLockingException;
 import org.activiti.engine.impl.Page;
+import org.activiti.engine.impl.cmd.AcquireJobsCmd;
+import org.activiti.engine.impl.interceptor.Command;
 import org.activiti.engine.impl.interceptor.CommandExecutor;
 import org.activiti.engine.impl.persistence.entity.TimerEntity;
 import org.activiti.engine.impl.util.ClockUtil;
@@ -33,73 +35,125 @@ public class AcquireJobsRunnable implements Runnable {
   private static Logger log = LoggerFactory.getLogger(AcquireJobsRunnable.class);
 
   protected final JobExecutor jobExecutor;
+  protected final JobAcquisitionPartition partition;
+  protected final TimerSchedule timerSchedule;
 
   protected volatile boolean isInterrupted = false;
   protected volatile boolean isJobAdded = false;
+  protected volatile boolean isWaitingForCapacity = false;
   protected final Object MONITOR = new Object();
   protected final AtomicBoolean isWaiting = new AtomicBoolean(false);
   
   protected long millisToWait = 0;
   protected float waitIncreaseFactor = 2;
   protected long maxWait = 60 * 1000;
+  
+  /** time at which the acquisition will run next when nothing wakes it up */
+  protected volatile long wakeUpTime = Long.MAX_VALUE;
+  
+  /** the size of this thread's acquisitions when the job executor adapts it, -1 before the first one */
+  protected int adaptiveJobsPerAcquisition = -1;
+  protected volatile int jobsPerAcquisition = -1;
 
+  /** acquires all jobs with the acquire command of the job executor */
   public AcquireJobsRunnable(JobExecutor jobExecutor) {
     this.jobExecutor = jobExecutor;
+    this.partition = JobAcquisitionPartition.ALL;
+    this.timerSchedule = createTimerSchedule();
+  }
+  
+  /** acquires the jobs of the given partition only */
+  public AcquireJobsRunnable(JobExecutor jobExecutor, JobAcquisitionPartition partition) {
+    this.jobExecutor = jobExecutor;
+    this.partition = partition;
+    this.timerSchedule = createTimerSchedule();
+  }
+  
+  protected TimerSchedule createTimerSchedule() {
+    if (jobExecutor.isTimerScheduleEnabled() 
+            && !JobAcquisitionPartition.JOB_TYPE_MESSAGE.equals(partition.getJobType())) {
+      return new TimerSchedule(jobExecutor.getTimerScheduleSize());
+    }
+    return null;
   }
 
   public synchronized void run() {
-    log.info("{} starting to acquire jobs", jobExecutor.getName());
+    log.info("{} starting to acquire jobs ({})", jobExecutor.getName(), partition);
 
     final CommandExecutor commandExecutor = jobExecutor.getCommandExecutor();
 
     while (!isInterrupted) {
-      int maxJobsPerAcquisition = jobExecutor.getMaxJobsPerAcquisition();
+      int maxJobsPerAcquisition = jobExecutor.nextJobsPerAcquisition(adaptiveJobsPerAcquisition);
+      jobsPerAcquisition = maxJobsPerAcquisition;
 
-      try {
-        AcquiredJobs acquiredJobs = commandExecutor.execute(jobExecutor.getAcquireJobsCmd());
+      if (maxJobsPerAcquisition <= 0) {
+        // all workers are busy: jobs locked now would wait for lockTimeInMillis 
+        // or be rejected, so wait until a worker finishes. The flag is cleared before 
+        // the waiting state is published, so a worker that finishes in between isn't missed
+        isJobAdded = false;
+        isWaitingForCapacity = true;
+        millisToWait = jobExecutor.getWaitTimeInMillis();
+        
+      } else {
+        isWaitingForCapacity = false;
+        try {
+          long acquisitionTime = ClockUtil.getCurrentTime().getTime();
+          long acquisitionStart = System.nanoTime();
+          AcquiredJobs acquiredJobs = commandExecutor.execute(getAcquireJobsCmd(maxJobsPerAcquisition));
+          jobExecutor.recordAcquisitionTime((System.nanoTime() - acquisitionStart) / 1000000L);
+          jobExecutor.jobsAcquired(acquiredJobs);
+          adaptiveJobsPerAcquisition = jobExecutor.adaptJobsPerAcquisition(adaptiveJobsPerAcquisition, maxJobsPerAcquisition, acquiredJobs);
+        
+          // the locks are committed now, so the snapshots have the revision that is in the database
+          jobExecutor.addJobSnapshots(acquiredJobs.getJobSnapshots());
 
-        for (List<String> jobIds : acquiredJobs.getJobIdBatches()) {
-          jobExecutor.executeJobs(jobIds);
-        }
+          List<List<String>> jobIdBatches = acquiredJobs.getJobIdBatches();
+          ExclusiveJobRouter exclusiveJobRouter = jobExecutor.getExclusiveJobRouter();
+          for (int i = 0; i < jobIdBatches.size(); i++) {
+            String exclusiveProcessInstanceId = acquiredJobs.getExclusiveJobIdBatchProcessInstanceId(i);
+            if (exclusiveProcessInstanceId != null && exclusiveJobRouter != null) {
+              exclusiveJobRouter.route(exclusiveProcessInstanceId, jobIdBatches.get(i));
+            } else {
+              jobExecutor.executeJobs(jobIdBatches.get(i), acquiredJobs.getJobIdBatchPriority(i));
+            }
+          }
 
-        // if all jobs were executed
-        millisToWait = jobExecutor.getWaitTimeInMillis();
-        int jobsAcquired = acquiredJobs.getJobIdBatches().size();
-        if (jobsAcquired < maxJobsPerAcquisition) {
-          
-          isJobAdded = false;
+          // if all jobs were executed
+          millisToWait = jobExecutor.getWaitTimeInMillis();
+          int jobsAcquired = acquiredJobs.getNrOfJobsFound();
+          if (jobsAcquired < maxJobsPerAcquisition) {
           
-          // check if the next timer should fire before the normal sleep time is over
-          Date duedate = new Date(ClockUtil.getCurrentTime().getTime() + millisToWait);
-          List<TimerEntity> nextTimers = commandExecutor.execute(new GetUnlockedTimersByDuedateCmd(duedate, new Page(0, 1)));
+            isJobAdded = false;
           
-          if (!nextTimers.isEmpty()) {
-          long millisTillNextTimer = nextTimers.get(0).getDuedate().getTime() - ClockUtil.getCurrentTime().getTime();
-            if (millisTillNextTimer < millisToWait) {
-              millisToWait = millisTillNextTimer;
+            // check if the next timer should fire before the normal sleep time is over
+            if (timerSchedule != null) {
+              checkTimerSchedule(commandExecutor, acquisitionTime);
+            } else if (!JobAcquisitionPartition.JOB_TYPE_MESSAGE.equals(partition.getJobType())) {
+              checkNextTimer(commandExecutor);
             }
-          }
           
-        } else {
-          millisToWait = 0;
-        }
+          } else {
+            millisToWait = 0;
+          }
 
-      } catch (ActivitiOptimisticLockingException optimisticLockingException) { 
-        // See http://jira.codehaus.org/browse/ACT-1390
-        if (log.isDebugEnabled()) {
-          log.debug("Optimistic locking exception during job acquisition. If you have multiple job executors running against the same database, " +
-          		"this exception means that this thread tried to acquire a job, which already was acquired by another job executor acquisition thread." +
-          		"This is expected behavior in a clustered environment. " +
-          		"You can ignore this message if you indeed have multiple job executor acquisition threads running against the same database. " +
-          		"Exception message: {}", optimisticLockingException.getMessage());
-        }
-      } catch (Throwable e) {
-        log.error("exception during job acquisition: {}", e.getMessage(), e);          
-        millisToWait *= waitIncreaseFactor;
-        if (millisToWait > maxWait) {
-          millisToWait = maxWait;
-        } else if (millisToWait==0) {
-          millisToWait = jobExecutor.getWaitTimeInMillis();
+        } catch (ActivitiOptimisticLockingException optimisticLockingException) { 
+          jobExecutor.acquisitionOptimisticLockingFailed();
+          // See http://jira.codehaus.org/browse/ACT-1390
+          if (log.isDebugEnabled()) {
+            log.debug("Optimistic locking exception during job acquisition. If you have multiple job executors running against the same database, " +
+            		"this exception means that this thread tried to acquire a job, which already was acquired by another job executor acquisition thread." +
+            		"This is expected behavior in a clustered environment. " +
+            		"You can ignore this message if you indeed have multiple job executor acquisition threads running against the same database. " +
+            		"Exception message: {}", optimisticLockingException.getMessage());
+          }
+        } catch (Throwable e) {
+          log.error("exception during job acquisition: {}", e.getMessage(), e);          
+          millisToWait *= waitIncreaseFactor;
+          if (millisToWait > maxWait) {
+            millisToWait = maxWait;
+          } else if (millisToWait==0) {
+            millisToWait = jobExecutor.getWaitTimeInMillis();
+          }
         }
       }
 
@@ -109,7 +163,9 @@ public class AcquireJobsRunnable implements Runnable {
             log.debug("job acquisition thread sleeping for {} millis", millisToWait);
           }
           synchronized (MONITOR) {
-            if(!isInterrupted) {
+            // checked again, as a job or capacity could have been signalled since the check above
+            if(!isInterrupted && !isJobAdded) {
+              wakeUpTime = ClockUtil.getCurrentTime().getTime() + millisToWait;
               isWaiting.set(true);
               MONITOR.wait(millisToWait);
             }
@@ -124,11 +180,77 @@ public class AcquireJobsRunnable implements Runnable {
           }
         } finally {
           isWaiting.set(false);
+          wakeUpTime = Long.MAX_VALUE;
         }
       }
     }
     
-    log.info("{} stopped job acquisition", jobExecutor.getName());
+    log.info("{} stopped job acquisition ({})", jobExecutor.getName(), partition);
+  }
+  
+  protected void checkNextTimer(CommandExecutor commandExecutor) {
+    Date duedate = new Date(ClockUtil.getCurrentTime().getTime() + millisToWait);
+    List<TimerEntity> nextTimers = commandExecutor.execute(new GetUnlockedTimersByDuedateCmd(partition, duedate, new Page(0, 1)));
+  
+    if (!nextTimers.isEmpty()) {
+      long millisTillNextTimer = nextTimers.get(0).getDuedate().getTime() - ClockUtil.getCurrentTime().getTime();
+      if (millisTillNextTimer < millisToWait) {
+        millisToWait = millisTillNextTimer;
+      }
+    }
+  }
+  
+  /**
+   * Takes the time to wait from the {@link TimerSchedule}. The schedule is only queried 
+   * again when the look ahead window has passed, the wait is still capped at the wait time 
+   * of the job executor so that timers created by other engines are picked up.
+   */
+  protected void checkTimerSchedule(CommandExecutor commandExecutor, long acquisitionTime) {
+    long now = ClockUtil.getCurrentTime().getTime();
+    if (timerSchedule.isLookAheadNeeded(now)) {
+      long lookAheadUntil = now + jobExecutor.getTimerLookAheadInMillis();
+      int timerScheduleSize = jobExecutor.getTimerScheduleSize();
+      List<TimerEntity> nextTimers = commandExecutor.execute(
+              new GetUnlockedTimersByDuedateCmd(partition, new Date(lookAheadUntil), new Page(0, timerScheduleSize)));
+      timerSchedule.lookAheadDone(nextTimers, now, lookAheadUntil, timerScheduleSize);
+    }
+    
+    // the timers that were due when the acquisition started were acquired or can't be acquired 
+    // by this thread, so they must not make it acquire again right away
+    timerSchedule.removeDuedatesBefore(acquisitionTime);
+    
+    long millisTillNextTimer = timerSchedule.getMillisTillNextTimer(now);
+    if (millisTillNextTimer >= 0 && millisTillNextTimer < millisToWait) {
+      millisToWait = millisTillNextTimer;
+    }
+  }
+  
+  /** a timer was committed by this engine, wakes up the acquisition if the timer is due before it would run */
+  public void timerScheduled(Date duedate) {
+    if (timerSchedule != null) {
+      timerSchedule.add(duedate);
+      if (duedate.getTime() < wakeUpTime) {
+        jobWasAdded();
+      }
+    }
+  }
+  
+  public TimerSchedule getTimerSchedule() {
+    return timerSchedule;
+  }
+  
+  /** 
+   * creates the command for one acquisition, a custom acquire command of the job executor is 
+   * used as it is for the unpartitioned acquisition 
+   */
+  protected Command<AcquiredJobs> getAcquireJobsCmd(int maxJobsPerAcquisition) {
+    Command<AcquiredJobs> acquireJobsCmd = jobExecutor.getAcquireJobsCmd();
+    if (partition == JobAcquisitionPartition.ALL 
+            && acquireJobsCmd != null 
+            && !(acquireJobsCmd instanceof AcquireJobsCmd)) {
+      return acquireJobsCmd;
+    }
+    return new AcquireJobsCmd(jobExecutor, partition, maxJobsPerAcquisition);
   }
 
   public void stop() {
@@ -152,6 +274,22 @@ public class AcquireJobsRunnable implements Runnable {
   }
 
   
+  /** wakes up the acquisition when it is waiting for a worker to finish */
+  public void capacityAvailable() {
+    if (isWaitingForCapacity) {
+      jobWasAdded();
+    }
+  }
+  
+  public JobAcquisitionPartition getPartition() {
+    return partition;
+  }
+  
+  /** the number of jobs the last acquisition of this thread asked for */
+  public int getJobsPerAcquisition() {
+    return (jobsPerAcquisition < 0 ? jobExecutor.getMaxJobsPerAcquisition() : jobsPerAcquisition);
+  }
+  
   public long getMillisToWait() {
     return millisToWait;
   }
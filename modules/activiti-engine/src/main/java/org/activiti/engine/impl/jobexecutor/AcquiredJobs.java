@@ -13,10 +13,14 @@
 package org.activiti.engine.impl.jobexecutor;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import org.activiti.engine.impl.persistence.entity.JobEntity;
+
 
 /**
  * @author Tom Baeyens
@@ -25,15 +29,74 @@ import java.util.Set;
 public class AcquiredJobs {
 
   protected List<List<String>> acquiredJobBatches = new ArrayList<List<String>>();
+  protected List<Integer> acquiredJobBatchPriorities = new ArrayList<Integer>();
+  protected Map<Integer, String> exclusiveJobBatchProcessInstanceIds = new HashMap<Integer, String>();
+  protected List<List<String>> acquiredJobBatchesInOneTransaction = new ArrayList<List<String>>();
+  protected int nrOfJobsFound = 0;
   protected Set<String> acquiredJobs = new HashSet<String>();
+  protected Map<String, JobEntity> acquiredJobSnapshots = new HashMap<String, JobEntity>();
 
   public List<List<String>> getJobIdBatches() {
     return acquiredJobBatches;
   }
 
   public void addJobIdBatch(List<String> jobIds) {
+    addJobIdBatch(jobIds, JobEntity.DEFAULT_PRIORITY);
+  }
+  
+  public void addJobIdBatch(List<String> jobIds, int priority) {
     acquiredJobBatches.add(jobIds);
+    acquiredJobBatchPriorities.add(priority);
+    acquiredJobs.addAll(jobIds);
+    nrOfJobsFound++;
+  }
+  
+  /** 
+   * adds a batch of exclusive jobs of the given process instance, see {@link ExclusiveJobRouter}. 
+   * All of its jobs were found by the acquisition query, so each of them counts. 
+   */
+  public void addExclusiveJobIdBatch(String processInstanceId, List<String> jobIds, int priority) {
+    exclusiveJobBatchProcessInstanceIds.put(acquiredJobBatches.size(), processInstanceId);
+    acquiredJobBatches.add(jobIds);
+    acquiredJobBatchPriorities.add(priority);
+    acquiredJobs.addAll(jobIds);
+    nrOfJobsFound += jobIds.size();
+  }
+  
+  /** the process instance of the exclusive batch with the given index, or null if it isn't an exclusive batch */
+  public String getExclusiveJobIdBatchProcessInstanceId(int index) {
+    return exclusiveJobBatchProcessInstanceIds.get(index);
+  }
+  
+  /** 
+   * adds a batch of jobs of different process instances that are executed in one transaction, 
+   * see {@link JobExecutor#getJobsPerTransaction()} 
+   */
+  public void addJobIdBatchInOneTransaction(List<String> jobIds, int priority) {
+    JobIdBatchInOneTransaction jobIdBatch = new JobIdBatchInOneTransaction(jobIds);
+    acquiredJobBatches.add(jobIdBatch);
+    acquiredJobBatchPriorities.add(priority);
+    acquiredJobBatchesInOneTransaction.add(jobIdBatch);
     acquiredJobs.addAll(jobIds);
+    nrOfJobsFound += jobIds.size();
+  }
+  
+  public List<List<String>> getJobIdBatchesInOneTransaction() {
+    return acquiredJobBatchesInOneTransaction;
+  }
+  
+  /** the highest priority of the jobs in the batch with the given index */
+  public int getJobIdBatchPriority(int index) {
+    return acquiredJobBatchPriorities.get(index);
+  }
+  
+  /** the job as it was locked, see {@link JobExecutor#isJobSnapshotsEnabled()} */
+  public void addJobSnapshot(JobEntity job) {
+    acquiredJobSnapshots.put(job.getId(), job);
+  }
+  
+  public Map<String, JobEntity> getJobSnapshots() {
+    return acquiredJobSnapshots;
   }
   
   public boolean contains(String jobId) {
@@ -44,5 +107,13 @@ public class AcquiredJobs {
     return acquiredJobs.size();
   }
   
+  /** 
+   * the number of jobs the acquisition query returned: a batch of exclusive jobs that were selected 
+   * for the process instance of a job counts as one, the jobs of the other batches count separately 
+   */
+  public int getNrOfJobsFound() {
+    return nrOfJobsFound;
+  }
+  
   
 }
@@ -12,6 +12,7 @@
  */
 package org.activiti.engine.impl.jobexecutor;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
@@ -46,6 +47,22 @@ public class DefaultJobExecutor extends JobExecutor {
 
   protected BlockingQueue<Runnable> threadPoolQueue;
   protected ThreadPoolExecutor threadPoolExecutor;
+  
+  /**
+   * When set, batches of jobs with at least this priority are executed by a separate thread pool,
+   * so that they don't queue behind the jobs with a lower priority.
+   */
+  protected Integer highPriorityThreshold;
+  protected int highPriorityPoolSize = 3;
+  protected ThreadPoolExecutor highPriorityThreadPoolExecutor;
+  
+  /**
+   * When enabled, the exclusive jobs are executed in a fixed number of lanes, one worker per lane
+   * at a time, instead of acquiring all exclusive jobs of a process instance at once. 
+   * See {@link ExclusiveJobRouter}.
+   */
+  protected boolean exclusiveJobRoutingEnabled = false;
+  protected int nrOfExclusiveJobLanes = 3;
     
   protected void startExecutingJobs() {
     if (threadPoolQueue==null) {
@@ -55,16 +72,68 @@ public class DefaultJobExecutor extends JobExecutor {
       threadPoolExecutor = new ThreadPoolExecutor(corePoolSize, maxPoolSize, 0L, TimeUnit.MILLISECONDS, threadPoolQueue);      
       threadPoolExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
     }
+    if (highPriorityThreshold!=null && highPriorityThreadPoolExecutor==null) {
+      highPriorityThreadPoolExecutor = new ThreadPoolExecutor(highPriorityPoolSize, highPriorityPoolSize, 0L, TimeUnit.MILLISECONDS, 
+              new ArrayBlockingQueue<Runnable>(queueSize));
+      highPriorityThreadPoolExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+    }
+    if (exclusiveJobRoutingEnabled && exclusiveJobRouter==null) {
+      exclusiveJobRouter = new ExclusiveJobRouter(this, threadPoolExecutor, nrOfExclusiveJobLanes);
+    }
     startJobAcquisitionThread(); 
   }
     
   protected void stopExecutingJobs() {
     stopJobAcquisitionThread();
     
-    // Ask the thread pool to finish and exit
+    if (releaseJobLocksOnShutdown) {
+      releaseUnstartedJobLocks();
+    }
+    
+    // Ask the thread pools to finish and exit
     threadPoolExecutor.shutdown();
+    if (highPriorityThreadPoolExecutor!=null) {
+      highPriorityThreadPoolExecutor.shutdown();
+    }
 
     // Waits for 1 minute to finish all currently executing jobs
+    awaitTermination(threadPoolExecutor);
+    if (highPriorityThreadPoolExecutor!=null) {
+      awaitTermination(highPriorityThreadPoolExecutor);
+    }
+
+    threadPoolExecutor = null;
+    highPriorityThreadPoolExecutor = null;
+    if (exclusiveJobRoutingEnabled) {
+      exclusiveJobRouter = null;
+    }
+  }
+  
+  /** takes the jobs that are waiting for a thread out of the queues and unlocks them */
+  protected void releaseUnstartedJobLocks() {
+    List<String> jobIds = new ArrayList<String>();
+    if (exclusiveJobRouter!=null) {
+      jobIds.addAll(exclusiveJobRouter.stop());
+    }
+    drainQueuedJobIds(threadPoolExecutor, jobIds);
+    if (highPriorityThreadPoolExecutor!=null) {
+      drainQueuedJobIds(highPriorityThreadPoolExecutor, jobIds);
+    }
+    releaseJobLocks(jobIds);
+  }
+  
+  protected void drainQueuedJobIds(ThreadPoolExecutor threadPoolExecutor, List<String> jobIds) {
+    List<Runnable> queuedRunnables = new ArrayList<Runnable>();
+    threadPoolExecutor.getQueue().drainTo(queuedRunnables);
+    for (Runnable queuedRunnable : queuedRunnables) {
+      // the lanes of the exclusive job router that are drained were stopped above
+      if (queuedRunnable instanceof ExecuteJobsRunnable) {
+        jobIds.addAll(((ExecuteJobsRunnable) queuedRunnable).getJobIds());
+      }
+    }
+  }
+  
+  protected void awaitTermination(ThreadPoolExecutor threadPoolExecutor) {
     try {
       if(!threadPoolExecutor.awaitTermination(60L, TimeUnit.SECONDS)) {
         log.warn("Timeout during shutdown of job executor. "
@@ -73,18 +142,56 @@ public class DefaultJobExecutor extends JobExecutor {
     } catch (InterruptedException e) {
       log.warn("Interrupted while shutting down the job executor. ", e);
     }
-
-    threadPoolExecutor = null;
   }
   
   public void executeJobs(List<String> jobIds) {
     try {
       threadPoolExecutor.execute(new ExecuteJobsRunnable(this, jobIds));
     } catch (RejectedExecutionException e) {
-      rejectedJobsHandler.jobsRejected(this, jobIds);
+      rejectJobs(jobIds);
+    }
+  }
+  
+  protected void executeJobs(List<String> jobIds, int priority) {
+    ThreadPoolExecutor highPriorityThreadPoolExecutor = this.highPriorityThreadPoolExecutor;
+    if (highPriorityThreadPoolExecutor!=null && priority >= highPriorityThreshold) {
+      try {
+        highPriorityThreadPoolExecutor.execute(new ExecuteJobsRunnable(this, jobIds));
+      } catch (RejectedExecutionException e) {
+        rejectJobs(jobIds);
+      }
+    } else {
+      executeJobs(jobIds);
     }
   }
   
+  /** 
+   * idle threads plus free places in the queues of both thread pools, minus the batches that 
+   * wait in the lanes of the exclusive jobs for a worker 
+   */
+  public int getRemainingCapacity() {
+    ThreadPoolExecutor threadPoolExecutor = this.threadPoolExecutor;
+    if (threadPoolExecutor == null) {
+      return 0;
+    }
+    int remainingCapacity = getRemainingCapacity(threadPoolExecutor);
+    ThreadPoolExecutor highPriorityThreadPoolExecutor = this.highPriorityThreadPoolExecutor;
+    if (highPriorityThreadPoolExecutor != null) {
+      remainingCapacity += getRemainingCapacity(highPriorityThreadPoolExecutor);
+    }
+    return Math.max(remainingCapacity - getNrOfWaitingExclusiveJobBatches(), 0);
+  }
+  
+  protected int getRemainingCapacity(ThreadPoolExecutor threadPoolExecutor) {
+    int idleThreads = Math.max(threadPoolExecutor.getMaximumPoolSize() - threadPoolExecutor.getActiveCount(), 0);
+    return idleThreads + threadPoolExecutor.getQueue().remainingCapacity();
+  }
+  
+  protected int getNrOfWaitingExclusiveJobBatches() {
+    ExclusiveJobRouter exclusiveJobRouter = this.exclusiveJobRouter;
+    return (exclusiveJobRouter != null ? exclusiveJobRouter.getNrOfWaitingBatches() : 0);
+  }
+  
   // getters and setters ////////////////////////////////////////////////////// 
   
   public int getQueueSize() {
@@ -111,6 +218,38 @@ public class DefaultJobExecutor extends JobExecutor {
     this.maxPoolSize = maxPoolSize;
   }
   
+  public Integer getHighPriorityThreshold() {
+    return highPriorityThreshold;
+  }
+  
+  public void setHighPriorityThreshold(Integer highPriorityThreshold) {
+    this.highPriorityThreshold = highPriorityThreshold;
+  }
+  
+  public int getHighPriorityPoolSize() {
+    return highPriorityPoolSize;
+  }
+  
+  public void setHighPriorityPoolSize(int highPriorityPoolSize) {
+    this.highPriorityPoolSize = highPriorityPoolSize;
+  }
+  
+  public boolean isExclusiveJobRoutingEnabled() {
+    return exclusiveJobRoutingEnabled;
+  }
+  
+  public void setExclusiveJobRoutingEnabled(boolean exclusiveJobRoutingEnabled) {
+    this.exclusiveJobRoutingEnabled = exclusiveJobRoutingEnabled;
+  }
+  
+  public int getNrOfExclusiveJobLanes() {
+    return nrOfExclusiveJobLanes;
+  }
+  
+  public void setNrOfExclusiveJobLanes(int nrOfExclusiveJobLanes) {
+    this.nrOfExclusiveJobLanes = nrOfExclusiveJobLanes;
+  }
+  
   public BlockingQueue<Runnable> getThreadPoolQueue() {
     return threadPoolQueue;
   }
@@ -0,0 +1,69 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.jobexecutor;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Counts events, both in total and over the last minute. 
+ * 
+ * The last minute is kept as 60 buckets of one second, so recording an event 
+ * and reading the rate are cheap enough to be done for every job.
+ */
+public class EventRateCounter {
+  
+  protected static final int NR_OF_BUCKETS = 60;
+  
+  protected final AtomicLong total = new AtomicLong();
+  protected final long[] bucketSeconds = new long[NR_OF_BUCKETS];
+  protected final long[] bucketCounts = new long[NR_OF_BUCKETS];
+  
+  public void add(long count) {
+    if (count <= 0) {
+      return;
+    }
+    total.addAndGet(count);
+    long second = currentTimeMillis() / 1000;
+    int index = (int) (second % NR_OF_BUCKETS);
+    synchronized (this) {
+      if (bucketSeconds[index] != second) {
+        bucketSeconds[index] = second;
+        bucketCounts[index] = 0;
+      }
+      bucketCounts[index] += count;
+    }
+  }
+  
+  public long getTotal() {
+    return total.get();
+  }
+  
+  /** the number of events in the last 60 seconds */
+  public synchronized long getCountInLastMinute() {
+    long second = currentTimeMillis() / 1000;
+    long count = 0;
+    for (int i=0; i<NR_OF_BUCKETS; i++) {
+      if (second - bucketSeconds[i] < NR_OF_BUCKETS) {
+        count += bucketCounts[i];
+      }
+    }
+    return count;
+  }
+  
+  /** not the engine clock: metrics are about real time, also when a test moves the engine clock */
+  protected long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+
+}
@@ -0,0 +1,40 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.jobexecutor;
+
+import java.util.Collections;
+
+import org.activiti.engine.impl.cfg.TransactionListener;
+import org.activiti.engine.impl.interceptor.CommandContext;
+
+/**
+ * Queues an exclusive job that was locked when it was created in the lane of its 
+ * process instance, once the job is committed. See {@link ExclusiveJobRouter}.
+ */
+public class ExclusiveJobRoutedNotification implements TransactionListener {
+  
+  protected final ExclusiveJobRouter exclusiveJobRouter;
+  protected final String processInstanceId;
+  protected final String jobId;
+
+  public ExclusiveJobRoutedNotification(ExclusiveJobRouter exclusiveJobRouter, String processInstanceId, String jobId) {
+    this.exclusiveJobRouter = exclusiveJobRouter;
+    this.processInstanceId = processInstanceId;
+    this.jobId = jobId;
+  }
+
+  public void execute(CommandContext commandContext) {
+    exclusiveJobRouter.route(processInstanceId, Collections.singletonList(jobId));
+  }
+
+}
@@ -0,0 +1,232 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.jobexecutor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.activiti.engine.ActivitiIllegalArgumentException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes the exclusive jobs of a process instance one after the other, without 
+ * acquiring all exclusive jobs of the process instance at once.
+ * 
+ * The process instances are spread over a fixed number of lanes by their id. Every lane 
+ * has its own queue of job batches, which is worked off by one worker at a time. So the 
+ * exclusive jobs of a process instance never run concurrently on this engine, whether 
+ * they were acquired together, by a later acquisition or created while the process 
+ * instance was in a lane (see {@link ExclusiveJobRoutedNotification}).
+ * 
+ * Other engines in a cluster can still acquire exclusive jobs of a process instance 
+ * that is in a lane of this engine, which shows as an optimistic locking exception 
+ * and a retry of one of the jobs.
+ */
+public class ExclusiveJobRouter {
+  
+  private static Logger log = LoggerFactory.getLogger(ExclusiveJobRouter.class);
+  
+  protected final JobExecutor jobExecutor;
+  protected final Executor executor;
+  protected final Lane[] lanes;
+  
+  public ExclusiveJobRouter(JobExecutor jobExecutor, Executor executor, int nrOfLanes) {
+    if (nrOfLanes < 1) {
+      throw new ActivitiIllegalArgumentException("nrOfLanes must be at least 1");
+    }
+    this.jobExecutor = jobExecutor;
+    this.executor = executor;
+    this.lanes = new Lane[nrOfLanes];
+    for (int i=0; i<nrOfLanes; i++) {
+      lanes[i] = new Lane();
+    }
+  }
+  
+  /** queues the exclusive jobs of the given process instance in its lane */
+  public void route(String processInstanceId, List<String> jobIds) {
+    Lane lane = getLane(processInstanceId);
+    if (lane.add(new JobIdBatch(processInstanceId, jobIds))) {
+      schedule(lane);
+    }
+  }
+  
+  /** 
+   * hands the lane to a worker. When that is rejected, the first batch of the lane is passed to the 
+   * {@link RejectedJobsHandler} instead. It stays in the lane until the handler returns, so its process 
+   * instance still counts as routed and no worker starts on the lane in the meantime.
+   */
+  protected void schedule(Lane lane) {
+    while (true) {
+      try {
+        executor.execute(lane);
+        return;
+      } catch (RejectedExecutionException e) {
+        JobIdBatch rejectedJobIdBatch = lane.startFirst();
+        if (rejectedJobIdBatch == null) {
+          return;
+        }
+        try {
+          jobExecutor.rejectJobs(rejectedJobIdBatch.jobIds);
+        } finally {
+          lane.finishFirst();
+        }
+        // other acquisitions can have added batches to the lane while it was scheduled
+        if (lane.unscheduleIfIdle()) {
+          return;
+        }
+      }
+    }
+  }
+  
+  /** whether exclusive jobs of the process instance are queued or executing in a lane */
+  public boolean isRouted(String processInstanceId) {
+    Lane lane = getLane(processInstanceId);
+    synchronized (lane) {
+      return lane.processInstanceBatchCounts.containsKey(processInstanceId);
+    }
+  }
+  
+  /** 
+   * stops the lanes after the batches that are executing now, and returns the ids of the jobs 
+   * that were queued in the lanes, see {@link JobExecutor#isReleaseJobLocksOnShutdown()}
+   */
+  public List<String> stop() {
+    List<String> queuedJobIds = new ArrayList<String>();
+    for (Lane lane : lanes) {
+      for (JobIdBatch jobIdBatch : lane.stop()) {
+        queuedJobIds.addAll(jobIdBatch.jobIds);
+      }
+    }
+    return queuedJobIds;
+  }
+  
+  /** 
+   * the number of batches that wait in a lane behind the batch of its worker, 
+   * which need a worker after it (see {@link JobExecutor#getRemainingCapacity()}) 
+   */
+  public int getNrOfWaitingBatches() {
+    int nrOfWaitingBatches = 0;
+    for (Lane lane : lanes) {
+      synchronized (lane) {
+        nrOfWaitingBatches += Math.max(lane.jobIdBatches.size() - 1, 0);
+      }
+    }
+    return nrOfWaitingBatches;
+  }
+  
+  public int getNrOfLanes() {
+    return lanes.length;
+  }
+  
+  protected Lane getLane(String processInstanceId) {
+    return lanes[(processInstanceId.hashCode() & Integer.MAX_VALUE) % lanes.length];
+  }
+  
+  protected static class JobIdBatch {
+    
+    protected final String processInstanceId;
+    protected final List<String> jobIds;
+
+    public JobIdBatch(String processInstanceId, List<String> jobIds) {
+      this.processInstanceId = processInstanceId;
+      this.jobIds = jobIds;
+    }
+  }
+  
+  /** a queue of job batches that is worked off by one worker at a time */
+  protected class Lane implements Runnable {
+    
+    protected LinkedList<JobIdBatch> jobIdBatches = new LinkedList<JobIdBatch>();
+    protected Map<String, Integer> processInstanceBatchCounts = new HashMap<String, Integer>();
+    protected boolean isScheduled = false;
+    protected boolean isExecuting = false;
+    protected boolean isStopped = false;
+    
+    public void run() {
+      JobIdBatch jobIdBatch = startFirst();
+      while (jobIdBatch != null) {
+        try {
+          new ExecuteJobsRunnable(jobExecutor, jobIdBatch.jobIds).run();
+        } catch (RuntimeException e) {
+          log.error("exception during execution of exclusive jobs {}: {}", jobIdBatch.jobIds, e.getMessage(), e);
+        } finally {
+          finishFirst();
+        }
+        jobIdBatch = startFirst();
+      }
+    }
+    
+    /** queues the batch, and returns whether the lane must be scheduled */
+    protected synchronized boolean add(JobIdBatch jobIdBatch) {
+      jobIdBatches.add(jobIdBatch);
+      Integer batchCount = processInstanceBatchCounts.get(jobIdBatch.processInstanceId);
+      processInstanceBatchCounts.put(jobIdBatch.processInstanceId, (batchCount != null ? batchCount + 1 : 1));
+      if (isScheduled) {
+        return false;
+      }
+      isScheduled = true;
+      return true;
+    }
+    
+    /** returns the first batch to execute it, or unschedules the lane and returns null when it is idle */
+    protected synchronized JobIdBatch startFirst() {
+      if (unscheduleIfIdle()) {
+        return null;
+      }
+      isExecuting = true;
+      return jobIdBatches.getFirst();
+    }
+    
+    /** the batch stays in the queue while it is executed, so the process instance counts as routed */
+    protected synchronized void finishFirst() {
+      isExecuting = false;
+      JobIdBatch jobIdBatch = jobIdBatches.removeFirst();
+      decrementBatchCount(jobIdBatch.processInstanceId);
+    }
+    
+    protected synchronized boolean unscheduleIfIdle() {
+      if (jobIdBatches.isEmpty() || isStopped) {
+        isScheduled = false;
+        return true;
+      }
+      return false;
+    }
+    
+    /** takes the batches that are not executing out of the lane, and lets the lane stop */
+    protected synchronized List<JobIdBatch> stop() {
+      isStopped = true;
+      List<JobIdBatch> removed = new ArrayList<JobIdBatch>();
+      while (jobIdBatches.size() > (isExecuting ? 1 : 0)) {
+        JobIdBatch jobIdBatch = jobIdBatches.removeLast();
+        decrementBatchCount(jobIdBatch.processInstanceId);
+        removed.add(0, jobIdBatch);
+      }
+      return removed;
+    }
+    
+    protected void decrementBatchCount(String processInstanceId) {
+      Integer batchCount = processInstanceBatchCounts.get(processInstanceId);
+      if (batchCount == null || batchCount <= 1) {
+        processInstanceBatchCounts.remove(processInstanceId);
+      } else {
+        processInstanceBatchCounts.put(processInstanceId, batchCount - 1);
+      }
+    }
+  }
+}
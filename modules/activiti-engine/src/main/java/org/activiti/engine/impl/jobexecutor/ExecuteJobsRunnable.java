@@ -12,11 +12,17 @@
  */
 package org.activiti.engine.impl.jobexecutor;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import org.activiti.engine.ActivitiOptimisticLockingException;
 import org.activiti.engine.impl.cmd.ExecuteJobsCmd;
+import org.activiti.engine.impl.cmd.ExecuteJobsInOneTransactionCmd;
 import org.activiti.engine.impl.context.Context;
 import org.activiti.engine.impl.interceptor.CommandExecutor;
+import org.activiti.engine.impl.persistence.entity.JobEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 
 /**
@@ -24,6 +30,8 @@ import org.activiti.engine.impl.interceptor.CommandExecutor;
  * @author Daniel Meyer
  */
 public class ExecuteJobsRunnable implements Runnable {
+  
+  private static Logger log = LoggerFactory.getLogger(ExecuteJobsRunnable.class);
 
   private final List<String> jobIds;
   private final JobExecutor jobExecutor;
@@ -33,20 +41,79 @@ public class ExecuteJobsRunnable implements Runnable {
     this.jobIds = jobIds;
   }
 
+  public List<String> getJobIds() {
+    return jobIds;
+  }
+
   public void run() {
     final JobExecutorContext jobExecutorContext = new JobExecutorContext();
     final List<String> currentProcessorJobQueue = jobExecutorContext.getCurrentProcessorJobQueue();
     final CommandExecutor commandExecutor = jobExecutor.getCommandExecutor();
 
-    currentProcessorJobQueue.addAll(jobIds);
+    boolean inOneTransaction = (jobIds instanceof JobIdBatchInOneTransaction);
+    List<JobEntity> jobSnapshots = new ArrayList<JobEntity>();
+    for (String jobId : jobIds) {
+      jobSnapshots.add(jobExecutor.takeJobSnapshot(jobId));
+    }
     
     Context.setJobExecutorContext(jobExecutorContext);
     try {
+      if (inOneTransaction) {
+        executeJobsInOneTransaction(commandExecutor, jobSnapshots);
+        
+      } else {
+        currentProcessorJobQueue.addAll(jobIds);
+        
+        // only the first job of an exclusive batch can use its snapshot:
+        // executing it can change the other jobs of the process instance
+        JobEntity firstJobSnapshot = (jobSnapshots.isEmpty() ? null : jobSnapshots.get(0));
+        if (firstJobSnapshot!=null) {
+          currentProcessorJobQueue.remove(0);
+          executeJob(commandExecutor, new ExecuteJobsCmd(firstJobSnapshot));
+        }
+      }
       while (!currentProcessorJobQueue.isEmpty()) {
-        commandExecutor.execute(new ExecuteJobsCmd(currentProcessorJobQueue.remove(0)));
+        executeJob(commandExecutor, new ExecuteJobsCmd(currentProcessorJobQueue.remove(0)));
       }      
     }finally {
       Context.removeJobExecutorContext();
+      jobExecutor.workerFinished();
+    }
+  }
+  
+  protected void executeJob(CommandExecutor commandExecutor, ExecuteJobsCmd executeJobsCmd) {
+    try {
+      commandExecutor.execute(executeJobsCmd);
+    } catch (RuntimeException e) {
+      jobExecutor.jobFailed();
+      if (e instanceof ActivitiOptimisticLockingException) {
+        jobExecutor.jobOptimisticLockingFailed();
+      }
+      throw e;
+    }
+    jobExecutor.jobExecuted();
+  }
+  
+  /** 
+   * when the transaction fails, every job is executed again in its own transaction, 
+   * so that a failing job doesn't keep the others from being executed
+   */
+  protected void executeJobsInOneTransaction(CommandExecutor commandExecutor, List<JobEntity> jobSnapshots) {
+    try {
+      commandExecutor.execute(new ExecuteJobsInOneTransactionCmd(jobIds, jobSnapshots));
+    } catch (RuntimeException e) {
+      log.debug("Executing jobs {} in one transaction failed, executing them one by one: {}", jobIds, e.getMessage());
+      for (String jobId : jobIds) {
+        try {
+          executeJob(commandExecutor, new ExecuteJobsCmd(jobId));
+        } catch (RuntimeException jobException) {
+          log.error("exception during job execution: {}", jobException.getMessage(), jobException);
+        }
+      }
+      return;
+    }
+    for (int i=0; i<jobIds.size(); i++) {
+      jobExecutor.jobExecuted();
     }
   }
 }
@@ -28,10 +28,17 @@ import org.activiti.engine.impl.persistence.entity.TimerEntity;
  */
 public class GetUnlockedTimersByDuedateCmd implements Command<List<TimerEntity>> {
 
+  protected JobAcquisitionPartition partition;
   protected Date duedate;
   protected Page page;
   
   public GetUnlockedTimersByDuedateCmd(Date duedate, Page page) {
+    this(JobAcquisitionPartition.ALL, duedate, page);
+  }
+  
+  /** only returns the timers of the given partition */
+  public GetUnlockedTimersByDuedateCmd(JobAcquisitionPartition partition, Date duedate, Page page) {
+	  this.partition = partition;
 	  this.duedate = duedate;
 	  this.page = page;
   }
@@ -40,6 +47,6 @@ public class GetUnlockedTimersByDuedateCmd implements Command<List<TimerEntity>>
     return Context
       .getCommandContext()
       .getJobEntityManager()
-      .findUnlockedTimersByDuedate(duedate, page);
+      .findUnlockedTimersByDuedate(partition, duedate, page);
   }
 }
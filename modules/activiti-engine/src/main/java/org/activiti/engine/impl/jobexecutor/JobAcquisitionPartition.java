@@ -0,0 +1,114 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.jobexecutor;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.activiti.engine.ActivitiIllegalArgumentException;
+
+/**
+ * The part of the jobs that one job acquisition thread is responsible for.
+ * 
+ * Every job gets a partition (0 to {@link #NR_OF_PARTITIONS}-1) derived from its id when 
+ * it is inserted. When a job executor has multiple acquisition threads, each of them selects 
+ * the jobs of its own range of partitions, so the threads don't compete for the same jobs. 
+ * Jobs that were created before the partition column existed have no partition and 
+ * are acquired by the thread of the first range.
+ * 
+ * Optionally a partition only contains one type of job (timers or messages), so that 
+ * a lot of due timers don't delay the async continuations and vice versa.
+ */
+public class JobAcquisitionPartition {
+
+  public static final int NR_OF_PARTITIONS = 1024;
+  
+  /** values of the TYPE_ column of ACT_RU_JOB */
+  public static final String JOB_TYPE_TIMER = "timer";
+  public static final String JOB_TYPE_MESSAGE = "message";
+  
+  public static final JobAcquisitionPartition ALL = new JobAcquisitionPartition(null, 0, 1);
+  
+  protected String jobType;
+  protected int index;
+  protected int nrOfRanges;
+  
+  /**
+   * @param jobType {@link #JOB_TYPE_TIMER}, {@link #JOB_TYPE_MESSAGE} or null for all jobs
+   * @param index the range of partitions, from 0 to nrOfRanges-1
+   * @param nrOfRanges the number of ranges the partitions are divided into 
+   */
+  public JobAcquisitionPartition(String jobType, int index, int nrOfRanges) {
+    if (nrOfRanges < 1 || nrOfRanges > NR_OF_PARTITIONS) {
+      throw new ActivitiIllegalArgumentException("nrOfRanges must be between 1 and " + NR_OF_PARTITIONS + ": " + nrOfRanges);
+    }
+    if (index < 0 || index >= nrOfRanges) {
+      throw new ActivitiIllegalArgumentException("index must be between 0 and " + (nrOfRanges - 1) + ": " + index);
+    }
+    this.jobType = jobType;
+    this.index = index;
+    this.nrOfRanges = nrOfRanges;
+  }
+  
+  /** the partition of the job with the given id */
+  public static int getPartition(String jobId) {
+    return (jobId.hashCode() & Integer.MAX_VALUE) % NR_OF_PARTITIONS;
+  }
+  
+  /** first partition of the range (inclusive) */
+  public int getPartitionFrom() {
+    return index * NR_OF_PARTITIONS / nrOfRanges;
+  }
+  
+  /** last partition of the range (exclusive) */
+  public int getPartitionTo() {
+    return (index + 1) * NR_OF_PARTITIONS / nrOfRanges;
+  }
+  
+  public boolean isPartitioned() {
+    return nrOfRanges > 1;
+  }
+  
+  public boolean isIncludingUnpartitioned() {
+    return index == 0;
+  }
+  
+  /** the parameter of the selectNextJobsToExecute statement */
+  public Map<String, Object> getQueryParameters(Date now) {
+    Map<String, Object> parameters = new HashMap<String, Object>();
+    parameters.put("now", now);
+    parameters.put("jobType", jobType);
+    parameters.put("partitioned", isPartitioned());
+    parameters.put("partitionFrom", getPartitionFrom());
+    parameters.put("partitionTo", getPartitionTo());
+    parameters.put("includingUnpartitioned", isIncludingUnpartitioned());
+    return parameters;
+  }
+  
+  public String getJobType() {
+    return jobType;
+  }
+  
+  public int getIndex() {
+    return index;
+  }
+  
+  public int getNrOfRanges() {
+    return nrOfRanges;
+  }
+  
+  public String toString() {
+    return (jobType != null ? jobType : "all") + " jobs, partitions " + getPartitionFrom() + "-" + (getPartitionTo() - 1);
+  }
+}
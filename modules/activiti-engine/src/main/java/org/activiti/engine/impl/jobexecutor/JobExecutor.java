@@ -13,12 +13,25 @@
 
 package org.activiti.engine.impl.jobexecutor;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.activiti.engine.impl.cmd.AcquireJobsCmd;
+import org.activiti.engine.impl.cmd.DeleteJobExecutorHeartbeatCmd;
+import org.activiti.engine.impl.cmd.ReleaseJobLocksCmd;
 import org.activiti.engine.impl.interceptor.Command;
 import org.activiti.engine.impl.interceptor.CommandExecutor;
+import org.activiti.engine.impl.persistence.entity.JobEntity;
+import org.activiti.engine.impl.util.ClockUtil;
+import org.activiti.engine.management.JobExecutorMetrics;
+import org.activiti.engine.management.LatencyHistogram;
 import org.activiti.engine.runtime.Job;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,9 +56,11 @@ public abstract class JobExecutor {
   protected String name = "JobExecutor["+getClass().getName()+"]";
   protected CommandExecutor commandExecutor;
   protected Command<AcquiredJobs> acquireJobsCmd;
-  protected AcquireJobsRunnable acquireJobsRunnable;
+  protected List<AcquireJobsRunnable> acquireJobsRunnables = new ArrayList<AcquireJobsRunnable>();
   protected RejectedJobsHandler rejectedJobsHandler;
-  protected Thread jobAcquisitionThread;
+  protected List<Thread> jobAcquisitionThreads = new ArrayList<Thread>();
+  protected JobExecutorHeartbeatRunnable heartbeatRunnable;
+  protected Thread heartbeatThread;
   
   protected boolean isAutoActivate = false;
   protected boolean isActive = false;
@@ -54,6 +69,81 @@ public abstract class JobExecutor {
   protected int waitTimeInMillis = 5 * 1000;
   protected String lockOwner = UUID.randomUUID().toString();
   protected int lockTimeInMillis = 5 * 60 * 1000;
+  
+  /**
+   * The number of acquisition threads (per type of job when timerAcquisitionSeparated is enabled).
+   * With more than one thread, every thread acquires the jobs of its own range of partitions 
+   * (see {@link JobAcquisitionPartition}).
+   */
+  protected int nrOfAcquisitionThreads = 1;
+  
+  /** When enabled, timers and messages are acquired by separate threads. */
+  protected boolean timerAcquisitionSeparated = false;
+  
+  /**
+   * When enabled, the acquisition keeps the due dates of the upcoming timers in memory 
+   * (see {@link TimerSchedule}) and wakes up when the next one is due, instead of querying 
+   * for the next timer after every acquisition that didn't find enough jobs.
+   */
+  protected boolean timerScheduleEnabled = false;
+  protected int timerLookAheadInMillis = 5 * 60 * 1000;
+  protected int timerScheduleSize = 100;
+  
+  /**
+   * When enabled, the jobs that are locked by the acquisition are handed to the worker 
+   * threads as they were loaded, so the workers don't select them again. The revision of 
+   * the snapshot is checked when the executed job is deleted or updated.
+   */
+  protected boolean jobSnapshotsEnabled = false;
+  protected Map<String, JobEntity> jobSnapshots = new ConcurrentHashMap<String, JobEntity>();
+  
+  /**
+   * When enabled, the number of jobs per acquisition doubles (up to maxJobsPerAcquisitionCeiling) 
+   * while acquisitions come back full, and halves (down to maxJobsPerAcquisition) when they don't.
+   * It is also limited to the remaining capacity of the executor, so that no jobs are locked 
+   * that can't be executed right away.
+   */
+  protected boolean adaptiveAcquisitionEnabled = false;
+  protected int maxJobsPerAcquisitionCeiling = 30;
+  
+  /**
+   * When greater than 1, up to this many non-exclusive messages (eg. async continuations) of 
+   * different process instances that are acquired together are executed in one transaction. 
+   * When that transaction fails, the jobs are executed again, each in its own transaction.
+   */
+  protected int jobsPerTransaction = 1;
+  
+  /**
+   * When enabled, the job executor writes a heartbeat to ACT_RU_JOB_HEARTBEAT every 
+   * heartbeatIntervalInMillis. The locks of job executors whose heartbeat is older than 
+   * heartbeatTimeoutInMillis are released with one update, so their jobs are picked up again 
+   * without waiting for the lockTimeInMillis. The timeout must be well above the interval plus 
+   * the clock difference between the nodes of the cluster.
+   */
+  protected boolean heartbeatEnabled = false;
+  protected int heartbeatIntervalInMillis = 10 * 1000;
+  protected int heartbeatTimeoutInMillis = 60 * 1000;
+  
+  /** 
+   * When enabled, the jobs that were acquired but not started when the job executor is 
+   * shut down are unlocked instead of executed, so that other job executors can take them over.
+   */
+  protected boolean releaseJobLocksOnShutdown = false;
+  
+  /** set by the job executors that route exclusive jobs, see {@link ExclusiveJobRouter} */
+  protected ExclusiveJobRouter exclusiveJobRouter;
+  
+  protected EventRateCounter acquiredJobs = new EventRateCounter();
+  protected EventRateCounter executedJobs = new EventRateCounter();
+  protected EventRateCounter failedJobs = new EventRateCounter();
+  protected EventRateCounter rejectedJobs = new EventRateCounter();
+  protected EventRateCounter acquisitionOptimisticLockingFailures = new EventRateCounter();
+  protected EventRateCounter jobOptimisticLockingFailures = new EventRateCounter();
+  protected LatencyRecorder acquisitionTimes = new LatencyRecorder();
+  /** per job handler type */
+  protected ConcurrentMap<String, LatencyRecorder> jobExecutionTimes = new ConcurrentHashMap<String, LatencyRecorder>();
+  /** time between the due date of a job and the start of its execution, per job handler type */
+  protected ConcurrentMap<String, LatencyRecorder> jobLags = new ConcurrentHashMap<String, LatencyRecorder>();
       
   public void start() {
     if (isActive) {
@@ -61,6 +151,9 @@ public abstract class JobExecutor {
     }
     log.info("Starting up the JobExecutor[{}].", getClass().getName());
     ensureInitialization();    
+    if (heartbeatEnabled) {
+      startHeartbeatThread();
+    }
     startExecutingJobs();
     isActive = true;
   }
@@ -70,25 +163,55 @@ public abstract class JobExecutor {
       return;
     }
     log.info("Shutting down the JobExecutor[{}].", getClass().getName());
-    acquireJobsRunnable.stop();
+    for (AcquireJobsRunnable acquireJobsRunnable : acquireJobsRunnables) {
+      acquireJobsRunnable.stop();
+    }
     stopExecutingJobs();
+    // the heartbeat goes on until the running jobs are finished, so their locks are not released
+    if (heartbeatThread != null) {
+      stopHeartbeatThread();
+    }
     ensureCleanup();   
     isActive = false;
   }
   
   protected void ensureInitialization() { 
     acquireJobsCmd = new AcquireJobsCmd(this);
-    acquireJobsRunnable = new AcquireJobsRunnable(this);  
+    acquireJobsRunnables = createAcquireJobsRunnables();
+  }
+  
+  protected List<AcquireJobsRunnable> createAcquireJobsRunnables() {
+    List<AcquireJobsRunnable> runnables = new ArrayList<AcquireJobsRunnable>();
+    if (nrOfAcquisitionThreads <= 1 && !timerAcquisitionSeparated) {
+      runnables.add(new AcquireJobsRunnable(this));
+    } else {
+      String[] jobTypes = null;
+      if (timerAcquisitionSeparated) {
+        jobTypes = new String[] { JobAcquisitionPartition.JOB_TYPE_TIMER, JobAcquisitionPartition.JOB_TYPE_MESSAGE };
+      } else {
+        jobTypes = new String[] { null };
+      }
+      int nrOfRanges = Math.max(nrOfAcquisitionThreads, 1);
+      for (String jobType : jobTypes) {
+        for (int i = 0; i < nrOfRanges; i++) {
+          runnables.add(new AcquireJobsRunnable(this, new JobAcquisitionPartition(jobType, i, nrOfRanges)));
+        }
+      }
+    }
+    return runnables;
   }
   
   protected void ensureCleanup() {  
     acquireJobsCmd = null;
-    acquireJobsRunnable = null;  
+    acquireJobsRunnables = new ArrayList<AcquireJobsRunnable>();
+    jobSnapshots.clear();
   }
   
   public void jobWasAdded() {
     if(isActive) {
-      acquireJobsRunnable.jobWasAdded();
+      for (AcquireJobsRunnable acquireJobsRunnable : acquireJobsRunnables) {
+        acquireJobsRunnable.jobWasAdded();
+      }
     }
   }
   
@@ -96,6 +219,210 @@ public abstract class JobExecutor {
   protected abstract void stopExecutingJobs(); 
   protected abstract void executeJobs(List<String> jobIds);
   
+  /** executes a batch of jobs of which the highest {@link JobEntity#getPriority() priority} is given */
+  protected void executeJobs(List<String> jobIds, int priority) {
+    executeJobs(jobIds);
+  }
+  
+  /** a timer was committed, see {@link TimerScheduledNotification} */
+  public void timerScheduled(Date duedate) {
+    if (isActive) {
+      for (AcquireJobsRunnable acquireJobsRunnable : acquireJobsRunnables) {
+        acquireJobsRunnable.timerScheduled(duedate);
+      }
+    }
+  }
+  
+  public void addJobSnapshots(Map<String, JobEntity> acquiredJobSnapshots) {
+    if (!jobSnapshots.isEmpty()) {
+      removeExpiredJobSnapshots();
+    }
+    jobSnapshots.putAll(acquiredJobSnapshots);
+  }
+  
+  /** 
+   * forgets the snapshots of jobs whose lock expired: they can be executed by another job executor by now, 
+   * and the snapshots of batches that never reach a worker (eg. on another node) would be kept forever otherwise
+   */
+  protected void removeExpiredJobSnapshots() {
+    Date now = ClockUtil.getCurrentTime();
+    Iterator<JobEntity> snapshotIterator = jobSnapshots.values().iterator();
+    while (snapshotIterator.hasNext()) {
+      Date lockExpirationTime = snapshotIterator.next().getLockExpirationTime();
+      if (lockExpirationTime == null || lockExpirationTime.before(now)) {
+        snapshotIterator.remove();
+      }
+    }
+  }
+  
+  /** the number of job batches that can be started right away, or -1 if that is not known */
+  public int getRemainingCapacity() {
+    return -1;
+  }
+  
+  /** 
+   * decides how many jobs the next acquisition of an acquisition thread asks for, given the 
+   * adaptive size of that thread (-1 before its first acquisition) 
+   */
+  public int nextJobsPerAcquisition(int adaptiveJobsPerAcquisition) {
+    if (!adaptiveAcquisitionEnabled) {
+      return maxJobsPerAcquisition;
+    }
+    int nextJobsPerAcquisition = Math.max(adaptiveJobsPerAcquisition, maxJobsPerAcquisition);
+    int remainingCapacity = getRemainingCapacity();
+    if (remainingCapacity >= 0 && remainingCapacity < nextJobsPerAcquisition) {
+      nextJobsPerAcquisition = remainingCapacity;
+    }
+    return nextJobsPerAcquisition;
+  }
+  
+  /** the adaptive size of an acquisition thread after an acquisition that asked for jobsPerAcquisition jobs */
+  public int adaptJobsPerAcquisition(int adaptiveJobsPerAcquisition, int jobsPerAcquisition, AcquiredJobs acquired) {
+    int currentJobsPerAcquisition = Math.max(adaptiveJobsPerAcquisition, maxJobsPerAcquisition);
+    if (acquired.getNrOfJobsFound() >= jobsPerAcquisition) {
+      return Math.min(currentJobsPerAcquisition * 2, Math.max(maxJobsPerAcquisitionCeiling, maxJobsPerAcquisition));
+    } else {
+      return Math.max(currentJobsPerAcquisition / 2, maxJobsPerAcquisition);
+    }
+  }
+  
+  /** the number of jobs the last acquisitions of all acquisition threads asked for together */
+  public int getJobsPerAcquisition() {
+    if (acquireJobsRunnables.isEmpty()) {
+      return maxJobsPerAcquisition;
+    }
+    int jobsPerAcquisition = 0;
+    for (AcquireJobsRunnable acquireJobsRunnable : acquireJobsRunnables) {
+      jobsPerAcquisition += acquireJobsRunnable.getJobsPerAcquisition();
+    }
+    return jobsPerAcquisition;
+  }
+  
+  public void jobsAcquired(AcquiredJobs acquired) {
+    acquiredJobs.add(acquired.size());
+  }
+  
+  public void jobExecuted() {
+    executedJobs.add(1);
+  }
+  
+  public void jobFailed() {
+    failedJobs.add(1);
+  }
+  
+  /** a job could not be executed because it was changed concurrently, eg. by another job of its process instance */
+  public void jobOptimisticLockingFailed() {
+    jobOptimisticLockingFailures.add(1);
+  }
+  
+  /** an acquisition could not lock the jobs it found, as another acquisition locked them first */
+  public void acquisitionOptimisticLockingFailed() {
+    acquisitionOptimisticLockingFailures.add(1);
+  }
+  
+  /** the time it took to select and lock the jobs of an acquisition */
+  public void recordAcquisitionTime(long millis) {
+    acquisitionTimes.record(millis);
+  }
+  
+  /** the time the job handler took to execute a job */
+  public void recordJobExecutionTime(String jobHandlerType, long millis) {
+    getLatencyRecorder(jobExecutionTimes, jobHandlerType).record(millis);
+  }
+  
+  /** the time between the due date of a job and the start of its execution */
+  public void recordJobLag(String jobHandlerType, long millis) {
+    getLatencyRecorder(jobLags, jobHandlerType).record(millis);
+  }
+  
+  protected LatencyRecorder getLatencyRecorder(ConcurrentMap<String, LatencyRecorder> latencyRecorders, String jobHandlerType) {
+    String key = (jobHandlerType != null ? jobHandlerType : "unknown");
+    LatencyRecorder latencyRecorder = latencyRecorders.get(key);
+    if (latencyRecorder == null) {
+      latencyRecorder = new LatencyRecorder();
+      LatencyRecorder existingLatencyRecorder = latencyRecorders.putIfAbsent(key, latencyRecorder);
+      if (existingLatencyRecorder != null) {
+        latencyRecorder = existingLatencyRecorder;
+      }
+    }
+    return latencyRecorder;
+  }
+  
+  protected Map<String, LatencyHistogram> getHistograms(Map<String, LatencyRecorder> latencyRecorders) {
+    Map<String, LatencyHistogram> histograms = new TreeMap<String, LatencyHistogram>();
+    for (Map.Entry<String, LatencyRecorder> latencyRecorder : latencyRecorders.entrySet()) {
+      histograms.put(latencyRecorder.getKey(), latencyRecorder.getValue().getHistogram());
+    }
+    return histograms;
+  }
+  
+  /** unlocks jobs that were acquired by this job executor but will not be executed by it */
+  protected void releaseJobLocks(List<String> jobIds) {
+    if (jobIds.isEmpty()) {
+      return;
+    }
+    try {
+      // stay below the limit of expressions in an 'in' clause of some databases
+      for (int i = 0; i < jobIds.size(); i += 500) {
+        List<String> chunk = new ArrayList<String>(jobIds.subList(i, Math.min(i + 500, jobIds.size())));
+        commandExecutor.execute(new ReleaseJobLocksCmd(lockOwner, chunk));
+      }
+      log.info("released the locks of {} jobs that were not started", jobIds.size());
+    } catch (Throwable e) {
+      log.warn("could not release the locks of jobs {}, they are executed again when the locks expire: {}", jobIds, e.getMessage());
+    }
+  }
+  
+  /** counts the rejected jobs and passes them to the {@link RejectedJobsHandler} */
+  protected void rejectJobs(List<String> jobIds) {
+    rejectedJobs.add(jobIds.size());
+    try {
+      rejectedJobsHandler.jobsRejected(this, jobIds);
+    } finally {
+      // a handler that doesn't execute the jobs right away doesn't get to use their snapshots
+      for (String jobId : jobIds) {
+        jobSnapshots.remove(jobId);
+      }
+    }
+  }
+  
+  /** a worker finished its jobs, so the acquisition can continue if it was waiting for capacity */
+  public void workerFinished() {
+    if (isActive && adaptiveAcquisitionEnabled) {
+      for (AcquireJobsRunnable acquireJobsRunnable : acquireJobsRunnables) {
+        acquireJobsRunnable.capacityAvailable();
+      }
+    }
+  }
+  
+  public JobExecutorMetrics getMetrics() {
+    JobExecutorMetrics metrics = new JobExecutorMetrics();
+    metrics.setActive(isActive);
+    metrics.setAcquiredJobs(acquiredJobs.getTotal());
+    metrics.setAcquiredJobsLastMinute(acquiredJobs.getCountInLastMinute());
+    metrics.setExecutedJobs(executedJobs.getTotal());
+    metrics.setExecutedJobsLastMinute(executedJobs.getCountInLastMinute());
+    metrics.setFailedJobs(failedJobs.getTotal());
+    metrics.setFailedJobsLastMinute(failedJobs.getCountInLastMinute());
+    metrics.setRejectedJobs(rejectedJobs.getTotal());
+    metrics.setRejectedJobsLastMinute(rejectedJobs.getCountInLastMinute());
+    metrics.setJobsPerAcquisition(getJobsPerAcquisition());
+    metrics.setRemainingCapacity(getRemainingCapacity());
+    metrics.setAcquisitionOptimisticLockingFailures(acquisitionOptimisticLockingFailures.getTotal());
+    metrics.setAcquisitionOptimisticLockingFailuresLastMinute(acquisitionOptimisticLockingFailures.getCountInLastMinute());
+    metrics.setJobOptimisticLockingFailures(jobOptimisticLockingFailures.getTotal());
+    metrics.setJobOptimisticLockingFailuresLastMinute(jobOptimisticLockingFailures.getCountInLastMinute());
+    metrics.setAcquisitionTimes(acquisitionTimes.getHistogram());
+    metrics.setJobExecutionTimes(getHistograms(jobExecutionTimes));
+    metrics.setJobLags(getHistograms(jobLags));
+    return metrics;
+  }
+  
+  /** returns the snapshot of the acquired job and forgets it, or null if there is none */
+  public JobEntity takeJobSnapshot(String jobId) {
+    return jobSnapshots.remove(jobId);
+  }
+  
   // getters and setters //////////////////////////////////////////////////////
 
   public CommandExecutor getCommandExecutor() {
@@ -138,6 +465,31 @@ public abstract class JobExecutor {
     this.isAutoActivate = isAutoActivate;
   }
 
+  /** the router of the exclusive jobs, or null if the exclusive jobs of a process instance are acquired together */
+  public ExclusiveJobRouter getExclusiveJobRouter() {
+    return exclusiveJobRouter;
+  }
+
+  public void setExclusiveJobRouter(ExclusiveJobRouter exclusiveJobRouter) {
+    this.exclusiveJobRouter = exclusiveJobRouter;
+  }
+
+  public int getJobsPerTransaction() {
+    return jobsPerTransaction;
+  }
+
+  public void setJobsPerTransaction(int jobsPerTransaction) {
+    this.jobsPerTransaction = jobsPerTransaction;
+  }
+
+  public boolean isJobSnapshotsEnabled() {
+    return jobSnapshotsEnabled;
+  }
+
+  public void setJobSnapshotsEnabled(boolean jobSnapshotsEnabled) {
+    this.jobSnapshotsEnabled = jobSnapshotsEnabled;
+  }
+
   public int getMaxJobsPerAcquisition() {
     return maxJobsPerAcquisition;
   }
@@ -146,6 +498,98 @@ public abstract class JobExecutor {
     this.maxJobsPerAcquisition = maxJobsPerAcquisition;
   }
 
+  public boolean isAdaptiveAcquisitionEnabled() {
+    return adaptiveAcquisitionEnabled;
+  }
+
+  public void setAdaptiveAcquisitionEnabled(boolean adaptiveAcquisitionEnabled) {
+    this.adaptiveAcquisitionEnabled = adaptiveAcquisitionEnabled;
+  }
+
+  public int getMaxJobsPerAcquisitionCeiling() {
+    return maxJobsPerAcquisitionCeiling;
+  }
+
+  public void setMaxJobsPerAcquisitionCeiling(int maxJobsPerAcquisitionCeiling) {
+    this.maxJobsPerAcquisitionCeiling = maxJobsPerAcquisitionCeiling;
+  }
+
+  public int getNrOfAcquisitionThreads() {
+    return nrOfAcquisitionThreads;
+  }
+
+  public void setNrOfAcquisitionThreads(int nrOfAcquisitionThreads) {
+    this.nrOfAcquisitionThreads = nrOfAcquisitionThreads;
+  }
+
+  public boolean isTimerAcquisitionSeparated() {
+    return timerAcquisitionSeparated;
+  }
+
+  public void setTimerAcquisitionSeparated(boolean timerAcquisitionSeparated) {
+    this.timerAcquisitionSeparated = timerAcquisitionSeparated;
+  }
+
+  public boolean isTimerScheduleEnabled() {
+    return timerScheduleEnabled;
+  }
+
+  public void setTimerScheduleEnabled(boolean timerScheduleEnabled) {
+    this.timerScheduleEnabled = timerScheduleEnabled;
+  }
+
+  public int getTimerLookAheadInMillis() {
+    return timerLookAheadInMillis;
+  }
+
+  public void setTimerLookAheadInMillis(int timerLookAheadInMillis) {
+    this.timerLookAheadInMillis = timerLookAheadInMillis;
+  }
+
+  public int getTimerScheduleSize() {
+    return timerScheduleSize;
+  }
+
+  public void setTimerScheduleSize(int timerScheduleSize) {
+    this.timerScheduleSize = timerScheduleSize;
+  }
+
+  public boolean isHeartbeatEnabled() {
+    return heartbeatEnabled;
+  }
+
+  public void setHeartbeatEnabled(boolean heartbeatEnabled) {
+    this.heartbeatEnabled = heartbeatEnabled;
+  }
+
+  public int getHeartbeatIntervalInMillis() {
+    return heartbeatIntervalInMillis;
+  }
+
+  public void setHeartbeatIntervalInMillis(int heartbeatIntervalInMillis) {
+    this.heartbeatIntervalInMillis = heartbeatIntervalInMillis;
+  }
+
+  public int getHeartbeatTimeoutInMillis() {
+    return heartbeatTimeoutInMillis;
+  }
+
+  public void setHeartbeatTimeoutInMillis(int heartbeatTimeoutInMillis) {
+    this.heartbeatTimeoutInMillis = heartbeatTimeoutInMillis;
+  }
+
+  public boolean isReleaseJobLocksOnShutdown() {
+    return releaseJobLocksOnShutdown;
+  }
+
+  public void setReleaseJobLocksOnShutdown(boolean releaseJobLocksOnShutdown) {
+    this.releaseJobLocksOnShutdown = releaseJobLocksOnShutdown;
+  }
+
+  public List<AcquireJobsRunnable> getAcquireJobsRunnables() {
+    return acquireJobsRunnables;
+  }
+
   public String getName() {
     return name;
   }
@@ -171,18 +615,49 @@ public abstract class JobExecutor {
   }
   
   protected void startJobAcquisitionThread() {
-		if (jobAcquisitionThread == null) {
-			jobAcquisitionThread = new Thread(acquireJobsRunnable);
-			jobAcquisitionThread.start();
+		if (jobAcquisitionThreads.isEmpty()) {
+		  for (AcquireJobsRunnable acquireJobsRunnable : acquireJobsRunnables) {
+		    Thread jobAcquisitionThread = new Thread(acquireJobsRunnable);
+		    jobAcquisitionThread.start();
+		    jobAcquisitionThreads.add(jobAcquisitionThread);
+		  }
 		}
 	}
 	
 	protected void stopJobAcquisitionThread() {
-		try {
-			jobAcquisitionThread.join();
-		} catch (InterruptedException e) {
-			log.warn("Interrupted while waiting for the job Acquisition thread to terminate", e);
-		}	
-		jobAcquisitionThread = null;
+	  for (Thread jobAcquisitionThread : jobAcquisitionThreads) {
+	    try {
+	      jobAcquisitionThread.join();
+	    } catch (InterruptedException e) {
+	      log.warn("Interrupted while waiting for the job Acquisition thread to terminate", e);
+	    }
+	  }
+		jobAcquisitionThreads.clear();
 	}
+	
+  protected void startHeartbeatThread() {
+    if (heartbeatThread == null) {
+      heartbeatRunnable = new JobExecutorHeartbeatRunnable(this);
+      heartbeatThread = new Thread(heartbeatRunnable);
+      heartbeatThread.start();
+    }
+  }
+  
+  protected void stopHeartbeatThread() {
+    heartbeatRunnable.stop();
+    try {
+      heartbeatThread.join();
+    } catch (InterruptedException e) {
+      log.warn("Interrupted while waiting for the job executor heartbeat thread to terminate", e);
+    }
+    heartbeatRunnable = null;
+    heartbeatThread = null;
+    
+    // the acquired jobs were executed or released by now, so the heartbeat isn't needed anymore
+    try {
+      commandExecutor.execute(new DeleteJobExecutorHeartbeatCmd(lockOwner));
+    } catch (Throwable e) {
+      log.warn("could not delete the heartbeat of job executor {}: {}", lockOwner, e.getMessage());
+    }
+  }
 }
@@ -0,0 +1,74 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.jobexecutor;
+
+import org.activiti.engine.impl.cmd.JobExecutorHeartbeatCmd;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the heartbeat of the job executor every heartbeatIntervalInMillis, and wakes up the 
+ * acquisition when the locks of job executors that stopped sending heartbeats were released.
+ */
+public class JobExecutorHeartbeatRunnable implements Runnable {
+
+  private static Logger log = LoggerFactory.getLogger(JobExecutorHeartbeatRunnable.class);
+
+  protected final JobExecutor jobExecutor;
+
+  protected volatile boolean isInterrupted = false;
+  protected final Object MONITOR = new Object();
+
+  public JobExecutorHeartbeatRunnable(JobExecutor jobExecutor) {
+    this.jobExecutor = jobExecutor;
+  }
+
+  public void run() {
+    log.info("{} starting to send heartbeats as {}", jobExecutor.getName(), jobExecutor.getLockOwner());
+
+    while (!isInterrupted) {
+      try {
+        int releasedLocks = jobExecutor.getCommandExecutor().execute(
+                new JobExecutorHeartbeatCmd(jobExecutor.getLockOwner(), jobExecutor.getHeartbeatTimeoutInMillis()));
+        if (releasedLocks > 0) {
+          log.info("released the locks of {} jobs of job executors without heartbeat", releasedLocks);
+          jobExecutor.jobWasAdded();
+        }
+      } catch (Throwable e) {
+        log.error("exception during job executor heartbeat: {}", e.getMessage(), e);
+      }
+
+      try {
+        synchronized (MONITOR) {
+          if (!isInterrupted) {
+            MONITOR.wait(jobExecutor.getHeartbeatIntervalInMillis());
+          }
+        }
+      } catch (InterruptedException e) {
+        if (log.isDebugEnabled()) {
+          log.debug("job executor heartbeat wait interrupted");
+        }
+      }
+    }
+
+    log.info("{} stopped sending heartbeats", jobExecutor.getName());
+  }
+
+  public void stop() {
+    synchronized (MONITOR) {
+      isInterrupted = true;
+      MONITOR.notifyAll();
+    }
+  }
+
+}
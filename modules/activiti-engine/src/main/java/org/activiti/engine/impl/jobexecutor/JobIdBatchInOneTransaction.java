@@ -0,0 +1,31 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.jobexecutor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+
+/**
+ * The ids of a batch of jobs that are executed in one transaction, see {@link JobExecutor#getJobsPerTransaction()}. 
+ * The batch is handed to the workers like any other list of job ids, so the worker that gets it 
+ * recognizes it by its type.
+ */
+public class JobIdBatchInOneTransaction extends ArrayList<String> {
+
+  private static final long serialVersionUID = 1L;
+
+  public JobIdBatchInOneTransaction(Collection<String> jobIds) {
+    super(jobIds);
+  }
+}
@@ -0,0 +1,115 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.jobexecutor;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.activiti.engine.management.LatencyHistogram;
+
+
+/**
+ * Records durations in milliseconds in a histogram with buckets of which the width grows 
+ * with the value (like HdrHistogram), so that percentiles can be read with an error of 
+ * at most 1/16th of the value, while recording is only an increment of an atomic counter.
+ * 
+ * Every power of two is split in 16 buckets, up to 2^40 milliseconds. Longer durations 
+ * are counted in the last bucket.
+ */
+public class LatencyRecorder {
+  
+  protected static final int SUB_BUCKET_BITS = 4;
+  protected static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  protected static final int MAX_EXPONENT = 40;
+  protected static final int NR_OF_BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+  
+  protected final AtomicLongArray bucketCounts = new AtomicLongArray(NR_OF_BUCKETS);
+  protected final AtomicLong count = new AtomicLong();
+  protected final AtomicLong totalMillis = new AtomicLong();
+  protected final AtomicLong maxMillis = new AtomicLong();
+  
+  public void record(long millis) {
+    if (millis < 0) {
+      millis = 0;
+    }
+    bucketCounts.incrementAndGet(getBucketIndex(millis));
+    count.incrementAndGet();
+    totalMillis.addAndGet(millis);
+    long max = maxMillis.get();
+    while (millis > max && !maxMillis.compareAndSet(max, millis)) {
+      max = maxMillis.get();
+    }
+  }
+  
+  /** snapshot of the recorded durations */
+  public LatencyHistogram getHistogram() {
+    long[] counts = new long[NR_OF_BUCKETS];
+    long snapshotCount = 0;
+    for (int i=0; i<NR_OF_BUCKETS; i++) {
+      counts[i] = bucketCounts.get(i);
+      snapshotCount += counts[i];
+    }
+    long max = maxMillis.get();
+    
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.setCount(snapshotCount);
+    histogram.setMax(max);
+    if (snapshotCount > 0) {
+      histogram.setMean((double) totalMillis.get() / count.get());
+      histogram.setP50(getValueAtPercentile(counts, snapshotCount, max, 50.0));
+      histogram.setP90(getValueAtPercentile(counts, snapshotCount, max, 90.0));
+      histogram.setP99(getValueAtPercentile(counts, snapshotCount, max, 99.0));
+      histogram.setP999(getValueAtPercentile(counts, snapshotCount, max, 99.9));
+    }
+    return histogram;
+  }
+  
+  public long getCount() {
+    return count.get();
+  }
+  
+  protected long getValueAtPercentile(long[] counts, long totalCount, long max, double percentile) {
+    long countAtPercentile = (long) Math.ceil(percentile / 100.0 * totalCount);
+    long cumulativeCount = 0;
+    for (int i=0; i<counts.length; i++) {
+      cumulativeCount += counts[i];
+      if (cumulativeCount >= countAtPercentile) {
+        return Math.min(getBucketHighestValue(i), max);
+      }
+    }
+    return max;
+  }
+  
+  protected static int getBucketIndex(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    if (exponent > MAX_EXPONENT) {
+      return NR_OF_BUCKETS - 1;
+    }
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+  
+  protected static long getBucketHighestValue(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    long subBucket = index % SUB_BUCKETS;
+    long width = 1L << (exponent - SUB_BUCKET_BITS);
+    return ((SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS)) + width - 1;
+  }
+
+}
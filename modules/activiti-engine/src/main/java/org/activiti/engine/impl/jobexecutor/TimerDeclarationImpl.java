@@ -42,6 +42,7 @@ public class TimerDeclarationImpl implements Serializable {
   protected String repeat;
   protected boolean exclusive = TimerEntity.DEFAULT_EXCLUSIVE;
   protected int retries = TimerEntity.DEFAULT_RETRIES;
+  protected int jobPriority = TimerEntity.DEFAULT_PRIORITY;
   protected boolean isInterruptingTimer; // For boundary timers
 
   public TimerDeclarationImpl(Expression expression, TimerDeclarationType type, String jobHandlerType) {
@@ -86,6 +87,14 @@ public class TimerDeclarationImpl implements Serializable {
     this.retries = retries;
   }
 
+  public int getJobPriority() {
+    return jobPriority;
+  }
+
+  public void setJobPriority(int jobPriority) {
+    this.jobPriority = jobPriority;
+  }
+
   public void setJobHandlerType(String jobHandlerType) {
     this.jobHandlerType = jobHandlerType;
   }
@@ -0,0 +1,104 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.jobexecutor;
+
+import java.util.Date;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.activiti.engine.impl.persistence.entity.TimerEntity;
+
+/**
+ * In memory schedule of the due dates of the timers that will fire soon, so that 
+ * the job acquisition knows when to wake up without querying for the next timer 
+ * after every acquisition.
+ * 
+ * The schedule is filled by a look ahead query, which loads the due dates of the 
+ * next timers, and by the timers that are scheduled by this engine in the meantime 
+ * (see {@link TimerScheduledNotification}). It is complete up to the time until 
+ * which the last look ahead was done. Timers that are created by other engines in 
+ * a cluster are only noticed by the next look ahead (or by the regular acquisition).
+ */
+public class TimerSchedule {
+
+  protected TreeSet<Long> duedates = new TreeSet<Long>();
+  protected int maxSize;
+  protected long lookAheadUntil = -1;
+  
+  public TimerSchedule(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /** a timer was scheduled, only its due date is remembered */
+  public synchronized void add(Date duedate) {
+    long time = duedate.getTime();
+    if (time <= lookAheadUntil) {
+      duedates.add(time);
+      if (duedates.size() > maxSize) {
+        // the schedule is only complete up to the due dates it keeps
+        duedates.pollLast();
+        lookAheadUntil = duedates.last();
+      }
+    }
+  }
+  
+  public synchronized boolean isLookAheadNeeded(long now) {
+    return now >= lookAheadUntil;
+  }
+  
+  /**
+   * replaces the schedule with the result of the look ahead query
+   * 
+   * @param timers the first timers that are due before the given time, ordered by due date
+   * @param now time at which the look ahead query was done
+   * @param until end of the look ahead window
+   * @param maxResults maximum number of timers the query returned; when it returned 
+   *        that many, the schedule is only complete up to the last of them 
+   */
+  public synchronized void lookAheadDone(List<TimerEntity> timers, long now, long until, int maxResults) {
+    duedates.clear();
+    for (TimerEntity timer : timers) {
+      duedates.add(timer.getDuedate().getTime());
+    }
+    if (timers.size() >= maxResults && !duedates.isEmpty()) {
+      // with a backlog of due timers the last one is in the past, the due timers are left 
+      // to the acquisition and the next look ahead is done when it has caught up
+      lookAheadUntil = Math.max(duedates.last(), now);
+    } else {
+      lookAheadUntil = until;
+    }
+  }
+  
+  /** forgets the timers that were due before the given time, as the last acquisition took care of them */
+  public synchronized void removeDuedatesBefore(long time) {
+    while (!duedates.isEmpty() && duedates.first() < time) {
+      duedates.pollFirst();
+    }
+  }
+  
+  /** millis until the next timer is due, or -1 if there is no timer in the schedule */
+  public synchronized long getMillisTillNextTimer(long now) {
+    if (duedates.isEmpty()) {
+      return -1;
+    }
+    return Math.max(duedates.first() - now, 0);
+  }
+  
+  public synchronized int size() {
+    return duedates.size();
+  }
+  
+  public synchronized long getLookAheadUntil() {
+    return lookAheadUntil;
+  }
+}
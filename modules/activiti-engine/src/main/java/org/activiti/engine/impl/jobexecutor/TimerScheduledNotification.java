@@ -0,0 +1,37 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.jobexecutor;
+
+import java.util.Date;
+
+import org.activiti.engine.impl.cfg.TransactionListener;
+import org.activiti.engine.impl.interceptor.CommandContext;
+
+/**
+ * Adds the due date of a new timer to the {@link TimerSchedule} of the job executor
+ * once the timer is committed.
+ */
+public class TimerScheduledNotification implements TransactionListener {
+  
+  protected JobExecutor jobExecutor;
+  protected Date duedate;
+  
+  public TimerScheduledNotification(JobExecutor jobExecutor, Date duedate) {
+    this.jobExecutor = jobExecutor;
+    this.duedate = duedate;
+  }
+
+  public void execute(CommandContext commandContext) {
+    jobExecutor.timerScheduled(duedate);
+  }
+}
@@ -0,0 +1,229 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.jobexecutor;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * <p>A {@link JobExecutor} that runs every batch of jobs on its own virtual thread, 
+ * when the JVM supports virtual threads (Java 21 and later).</p>
+ * 
+ * <p>Jobs that block on JDBC, HTTP or mail don't hold a platform thread then. The number 
+ * of batches that run at the same time is limited by maxConcurrentJobs instead of by a 
+ * thread pool, which should be about the number of connections of the data source: 
+ * every running job holds a connection.</p>
+ * 
+ * <p>On older JVMs, this job executor behaves like the {@link DefaultJobExecutor}.</p>
+ */
+public class VirtualThreadJobExecutor extends DefaultJobExecutor {
+  
+  private static Logger log = LoggerFactory.getLogger(VirtualThreadJobExecutor.class);
+  
+  protected int maxConcurrentJobs = 10;
+  
+  protected ThreadFactory virtualThreadFactory;
+  protected Semaphore concurrentJobs;
+  protected VirtualThreadExecutor virtualThreadExecutor;
+  
+  protected void startExecutingJobs() {
+    if (virtualThreadFactory==null) {
+      virtualThreadFactory = createVirtualThreadFactory();
+    }
+    if (virtualThreadFactory==null) {
+      log.info("Virtual threads are not supported by this JVM, using a thread pool to execute jobs");
+      super.startExecutingJobs();
+      return;
+    }
+    
+    concurrentJobs = new Semaphore(maxConcurrentJobs);
+    virtualThreadExecutor = new VirtualThreadExecutor();
+    if (exclusiveJobRoutingEnabled && exclusiveJobRouter==null) {
+      exclusiveJobRouter = new ExclusiveJobRouter(this, virtualThreadExecutor, nrOfExclusiveJobLanes);
+    }
+    startJobAcquisitionThread();
+  }
+  
+  protected void stopExecutingJobs() {
+    if (virtualThreadExecutor==null) {
+      super.stopExecutingJobs();
+      return;
+    }
+    
+    stopJobAcquisitionThread();
+    
+    // every batch has its own thread already, only the lanes of the exclusive jobs have a queue
+    if (releaseJobLocksOnShutdown && exclusiveJobRouter!=null) {
+      releaseJobLocks(exclusiveJobRouter.stop());
+    }
+    
+    // Waits for 1 minute to finish all currently executing jobs
+    try {
+      if (!virtualThreadExecutor.shutdown(60L, TimeUnit.SECONDS)) {
+        log.warn("Timeout during shutdown of job executor. "
+                + "The current running jobs could not end within 60 seconds after shutdown operation.");
+      }
+    } catch (InterruptedException e) {
+      log.warn("Interrupted while shutting down the job executor. ", e);
+    }
+    
+    // the semaphore is kept for the threads that are still running, the stopped executor 
+    // rejects the batches that are handed to it late, eg. by the exclusive job router
+    virtualThreadExecutor = null;
+    if (exclusiveJobRoutingEnabled) {
+      exclusiveJobRouter = null;
+    }
+  }
+  
+  public void executeJobs(List<String> jobIds) {
+    Executor virtualThreadExecutor = this.virtualThreadExecutor;
+    if (virtualThreadExecutor==null) {
+      super.executeJobs(jobIds);
+      return;
+    }
+    
+    try {
+      virtualThreadExecutor.execute(new ExecuteJobsRunnable(this, jobIds));
+    } catch (RejectedExecutionException e) {
+      rejectJobs(jobIds);
+    }
+  }
+  
+  protected void executeJobs(List<String> jobIds, int priority) {
+    if (virtualThreadExecutor==null) {
+      super.executeJobs(jobIds, priority);
+    } else {
+      // all batches share the same limit, there is no pool to keep free for high priority jobs
+      executeJobs(jobIds);
+    }
+  }
+  
+  public int getRemainingCapacity() {
+    VirtualThreadExecutor virtualThreadExecutor = this.virtualThreadExecutor;
+    if (virtualThreadExecutor==null) {
+      return super.getRemainingCapacity();
+    }
+    return Math.max(virtualThreadExecutor.getRemainingCapacity() - getNrOfWaitingExclusiveJobBatches(), 0);
+  }
+  
+  /** 
+   * creates the factory of Thread.ofVirtual() by reflection, so that the engine still runs on JVMs 
+   * without virtual threads; returns null when they are not available 
+   */
+  protected ThreadFactory createVirtualThreadFactory() {
+    try {
+      Method ofVirtual = Thread.class.getMethod("ofVirtual");
+      Object builder = ofVirtual.invoke(null);
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "activiti-job-", 0L);
+      return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+      
+    } catch (NoSuchMethodException e) {
+      return null;
+    } catch (Exception e) {
+      // eg. virtual threads are a preview feature that is not enabled
+      log.debug("Virtual threads are not available: {}", e.getMessage());
+      return null;
+    }
+  }
+  
+  public boolean isUsingVirtualThreads() {
+    return virtualThreadExecutor!=null;
+  }
+  
+  /** 
+   * starts a virtual thread per task, which waits for a permit when maxConcurrentJobs 
+   * are running already, so the tasks are never run by the caller 
+   */
+  protected class VirtualThreadExecutor implements Executor {
+    
+    protected final Semaphore concurrentJobs = VirtualThreadJobExecutor.this.concurrentJobs;
+    protected final int maxConcurrentJobs = VirtualThreadJobExecutor.this.maxConcurrentJobs;
+    protected int nrOfBatches = 0;
+    protected boolean isShutdown = false;
+    
+    public void execute(final Runnable runnable) {
+      synchronized (this) {
+        if (isShutdown) {
+          throw new RejectedExecutionException("job executor is stopped");
+        }
+        nrOfBatches++;
+      }
+      try {
+        virtualThreadFactory.newThread(new Runnable() {
+          public void run() {
+            try {
+              concurrentJobs.acquireUninterruptibly();
+              try {
+                runnable.run();
+              } finally {
+                concurrentJobs.release();
+              }
+            } finally {
+              batchDone();
+            }
+          }
+        }).start();
+      } catch (RuntimeException e) {
+        batchDone();
+        throw new RejectedExecutionException(e);
+      }
+    }
+    
+    protected synchronized void batchDone() {
+      nrOfBatches--;
+      if (nrOfBatches==0) {
+        notifyAll();
+      }
+    }
+    
+    /** batches that wait for a permit have a thread already, but they don't leave capacity */
+    public synchronized int getRemainingCapacity() {
+      return maxConcurrentJobs - nrOfBatches;
+    }
+    
+    /** rejects new batches and waits until the started ones are done, returns false on a timeout */
+    public synchronized boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+      isShutdown = true;
+      long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+      while (nrOfBatches > 0) {
+        long millisLeft = deadline - System.currentTimeMillis();
+        if (millisLeft <= 0) {
+          return false;
+        }
+        wait(millisLeft);
+      }
+      return true;
+    }
+  }
+  
+  // getters and setters ////////////////////////////////////////////////////// 
+  
+  public int getMaxConcurrentJobs() {
+    return maxConcurrentJobs;
+  }
+  
+  public void setMaxConcurrentJobs(int maxConcurrentJobs) {
+    this.maxConcurrentJobs = maxConcurrentJobs;
+  }
+  
+}
@@ -0,0 +1,105 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.persistence;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.activiti.engine.ActivitiIllegalArgumentException;
+import org.activiti.engine.impl.cfg.IdGenerator;
+
+/**
+ * {@link IdGenerator} that creates compact, time ordered ids without going to the 
+ * database and without locking.
+ * 
+ * An id is a 64 bit number made of a 41 bit timestamp (milliseconds since 2013-01-01), 
+ * a 10 bit node id and a 12 bit sequence number, rendered as 13 characters in 
+ * Crockford's base 32. Ids created later sort after ids created earlier, both as numbers 
+ * and as strings, so new rows end up at the right-hand side of the primary key indexes.
+ * 
+ * The timestamp and sequence number are kept in one {@link AtomicLong} that is updated 
+ * with compare-and-set. When more than 4096 ids are needed within one millisecond, or when 
+ * the clock goes backwards, the generator borrows the next milliseconds, so the ids 
+ * stay unique and ordered.
+ * 
+ * Different engines using the same database must have a different nodeId (0-1023). 
+ * When no nodeId is set, one is derived from the JVM name (pid@host), which is 
+ * unique enough for a single engine, but not guaranteed to be unique in a cluster.
+ */
+public class CompactTimeBasedIdGenerator implements IdGenerator {
+  
+  /** 2013-01-01T00:00:00Z */
+  public static final long EPOCH = 1356998400000L;
+  
+  protected static final int NODE_ID_BITS = 10;
+  protected static final int SEQUENCE_BITS = 12;
+  protected static final long MAX_NODE_ID = (1L << NODE_ID_BITS) - 1;
+  protected static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+  
+  protected static final char[] BASE32_DIGITS = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+  protected static final int ID_LENGTH = 13;
+  
+  /** volatile, as it is read by every thread that creates ids and can be set after construction */
+  protected volatile long nodeId = getDefaultNodeId();
+  
+  /** timestamp shifted left by SEQUENCE_BITS, plus the sequence number of the last id */
+  protected final AtomicLong lastTimestampAndSequence = new AtomicLong();
+  
+  public String getNextId() {
+    return toString(nextValue());
+  }
+  
+  public long nextValue() {
+    long nodeBits = getNodeId() << SEQUENCE_BITS;
+    while (true) {
+      long last = lastTimestampAndSequence.get();
+      long now = (currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+      // a sequence overflow carries into the timestamp, which borrows the next millisecond
+      long next = (now > last ? now : last + 1);
+      if (lastTimestampAndSequence.compareAndSet(last, next)) {
+        long timestamp = next >>> SEQUENCE_BITS;
+        return (timestamp << (NODE_ID_BITS + SEQUENCE_BITS)) | nodeBits | (next & SEQUENCE_MASK);
+      }
+    }
+  }
+  
+  protected long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+  
+  /** fixed width, so that the string order is the same as the numeric order */
+  public static String toString(long value) {
+    char[] chars = new char[ID_LENGTH];
+    for (int i=ID_LENGTH-1; i>=0; i--) {
+      chars[i] = BASE32_DIGITS[(int) (value & 31)];
+      value >>>= 5;
+    }
+    return new String(chars);
+  }
+  
+  protected long getDefaultNodeId() {
+    return (ManagementFactory.getRuntimeMXBean().getName().hashCode() & 0x7fffffff) % (MAX_NODE_ID + 1);
+  }
+  
+  public long getNodeId() {
+    return nodeId;
+  }
+  
+  public void setNodeId(long nodeId) {
+    if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+      throw new ActivitiIllegalArgumentException("nodeId must be between 0 and "+MAX_NODE_ID+", but was "+nodeId);
+    }
+    this.nodeId = nodeId;
+  }
+
+}
@@ -0,0 +1,203 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.persistence.deploy;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Thread-safe cache, that can be limited by the number of entries or by the total weight of the entries.
+ * 
+ * Unlike the access-ordered map of the {@link DefaultDeploymentCache}, a get() doesn't modify 
+ * the structure of the cache: it only marks the entry as referenced. When the limit is exceeded, 
+ * the entries are evicted following the CLOCK (second chance) policy: the entries are visited 
+ * in the order they were added, a referenced entry gets its mark cleared and is moved to the back, 
+ * the first entry that wasn't referenced since the previous visit is evicted.
+ * 
+ * The number of hits, misses and evictions are counted.
+ */
+public class ConcurrentDeploymentCache<T> implements DeploymentCache<T> {
+  
+  private static final Logger logger = LoggerFactory.getLogger(ConcurrentDeploymentCache.class);
+  
+  protected ConcurrentMap<String, CacheEntry<T>> cache = new ConcurrentHashMap<String, CacheEntry<T>>();
+  /** the entries of a limited cache, in the order the eviction visits them */
+  protected Queue<CacheEntry<T>> clock = new ConcurrentLinkedQueue<CacheEntry<T>>();
+  protected ReentrantLock evictionLock = new ReentrantLock();
+  
+  protected long maxWeight;
+  protected DeploymentCacheWeigher<T> weigher;
+  protected AtomicLong weight = new AtomicLong();
+  
+  protected AtomicLong hitCount = new AtomicLong();
+  protected AtomicLong missCount = new AtomicLong();
+  protected AtomicLong evictionCount = new AtomicLong();
+  
+  /** Cache with no limit */
+  public ConcurrentDeploymentCache() {
+    this(-1, null);
+  }
+  
+  /** Cache which holds no more elements than the limit. */
+  public ConcurrentDeploymentCache(int limit) {
+    this(limit, null);
+  }
+  
+  /** 
+   * Cache of which the total weight of the elements, as calculated by the weigher, 
+   * doesn't exceed the maxWeight. A weigher that is null gives every element weight 1.
+   * The last element that is added is never evicted, even if its weight exceeds the maxWeight.
+   */
+  public ConcurrentDeploymentCache(long maxWeight, DeploymentCacheWeigher<T> weigher) {
+    this.maxWeight = maxWeight;
+    this.weigher = weigher;
+  }
+
+  public T get(String id) {
+    CacheEntry<T> entry = cache.get(id);
+    if (entry==null) {
+      missCount.incrementAndGet();
+      return null;
+    }
+    entry.referenced = true;
+    hitCount.incrementAndGet();
+    return entry.value;
+  }
+
+  public void add(String id, T object) {
+    CacheEntry<T> entry = new CacheEntry<T>(id, object, weigh(object));
+    CacheEntry<T> replacedEntry = cache.put(id, entry);
+    weight.addAndGet(entry.weight);
+    if (replacedEntry!=null) {
+      removed(replacedEntry);
+    }
+    if (isLimited()) {
+      clock.offer(entry);
+      evict();
+    }
+  }
+
+  public void remove(String id) {
+    CacheEntry<T> removedEntry = cache.remove(id);
+    if (removedEntry!=null) {
+      removed(removedEntry);
+    }
+  }
+
+  public void clear() {
+    for (CacheEntry<T> entry : cache.values()) {
+      if (cache.remove(entry.id, entry)) {
+        removed(entry);
+      }
+    }
+  }
+  
+  protected void removed(CacheEntry<T> entry) {
+    weight.addAndGet(-entry.weight);
+    if (isLimited()) {
+      clock.remove(entry);
+    }
+  }
+  
+  protected int weigh(T object) {
+    if (weigher==null) {
+      return 1;
+    }
+    return Math.max(1, weigher.weigh(object));
+  }
+  
+  protected boolean isLimited() {
+    return maxWeight > 0;
+  }
+  
+  protected void evict() {
+    // only one thread evicts at a time, the others don't need to wait for it 
+    while (weight.get() > maxWeight && evictionLock.tryLock()) {
+      try {
+        while (weight.get() > maxWeight && cache.size() > 1) {
+          CacheEntry<T> entry = clock.poll();
+          if (entry==null) {
+            return;
+          }
+          if (entry.referenced) {
+            // second chance
+            entry.referenced = false;
+            clock.offer(entry);
+          } else if (cache.remove(entry.id, entry)) {
+            logger.trace("Cache limit is reached, {} will be evicted", entry.id);
+            weight.addAndGet(-entry.weight);
+            evictionCount.incrementAndGet();
+          }
+        }
+        return;
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+  }
+  
+  // statistics ///////////////////////////////////////////////////////////////
+  
+  public int size() {
+    return cache.size();
+  }
+  
+  public long getWeight() {
+    return weight.get();
+  }
+  
+  public long getHitCount() {
+    return hitCount.get();
+  }
+  
+  public long getMissCount() {
+    return missCount.get();
+  }
+  
+  public long getEvictionCount() {
+    return evictionCount.get();
+  }
+  
+  // getters //////////////////////////////////////////////////////////////////
+  
+  public long getMaxWeight() {
+    return maxWeight;
+  }
+  
+  public DeploymentCacheWeigher<T> getWeigher() {
+    return weigher;
+  }
+  
+  protected static class CacheEntry<T> {
+    
+    protected final String id;
+    protected final T value;
+    protected final int weight;
+    /** new entries start referenced, so they are not evicted before the ones that were added earlier */
+    protected volatile boolean referenced = true;
+    
+    public CacheEntry(String id, T value, int weight) {
+      this.id = id;
+      this.value = value;
+      this.weight = weight;
+    }
+  }
+
+}
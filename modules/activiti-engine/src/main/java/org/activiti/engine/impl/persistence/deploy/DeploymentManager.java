@@ -14,12 +14,21 @@
 package org.activiti.engine.impl.persistence.deploy;
 
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.activiti.engine.ActivitiException;
 import org.activiti.engine.ActivitiIllegalArgumentException;
 import org.activiti.engine.ActivitiObjectNotFoundException;
 import org.activiti.engine.impl.ProcessDefinitionQueryImpl;
+import org.activiti.engine.impl.cfg.TransactionListener;
+import org.activiti.engine.impl.cfg.TransactionState;
 import org.activiti.engine.impl.context.Context;
+import org.activiti.engine.impl.interceptor.CommandContext;
 import org.activiti.engine.impl.persistence.entity.DeploymentEntity;
 import org.activiti.engine.impl.persistence.entity.DeploymentEntityManager;
 import org.activiti.engine.impl.persistence.entity.ProcessDefinitionEntity;
@@ -36,18 +45,43 @@ public class DeploymentManager {
   protected DeploymentCache<ProcessDefinitionEntity> processDefinitionCache;
   protected DeploymentCache<Object> knowledgeBaseCache; // Needs to be object to avoid an import to Drools in this core class
   protected List<Deployer> deployers;
+  /** the deployments that are being redeployed to fill the cache, see {@link #resolveProcessDefinition(ProcessDefinitionEntity)} */
+  protected ConcurrentMap<String, DeploymentCacheLoad> deploymentCacheLoads = new ConcurrentHashMap<String, DeploymentCacheLoad>();
+  
+  /** 
+   * When enabled, the id of the latest version of each process definition key is remembered, 
+   * so {@link #findDeployedLatestProcessDefinitionByKey(String)} doesn't need a query when that version is cached. 
+   * Only safe when all deployments go through this engine: a new version that is deployed by 
+   * another engine on the same database won't be seen until the key is invalidated here.
+   */
+  protected boolean latestProcessDefinitionKeyCacheEnabled = false;
+  protected ConcurrentMap<String, LatestProcessDefinitionId> latestProcessDefinitionIds = new ConcurrentHashMap<String, LatestProcessDefinitionId>();
   
   public void deploy(DeploymentEntity deployment) {
     for (Deployer deployer: deployers) {
       deployer.deploy(deployment);
     }
+    List<ProcessDefinitionEntity> processDefinitions = deployment.getDeployedArtifacts(ProcessDefinitionEntity.class);
+    if (deployment.isNew() && processDefinitions != null) {
+      // the new deployment might contain a new latest version
+      for (ProcessDefinitionEntity processDefinition : processDefinitions) {
+        invalidateLatestProcessDefinition(processDefinition.getKey());
+      }
+    }
   }
 
   public ProcessDefinitionEntity findDeployedProcessDefinitionById(String processDefinitionId) {
     if (processDefinitionId == null) {
       throw new ActivitiIllegalArgumentException("Invalid process definition id : null");
     }
-    ProcessDefinitionEntity processDefinition = Context
+    
+    // process definition ids never change, so there's no need to query the database when the definition is cached
+    ProcessDefinitionEntity processDefinition = processDefinitionCache.get(processDefinitionId);
+    if (processDefinition != null) {
+      return processDefinition;
+    }
+    
+    processDefinition = Context
       .getCommandContext()
       .getProcessDefinitionEntityManager()
       .findProcessDefinitionById(processDefinitionId);
@@ -59,7 +93,19 @@ public class DeploymentManager {
   }
 
   public ProcessDefinitionEntity findDeployedLatestProcessDefinitionByKey(String processDefinitionKey) {
-    ProcessDefinitionEntity processDefinition = Context
+    ProcessDefinitionEntity processDefinition = null;
+    LatestProcessDefinitionId latestProcessDefinitionId = null;
+    if (latestProcessDefinitionKeyCacheEnabled && processDefinitionKey != null) {
+      latestProcessDefinitionId = getLatestProcessDefinitionId(processDefinitionKey);
+      if (latestProcessDefinitionId.processDefinitionId != null) {
+        processDefinition = processDefinitionCache.get(latestProcessDefinitionId.processDefinitionId);
+        if (processDefinition != null) {
+          return processDefinition;
+        }
+      }
+    }
+    
+    processDefinition = Context
       .getCommandContext()
       .getProcessDefinitionEntityManager()
       .findLatestProcessDefinitionByKey(processDefinitionKey);
@@ -67,8 +113,28 @@ public class DeploymentManager {
       throw new ActivitiObjectNotFoundException("no processes deployed with key '"+processDefinitionKey+"'", ProcessDefinition.class);
     }
     processDefinition = resolveProcessDefinition(processDefinition);
+    if (latestProcessDefinitionId != null) {
+      // the key can have been invalidated while the query ran, the id is only remembered when it wasn't
+      latestProcessDefinitionIds.replace(processDefinitionKey, latestProcessDefinitionId, new LatestProcessDefinitionId(processDefinition.getId()));
+    }
     return processDefinition;
   }
+  
+  /** 
+   * the entry of the key, which is a new one without id when the key is not known or was invalidated. 
+   * An entry is only replaced by the one that was read, so an invalidation in between always wins. 
+   */
+  protected LatestProcessDefinitionId getLatestProcessDefinitionId(String processDefinitionKey) {
+    LatestProcessDefinitionId latestProcessDefinitionId = latestProcessDefinitionIds.get(processDefinitionKey);
+    if (latestProcessDefinitionId == null) {
+      latestProcessDefinitionId = new LatestProcessDefinitionId(null);
+      LatestProcessDefinitionId existingLatestProcessDefinitionId = latestProcessDefinitionIds.putIfAbsent(processDefinitionKey, latestProcessDefinitionId);
+      if (existingLatestProcessDefinitionId != null) {
+        latestProcessDefinitionId = existingLatestProcessDefinitionId;
+      }
+    }
+    return latestProcessDefinitionId;
+  }
 
   public ProcessDefinitionEntity findDeployedProcessDefinitionByKeyAndVersion(String processDefinitionKey, Integer processDefinitionVersion) {
     ProcessDefinitionEntity processDefinition = (ProcessDefinitionEntity) Context
@@ -86,22 +152,51 @@ public class DeploymentManager {
     String processDefinitionId = processDefinition.getId();
     String deploymentId = processDefinition.getDeploymentId();
     processDefinition = processDefinitionCache.get(processDefinitionId);
-    if (processDefinition==null) {
-      DeploymentEntity deployment = Context
-        .getCommandContext()
-        .getDeploymentEntityManager()
-        .findDeploymentById(deploymentId);
-      deployment.setNew(false);
-      deploy(deployment);
-      processDefinition = processDefinitionCache.get(processDefinitionId);
-      
-      if (processDefinition==null) {
-        throw new ActivitiException("deployment '"+deploymentId+"' didn't put process definition '"+processDefinitionId+"' in the cache");
+    while (processDefinition==null) {
+      // threads that miss on the same deployment wait for the first one to redeploy it, 
+      // instead of all parsing the same deployment
+      DeploymentCacheLoad deploymentCacheLoad = new DeploymentCacheLoad(deploymentId);
+      DeploymentCacheLoad existingDeploymentCacheLoad = deploymentCacheLoads.putIfAbsent(deploymentId, deploymentCacheLoad);
+      if (existingDeploymentCacheLoad==null) {
+        // the deployment is redeployed in the command context of this thread
+        deploymentCacheLoad.run();
+        Throwable failure = deploymentCacheLoad.awaitLoad();
+        if (failure instanceof RuntimeException) {
+          throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+          throw (Error) failure;
+        } else if (failure != null) {
+          throw new ActivitiException("couldn't redeploy deployment '"+deploymentId+"'", failure);
+        }
+        processDefinition = processDefinitionCache.get(processDefinitionId);
+        
+        if (processDefinition==null) {
+          throw new ActivitiException("deployment '"+deploymentId+"' didn't put process definition '"+processDefinitionId+"' in the cache");
+        }
+        
+      } else {
+        if (existingDeploymentCacheLoad.join() == null) {
+          processDefinition = processDefinitionCache.get(processDefinitionId);
+        }
+        if (processDefinition==null) {
+          // the other thread failed or the process definition was evicted again, so this thread redeploys it
+          deploymentCacheLoads.remove(deploymentId, existingDeploymentCacheLoad);
+        }
       }
     }
     return processDefinition;
   }
   
+  /** redeploys a deployment that is not in the cache */
+  protected void redeploy(String deploymentId) {
+    DeploymentEntity deployment = Context
+      .getCommandContext()
+      .getDeploymentEntityManager()
+      .findDeploymentById(deploymentId);
+    deployment.setNew(false);
+    deploy(deployment);
+  }
+  
   public void removeDeployment(String deploymentId, boolean cascade) {
 	  DeploymentEntityManager deploymentEntityManager = Context
 			  .getCommandContext()
@@ -115,12 +210,88 @@ public class DeploymentManager {
             .list();
     for (ProcessDefinition processDefinition : processDefinitions) {
       processDefinitionCache.remove(processDefinition.getId());
+      invalidateLatestProcessDefinition(processDefinition.getKey());
     }
     
     // Delete data
     deploymentEntityManager.deleteDeployment(deploymentId, cascade);
   }
   
+  /** 
+   * Forgets which process definition is the latest version for the given key, 
+   * the next {@link #findDeployedLatestProcessDefinitionByKey(String)} queries the database again. 
+   */
+  public void invalidateLatestProcessDefinition(final String processDefinitionKey) {
+    if (!latestProcessDefinitionKeyCacheEnabled || processDefinitionKey == null) {
+      return;
+    }
+    latestProcessDefinitionIds.remove(processDefinitionKey);
+    
+    // until the transaction is committed, other threads can still find the previous version in the database
+    CommandContext commandContext = Context.getCommandContext();
+    if (commandContext != null) {
+      commandContext.getTransactionContext().addTransactionListener(TransactionState.COMMITTED, new TransactionListener() {
+        public void execute(CommandContext commandContext) {
+          latestProcessDefinitionIds.remove(processDefinitionKey);
+        }
+      });
+    }
+  }
+  
+  /** 
+   * the redeployment of a deployment, which is run by the thread that registered it. 
+   * It is forgotten when the last thread that waits for it has its result. 
+   */
+  protected class DeploymentCacheLoad extends FutureTask<Void> {
+    
+    protected final String deploymentId;
+    /** the thread that runs the load, and the threads that join it */
+    protected final AtomicInteger nrOfWaitingThreads = new AtomicInteger(1);
+    
+    public DeploymentCacheLoad(final String deploymentId) {
+      super(new Callable<Void>() {
+        public Void call() throws Exception {
+          redeploy(deploymentId);
+          return null;
+        }
+      });
+      this.deploymentId = deploymentId;
+    }
+    
+    /** waits for the load of another thread, and returns why it failed or null */
+    public Throwable join() {
+      nrOfWaitingThreads.incrementAndGet();
+      return awaitLoad();
+    }
+    
+    /** waits until the deployment is redeployed, and returns why it failed or null */
+    public Throwable awaitLoad() {
+      try {
+        get();
+        return null;
+      } catch (ExecutionException e) {
+        return e.getCause();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new ActivitiException("interrupted while waiting for deployment '"+deploymentId+"' to be redeployed", e);
+      } finally {
+        if (nrOfWaitingThreads.decrementAndGet() == 0) {
+          deploymentCacheLoads.remove(deploymentId, this);
+        }
+      }
+    }
+  }
+  
+  /** the id of the latest version of a key, compared by identity when it is replaced */
+  protected static class LatestProcessDefinitionId {
+    
+    protected final String processDefinitionId;
+    
+    public LatestProcessDefinitionId(String processDefinitionId) {
+      this.processDefinitionId = processDefinitionId;
+    }
+  }
+  
   // getters and setters //////////////////////////////////////////////////////
   
   public List<Deployer> getDeployers() {
@@ -147,4 +318,12 @@ public class DeploymentManager {
     this.knowledgeBaseCache = knowledgeBaseCache;
   }
   
+  public boolean isLatestProcessDefinitionKeyCacheEnabled() {
+    return latestProcessDefinitionKeyCacheEnabled;
+  }
+  
+  public void setLatestProcessDefinitionKeyCacheEnabled(boolean latestProcessDefinitionKeyCacheEnabled) {
+    this.latestProcessDefinitionKeyCacheEnabled = latestProcessDefinitionKeyCacheEnabled;
+  }
+  
 }
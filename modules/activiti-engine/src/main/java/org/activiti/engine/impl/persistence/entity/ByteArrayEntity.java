@@ -16,15 +16,17 @@ import java.io.Serializable;
 import java.util.Arrays;
 
 import org.activiti.engine.impl.context.Context;
+import org.activiti.engine.impl.db.HasDirtyFlag;
 import org.activiti.engine.impl.db.HasRevision;
-import org.activiti.engine.impl.db.PersistentObject;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.util.CompressionUtil;
 import org.apache.commons.lang3.ObjectUtils;
 
 /**
  * @author Tom Baeyens
  * @author Marcus Klimstra (CGI)
  */
-public class ByteArrayEntity implements Serializable, PersistentObject, HasRevision {
+public class ByteArrayEntity implements Serializable, HasDirtyFlag, HasRevision {
 
   private static final long serialVersionUID = 1L;
 
@@ -33,6 +35,9 @@ public class ByteArrayEntity implements Serializable, PersistentObject, HasRevis
   protected String name;
   protected byte[] bytes;
   protected String deploymentId;
+  protected boolean dirty;
+  /** the number of entities that share this byte array, see {@link ByteArrayRef#setSharedValue(ByteArrayRef)} */
+  protected int referenceCount = 1;
 
   // Default constructor for SQL mapping
   protected ByteArrayEntity() {
@@ -70,6 +75,23 @@ public class ByteArrayEntity implements Serializable, PersistentObject, HasRevis
     return new PersistentState(name, bytes);
   }
   
+  /** the bytes as they are stored, see {@link CompressionUtil} */
+  public byte[] getPersistentBytes() {
+    return CompressionUtil.compress(bytes, getCompressionThreshold());
+  }
+  
+  public void setPersistentBytes(byte[] persistentBytes) {
+    this.bytes = CompressionUtil.decompress(persistentBytes);
+  }
+  
+  protected static int getCompressionThreshold() {
+    CommandContext commandContext = Context.getCommandContext();
+    if (commandContext == null) {
+      return -1;
+    }
+    return commandContext.getDbSqlSession().getDbSqlSessionFactory().getByteArrayCompressionThreshold();
+  }
+  
   public int getRevisionNext() {
     return revision+1;
   }
@@ -86,6 +108,9 @@ public class ByteArrayEntity implements Serializable, PersistentObject, HasRevis
     return name;
   }
   public void setName(String name) {
+    if (!ObjectUtils.equals(this.name, name)) {
+      dirty = true;
+    }
     this.name = name;
   }
   public String getDeploymentId() {
@@ -95,6 +120,10 @@ public class ByteArrayEntity implements Serializable, PersistentObject, HasRevis
     this.deploymentId = deploymentId;
   }
   public void setBytes(byte[] bytes) {
+    // See http://jira.codehaus.org/browse/ACT-1524
+    if (!Arrays.equals(this.bytes, bytes)) {
+      dirty = true;
+    }
     this.bytes = bytes;
   }
   public int getRevision() {
@@ -103,6 +132,18 @@ public class ByteArrayEntity implements Serializable, PersistentObject, HasRevis
   public void setRevision(int revision) {
     this.revision = revision;
   }
+  public boolean isDirty() {
+    return dirty;
+  }
+  public void setDirty(boolean dirty) {
+    this.dirty = dirty;
+  }
+  public int getReferenceCount() {
+    return referenceCount;
+  }
+  public void setReferenceCount(int referenceCount) {
+    this.referenceCount = referenceCount;
+  }
   
   @Override
   public String toString() {
@@ -13,6 +13,13 @@
 
 package org.activiti.engine.impl.persistence.entity;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.activiti.engine.impl.db.DbInputStream;
+import org.activiti.engine.impl.db.DbSqlSession;
 import org.activiti.engine.impl.persistence.AbstractManager;
 
 /**
@@ -20,11 +27,32 @@ import org.activiti.engine.impl.persistence.AbstractManager;
  * @author Marcus Klimstra (CGI)
  */
 public class ByteArrayEntityManager extends AbstractManager {
+  
+  /** see {@link #findReferenceCountById(String)} */
+  protected Map<String, ByteArrayEntity> referenceCounts = new HashMap<String, ByteArrayEntity>();
 
   public ByteArrayEntity findById(String byteArrayEntityId) {
     return getDbSqlSession().selectById(ByteArrayEntity.class, byteArrayEntityId);
   }
   
+  /**
+   * Streams the bytes of the {@link ByteArrayEntity} with the given id from the database
+   * instead of loading them in memory.
+   * 
+   * The stream only reads the bytes when it is read for the first time, with a connection 
+   * of its own that is given back when the stream is closed (see {@link DbInputStream}).
+   * So it is meant to be read after the command, and it doesn't see the changes of the current 
+   * transaction (except for the byte arrays that are loaded or changed in this command, 
+   * which are returned from memory).
+   */
+  public InputStream openStream(String byteArrayEntityId) {
+    ByteArrayEntity byteArray = getDbSqlSession().findInCache(ByteArrayEntity.class, byteArrayEntityId);
+    if (byteArray != null) {
+      return (byteArray.getBytes() != null ? new ByteArrayInputStream(byteArray.getBytes()) : null);
+    }
+    return new DbInputStream(getDbSqlSession().getDbSqlSessionFactory(), byteArrayEntityId);
+  }
+  
   /**
    * Deletes the {@link ByteArrayEntity} with the given id from the database.
    * Important: this operation will NOT do any optimistic locking, to avoid loading the 
@@ -38,5 +66,72 @@ public class ByteArrayEntityManager extends AbstractManager {
   public void deleteByteArray(ByteArrayEntity byteArray) {
     getDbSqlSession().delete(byteArray);
   }
+  
+  /**
+   * Adds a reference to the given {@link ByteArrayEntity}, which has to be loaded
+   * (the reference count of the loaded entity decides if it can be changed or deleted later on).
+   * 
+   * Like the delete of a byte array, the new reference count is written at the end of 
+   * the flush, with an optimistic locking check on the revision of the byte array. So two 
+   * transactions that change the references of the same byte array can't both succeed.
+   * A byte array that is inserted in this session simply gets inserted with its reference count.
+   */
+  public void addReference(ByteArrayEntity byteArray) {
+    byteArray.setReferenceCount(byteArray.getReferenceCount() + 1);
+    updateReferenceCount(byteArray);
+  }
+  
+  /**
+   * Removes a reference to the given {@link ByteArrayEntity}, and deletes it 
+   * if it was the last one. See {@link #addReference(ByteArrayEntity)}.
+   */
+  public void releaseReference(ByteArrayEntity byteArray) {
+    if (byteArray.getReferenceCount() > 1) {
+      byteArray.setReferenceCount(byteArray.getReferenceCount() - 1);
+      updateReferenceCount(byteArray);
+    } else {
+      deleteByteArray(byteArray);
+    }
+  }
+  
+  /**
+   * Removes a reference to the {@link ByteArrayEntity} with the given id, 
+   * and deletes it if it was the last one. If the byte array isn't loaded, only its 
+   * revision and reference count are, so the bytes aren't loaded in memory.
+   */
+  public void releaseReferenceById(String byteArrayEntityId) {
+    ByteArrayEntity byteArray = getDbSqlSession().findInCache(ByteArrayEntity.class, byteArrayEntityId);
+    if (byteArray == null) {
+      byteArray = findReferenceCountById(byteArrayEntityId);
+    }
+    if (byteArray != null) {
+      releaseReference(byteArray);
+    }
+  }
+  
+  /**
+   * The byte array without its bytes, which is kept in this manager instead of in the 
+   * session cache (so it isn't returned as a loaded byte array). Releasing several references 
+   * of the same byte array in one session has to go through the same object, 
+   * as each change increments its revision.
+   */
+  protected ByteArrayEntity findReferenceCountById(String byteArrayEntityId) {
+    ByteArrayEntity byteArray = referenceCounts.get(byteArrayEntityId);
+    if (byteArray == null) {
+      DbSqlSession dbSqlSession = getDbSqlSession();
+      String statement = dbSqlSession.getDbSqlSessionFactory().mapStatement("selectByteArrayReferenceCount");
+      byteArray = (ByteArrayEntity) dbSqlSession.getSqlSession().selectOne(statement, byteArrayEntityId);
+      if (byteArray != null) {
+        referenceCounts.put(byteArrayEntityId, byteArray);
+      }
+    }
+    return byteArray;
+  }
+  
+  protected void updateReferenceCount(ByteArrayEntity byteArray) {
+    if (!getDbSqlSession().isInserted(byteArray)) {
+      getDbSqlSession().checkedUpdate("updateByteArrayReferenceCount", byteArray);
+    }
+  }
 
 }
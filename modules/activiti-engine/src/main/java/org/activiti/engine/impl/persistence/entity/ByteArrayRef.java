@@ -1,6 +1,9 @@
 package org.activiti.engine.impl.persistence.entity;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.io.Serializable;
+import java.util.Arrays;
 
 import org.activiti.engine.impl.context.Context;
 
@@ -15,6 +18,8 @@ import org.activiti.engine.impl.context.Context;
  * private final ByteArrayRef byteArrayRef = new ByteArrayRef();
  * </pre>
  * 
+ * <p>Several references can share the same {@link ByteArrayEntity}, see {@link #setSharedValue(ByteArrayRef)}.</p>
+ * 
  * @author Marcus Klimstra (CGI)
  */
 public final class ByteArrayRef implements Serializable {
@@ -47,6 +52,23 @@ public final class ByteArrayRef implements Serializable {
     return (entity != null ? entity.getBytes() : null);
   }
   
+  /**
+   * The bytes as a stream, or null if there are none. If the bytes are not loaded yet, 
+   * they are streamed from the database, see {@link ByteArrayEntityManager#openStream(String)}.
+   * The stream has to be closed. 
+   */
+  public InputStream getBytesAsStream() {
+    if (id == null) {
+      return null;
+    }
+    if (entity != null) {
+      return (entity.getBytes() != null ? new ByteArrayInputStream(entity.getBytes()) : null);
+    }
+    return Context.getCommandContext()
+      .getByteArrayEntityManager()
+      .openStream(id);
+  }
+  
   public void setValue(String name, byte[] bytes) {
     this.name = name;
     setBytes(bytes);
@@ -61,8 +83,42 @@ public final class ByteArrayRef implements Serializable {
     }
     else {
       ensureInitialized();
-      entity.setBytes(bytes);
+      if (entity.getReferenceCount() <= 1) {
+        entity.setBytes(bytes);
+      } else if (!Arrays.equals(entity.getBytes(), bytes)) {
+        // the other references keep the shared bytes, this one gets its own copy
+        Context.getCommandContext()
+          .getByteArrayEntityManager()
+          .releaseReference(entity);
+        id = null;
+        entity = null;
+        setBytes(bytes);
+      }
+    }
+  }
+  
+  /**
+   * Makes this reference point to the byte array of the other reference, 
+   * instead of to a copy of its bytes (eg. for the history of a variable).
+   * 
+   * The shared byte array is reference counted: it is only deleted with its last reference, 
+   * and a reference that gets other bytes gets a new byte array then. The reference count is 
+   * changed with an optimistic locking check on the byte array itself, see 
+   * {@link ByteArrayEntityManager#addReference(ByteArrayEntity)}.
+   */
+  public void setSharedValue(ByteArrayRef other) {
+    if (other.id == null || other.id.equals(id)) {
+      return;
     }
+    other.ensureInitialized();
+    delete();
+    Context.getCommandContext()
+      .getByteArrayEntityManager()
+      .addReference(other.entity);
+    id = other.id;
+    name = other.name;
+    entity = other.entity;
+    deleted = false;
   }
   
   public ByteArrayEntity getEntity() {
@@ -72,17 +128,18 @@ public final class ByteArrayRef implements Serializable {
 
   public void delete() {
     if (!deleted && id != null) {
+      // the byte array is only deleted if this is its last reference
       if (entity != null) {
         // if the entity has been loaded already,
         // we might as well use the safer optimistic locking delete.
         Context.getCommandContext()
         .getByteArrayEntityManager()
-        .deleteByteArray(entity);
+        .releaseReference(entity);
       }
       else {
         Context.getCommandContext()
           .getByteArrayEntityManager()
-          .deleteByteArrayById(id);
+          .releaseReferenceById(id);
       }
       deleted = true;
     }
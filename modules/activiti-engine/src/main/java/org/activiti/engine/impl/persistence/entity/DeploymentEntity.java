@@ -95,6 +95,9 @@ public class DeploymentEntity implements Serializable, Deployment, PersistentObj
   
   @SuppressWarnings("unchecked")
   public <T> List<T> getDeployedArtifacts(Class<T> clazz) {
+    if (deployedArtifacts == null) {
+      return null;
+    }
     return (List<T>) deployedArtifacts.get(clazz);
   }
 
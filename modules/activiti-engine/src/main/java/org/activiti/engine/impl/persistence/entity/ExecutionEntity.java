@@ -538,6 +538,7 @@ public class ExecutionEntity extends VariableScopeImpl implements ActivityExecut
     MessageEntity message = new MessageEntity();
     message.setExecution(this);
     message.setExclusive(getActivity().isExclusive());
+    message.setPriority(getActivity().getJobPriority());
     message.setJobHandlerType(AsyncContinuationJobHandler.TYPE);
     // At the moment, only AtomicOperationTransitionCreateScope can be performed asynchronously,
     // so there is no need to pass it to the handler
@@ -51,6 +51,7 @@ public class HistoricActivityInstanceEntity extends HistoricScopeInstanceEntity
   }
   public void setActivityId(String activityId) {
     this.activityId = activityId;
+    dirty = true;
   }
 
   public String getActivityName() {
@@ -58,6 +59,7 @@ public class HistoricActivityInstanceEntity extends HistoricScopeInstanceEntity
   }
   public void setActivityName(String activityName) {
     this.activityName = activityName;
+    dirty = true;
   }
 
   public String getActivityType() {
@@ -65,6 +67,7 @@ public class HistoricActivityInstanceEntity extends HistoricScopeInstanceEntity
   }
   public void setActivityType(String activityType) {
     this.activityType = activityType;
+    dirty = true;
   }
   
   public String getExecutionId() {
@@ -72,6 +75,7 @@ public class HistoricActivityInstanceEntity extends HistoricScopeInstanceEntity
   }
   public void setExecutionId(String executionId) {
     this.executionId = executionId;
+    dirty = true;
   }
   
   public String getAssignee() {
@@ -79,6 +83,7 @@ public class HistoricActivityInstanceEntity extends HistoricScopeInstanceEntity
   }
   public void setAssignee(String assignee) {
     this.assignee = assignee;
+    dirty = true;
   }
 
   public String getTaskId() {
@@ -86,6 +91,7 @@ public class HistoricActivityInstanceEntity extends HistoricScopeInstanceEntity
   }
   public void setTaskId(String taskId) {
     this.taskId = taskId;
+    dirty = true;
   }
 
   public String getCalledProcessInstanceId() {
@@ -93,6 +99,7 @@ public class HistoricActivityInstanceEntity extends HistoricScopeInstanceEntity
   }
   public void setCalledProcessInstanceId(String calledProcessInstanceId) {
     this.calledProcessInstanceId = calledProcessInstanceId;
+    dirty = true;
   }
 
   // common methods  //////////////////////////////////////////////////////////
@@ -60,8 +60,8 @@ public class HistoricDetailVariableInstanceUpdateEntity extends HistoricDetailEn
     historicVariableUpdate.longValue = variableInstance.getLongValue();
 
     if (variableInstance.getBytes() != null) {
-      String byteArrayName = "hist.detail.var-" + variableInstance.getName();
-      historicVariableUpdate.byteArrayRef.setValue(byteArrayName, variableInstance.getBytes());
+      // shares the byte array of the variable until the variable changes
+      historicVariableUpdate.byteArrayRef.setSharedValue(variableInstance.byteArrayRef);
     }
     
     Context.getCommandContext()
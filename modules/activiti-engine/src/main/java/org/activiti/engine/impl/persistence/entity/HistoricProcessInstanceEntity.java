@@ -73,6 +73,7 @@ public class HistoricProcessInstanceEntity extends HistoricScopeInstanceEntity i
   }
   public void setEndActivityId(String endActivityId) {
     this.endActivityId = endActivityId;
+    dirty = true;
   }
 
   public String getBusinessKey() {
@@ -80,6 +81,7 @@ public class HistoricProcessInstanceEntity extends HistoricScopeInstanceEntity i
   }
   public void setBusinessKey(String businessKey) {
     this.businessKey = businessKey;
+    dirty = true;
   }
   
   public String getStartUserId() {
@@ -87,6 +89,7 @@ public class HistoricProcessInstanceEntity extends HistoricScopeInstanceEntity i
   }
   public void setStartUserId(String startUserId) {
     this.startUserId = startUserId;
+    dirty = true;
   }
   
   public String getStartActivityId() {
@@ -94,6 +97,7 @@ public class HistoricProcessInstanceEntity extends HistoricScopeInstanceEntity i
   }
   public void setStartActivityId(String startUserId) {
     this.startActivityId = startUserId;
+    dirty = true;
   }
   
   public String getSuperProcessInstanceId() {
@@ -101,6 +105,7 @@ public class HistoricProcessInstanceEntity extends HistoricScopeInstanceEntity i
   }
   public void setSuperProcessInstanceId(String superProcessInstanceId) {
     this.superProcessInstanceId = superProcessInstanceId;
+    dirty = true;
   }
   
   public Map<String, Object> getProcessVariables() {
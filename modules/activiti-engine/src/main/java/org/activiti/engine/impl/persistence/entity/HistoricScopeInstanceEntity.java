@@ -17,13 +17,13 @@ package org.activiti.engine.impl.persistence.entity;
 import java.io.Serializable;
 import java.util.Date;
 
-import org.activiti.engine.impl.db.PersistentObject;
+import org.activiti.engine.impl.db.HasDirtyFlag;
 import org.activiti.engine.impl.util.ClockUtil;
 
 /**
  * @author Christian Stettler
  */
-public abstract class HistoricScopeInstanceEntity implements PersistentObject, Serializable {
+public abstract class HistoricScopeInstanceEntity implements HasDirtyFlag, Serializable {
 
   private static final long serialVersionUID = 1L;
   
@@ -34,11 +34,13 @@ public abstract class HistoricScopeInstanceEntity implements PersistentObject, S
   protected Date endTime;
   protected Long durationInMillis;
   protected String deleteReason;
+  protected boolean dirty;
 
   public void markEnded(String deleteReason) {
     this.deleteReason = deleteReason;
     this.endTime = ClockUtil.getCurrentTime();
     this.durationInMillis = endTime.getTime() - startTime.getTime();
+    this.dirty = true;
   }
   
   // getters and setters //////////////////////////////////////////////////////
@@ -66,23 +68,35 @@ public abstract class HistoricScopeInstanceEntity implements PersistentObject, S
   }
   public void setProcessInstanceId(String processInstanceId) {
     this.processInstanceId = processInstanceId;
+    dirty = true;
   }
   public void setProcessDefinitionId(String processDefinitionId) {
     this.processDefinitionId = processDefinitionId;
+    dirty = true;
   }
   public void setStartTime(Date startTime) {
     this.startTime = startTime;
+    dirty = true;
   }
   public void setEndTime(Date endTime) {
     this.endTime = endTime;
+    dirty = true;
   }
   public void setDurationInMillis(Long durationInMillis) {
     this.durationInMillis = durationInMillis;
+    dirty = true;
   }
   public String getDeleteReason() {
     return deleteReason;
   }
   public void setDeleteReason(String deleteReason) {
     this.deleteReason = deleteReason;
+    dirty = true;
+  }
+  public boolean isDirty() {
+    return dirty;
+  }
+  public void setDirty(boolean dirty) {
+    this.dirty = dirty;
   }
 }
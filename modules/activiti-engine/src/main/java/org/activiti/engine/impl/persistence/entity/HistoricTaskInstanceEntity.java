@@ -98,66 +98,77 @@ public class HistoricTaskInstanceEntity extends HistoricScopeInstanceEntity impl
   }
   public void setExecutionId(String executionId) {
     this.executionId = executionId;
+    dirty = true;
   }
   public String getName() {
     return name;
   }
   public void setName(String name) {
     this.name = name;
+    dirty = true;
   }
   public String getDescription() {
     return description;
   }
   public void setDescription(String description) {
     this.description = description;
+    dirty = true;
   }
   public String getAssignee() {
     return assignee;
   }
   public void setAssignee(String assignee) {
     this.assignee = assignee;
+    dirty = true;
   }
   public String getTaskDefinitionKey() {
     return taskDefinitionKey;
   }
   public void setTaskDefinitionKey(String taskDefinitionKey) {
     this.taskDefinitionKey = taskDefinitionKey;
+    dirty = true;
   }
   public String getFormKey() {
     return formKey;
   }
   public void setFormKey(String formKey) {
     this.formKey = formKey;
+    dirty = true;
   }
   public int getPriority() {
     return priority;
   }
   public void setPriority(int priority) {
     this.priority = priority;
+    dirty = true;
   }
   public Date getDueDate() {
     return dueDate;
   }
   public void setDueDate(Date dueDate) {
     this.dueDate = dueDate;
+    dirty = true;
   }
   public String getOwner() {
     return owner;
   }
   public void setOwner(String owner) {
     this.owner = owner;
+    dirty = true;
   }
   public String getParentTaskId() {
     return parentTaskId;
   }
   public void setParentTaskId(String parentTaskId) {
     this.parentTaskId = parentTaskId;
+    dirty = true;
   }
   public Date getClaimTime() {
     return claimTime;
   }
   public void setClaimTime(Date claimTime) {
     this.claimTime = claimTime;
+    dirty = true;
   }
   public Long getWorkTimeInMillis() {
     if (endTime == null || claimTime == null) {
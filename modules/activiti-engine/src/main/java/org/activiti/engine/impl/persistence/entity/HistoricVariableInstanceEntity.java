@@ -13,6 +13,7 @@
 
 package org.activiti.engine.impl.persistence.entity;
 
+import java.io.InputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -81,7 +82,8 @@ public class HistoricVariableInstanceEntity implements ValueFields, HistoricVari
     
     this.variableType = variableInstance.getType();
     if (variableInstance.getByteArrayValueId()!=null) {
-      setByteArrayValue(variableInstance.getByteArrayValue().getBytes());
+      // shares the byte array of the variable until one of them changes
+      byteArrayRef.setSharedValue(variableInstance.byteArrayRef);
     }
   }
 
@@ -122,6 +124,13 @@ public class HistoricVariableInstanceEntity implements ValueFields, HistoricVari
   public byte[] getBytes() {
     return byteArrayRef.getBytes();
   }
+  
+  /**
+   * The byte array value as a stream, see {@link ByteArrayRef#getBytesAsStream()}.
+   */
+  public InputStream getBytesAsStream() {
+    return byteArrayRef.getBytesAsStream();
+  }
 
   @Override
   public void setBytes(byte[] bytes) {
@@ -23,6 +23,7 @@ import org.activiti.engine.impl.context.Context;
 import org.activiti.engine.impl.db.HasRevision;
 import org.activiti.engine.impl.db.PersistentObject;
 import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.jobexecutor.JobAcquisitionPartition;
 import org.activiti.engine.impl.jobexecutor.JobHandler;
 import org.activiti.engine.runtime.Job;
 import org.apache.commons.lang3.StringUtils;
@@ -40,6 +41,7 @@ public abstract class JobEntity implements Serializable, Job, PersistentObject,
 
   public static final boolean DEFAULT_EXCLUSIVE = true;
   public static final int DEFAULT_RETRIES = 3;
+  public static final int DEFAULT_PRIORITY = 0;
   private static final int MAX_EXCEPTION_MESSAGE_LENGTH = 255;
 
   private static final long serialVersionUID = 1L;
@@ -66,6 +68,11 @@ public abstract class JobEntity implements Serializable, Job, PersistentObject,
   protected final ByteArrayRef exceptionByteArrayRef = new ByteArrayRef();
   
   protected String exceptionMessage;
+  
+  protected Integer partition;
+  
+  /** jobs with a higher priority are acquired first */
+  protected int priority = DEFAULT_PRIORITY;
 
   public void execute(CommandContext commandContext) {
     ExecutionEntity execution = null;
@@ -84,6 +91,10 @@ public abstract class JobEntity implements Serializable, Job, PersistentObject,
       .getDbSqlSession()
       .insert(this);
     
+    if (partition == null) {
+      partition = JobAcquisitionPartition.getPartition(id);
+    }
+    
     // add link to execution
     if (executionId != null) {
       ExecutionEntity execution = Context.getCommandContext()
@@ -239,6 +250,18 @@ public abstract class JobEntity implements Serializable, Job, PersistentObject,
   public void setExceptionMessage(String exceptionMessage) {
     this.exceptionMessage = StringUtils.abbreviate(exceptionMessage, MAX_EXCEPTION_MESSAGE_LENGTH);
   }
+  public Integer getPartition() {
+    return partition;
+  }
+  public void setPartition(Integer partition) {
+    this.partition = partition;
+  }
+  public int getPriority() {
+    return priority;
+  }
+  public void setPriority(int priority) {
+    this.priority = priority;
+  }
   
   // common methods  //////////////////////////////////////////////////////////
 
@@ -24,10 +24,14 @@ import org.activiti.engine.impl.Page;
 import org.activiti.engine.impl.cfg.TransactionListener;
 import org.activiti.engine.impl.cfg.TransactionState;
 import org.activiti.engine.impl.context.Context;
+import org.activiti.engine.impl.db.ListQueryParameterObject;
 import org.activiti.engine.impl.jobexecutor.ExclusiveJobAddedNotification;
+import org.activiti.engine.impl.jobexecutor.ExclusiveJobRoutedNotification;
+import org.activiti.engine.impl.jobexecutor.JobAcquisitionPartition;
 import org.activiti.engine.impl.jobexecutor.JobExecutor;
 import org.activiti.engine.impl.jobexecutor.JobExecutorContext;
 import org.activiti.engine.impl.jobexecutor.MessageAddedNotification;
+import org.activiti.engine.impl.jobexecutor.TimerScheduledNotification;
 import org.activiti.engine.impl.persistence.AbstractManager;
 import org.activiti.engine.impl.util.ClockUtil;
 import org.activiti.engine.runtime.Job;
@@ -61,6 +65,12 @@ public class JobEntityManager extends AbstractManager {
     if (duedate.getTime() < (ClockUtil.getCurrentTime().getTime()+waitTimeInMillis)) {
       hintJobExecutor(timer);
     }
+    
+    if (jobExecutor.isTimerScheduleEnabled()) {
+      Context.getCommandContext()
+        .getTransactionContext()
+        .addTransactionListener(TransactionState.COMMITTED, new TimerScheduledNotification(jobExecutor, duedate));
+    }
   }
   
   protected void hintJobExecutor(JobEntity job) {  
@@ -75,6 +85,15 @@ public class JobEntityManager extends AbstractManager {
       job.setLockExpirationTime(new Date(currentTime.getTime() + jobExecutor.getLockTimeInMillis()));
       job.setLockOwner(jobExecutor.getLockOwner());
       transactionListener = new ExclusiveJobAddedNotification(job.getId());      
+    } else if (job.isExclusive() 
+            && job.getProcessInstanceId() != null
+            && jobExecutor.getExclusiveJobRouter() != null
+            && jobExecutor.getExclusiveJobRouter().isRouted(job.getProcessInstanceId())) {
+      // lock job & add to the lane in which the process instance is executed
+      Date currentTime = ClockUtil.getCurrentTime();
+      job.setLockExpirationTime(new Date(currentTime.getTime() + jobExecutor.getLockTimeInMillis()));
+      job.setLockOwner(jobExecutor.getLockOwner());
+      transactionListener = new ExclusiveJobRoutedNotification(jobExecutor.getExclusiveJobRouter(), job.getProcessInstanceId(), job.getId());
     } else {
       // notify job executor:      
       transactionListener = new MessageAddedNotification(jobExecutor);
@@ -99,10 +118,20 @@ public class JobEntityManager extends AbstractManager {
     return (JobEntity) getDbSqlSession().selectOne("selectJob", jobId);
   }
   
-  @SuppressWarnings("unchecked")
+  /** uses a job that was loaded by the job acquisition instead of selecting it again */
+  public JobEntity attachJob(JobEntity job) {
+    return getDbSqlSession().attach(job);
+  }
+  
   public List<JobEntity> findNextJobsToExecute(Page page) {
+    return findNextJobsToExecute(JobAcquisitionPartition.ALL, page);
+  }
+  
+  @SuppressWarnings("unchecked")
+  public List<JobEntity> findNextJobsToExecute(JobAcquisitionPartition partition, Page page) {
     Date now = ClockUtil.getCurrentTime();
-    return getDbSqlSession().selectList("selectNextJobsToExecute", now, page);
+    NextJobsToExecuteParameter parameter = new NextJobsToExecuteParameter(partition.getQueryParameters(now), page);
+    return getDbSqlSession().selectList("selectNextJobsToExecute", parameter);
   }
   
   @SuppressWarnings("unchecked")
@@ -119,10 +148,17 @@ public class JobEntityManager extends AbstractManager {
   }
 
 
-  @SuppressWarnings("unchecked")
   public List<TimerEntity> findUnlockedTimersByDuedate(Date duedate, Page page) {
+    return findUnlockedTimersByDuedate(JobAcquisitionPartition.ALL, duedate, page);
+  }
+  
+  /** the unlocked timers that are due before the given date and belong to the given partition */
+  @SuppressWarnings("unchecked")
+  public List<TimerEntity> findUnlockedTimersByDuedate(JobAcquisitionPartition partition, Date duedate, Page page) {
     final String query = "selectUnlockedTimersByDuedate";
-    return getDbSqlSession().selectList(query, duedate, page);
+    Map<String, Object> parameters = partition.getQueryParameters(ClockUtil.getCurrentTime());
+    parameters.put("duedate", duedate);
+    return getDbSqlSession().selectList(query, parameters, page);
   }
 
   @SuppressWarnings("unchecked")
@@ -147,5 +183,16 @@ public class JobEntityManager extends AbstractManager {
   public long findJobCountByQueryCriteria(JobQueryImpl jobQuery) {
     return (Long) getDbSqlSession().selectOne("selectJobCountByQueryCriteria", jobQuery);
   }
-
+  
+  /** the executable jobs with the highest priority come first */
+  public static class NextJobsToExecuteParameter extends ListQueryParameterObject {
+    
+    public NextJobsToExecuteParameter(Object parameter, Page page) {
+      super(parameter, page.getFirstResult(), page.getMaxResults());
+    }
+    
+    public String getOrderBy() {
+      return "RES.PRIORITY_ desc";
+    }
+  }
 }
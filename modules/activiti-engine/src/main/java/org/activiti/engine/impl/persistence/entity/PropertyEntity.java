@@ -15,21 +15,22 @@ package org.activiti.engine.impl.persistence.entity;
 import java.io.Serializable;
 
 import org.activiti.engine.ActivitiException;
+import org.activiti.engine.impl.db.HasDirtyFlag;
 import org.activiti.engine.impl.db.HasRevision;
-import org.activiti.engine.impl.db.PersistentObject;
 
 
 
 /**
  * @author Tom Baeyens
  */
-public class PropertyEntity implements PersistentObject, HasRevision, Serializable {
+public class PropertyEntity implements HasDirtyFlag, HasRevision, Serializable {
 
   private static final long serialVersionUID = 1L;
   
   String name;
   int revision;
   String value;
+  boolean dirty;
 
   public PropertyEntity() {
   }
@@ -53,6 +54,13 @@ public class PropertyEntity implements PersistentObject, HasRevision, Serializab
   }
   public void setValue(String value) {
     this.value = value;
+    this.dirty = true;
+  }
+  public boolean isDirty() {
+    return dirty;
+  }
+  public void setDirty(boolean dirty) {
+    this.dirty = dirty;
   }
   
   // persistent object methods ////////////////////////////////////////////////
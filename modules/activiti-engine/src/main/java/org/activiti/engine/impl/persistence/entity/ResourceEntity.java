@@ -16,6 +16,7 @@ package org.activiti.engine.impl.persistence.entity;
 import java.io.Serializable;
 
 import org.activiti.engine.impl.db.PersistentObject;
+import org.activiti.engine.impl.util.CompressionUtil;
 
 
 /**
@@ -55,6 +56,15 @@ public class ResourceEntity implements Serializable, PersistentObject {
     this.bytes = bytes;
   }
   
+  /** the bytes as they are stored, see {@link CompressionUtil} */
+  public byte[] getPersistentBytes() {
+    return CompressionUtil.compress(bytes, ByteArrayEntity.getCompressionThreshold());
+  }
+  
+  public void setPersistentBytes(byte[] persistentBytes) {
+    this.bytes = CompressionUtil.decompress(persistentBytes);
+  }
+  
   public String getDeploymentId() {
     return deploymentId;
   }
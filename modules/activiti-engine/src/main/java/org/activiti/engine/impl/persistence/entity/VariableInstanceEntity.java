@@ -12,6 +12,7 @@
  */
 package org.activiti.engine.impl.persistence.entity;
 
+import java.io.InputStream;
 import java.io.Serializable;
 import java.util.HashMap;
 import java.util.Map;
@@ -142,6 +143,13 @@ public class VariableInstanceEntity implements ValueFields, PersistentObject, Ha
   public byte[] getBytes() {
     return byteArrayRef.getBytes();
   }
+  
+  /**
+   * The byte array value as a stream, see {@link ByteArrayRef#getBytesAsStream()}.
+   */
+  public InputStream getBytesAsStream() {
+    return byteArrayRef.getBytesAsStream();
+  }
 
   @Override
   public void setBytes(byte[] bytes) {
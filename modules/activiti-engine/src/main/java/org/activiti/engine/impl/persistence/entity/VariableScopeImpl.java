@@ -134,6 +134,27 @@ public abstract class VariableScopeImpl implements Serializable, VariableScope {
     ensureVariableInstancesInitialized();
     return variableInstances.containsKey(variableName);
   }
+  
+  /**
+   * The variable instance with the given name in this scope or in one of its parents, 
+   * without loading its value.
+   */
+  public VariableInstanceEntity getVariableInstanceEntity(String variableName) {
+    VariableInstanceEntity variableInstance = getVariableInstanceEntityLocal(variableName);
+    if (variableInstance!=null) {
+      return variableInstance;
+    }
+    VariableScopeImpl parentScope = getParentVariableScope();
+    if (parentScope!=null) {
+      return parentScope.getVariableInstanceEntity(variableName);
+    }
+    return null;
+  }
+  
+  public VariableInstanceEntity getVariableInstanceEntityLocal(String variableName) {
+    ensureVariableInstancesInitialized();
+    return variableInstances.get(variableName);
+  }
 
   protected Set<String> collectVariableNames(Set<String> variableNames) {
     ensureVariableInstancesInitialized();
@@ -38,6 +38,7 @@ public class ActivityImpl extends ScopeImpl implements PvmActivity, HasDIBounds
   protected boolean isScope;
   protected boolean isAsync;
   protected boolean isExclusive;
+  protected int jobPriority;
   
   // Graphical information
   protected int x = -1;
@@ -178,4 +179,12 @@ public class ActivityImpl extends ScopeImpl implements PvmActivity, HasDIBounds
     this.isExclusive = isExclusive;
   }
   
+  public int getJobPriority() {
+    return jobPriority;
+  }
+  
+  public void setJobPriority(int jobPriority) {
+    this.jobPriority = jobPriority;
+  }
+  
 }
@@ -51,7 +51,9 @@ import org.junit.Assert;
 public abstract class AbstractActivitiTestCase extends PvmTestCase {
 
   private static final List<String> TABLENAMES_EXCLUDED_FROM_DB_CLEAN_CHECK = Arrays.asList(
-    "ACT_GE_PROPERTY"
+    "ACT_GE_PROPERTY",
+    "ACT_GE_ID_SEQ",
+    "ACT_RU_JOB_HEARTBEAT"
   );
 
   protected ProcessEngine processEngine; 
@@ -0,0 +1,198 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Transparent compression of the contents of ACT_GE_BYTEARRAY.
+ * 
+ * Compressed contents start with a header: the 4 magic bytes, a method byte and the 
+ * uncompressed length (4 bytes, big endian). Contents without the header, like all rows 
+ * stored before compression was added, are returned as they are. Uncompressed contents that 
+ * happen to start with the magic bytes are stored with a header as well, with method 
+ * {@link #METHOD_STORED}, so they can't be mistaken for compressed contents.
+ */
+public class CompressionUtil {
+  
+  protected static final byte[] MAGIC = {0x00, 'A', 'C', 'Z'};
+  protected static final int HEADER_LENGTH = MAGIC.length + 5;
+  
+  protected static final byte METHOD_STORED = 0;
+  protected static final byte METHOD_DEFLATE = 1;
+  
+  /**
+   * @param threshold the minimum length of the bytes to compress them, negative to not compress at all 
+   * @return the bytes as they should be stored 
+   */
+  public static byte[] compress(byte[] bytes, int threshold) {
+    if (bytes == null) {
+      return null;
+    }
+    if (threshold >= 0 && bytes.length >= threshold) {
+      byte[] deflated = deflate(bytes);
+      if (HEADER_LENGTH + deflated.length < bytes.length) {
+        return withHeader(METHOD_DEFLATE, bytes.length, deflated);
+      }
+    }
+    if (hasHeader(bytes)) {
+      return withHeader(METHOD_STORED, bytes.length, bytes);
+    }
+    return bytes;
+  }
+  
+  /**
+   * @return the original bytes of stored bytes, the same array if they were not compressed  
+   */
+  public static byte[] decompress(byte[] bytes) {
+    if (bytes == null || !hasHeader(bytes)) {
+      return bytes;
+    }
+    byte method = bytes[MAGIC.length];
+    int length = readInt(bytes, MAGIC.length + 1);
+    if (length < 0) {
+      return bytes;
+    }
+    if (method == METHOD_STORED) {
+      if (bytes.length - HEADER_LENGTH != length) {
+        return bytes;
+      }
+      byte[] stored = new byte[length];
+      System.arraycopy(bytes, HEADER_LENGTH, stored, 0, length);
+      return stored;
+    }
+    if (method == METHOD_DEFLATE) {
+      byte[] inflated = inflate(bytes, length);
+      if (inflated != null) {
+        return inflated;
+      }
+    }
+    // bytes stored before compression that happen to start like a header
+    return bytes;
+  }
+  
+  /**
+   * Like {@link #decompress(byte[])}, for the stored bytes as a stream. 
+   * Unlike with a byte array, corrupt compressed contents can only be detected while reading, 
+   * so they result in an exception instead of in the bytes as they are stored.
+   */
+  public static InputStream decompress(InputStream inputStream) throws IOException {
+    PushbackInputStream pushbackInputStream = new PushbackInputStream(inputStream, HEADER_LENGTH);
+    byte[] header = new byte[HEADER_LENGTH];
+    int headerLength = 0;
+    while (headerLength < HEADER_LENGTH) {
+      int count = pushbackInputStream.read(header, headerLength, HEADER_LENGTH - headerLength);
+      if (count == -1) {
+        break;
+      }
+      headerLength += count;
+    }
+    if (headerLength == HEADER_LENGTH && hasHeader(header)) {
+      byte method = header[MAGIC.length];
+      if (method == METHOD_STORED) {
+        return pushbackInputStream;
+      }
+      if (method == METHOD_DEFLATE) {
+        return new InflaterInputStream(pushbackInputStream);
+      }
+    }
+    pushbackInputStream.unread(header, 0, headerLength);
+    return pushbackInputStream;
+  }
+  
+  public static boolean isCompressed(byte[] bytes) {
+    return bytes != null && hasHeader(bytes) && bytes[MAGIC.length] == METHOD_DEFLATE;
+  }
+  
+  protected static byte[] deflate(byte[] bytes) {
+    // fast compression: the contents are compressed in every flush that inserts or updates them
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      deflater.setInput(bytes);
+      deflater.finish();
+      ByteArrayOutputStream outputStream = new ByteArrayOutputStream(bytes.length / 2);
+      byte[] buffer = new byte[Math.min(Math.max(bytes.length, 64), 16 * 1024)];
+      while (!deflater.finished()) {
+        int count = deflater.deflate(buffer);
+        outputStream.write(buffer, 0, count);
+      }
+      return outputStream.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+  
+  protected static byte[] inflate(byte[] bytes, int length) {
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH);
+      byte[] inflated = new byte[length];
+      int offset = 0;
+      while (offset < length && !inflater.finished()) {
+        int count = inflater.inflate(inflated, offset, length - offset);
+        if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          return null;
+        }
+        offset += count;
+      }
+      if (offset != length) {
+        return null;
+      }
+      if (!inflater.finished() && (inflater.inflate(new byte[1]) != 0 || !inflater.finished())) {
+        return null;
+      }
+      return inflated;
+    } catch (DataFormatException e) {
+      return null;
+    } finally {
+      inflater.end();
+    }
+  }
+  
+  protected static boolean hasHeader(byte[] bytes) {
+    if (bytes.length < HEADER_LENGTH) {
+      return false;
+    }
+    for (int i = 0; i < MAGIC.length; i++) {
+      if (bytes[i] != MAGIC[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+  
+  protected static byte[] withHeader(byte method, int length, byte[] data) {
+    byte[] bytes = new byte[HEADER_LENGTH + data.length];
+    System.arraycopy(MAGIC, 0, bytes, 0, MAGIC.length);
+    bytes[MAGIC.length] = method;
+    bytes[MAGIC.length + 1] = (byte) (length >>> 24);
+    bytes[MAGIC.length + 2] = (byte) (length >>> 16);
+    bytes[MAGIC.length + 3] = (byte) (length >>> 8);
+    bytes[MAGIC.length + 4] = (byte) length;
+    System.arraycopy(data, 0, bytes, HEADER_LENGTH, data.length);
+    return bytes;
+  }
+  
+  protected static int readInt(byte[] bytes, int offset) {
+    return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16) 
+        | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+  }
+
+}
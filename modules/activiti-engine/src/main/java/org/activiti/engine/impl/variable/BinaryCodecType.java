@@ -0,0 +1,131 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.variable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.activiti.engine.ActivitiException;
+import org.activiti.engine.impl.context.Context;
+import org.activiti.engine.impl.interceptor.ReadOnlyCommand;
+import org.activiti.engine.impl.persistence.entity.VariableInstanceEntity;
+
+
+/**
+ * Stores the objects of the configured classes with a {@link VariableCodec} instead of java 
+ * serialization. It is registered before the {@link SerializableType}, so the values that were 
+ * stored as 'serializable' before are still read with java serialization, and only new values 
+ * of the configured classes are stored with the codec.
+ * 
+ * The classes are given by their name, or by the name of their package followed by '.*',
+ * which includes the subpackages.
+ */
+public class BinaryCodecType extends ByteArrayType {
+
+  protected VariableCodec codec;
+  protected Set<String> classNames = new HashSet<String>();
+  protected List<String> packagePrefixes = new ArrayList<String>();
+  protected ConcurrentMap<Class<?>, Boolean> ableToStore = new ConcurrentHashMap<Class<?>, Boolean>();
+  
+  public BinaryCodecType(VariableCodec codec, Collection<String> classOrPackageNames) {
+    this.codec = codec;
+    for (String classOrPackageName : classOrPackageNames) {
+      if (classOrPackageName.endsWith(".*")) {
+        packagePrefixes.add(classOrPackageName.substring(0, classOrPackageName.length() - 1));
+      } else {
+        classNames.add(classOrPackageName);
+      }
+    }
+  }
+
+  public String getTypeName() {
+    return codec.getName();
+  }
+
+  public Object getValue(ValueFields valueFields) {
+    Object cachedObject = valueFields.getCachedValue();
+    if (cachedObject != null) {
+      return cachedObject;
+    }
+    
+    byte[] bytes = (byte[]) super.getValue(valueFields);
+    Object decodedObject = null;
+    try {
+      decodedObject = codec.decode(bytes);
+    } catch (Exception e) {
+      throw new ActivitiException("Couldn't decode object in variable '"+valueFields.getName()+"'", e);
+    }
+    valueFields.setCachedValue(decodedObject);
+    
+    if (valueFields instanceof VariableInstanceEntity 
+            && !(Context.getCommandContext().getCommand() instanceof ReadOnlyCommand)) {
+      // the object is encoded again at the end of the command to see if it was changed
+      Context.getCommandContext()
+        .getDbSqlSession()
+        .addDeserializedObject(decodedObject, bytes, (VariableInstanceEntity) valueFields, codec);
+    }
+    return decodedObject;
+  }
+
+  public void setValue(Object value, ValueFields valueFields) {
+    byte[] bytes = null;
+    try {
+      bytes = codec.encode(value);
+    } catch (Exception e) {
+      throw new ActivitiException("Couldn't encode value '"+value+"' in variable '"+valueFields.getName()+"'", e);
+    }
+    valueFields.setCachedValue(value);
+    
+    if (valueFields.getBytes() == null && valueFields instanceof VariableInstanceEntity) {
+      Context.getCommandContext()
+        .getDbSqlSession()
+        .addDeserializedObject(value, bytes, (VariableInstanceEntity) valueFields, codec);
+    }
+    
+    super.setValue(bytes, valueFields);
+  }
+
+  public boolean isAbleToStore(Object value) {
+    if (value == null) {
+      return false;
+    }
+    Class<?> type = value.getClass();
+    Boolean isAbleToStore = ableToStore.get(type);
+    if (isAbleToStore == null) {
+      isAbleToStore = isConfiguredClass(type.getName());
+      ableToStore.put(type, isAbleToStore);
+    }
+    return isAbleToStore;
+  }
+  
+  protected boolean isConfiguredClass(String className) {
+    if (classNames.contains(className)) {
+      return true;
+    }
+    for (String packagePrefix : packagePrefixes) {
+      if (className.startsWith(packagePrefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+  
+  public VariableCodec getCodec() {
+    return codec;
+  }
+}
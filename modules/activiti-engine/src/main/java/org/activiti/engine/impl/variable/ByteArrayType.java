@@ -20,8 +20,10 @@ public class ByteArrayType implements VariableType {
 
   private static final long serialVersionUID = 1L;
   
+  public static final String TYPE_NAME = "bytes";
+  
   public String getTypeName() {
-    return "bytes";
+    return TYPE_NAME;
   }
 
   public boolean isCachable() {
@@ -0,0 +1,799 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.variable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.PriorityBlockingQueue;
+
+import org.activiti.engine.ActivitiException;
+import org.activiti.engine.impl.util.ReflectUtil;
+
+
+/**
+ * A {@link VariableCodec} that writes the fields of objects in a compact binary form, in the 
+ * style of Kryo's field serializer. There is no schema: the fields of a class are written in 
+ * a fixed order, without names. Classes are written by name the first time they occur in a 
+ * value, and by a number after that. Classes that are registered are written by number only,
+ * so the registered classes and their order must not change once values are stored.
+ * 
+ * Changing the fields of a class makes its stored values unreadable, so classes that change 
+ * often are better left to java serialization. Objects that are referenced more than once, 
+ * also in cycles, are written once.
+ * 
+ * Objects of classes outside of the java packages need a no-arg constructor (of any visibility).
+ * Collections and maps of java.util are written by their elements. Other objects that are 
+ * {@link Serializable} and can't be written by their fields are embedded with java serialization.
+ */
+public class CompactBinaryCodec implements VariableCodec {
+  
+  public static final String NAME = "compact-binary";
+  
+  protected static final int FORMAT_VERSION = 1;
+  
+  protected static final int NULL = 0;
+  protected static final int REFERENCE = 1;
+  protected static final int CLASS_NAME = 2;
+  protected static final int CLASS_ID_OFFSET = 3;
+  
+  protected static final int KIND_ARRAY = 1;
+  protected static final int KIND_COLLECTION = 2;
+  protected static final int KIND_MAP = 3;
+  protected static final int KIND_FIELDS = 4;
+  protected static final int KIND_JAVA_SERIALIZATION = 5;
+  protected static final int KIND_NOT_SUPPORTED = 6;
+  
+  protected static final Charset UTF8 = Charset.forName("UTF-8");
+  
+  /** always registered, before the classes of the configuration */
+  protected static final List<Class<?>> DEFAULT_CLASSES = Collections.unmodifiableList(Arrays.<Class<?>>asList(
+          String.class, Boolean.class, Byte.class, Short.class, Character.class, Integer.class, Long.class, 
+          Float.class, Double.class, BigInteger.class, BigDecimal.class, Date.class, UUID.class,
+          ArrayList.class, LinkedList.class, HashSet.class, LinkedHashSet.class, TreeSet.class,
+          HashMap.class, LinkedHashMap.class, TreeMap.class,
+          Object[].class, String[].class, byte[].class, int[].class, long[].class, double[].class));
+  
+  protected final List<Class<?>> registeredClasses;
+  protected final Map<Class<?>, Integer> registeredClassIds = new HashMap<Class<?>, Integer>();
+  
+  protected final ConcurrentMap<Class<?>, Integer> kinds = new ConcurrentHashMap<Class<?>, Integer>();
+  protected final ConcurrentMap<Class<?>, Field[]> fields = new ConcurrentHashMap<Class<?>, Field[]>();
+  protected final ConcurrentMap<Class<?>, Constructor<?>> constructors = new ConcurrentHashMap<Class<?>, Constructor<?>>();
+  
+  public CompactBinaryCodec() {
+    this(Collections.<Class<?>>emptyList());
+  }
+  
+  /** 
+   * @param registeredClasses classes that are written by number instead of by name, 
+   *   new classes may only be added at the end of the list 
+   */
+  public CompactBinaryCodec(List<Class<?>> registeredClasses) {
+    this.registeredClasses = new ArrayList<Class<?>>(DEFAULT_CLASSES);
+    this.registeredClasses.addAll(registeredClasses);
+    for (int i = 0; i < this.registeredClasses.size(); i++) {
+      registeredClassIds.put(this.registeredClasses.get(i), i);
+    }
+  }
+  
+  public String getName() {
+    return NAME;
+  }
+
+  public byte[] encode(Object value) {
+    Output output = new Output();
+    output.writeVarInt(FORMAT_VERSION);
+    try {
+      output.writeObject(value);
+    } catch (ActivitiException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new ActivitiException("Couldn't encode "+value+": "+e.getMessage(), e);
+    }
+    return output.toByteArray();
+  }
+
+  public Object decode(byte[] bytes) {
+    Input input = new Input(bytes);
+    try {
+      int formatVersion = input.readVarInt();
+      if (formatVersion != FORMAT_VERSION) {
+        throw new ActivitiException("Unknown format version "+formatVersion+" of compact binary value");
+      }
+      return input.readObject();
+    } catch (ActivitiException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new ActivitiException("Couldn't decode compact binary value: "+e.getMessage(), e);
+    }
+  }
+  
+  // classes //////////////////////////////////////////////////////////////////
+  
+  /** values are written without a reference, so they are not shared after decoding */
+  protected boolean isValueClass(Class<?> type) {
+    return type == String.class || type == Integer.class || type == Long.class || type == Boolean.class 
+        || type == Double.class || type == Float.class || type == Short.class || type == Byte.class 
+        || type == Character.class || type == BigInteger.class || type == BigDecimal.class 
+        || type == Date.class || type == UUID.class || type.isEnum();
+  }
+  
+  protected int getKind(Class<?> type) {
+    Integer kind = kinds.get(type);
+    if (kind == null) {
+      kind = determineKind(type);
+      kinds.put(type, kind);
+    }
+    return kind;
+  }
+  
+  protected int determineKind(Class<?> type) {
+    if (type.isArray()) {
+      return KIND_ARRAY;
+    }
+    boolean isJavaClass = type.getName().startsWith("java.") || type.getName().startsWith("javax.");
+    boolean hasNoArgConstructor = (getNoArgConstructor(type) != null);
+    if (isJavaClass && hasNoArgConstructor && type.getName().startsWith("java.util.")) {
+      // only the comparators of TreeSet and TreeMap are written
+      boolean hasComparator = SortedSet.class.isAssignableFrom(type) || SortedMap.class.isAssignableFrom(type) 
+          || PriorityQueue.class.isAssignableFrom(type) || PriorityBlockingQueue.class.isAssignableFrom(type);
+      if (!hasComparator || type == TreeSet.class || type == TreeMap.class) {
+        if (Collection.class.isAssignableFrom(type)) {
+          return KIND_COLLECTION;
+        }
+        if (Map.class.isAssignableFrom(type)) {
+          return KIND_MAP;
+        }
+      }
+    }
+    boolean isSerializable = Serializable.class.isAssignableFrom(type);
+    if (!isJavaClass && hasNoArgConstructor && !(isSerializable && hasOwnSerialization(type))) {
+      return KIND_FIELDS;
+    }
+    if (isSerializable) {
+      return KIND_JAVA_SERIALIZATION;
+    }
+    return KIND_NOT_SUPPORTED;
+  }
+  
+  /** 
+   * whether the class or a superclass keeps its state in another way than in its fields, 
+   * eg. subclasses of collections, which have their elements in transient fields 
+   */
+  protected boolean hasOwnSerialization(Class<?> type) {
+    if (Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type)) {
+      return true;
+    }
+    for (Class<?> superclass = type; superclass != null && superclass != Object.class; superclass = superclass.getSuperclass()) {
+      for (Method method : superclass.getDeclaredMethods()) {
+        String methodName = method.getName();
+        if ("writeObject".equals(methodName) || "readObject".equals(methodName) 
+                || "writeReplace".equals(methodName) || "readResolve".equals(methodName)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+  
+  protected Constructor<?> getNoArgConstructor(Class<?> type) {
+    Constructor<?> constructor = constructors.get(type);
+    if (constructor == null) {
+      try {
+        constructor = type.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        constructors.put(type, constructor);
+      } catch (NoSuchMethodException e) {
+        return null;
+      }
+    }
+    return constructor;
+  }
+  
+  protected Object newInstance(Class<?> type) throws Exception {
+    return getNoArgConstructor(type).newInstance();
+  }
+  
+  /** the non-static, non-transient fields of the class and its superclasses, superclass fields first */
+  protected Field[] getFields(Class<?> type) {
+    Field[] typeFields = fields.get(type);
+    if (typeFields == null) {
+      List<Field> fieldList = new ArrayList<Field>();
+      if (type.getSuperclass() != null && type.getSuperclass() != Object.class) {
+        fieldList.addAll(Arrays.asList(getFields(type.getSuperclass())));
+      }
+      List<Field> declaredFields = new ArrayList<Field>();
+      for (Field field : type.getDeclaredFields()) {
+        int modifiers = field.getModifiers();
+        if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()) {
+          field.setAccessible(true);
+          declaredFields.add(field);
+        }
+      }
+      // the order of getDeclaredFields is not specified
+      Collections.sort(declaredFields, new Comparator<Field>() {
+        public int compare(Field field1, Field field2) {
+          return field1.getName().compareTo(field2.getName());
+        }
+      });
+      fieldList.addAll(declaredFields);
+      typeFields = fieldList.toArray(new Field[fieldList.size()]);
+      fields.put(type, typeFields);
+    }
+    return typeFields;
+  }
+  
+  protected Class<?> loadClass(String className) throws ClassNotFoundException {
+    if (className.startsWith("[")) {
+      return Class.forName(className, false, ReflectUtil.getClassLoader());
+    }
+    return ReflectUtil.loadClass(className);
+  }
+  
+  // writing //////////////////////////////////////////////////////////////////
+  
+  protected class Output {
+    
+    protected byte[] buffer = new byte[256];
+    protected int position = 0;
+    protected Map<Object, Integer> references = new IdentityHashMap<Object, Integer>();
+    protected Map<Class<?>, Integer> classIds;
+    
+    public byte[] toByteArray() {
+      return Arrays.copyOf(buffer, position);
+    }
+    
+    protected void require(int bytes) {
+      if (position + bytes > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+      }
+    }
+    
+    public void writeByte(int value) {
+      require(1);
+      buffer[position++] = (byte) value;
+    }
+    
+    public void writeBytes(byte[] bytes) {
+      require(bytes.length);
+      System.arraycopy(bytes, 0, buffer, position, bytes.length);
+      position += bytes.length;
+    }
+    
+    public void writeVarInt(int value) {
+      require(5);
+      while ((value & ~0x7F) != 0) {
+        buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      buffer[position++] = (byte) value;
+    }
+    
+    public void writeVarLong(long value) {
+      require(10);
+      while ((value & ~0x7FL) != 0) {
+        buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      buffer[position++] = (byte) value;
+    }
+    
+    public void writeZigZagInt(int value) {
+      writeVarInt((value << 1) ^ (value >> 31));
+    }
+    
+    public void writeZigZagLong(long value) {
+      writeVarLong((value << 1) ^ (value >> 63));
+    }
+    
+    public void writeRawInt(int value) {
+      require(4);
+      for (int shift = 24; shift >= 0; shift -= 8) {
+        buffer[position++] = (byte) (value >>> shift);
+      }
+    }
+    
+    public void writeRawLong(long value) {
+      require(8);
+      for (int shift = 56; shift >= 0; shift -= 8) {
+        buffer[position++] = (byte) (value >>> shift);
+      }
+    }
+    
+    public void writeString(String value) {
+      byte[] bytes = value.getBytes(UTF8);
+      writeVarInt(bytes.length);
+      writeBytes(bytes);
+    }
+    
+    public void writeObject(Object value) throws Exception {
+      if (value == null) {
+        writeVarInt(NULL);
+        return;
+      }
+      Class<?> type = (value instanceof Enum ? ((Enum<?>) value).getDeclaringClass() : value.getClass());
+      if (isValueClass(type)) {
+        writeClass(type);
+        writeValue(type, value);
+        return;
+      }
+      
+      Integer reference = references.get(value);
+      if (reference != null) {
+        writeVarInt(REFERENCE);
+        writeVarInt(reference);
+        return;
+      }
+      references.put(value, references.size());
+      
+      writeClass(type);
+      switch (getKind(type)) {
+        case KIND_ARRAY:
+          writeArray(type.getComponentType(), value);
+          break;
+        case KIND_COLLECTION:
+          writeCollection(type, (Collection<?>) value);
+          break;
+        case KIND_MAP:
+          writeMap(type, (Map<?, ?>) value);
+          break;
+        case KIND_FIELDS:
+          writeFields(type, value);
+          break;
+        case KIND_JAVA_SERIALIZATION:
+          writeJavaSerialized(value);
+          break;
+        default:
+          throw new ActivitiException("Couldn't encode object of "+type+": it has no no-arg constructor and is not serializable");
+      }
+    }
+    
+    protected void writeClass(Class<?> type) {
+      Integer classId = registeredClassIds.get(type);
+      if (classId == null && classIds != null) {
+        classId = classIds.get(type);
+      }
+      if (classId != null) {
+        writeVarInt(CLASS_ID_OFFSET + classId);
+        return;
+      }
+      writeVarInt(CLASS_NAME);
+      writeString(type.getName());
+      if (classIds == null) {
+        classIds = new HashMap<Class<?>, Integer>();
+      }
+      classIds.put(type, registeredClasses.size() + classIds.size());
+    }
+    
+    protected void writeValue(Class<?> type, Object value) {
+      if (type == String.class) {
+        writeString((String) value);
+      } else if (type == Integer.class) {
+        writeZigZagInt((Integer) value);
+      } else if (type == Long.class) {
+        writeZigZagLong((Long) value);
+      } else if (type == Boolean.class) {
+        writeByte(((Boolean) value) ? 1 : 0);
+      } else if (type == Double.class) {
+        writeRawLong(Double.doubleToLongBits((Double) value));
+      } else if (type == Float.class) {
+        writeRawInt(Float.floatToIntBits((Float) value));
+      } else if (type == Short.class) {
+        writeZigZagInt((Short) value);
+      } else if (type == Byte.class) {
+        writeByte((Byte) value);
+      } else if (type == Character.class) {
+        writeVarInt((Character) value);
+      } else if (type == BigInteger.class) {
+        byte[] bytes = ((BigInteger) value).toByteArray();
+        writeVarInt(bytes.length);
+        writeBytes(bytes);
+      } else if (type == BigDecimal.class) {
+        BigDecimal decimal = (BigDecimal) value;
+        writeZigZagInt(decimal.scale());
+        byte[] bytes = decimal.unscaledValue().toByteArray();
+        writeVarInt(bytes.length);
+        writeBytes(bytes);
+      } else if (type == Date.class) {
+        writeZigZagLong(((Date) value).getTime());
+      } else if (type == UUID.class) {
+        writeRawLong(((UUID) value).getMostSignificantBits());
+        writeRawLong(((UUID) value).getLeastSignificantBits());
+      } else {
+        writeString(((Enum<?>) value).name());
+      }
+    }
+    
+    protected void writeArray(Class<?> componentType, Object array) throws Exception {
+      int length = Array.getLength(array);
+      writeVarInt(length);
+      if (componentType == byte.class) {
+        writeBytes((byte[]) array);
+      } else if (componentType.isPrimitive()) {
+        for (int i = 0; i < length; i++) {
+          writePrimitive(componentType, Array.get(array, i));
+        }
+      } else {
+        Object[] objects = (Object[]) array;
+        for (int i = 0; i < length; i++) {
+          writeObject(objects[i]);
+        }
+      }
+    }
+    
+    protected void writePrimitive(Class<?> type, Object value) {
+      if (type == int.class) {
+        writeZigZagInt((Integer) value);
+      } else if (type == long.class) {
+        writeZigZagLong((Long) value);
+      } else if (type == boolean.class) {
+        writeByte(((Boolean) value) ? 1 : 0);
+      } else if (type == double.class) {
+        writeRawLong(Double.doubleToLongBits((Double) value));
+      } else if (type == float.class) {
+        writeRawInt(Float.floatToIntBits((Float) value));
+      } else if (type == short.class) {
+        writeZigZagInt((Short) value);
+      } else if (type == byte.class) {
+        writeByte((Byte) value);
+      } else {
+        writeVarInt((Character) value);
+      }
+    }
+    
+    protected void writeCollection(Class<?> type, Collection<?> collection) throws Exception {
+      if (type == TreeSet.class) {
+        writeObject(((TreeSet<?>) collection).comparator());
+      }
+      writeVarInt(collection.size());
+      for (Object element : collection) {
+        writeObject(element);
+      }
+    }
+    
+    protected void writeMap(Class<?> type, Map<?, ?> map) throws Exception {
+      if (type == TreeMap.class) {
+        writeObject(((TreeMap<?, ?>) map).comparator());
+      }
+      writeVarInt(map.size());
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        writeObject(entry.getKey());
+        writeObject(entry.getValue());
+      }
+    }
+    
+    protected void writeFields(Class<?> type, Object object) throws Exception {
+      for (Field field : getFields(type)) {
+        Class<?> fieldType = field.getType();
+        if (fieldType.isPrimitive()) {
+          writePrimitive(fieldType, field.get(object));
+        } else {
+          writeObject(field.get(object));
+        }
+      }
+    }
+    
+    protected void writeJavaSerialized(Object object) throws IOException {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      ObjectOutputStream objectOutputStream = new ObjectOutputStream(bytes);
+      objectOutputStream.writeObject(object);
+      objectOutputStream.close();
+      writeVarInt(bytes.size());
+      writeBytes(bytes.toByteArray());
+    }
+  }
+  
+  // reading //////////////////////////////////////////////////////////////////
+  
+  protected class Input {
+    
+    protected final byte[] buffer;
+    protected int position = 0;
+    protected List<Object> references = new ArrayList<Object>();
+    protected List<Class<?>> classes;
+    
+    public Input(byte[] buffer) {
+      this.buffer = buffer;
+    }
+    
+    public int readByte() {
+      return buffer[position++];
+    }
+    
+    public byte[] readBytes(int length) {
+      byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+      position += length;
+      return bytes;
+    }
+    
+    public int readVarInt() {
+      int value = 0;
+      for (int shift = 0; ; shift += 7) {
+        int b = buffer[position++];
+        value |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+    }
+    
+    public long readVarLong() {
+      long value = 0;
+      for (int shift = 0; ; shift += 7) {
+        long b = buffer[position++];
+        value |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return value;
+        }
+      }
+    }
+    
+    public int readZigZagInt() {
+      int value = readVarInt();
+      return (value >>> 1) ^ -(value & 1);
+    }
+    
+    public long readZigZagLong() {
+      long value = readVarLong();
+      return (value >>> 1) ^ -(value & 1);
+    }
+    
+    public int readRawInt() {
+      int value = 0;
+      for (int i = 0; i < 4; i++) {
+        value = (value << 8) | (buffer[position++] & 0xFF);
+      }
+      return value;
+    }
+    
+    public long readRawLong() {
+      long value = 0;
+      for (int i = 0; i < 8; i++) {
+        value = (value << 8) | (buffer[position++] & 0xFF);
+      }
+      return value;
+    }
+    
+    public String readString() {
+      int length = readVarInt();
+      String value = new String(buffer, position, length, UTF8);
+      position += length;
+      return value;
+    }
+    
+    public Object readObject() throws Exception {
+      int tag = readVarInt();
+      if (tag == NULL) {
+        return null;
+      }
+      if (tag == REFERENCE) {
+        return references.get(readVarInt());
+      }
+      Class<?> type = readClass(tag);
+      if (isValueClass(type)) {
+        return readValue(type);
+      }
+      
+      // the slot is taken before the content is read, in the same order as the references were written
+      int reference = references.size();
+      references.add(null);
+      
+      switch (getKind(type)) {
+        case KIND_ARRAY:
+          return readArray(type.getComponentType(), reference);
+        case KIND_COLLECTION:
+          return readCollection(type, reference);
+        case KIND_MAP:
+          return readMap(type, reference);
+        case KIND_FIELDS:
+          return readFields(type, reference);
+        case KIND_JAVA_SERIALIZATION:
+          Object object = readJavaSerialized();
+          references.set(reference, object);
+          return object;
+        default:
+          throw new ActivitiException("Couldn't decode object of "+type+": it has no no-arg constructor and is not serializable");
+      }
+    }
+    
+    protected Class<?> readClass(int tag) throws ClassNotFoundException {
+      if (tag == CLASS_NAME) {
+        Class<?> type = loadClass(readString());
+        if (classes == null) {
+          classes = new ArrayList<Class<?>>();
+        }
+        classes.add(type);
+        return type;
+      }
+      int classId = tag - CLASS_ID_OFFSET;
+      if (classId < registeredClasses.size()) {
+        return registeredClasses.get(classId);
+      }
+      return classes.get(classId - registeredClasses.size());
+    }
+    
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    protected Object readValue(Class<?> type) {
+      if (type == String.class) {
+        return readString();
+      } else if (type == Integer.class) {
+        return readZigZagInt();
+      } else if (type == Long.class) {
+        return readZigZagLong();
+      } else if (type == Boolean.class) {
+        return readByte() != 0;
+      } else if (type == Double.class) {
+        return Double.longBitsToDouble(readRawLong());
+      } else if (type == Float.class) {
+        return Float.intBitsToFloat(readRawInt());
+      } else if (type == Short.class) {
+        return (short) readZigZagInt();
+      } else if (type == Byte.class) {
+        return (byte) readByte();
+      } else if (type == Character.class) {
+        return (char) readVarInt();
+      } else if (type == BigInteger.class) {
+        return new BigInteger(readBytes(readVarInt()));
+      } else if (type == BigDecimal.class) {
+        int scale = readZigZagInt();
+        return new BigDecimal(new BigInteger(readBytes(readVarInt())), scale);
+      } else if (type == Date.class) {
+        return new Date(readZigZagLong());
+      } else if (type == UUID.class) {
+        return new UUID(readRawLong(), readRawLong());
+      } else {
+        return Enum.valueOf((Class<Enum>) type, readString());
+      }
+    }
+    
+    protected Object readArray(Class<?> componentType, int reference) throws Exception {
+      int length = readVarInt();
+      if (componentType == byte.class) {
+        byte[] bytes = readBytes(length);
+        references.set(reference, bytes);
+        return bytes;
+      }
+      Object array = Array.newInstance(componentType, length);
+      references.set(reference, array);
+      if (componentType.isPrimitive()) {
+        for (int i = 0; i < length; i++) {
+          Array.set(array, i, readPrimitive(componentType));
+        }
+      } else {
+        Object[] objects = (Object[]) array;
+        for (int i = 0; i < length; i++) {
+          objects[i] = readObject();
+        }
+      }
+      return array;
+    }
+    
+    protected Object readPrimitive(Class<?> type) {
+      if (type == int.class) {
+        return readZigZagInt();
+      } else if (type == long.class) {
+        return readZigZagLong();
+      } else if (type == boolean.class) {
+        return readByte() != 0;
+      } else if (type == double.class) {
+        return Double.longBitsToDouble(readRawLong());
+      } else if (type == float.class) {
+        return Float.intBitsToFloat(readRawInt());
+      } else if (type == short.class) {
+        return (short) readZigZagInt();
+      } else if (type == byte.class) {
+        return (byte) readByte();
+      } else {
+        return (char) readVarInt();
+      }
+    }
+    
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    protected Object readCollection(Class<?> type, int reference) throws Exception {
+      Collection<Object> collection = null;
+      if (type == TreeSet.class) {
+        // the comparator is read before the set exists, so it can't refer to the set
+        collection = new TreeSet<Object>((Comparator) readObject());
+      } else {
+        collection = (Collection<Object>) newInstance(type);
+      }
+      references.set(reference, collection);
+      int size = readVarInt();
+      for (int i = 0; i < size; i++) {
+        collection.add(readObject());
+      }
+      return collection;
+    }
+    
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    protected Object readMap(Class<?> type, int reference) throws Exception {
+      Map<Object, Object> map = null;
+      if (type == TreeMap.class) {
+        map = new TreeMap<Object, Object>((Comparator) readObject());
+      } else {
+        map = (Map<Object, Object>) newInstance(type);
+      }
+      references.set(reference, map);
+      int size = readVarInt();
+      for (int i = 0; i < size; i++) {
+        Object key = readObject();
+        map.put(key, readObject());
+      }
+      return map;
+    }
+    
+    protected Object readFields(Class<?> type, int reference) throws Exception {
+      Object object = newInstance(type);
+      references.set(reference, object);
+      for (Field field : getFields(type)) {
+        Class<?> fieldType = field.getType();
+        if (fieldType.isPrimitive()) {
+          field.set(object, readPrimitive(fieldType));
+        } else {
+          field.set(object, readObject());
+        }
+      }
+      return object;
+    }
+    
+    protected Object readJavaSerialized() throws IOException, ClassNotFoundException {
+      InputStream bytes = new ByteArrayInputStream(readBytes(readVarInt()));
+      ObjectInputStream objectInputStream = new ObjectInputStream(bytes) {
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+          return ReflectUtil.loadClass(desc.getName());
+        }
+      };
+      try {
+        return objectInputStream.readObject();
+      } finally {
+        objectInputStream.close();
+      }
+    }
+  }
+}
@@ -25,17 +25,24 @@ public class DeserializedObject {
   Object deserializedObject;
   byte[] originalBytes;
   VariableInstanceEntity variableInstanceEntity;
+  /** null for java serialization */
+  VariableCodec codec;
   
   public DeserializedObject(Object deserializedObject, byte[] serializedBytes, VariableInstanceEntity variableInstanceEntity) {
+    this(deserializedObject, serializedBytes, variableInstanceEntity, null);
+  }
+  
+  public DeserializedObject(Object deserializedObject, byte[] serializedBytes, VariableInstanceEntity variableInstanceEntity, VariableCodec codec) {
     this.deserializedObject = deserializedObject;
     this.originalBytes = serializedBytes;
     this.variableInstanceEntity = variableInstanceEntity;
+    this.codec = codec;
   }
 
   public void flush() {
     // this first check verifies if the variable value was not overwritten with another object
     if (deserializedObject==variableInstanceEntity.getCachedValue() && !variableInstanceEntity.isDeleted()) {
-      byte[] bytes = SerializableType.serialize(deserializedObject, variableInstanceEntity);
+      byte[] bytes = (codec != null ? codec.encode(deserializedObject) : SerializableType.serialize(deserializedObject, variableInstanceEntity));
       if (!Arrays.equals(originalBytes, bytes)) {
         variableInstanceEntity.setBytes(bytes);
       }
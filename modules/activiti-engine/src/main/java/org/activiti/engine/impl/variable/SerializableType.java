@@ -24,6 +24,15 @@ import java.io.Serializable;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.sf.cglib.proxy.Callback;
 import net.sf.cglib.proxy.Enhancer;
@@ -32,6 +41,8 @@ import net.sf.cglib.proxy.MethodProxy;
 
 import org.activiti.engine.ActivitiException;
 import org.activiti.engine.impl.context.Context;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.interceptor.ReadOnlyCommand;
 import org.activiti.engine.impl.persistence.entity.VariableInstanceEntity;
 import org.activiti.engine.impl.util.IoUtil;
 import org.activiti.engine.impl.util.ReflectUtil;
@@ -47,7 +58,17 @@ public class SerializableType extends ByteArrayType {
   
   private static final long serialVersionUID = 1L;
   
-  private static final boolean useProxying = true;
+  /** 
+   * Objects of these classes can't be changed after they are deserialized, 
+   * so they don't have to be serialized again to see whether they were changed.
+   */
+  protected Set<Class<?>> immutableClasses = Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+  
+  public SerializableType() {
+    immutableClasses.addAll(Arrays.<Class<?>>asList(
+            String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class, 
+            Float.class, Double.class, BigInteger.class, BigDecimal.class, UUID.class, Locale.class));
+  }
   
   public String getTypeName() {
     return TYPE_NAME;
@@ -67,18 +88,7 @@ public class SerializableType extends ByteArrayType {
       Object deserializedObject = origDeserializedObject;
       valueFields.setCachedValue(deserializedObject);
       
-      if (valueFields instanceof VariableInstanceEntity) {
-          
-    	  if(useProxying) {
-	          if(! origDeserializedObject.getClass().isPrimitive() && ! String.class.equals(origDeserializedObject.getClass())) {
-	        	  System.out.println("Creating proxy for: " + origDeserializedObject);
-	        	  //Object proxy = createProxy(deserializedObject);
-	        	  //Object proxy = createProxy(origDeserializedObject.getClass(), new RecurProxyMethodInterceptor(origDeserializedObject));
-	        	  
-	        	  //deserializedObject = proxy;
-	          }
-    	  }
-          
+      if (valueFields instanceof VariableInstanceEntity && isDirtyCheckNeeded(deserializedObject)) {
           // we need to register the deserialized object for dirty checking, 
           // so that it can be serialized again if it was changed. 
           Context.getCommandContext()
@@ -100,7 +110,7 @@ public class SerializableType extends ByteArrayType {
     
     if (valueFields.getBytes() == null) {
       // TODO why the null check? won't this cause issues when setValue is called the second this with a different object?
-      if (valueFields instanceof VariableInstanceEntity) {
+      if (valueFields instanceof VariableInstanceEntity && !isImmutable(value)) {
         // register the deserialized object for dirty checking.
         Context.getCommandContext()
           .getDbSqlSession()
@@ -111,6 +121,30 @@ public class SerializableType extends ByteArrayType {
     super.setValue(byteArray, valueFields);
   }
 
+  /** 
+   * whether the object that was deserialized in the current command has to be serialized again 
+   * at the end of the command to see if it was changed 
+   */
+  protected boolean isDirtyCheckNeeded(Object deserializedObject) {
+    if (isImmutable(deserializedObject)) {
+      return false;
+    }
+    CommandContext commandContext = Context.getCommandContext();
+    return !(commandContext.getCommand() instanceof ReadOnlyCommand);
+  }
+  
+  protected boolean isImmutable(Object value) {
+    return (value instanceof Enum) || immutableClasses.contains(value.getClass());
+  }
+  
+  public void addImmutableClasses(Collection<Class<?>> classes) {
+    immutableClasses.addAll(classes);
+  }
+  
+  public Set<Class<?>> getImmutableClasses() {
+    return immutableClasses;
+  }
+  
   public static byte[] serialize(Object value, ValueFields valueFields) {
     if (value == null) {
       return null;
@@ -0,0 +1,34 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.impl.variable;
+
+
+/**
+ * Turns variable values into bytes and back, for the {@link BinaryCodecType}.
+ * 
+ * Implementations must be thread safe, and must be able to decode everything 
+ * they ever encoded, as the bytes are stored in the database.
+ */
+public interface VariableCodec {
+
+  /** 
+   * the name under which the values are stored, it is used as the name of the variable type, 
+   * so it must not change as long as values encoded by this codec are in the database
+   * (limited to 100 characters length)
+   */
+  String getName();
+  
+  byte[] encode(Object value);
+  
+  Object decode(byte[] bytes);
+}
@@ -0,0 +1,207 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.management;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Snapshot of what the job executor of a process engine has done so far: 
+ * the number of jobs that were acquired, executed, failed and rejected, 
+ * in total and in the last minute, and how many jobs it acquires at once.
+ * 
+ * The latencies are in milliseconds: the acquisition time includes selecting and locking 
+ * the jobs, the execution time and the lag (time between the due date of a timer and 
+ * the start of its execution) are kept per job handler type, 
+ * eg. timer-transition or async-continuation.
+ */
+public class JobExecutorMetrics implements Serializable {
+  
+  private static final long serialVersionUID = 1L;
+
+  protected boolean active;
+  
+  protected long acquiredJobs;
+  protected long acquiredJobsLastMinute;
+  protected long executedJobs;
+  protected long executedJobsLastMinute;
+  protected long failedJobs;
+  protected long failedJobsLastMinute;
+  protected long rejectedJobs;
+  protected long rejectedJobsLastMinute;
+  
+  protected int jobsPerAcquisition;
+  protected int remainingCapacity = -1;
+  
+  protected long acquisitionOptimisticLockingFailures;
+  protected long acquisitionOptimisticLockingFailuresLastMinute;
+  protected long jobOptimisticLockingFailures;
+  protected long jobOptimisticLockingFailuresLastMinute;
+  
+  protected LatencyHistogram acquisitionTimes;
+  protected Map<String, LatencyHistogram> jobExecutionTimes = new HashMap<String, LatencyHistogram>();
+  protected Map<String, LatencyHistogram> jobLags = new HashMap<String, LatencyHistogram>();
+
+  public boolean isActive() {
+    return active;
+  }
+  
+  public void setActive(boolean active) {
+    this.active = active;
+  }
+  
+  public long getAcquiredJobs() {
+    return acquiredJobs;
+  }
+  
+  public void setAcquiredJobs(long acquiredJobs) {
+    this.acquiredJobs = acquiredJobs;
+  }
+  
+  public long getAcquiredJobsLastMinute() {
+    return acquiredJobsLastMinute;
+  }
+  
+  public void setAcquiredJobsLastMinute(long acquiredJobsLastMinute) {
+    this.acquiredJobsLastMinute = acquiredJobsLastMinute;
+  }
+  
+  public long getExecutedJobs() {
+    return executedJobs;
+  }
+  
+  public void setExecutedJobs(long executedJobs) {
+    this.executedJobs = executedJobs;
+  }
+  
+  public long getExecutedJobsLastMinute() {
+    return executedJobsLastMinute;
+  }
+  
+  public void setExecutedJobsLastMinute(long executedJobsLastMinute) {
+    this.executedJobsLastMinute = executedJobsLastMinute;
+  }
+  
+  public long getFailedJobs() {
+    return failedJobs;
+  }
+  
+  public void setFailedJobs(long failedJobs) {
+    this.failedJobs = failedJobs;
+  }
+  
+  public long getFailedJobsLastMinute() {
+    return failedJobsLastMinute;
+  }
+  
+  public void setFailedJobsLastMinute(long failedJobsLastMinute) {
+    this.failedJobsLastMinute = failedJobsLastMinute;
+  }
+  
+  public long getRejectedJobs() {
+    return rejectedJobs;
+  }
+  
+  public void setRejectedJobs(long rejectedJobs) {
+    this.rejectedJobs = rejectedJobs;
+  }
+  
+  public long getRejectedJobsLastMinute() {
+    return rejectedJobsLastMinute;
+  }
+  
+  public void setRejectedJobsLastMinute(long rejectedJobsLastMinute) {
+    this.rejectedJobsLastMinute = rejectedJobsLastMinute;
+  }
+  
+  /** the number of jobs the last acquisition asked for */
+  public int getJobsPerAcquisition() {
+    return jobsPerAcquisition;
+  }
+  
+  public void setJobsPerAcquisition(int jobsPerAcquisition) {
+    this.jobsPerAcquisition = jobsPerAcquisition;
+  }
+  
+  /** the number of job batches the executor can start right away, -1 if the executor doesn't know */
+  public int getRemainingCapacity() {
+    return remainingCapacity;
+  }
+  
+  public void setRemainingCapacity(int remainingCapacity) {
+    this.remainingCapacity = remainingCapacity;
+  }
+  
+  /** acquisitions of which the jobs were locked by another acquisition first */
+  public long getAcquisitionOptimisticLockingFailures() {
+    return acquisitionOptimisticLockingFailures;
+  }
+  
+  public void setAcquisitionOptimisticLockingFailures(long acquisitionOptimisticLockingFailures) {
+    this.acquisitionOptimisticLockingFailures = acquisitionOptimisticLockingFailures;
+  }
+  
+  public long getAcquisitionOptimisticLockingFailuresLastMinute() {
+    return acquisitionOptimisticLockingFailuresLastMinute;
+  }
+  
+  public void setAcquisitionOptimisticLockingFailuresLastMinute(long acquisitionOptimisticLockingFailuresLastMinute) {
+    this.acquisitionOptimisticLockingFailuresLastMinute = acquisitionOptimisticLockingFailuresLastMinute;
+  }
+  
+  /** job executions that failed because the job or its process instance was changed concurrently */
+  public long getJobOptimisticLockingFailures() {
+    return jobOptimisticLockingFailures;
+  }
+  
+  public void setJobOptimisticLockingFailures(long jobOptimisticLockingFailures) {
+    this.jobOptimisticLockingFailures = jobOptimisticLockingFailures;
+  }
+  
+  public long getJobOptimisticLockingFailuresLastMinute() {
+    return jobOptimisticLockingFailuresLastMinute;
+  }
+  
+  public void setJobOptimisticLockingFailuresLastMinute(long jobOptimisticLockingFailuresLastMinute) {
+    this.jobOptimisticLockingFailuresLastMinute = jobOptimisticLockingFailuresLastMinute;
+  }
+  
+  public LatencyHistogram getAcquisitionTimes() {
+    return acquisitionTimes;
+  }
+  
+  public void setAcquisitionTimes(LatencyHistogram acquisitionTimes) {
+    this.acquisitionTimes = acquisitionTimes;
+  }
+  
+  /** the execution times per job handler type */
+  public Map<String, LatencyHistogram> getJobExecutionTimes() {
+    return jobExecutionTimes;
+  }
+  
+  public void setJobExecutionTimes(Map<String, LatencyHistogram> jobExecutionTimes) {
+    this.jobExecutionTimes = jobExecutionTimes;
+  }
+  
+  /** the lags of the jobs with a due date per job handler type */
+  public Map<String, LatencyHistogram> getJobLags() {
+    return jobLags;
+  }
+  
+  public void setJobLags(Map<String, LatencyHistogram> jobLags) {
+    this.jobLags = jobLags;
+  }
+  
+}
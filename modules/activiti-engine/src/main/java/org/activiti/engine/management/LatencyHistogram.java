@@ -0,0 +1,96 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.management;
+
+import java.io.Serializable;
+
+
+/**
+ * Snapshot of recorded durations in milliseconds: their number, mean, maximum 
+ * and percentiles. The percentiles have an error of at most 1/16th of their value.
+ */
+public class LatencyHistogram implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+  
+  protected long count;
+  protected double mean;
+  protected long max;
+  protected long p50;
+  protected long p90;
+  protected long p99;
+  protected long p999;
+  
+  public long getCount() {
+    return count;
+  }
+  
+  public void setCount(long count) {
+    this.count = count;
+  }
+  
+  public double getMean() {
+    return mean;
+  }
+  
+  public void setMean(double mean) {
+    this.mean = mean;
+  }
+  
+  public long getMax() {
+    return max;
+  }
+  
+  public void setMax(long max) {
+    this.max = max;
+  }
+  
+  /** the median */
+  public long getP50() {
+    return p50;
+  }
+  
+  public void setP50(long p50) {
+    this.p50 = p50;
+  }
+  
+  public long getP90() {
+    return p90;
+  }
+  
+  public void setP90(long p90) {
+    this.p90 = p90;
+  }
+  
+  public long getP99() {
+    return p99;
+  }
+  
+  public void setP99(long p99) {
+    this.p99 = p99;
+  }
+  
+  /** the 99.9th percentile */
+  public long getP999() {
+    return p999;
+  }
+  
+  public void setP999(long p999) {
+    this.p999 = p999;
+  }
+  
+  public String toString() {
+    return "LatencyHistogram[count=" + count + ", mean=" + mean + ", p50=" + p50 + ", p90=" + p90 
+            + ", p99=" + p99 + ", p999=" + p999 + ", max=" + max + "]";
+  }
+}
@@ -6,14 +6,23 @@ create table ACT_GE_PROPERTY (
 );
 
 insert into ACT_GE_PROPERTY
-values ('schema.version', '5.14', 1);
+values ('schema.version', '5.15', 1);
 
 insert into ACT_GE_PROPERTY
-values ('schema.history', 'create(5.14)', 1);
+values ('schema.history', 'create(5.15)', 1);
 
 insert into ACT_GE_PROPERTY
 values ('next.dbid', '1', 1);
 
+create table ACT_GE_ID_SEQ (
+    NAME_ varchar(64),
+    NEXT_VALUE_ bigint,
+    primary key (NAME_)
+);
+
+insert into ACT_GE_ID_SEQ
+values ('activiti.id', 1);
+
 create table ACT_GE_BYTEARRAY (
     ID_ varchar(64),
     REV_ integer,
@@ -21,6 +30,7 @@ create table ACT_GE_BYTEARRAY (
     DEPLOYMENT_ID_ varchar(64),
     BYTES_ longvarbinary,
     GENERATED_ bit,
+    REF_COUNT_ integer,
     primary key (ID_)
 );
 
@@ -83,9 +93,17 @@ create table ACT_RU_JOB (
     REPEAT_ varchar(255),
     HANDLER_TYPE_ varchar(255),
     HANDLER_CFG_ varchar(4000),
+    PARTITION_ integer,
+    PRIORITY_ integer,
     primary key (ID_)
 );
 
+create table ACT_RU_JOB_HEARTBEAT (
+    LOCK_OWNER_ varchar(255) not null,
+    HEARTBEAT_TIME_ timestamp,
+    primary key (LOCK_OWNER_)
+);
+
 create table ACT_RE_PROCDEF (
     ID_ varchar(64) NOT NULL,
     REV_ integer,
@@ -170,6 +188,7 @@ create index ACT_IDX_IDENT_LNK_GROUP on ACT_RU_IDENTITYLINK(GROUP_ID_);
 create index ACT_IDX_EVENT_SUBSCR_CONFIG_ on ACT_RU_EVENT_SUBSCR(CONFIGURATION_);
 create index ACT_IDX_VARIABLE_TASK_ID on ACT_RU_VARIABLE(TASK_ID_);
 create index ACT_IDX_ATHRZ_PROCEDEF on ACT_RU_IDENTITYLINK(PROC_DEF_ID_);
+create index ACT_IDX_JOB_PRIORITY on ACT_RU_JOB(PRIORITY_);
 
 alter table ACT_GE_BYTEARRAY
     add constraint ACT_FK_BYTEARR_DEPL
@@ -6,14 +6,23 @@ create table ACT_GE_PROPERTY (
 );
 
 insert into ACT_GE_PROPERTY
-values ('schema.version', '5.14', 1);
+values ('schema.version', '5.15', 1);
 
 insert into ACT_GE_PROPERTY
-values ('schema.history', 'create(5.14)', 1);
+values ('schema.history', 'create(5.15)', 1);
 
 insert into ACT_GE_PROPERTY
 values ('next.dbid', '1', 1);
 
+create table ACT_GE_ID_SEQ (
+    NAME_ nvarchar(64),
+    NEXT_VALUE_ bigint,
+    primary key (NAME_)
+);
+
+insert into ACT_GE_ID_SEQ
+values ('activiti.id', 1);
+
 create table ACT_GE_BYTEARRAY (
     ID_ nvarchar(64),
     REV_ int,
@@ -21,6 +30,7 @@ create table ACT_GE_BYTEARRAY (
     DEPLOYMENT_ID_ nvarchar(64),
     BYTES_  varbinary(max),
     GENERATED_ tinyint,
+    REF_COUNT_ int,
     primary key (ID_)
 );
 
@@ -83,9 +93,17 @@ create table ACT_RU_JOB (
     REPEAT_ nvarchar(255),
     HANDLER_TYPE_ nvarchar(255),
     HANDLER_CFG_ nvarchar(4000),
+    PARTITION_ int,
+    PRIORITY_ int,
     primary key (ID_)
 );
 
+create table ACT_RU_JOB_HEARTBEAT (
+    LOCK_OWNER_ nvarchar(255) not null,
+    HEARTBEAT_TIME_ datetime,
+    primary key (LOCK_OWNER_)
+);
+
 create table ACT_RE_PROCDEF (
     ID_ nvarchar(64) not null,
     REV_ int,
@@ -171,6 +189,7 @@ create index ACT_IDX_EVENT_SUBSCR_CONFIG_ on ACT_RU_EVENT_SUBSCR(CONFIGURATION_)
 create index ACT_IDX_VARIABLE_TASK_ID on ACT_RU_VARIABLE(TASK_ID_);
 create unique index ACT_UNIQ_RU_BUS_KEY on ACT_RU_EXECUTION (PROC_DEF_ID_, BUSINESS_KEY_) where BUSINESS_KEY_ is not null;
 create index ACT_IDX_ATHRZ_PROCEDEF on ACT_RU_IDENTITYLINK(PROC_DEF_ID_);
+create index ACT_IDX_JOB_PRIORITY on ACT_RU_JOB(PRIORITY_);
 create index ACT_IDX_EXECUTION_PROC on ACT_RU_EXECUTION(PROC_DEF_ID_);
 create index ACT_IDX_EXECUTION_PARENT on ACT_RU_EXECUTION(PARENT_ID_);
 create index ACT_IDX_EXECUTION_SUPER on ACT_RU_EXECUTION(SUPER_EXEC_);
@@ -6,14 +6,16 @@ create table ACT_GE_PROPERTY (
 );
 
 insert into ACT_GE_PROPERTY
-values ('schema.version', '5.14', 1);
+values ('schema.version', '5.15', 1);
 
 insert into ACT_GE_PROPERTY
-values ('schema.history', 'create(5.14)', 1);
+values ('schema.history', 'create(5.15)', 1);
 
 insert into ACT_GE_PROPERTY
 values ('next.dbid', '1', 1);
 
+create sequence ACT_GE_ID_SEQ start with 1 increment by 1 cache 100;
+
 create table ACT_GE_BYTEARRAY (
     ID_ NVARCHAR2(64),
     REV_ INTEGER,
@@ -21,6 +23,7 @@ create table ACT_GE_BYTEARRAY (
     DEPLOYMENT_ID_ NVARCHAR2(64),
     BYTES_ BLOB,
     GENERATED_ NUMBER(1,0) CHECK (GENERATED_ IN (1,0)),
+    REF_COUNT_ INTEGER,
     primary key (ID_)
 );
 
@@ -83,9 +86,17 @@ create table ACT_RU_JOB (
     REPEAT_ NVARCHAR2(255),
     HANDLER_TYPE_ NVARCHAR2(255),
     HANDLER_CFG_ NVARCHAR2(2000),
+    PARTITION_ INTEGER,
+    PRIORITY_ INTEGER,
     primary key (ID_)
 );
 
+create table ACT_RU_JOB_HEARTBEAT (
+    LOCK_OWNER_ NVARCHAR2(255) not null,
+    HEARTBEAT_TIME_ TIMESTAMP(6),
+    primary key (LOCK_OWNER_)
+);
+
 create table ACT_RE_PROCDEF (
     ID_ NVARCHAR2(64) NOT NULL,
     REV_ INTEGER,
@@ -211,6 +222,7 @@ alter table ACT_RU_IDENTITYLINK
     references ACT_RU_TASK (ID_);
 
 create index ACT_IDX_ATHRZ_PROCEDEF  on ACT_RU_IDENTITYLINK(PROC_DEF_ID_);
+create index ACT_IDX_JOB_PRIORITY on ACT_RU_JOB(PRIORITY_);
 alter table ACT_RU_IDENTITYLINK
     add constraint ACT_FK_ATHRZ_PROCEDEF
     foreign key (PROC_DEF_ID_) 
@@ -6,14 +6,16 @@ create table ACT_GE_PROPERTY (
 );
 
 insert into ACT_GE_PROPERTY
-values ('schema.version', '5.14', 1);
+values ('schema.version', '5.15', 1);
 
 insert into ACT_GE_PROPERTY
-values ('schema.history', 'create(5.14)', 1);
+values ('schema.history', 'create(5.15)', 1);
 
 insert into ACT_GE_PROPERTY
 values ('next.dbid', '1', 1);
 
+create sequence ACT_GE_ID_SEQ start with 1 increment by 1;
+
 create table ACT_GE_BYTEARRAY (
     ID_ varchar(64),
     REV_ integer,
@@ -21,6 +23,7 @@ create table ACT_GE_BYTEARRAY (
     DEPLOYMENT_ID_ varchar(64),
     BYTES_ bytea,
     GENERATED_ boolean,
+    REF_COUNT_ integer,
     primary key (ID_)
 );
 
@@ -84,9 +87,17 @@ create table ACT_RU_JOB (
     REPEAT_ varchar(255),
     HANDLER_TYPE_ varchar(255),
     HANDLER_CFG_ varchar(4000),
+    PARTITION_ integer,
+    PRIORITY_ integer,
     primary key (ID_)
 );
 
+create table ACT_RU_JOB_HEARTBEAT (
+    LOCK_OWNER_ varchar(255) not null,
+    HEARTBEAT_TIME_ timestamp,
+    primary key (LOCK_OWNER_)
+);
+
 create table ACT_RE_PROCDEF (
     ID_ varchar(64) NOT NULL,
     REV_ integer,
@@ -213,6 +224,7 @@ alter table ACT_RU_IDENTITYLINK
     references ACT_RU_TASK (ID_);
     
 create index ACT_IDX_ATHRZ_PROCEDEF on ACT_RU_IDENTITYLINK(PROC_DEF_ID_);
+create index ACT_IDX_JOB_PRIORITY on ACT_RU_JOB(PRIORITY_);
 alter table ACT_RU_IDENTITYLINK
     add constraint ACT_FK_ATHRZ_PROCEDEF
     foreign key (PROC_DEF_ID_) 
@@ -1,8 +1,10 @@
 drop table if exists ACT_GE_PROPERTY cascade constraints;
+drop table if exists ACT_GE_ID_SEQ cascade constraints;
 drop table if exists ACT_GE_BYTEARRAY cascade constraints;
 drop table if exists ACT_RE_DEPLOYMENT cascade constraints;
 drop table if exists ACT_RE_MODEL cascade constraints;
 drop table if exists ACT_RU_EXECUTION cascade constraints;
+drop table if exists ACT_RU_JOB_HEARTBEAT cascade constraints;
 drop table if exists ACT_RU_JOB cascade constraints;
 drop table if exists ACT_RE_PROCDEF cascade constraints;
 drop table if exists ACT_RU_TASK cascade constraints;
@@ -16,4 +18,5 @@ drop index if exists ACT_IDX_IDENT_LNK_USER;
 drop index if exists ACT_IDX_IDENT_LNK_GROUP;
 drop index if exists ACT_IDX_VARIABLE_TASK_ID;
 drop index if exists ACT_IDX_EVENT_SUBSCR_CONFIG_;
-drop index if exists ACT_IDX_ATHRZ_PROCEDEF;
\ No newline at end of file
+drop index if exists ACT_IDX_ATHRZ_PROCEDEF;
+drop index if exists ACT_IDX_JOB_PRIORITY;
\ No newline at end of file
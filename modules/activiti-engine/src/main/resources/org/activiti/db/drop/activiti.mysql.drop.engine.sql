@@ -59,9 +59,11 @@ alter table ACT_RE_MODEL
     drop FOREIGN KEY ACT_FK_MODEL_DEPLOYMENT;    
     
 drop index ACT_IDX_ATHRZ_PROCEDEF on ACT_RU_IDENTITYLINK;
+drop index ACT_IDX_JOB_PRIORITY on ACT_RU_JOB;
 drop index ACT_IDX_EVENT_SUBSCR_CONFIG_ on ACT_RU_EVENT_SUBSCR;
     
 drop table if exists ACT_GE_PROPERTY;
+drop table if exists ACT_GE_ID_SEQ;
 drop table if exists ACT_RU_VARIABLE;
 drop table if exists ACT_GE_BYTEARRAY;
 drop table if exists ACT_RE_DEPLOYMENT;
@@ -70,5 +72,6 @@ drop table if exists ACT_RU_IDENTITYLINK;
 drop table if exists ACT_RU_TASK;
 drop table if exists ACT_RE_PROCDEF;
 drop table if exists ACT_RU_EXECUTION;
+drop table if exists ACT_RU_JOB_HEARTBEAT;
 drop table if exists ACT_RU_JOB; 
 drop table if exists ACT_RU_EVENT_SUBSCR;
\ No newline at end of file
@@ -80,8 +80,10 @@ alter table ACT_RE_MODEL
 drop index ACT_IDX_EVENT_SUBSCR_CONFIG_;
 drop index ACT_IDX_EVENT_SUBSCR;
 drop index ACT_IDX_ATHRZ_PROCEDEF;
+drop index ACT_IDX_JOB_PRIORITY;
 
 drop table  ACT_GE_PROPERTY;
+drop sequence ACT_GE_ID_SEQ;
 drop table  ACT_GE_BYTEARRAY;
 drop table  ACT_RE_DEPLOYMENT;
 drop table  ACT_RE_MODEL;
@@ -90,5 +92,6 @@ drop table  ACT_RU_IDENTITYLINK;
 drop table  ACT_RU_VARIABLE;
 drop table  ACT_RU_TASK;
 drop table  ACT_RU_EXECUTION;
+drop table  ACT_RU_JOB_HEARTBEAT;
 drop table  ACT_RU_JOB;
 drop table  ACT_RU_EVENT_SUBSCR;
@@ -1,9 +1,11 @@
 drop table if exists ACT_GE_PROPERTY cascade;
+drop sequence if exists ACT_GE_ID_SEQ;
 drop table if exists ACT_GE_BYTEARRAY cascade;
 drop table if exists ACT_RE_DEPLOYMENT cascade;
 drop table if exists ACT_RE_MODEL cascade;
 drop table if exists ACT_RE_PROCDEF cascade;
 drop table if exists ACT_RU_EXECUTION cascade;
+drop table if exists ACT_RU_JOB_HEARTBEAT cascade;
 drop table if exists ACT_RU_JOB cascade;
 drop table if exists ACT_RU_TASK cascade;
 drop table if exists ACT_RU_IDENTITYLINK cascade;
@@ -0,0 +1,20 @@
+execute java org.activiti.engine.impl.db.upgrade.DbUpgradeStep514To515CreateIdSequence
+
+alter table ACT_RU_JOB
+    add PARTITION_ integer;
+
+alter table ACT_RU_JOB
+    add PRIORITY_ integer;
+
+update ACT_RU_JOB set PRIORITY_ = 0;
+
+create index ACT_IDX_JOB_PRIORITY on ACT_RU_JOB(PRIORITY_);
+
+create table ACT_RU_JOB_HEARTBEAT (
+    LOCK_OWNER_ varchar(255) not null,
+    HEARTBEAT_TIME_ timestamp,
+    primary key (LOCK_OWNER_)
+);
+
+alter table ACT_GE_BYTEARRAY
+    add REF_COUNT_ integer;
@@ -0,0 +1,27 @@
+create table ACT_GE_ID_SEQ (
+    NAME_ nvarchar(64),
+    NEXT_VALUE_ bigint,
+    primary key (NAME_)
+);
+
+insert into ACT_GE_ID_SEQ
+select 'activiti.id', cast(VALUE_ as bigint) from ACT_GE_PROPERTY where NAME_ = 'next.dbid';
+
+alter table ACT_RU_JOB
+    add PARTITION_ int;
+
+alter table ACT_RU_JOB
+    add PRIORITY_ int;
+
+update ACT_RU_JOB set PRIORITY_ = 0;
+
+create index ACT_IDX_JOB_PRIORITY on ACT_RU_JOB(PRIORITY_);
+
+create table ACT_RU_JOB_HEARTBEAT (
+    LOCK_OWNER_ nvarchar(255) not null,
+    HEARTBEAT_TIME_ datetime,
+    primary key (LOCK_OWNER_)
+);
+
+alter table ACT_GE_BYTEARRAY
+    add REF_COUNT_ int;
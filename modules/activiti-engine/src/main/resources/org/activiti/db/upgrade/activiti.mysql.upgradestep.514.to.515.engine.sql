@@ -0,0 +1,27 @@
+create table ACT_GE_ID_SEQ (
+    NAME_ varchar(64),
+    NEXT_VALUE_ bigint,
+    primary key (NAME_)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE utf8_bin;
+
+insert into ACT_GE_ID_SEQ
+select 'activiti.id', cast(VALUE_ as unsigned) from ACT_GE_PROPERTY where NAME_ = 'next.dbid';
+
+alter table ACT_RU_JOB
+    add PARTITION_ integer;
+
+alter table ACT_RU_JOB
+    add PRIORITY_ integer;
+
+update ACT_RU_JOB set PRIORITY_ = 0;
+
+create index ACT_IDX_JOB_PRIORITY on ACT_RU_JOB(PRIORITY_);
+
+create table ACT_RU_JOB_HEARTBEAT (
+    LOCK_OWNER_ varchar(255) not null,
+    HEARTBEAT_TIME_ timestamp NULL,
+    primary key (LOCK_OWNER_)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8 COLLATE utf8_bin;
+
+alter table ACT_GE_BYTEARRAY
+    add REF_COUNT_ integer;
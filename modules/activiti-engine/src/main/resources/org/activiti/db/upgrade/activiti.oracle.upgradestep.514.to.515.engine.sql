@@ -0,0 +1,20 @@
+execute java org.activiti.engine.impl.db.upgrade.DbUpgradeStep514To515CreateIdSequence
+
+alter table ACT_RU_JOB
+    add PARTITION_ INTEGER;
+
+alter table ACT_RU_JOB
+    add PRIORITY_ INTEGER;
+
+update ACT_RU_JOB set PRIORITY_ = 0;
+
+create index ACT_IDX_JOB_PRIORITY on ACT_RU_JOB(PRIORITY_);
+
+create table ACT_RU_JOB_HEARTBEAT (
+    LOCK_OWNER_ NVARCHAR2(255) not null,
+    HEARTBEAT_TIME_ TIMESTAMP(6),
+    primary key (LOCK_OWNER_)
+);
+
+alter table ACT_GE_BYTEARRAY
+    add REF_COUNT_ INTEGER;
@@ -0,0 +1,22 @@
+create sequence ACT_GE_ID_SEQ start with 1 increment by 1;
+
+select setval('ACT_GE_ID_SEQ', cast(VALUE_ as bigint)) from ACT_GE_PROPERTY where NAME_ = 'next.dbid';
+
+alter table ACT_RU_JOB
+    add PARTITION_ integer;
+
+alter table ACT_RU_JOB
+    add PRIORITY_ integer;
+
+update ACT_RU_JOB set PRIORITY_ = 0;
+
+create index ACT_IDX_JOB_PRIORITY on ACT_RU_JOB(PRIORITY_);
+
+create table ACT_RU_JOB_HEARTBEAT (
+    LOCK_OWNER_ varchar(255) not null,
+    HEARTBEAT_TIME_ timestamp,
+    primary key (LOCK_OWNER_)
+);
+
+alter table ACT_GE_BYTEARRAY
+    add REF_COUNT_ integer;
@@ -0,0 +1,118 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.test.api.runtime;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.persistence.entity.ExecutionEntity;
+import org.activiti.engine.impl.test.PluggableActivitiTestCase;
+import org.activiti.engine.impl.variable.SerializableType;
+import org.activiti.engine.runtime.ProcessInstance;
+import org.activiti.engine.test.Deployment;
+
+public class SerializableVariableDirtyCheckTest extends PluggableActivitiTestCase {
+  
+  public static class CountingSerializable implements Serializable {
+    
+    private static final long serialVersionUID = 1L;
+    
+    static final AtomicInteger serializations = new AtomicInteger();
+    
+    public String value;
+    
+    public CountingSerializable(String value) {
+      this.value = value;
+    }
+    
+    private void writeObject(ObjectOutputStream out) throws IOException {
+      serializations.incrementAndGet();
+      out.defaultWriteObject();
+    }
+  }
+  
+  protected String processInstanceId;
+
+  protected void setUp() throws Exception {
+    super.setUp();
+    CountingSerializable.serializations.set(0);
+  }
+  
+  @Deployment(resources={"org/activiti/engine/test/api/oneTaskProcess.bpmn20.xml"})
+  public void testReadOnlyCommandsDoNotSerializeAgain() {
+    startProcessWithVariable();
+    
+    CountingSerializable variable = (CountingSerializable) runtimeService.getVariable(processInstanceId, "variable");
+    assertEquals("initial", variable.value);
+    runtimeService.getVariables(processInstanceId);
+    taskService.getVariables(taskService.createTaskQuery().singleResult().getId());
+    taskService.createTaskQuery().includeProcessVariables().list();
+    runtimeService.createProcessInstanceQuery().includeProcessVariables().list();
+    
+    assertEquals(0, CountingSerializable.serializations.get());
+  }
+  
+  @Deployment(resources={"org/activiti/engine/test/api/oneTaskProcess.bpmn20.xml"})
+  public void testChangesInOtherCommandsAreStored() {
+    startProcessWithVariable();
+    
+    processEngineConfiguration.getCommandExecutor().execute(new Command<Void>() {
+      public Void execute(CommandContext commandContext) {
+        ExecutionEntity execution = commandContext.getExecutionEntityManager().findExecutionById(processInstanceId);
+        // the read-only command reuses the context, so its result is dirty checked as well
+        CountingSerializable variable = (CountingSerializable) runtimeService.getVariable(processInstanceId, "variable");
+        variable.value = "changed";
+        assertSame(variable, execution.getVariable("variable"));
+        return null;
+      }
+    });
+    
+    assertEquals(1, CountingSerializable.serializations.get());
+    assertEquals("changed", ((CountingSerializable) runtimeService.getVariable(processInstanceId, "variable")).value);
+  }
+  
+  @Deployment(resources={"org/activiti/engine/test/api/oneTaskProcess.bpmn20.xml"})
+  public void testImmutableClassesAreNotSerializedAgain() {
+    SerializableType serializableType = (SerializableType) processEngineConfiguration.getVariableTypes().getVariableType(SerializableType.TYPE_NAME);
+    serializableType.addImmutableClasses(Collections.<Class<?>>singletonList(CountingSerializable.class));
+    try {
+      startProcessWithVariable();
+      
+      processEngineConfiguration.getCommandExecutor().execute(new Command<Void>() {
+        public Void execute(CommandContext commandContext) {
+          ExecutionEntity execution = commandContext.getExecutionEntityManager().findExecutionById(processInstanceId);
+          assertEquals("initial", ((CountingSerializable) execution.getVariable("variable")).value);
+          return null;
+        }
+      });
+      
+      assertEquals(0, CountingSerializable.serializations.get());
+      
+    } finally {
+      serializableType.getImmutableClasses().remove(CountingSerializable.class);
+    }
+  }
+  
+  protected void startProcessWithVariable() {
+    ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("oneTaskProcess", 
+            Collections.<String, Object>singletonMap("variable", new CountingSerializable("initial")));
+    processInstanceId = processInstance.getId();
+    CountingSerializable.serializations.set(0);
+  }
+
+}
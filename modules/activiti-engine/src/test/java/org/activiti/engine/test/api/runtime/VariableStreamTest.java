@@ -0,0 +1,199 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.activiti.engine.test.api.runtime;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.activiti.engine.ActivitiIllegalArgumentException;
+import org.activiti.engine.history.HistoricVariableInstance;
+import org.activiti.engine.impl.db.DbInputStream;
+import org.activiti.engine.impl.history.HistoryLevel;
+import org.activiti.engine.impl.test.PluggableActivitiTestCase;
+import org.activiti.engine.impl.util.IoUtil;
+import org.activiti.engine.runtime.ProcessInstance;
+import org.activiti.engine.task.Attachment;
+import org.activiti.engine.task.Task;
+import org.activiti.engine.test.Deployment;
+
+/**
+ * Tests for reading byte[] variables and attachment contents as a stream.
+ */
+public class VariableStreamTest extends PluggableActivitiTestCase {
+
+  protected byte[] createBytes(int length) {
+    byte[] bytes = new byte[length];
+    new Random(length).nextBytes(bytes);
+    return bytes;
+  }
+  
+  protected byte[] readAndClose(InputStream inputStream) {
+    assertNotNull(inputStream);
+    try {
+      return IoUtil.readInputStream(inputStream, "variable stream");
+    } finally {
+      IoUtil.closeSilently(inputStream);
+    }
+  }
+  
+  @Deployment(resources={"org/activiti/engine/test/api/oneTaskProcess.bpmn20.xml"})
+  public void testExecutionVariableAsStream() {
+    byte[] bytes = createBytes(200000);
+    Map<String, Object> variables = new HashMap<String, Object>();
+    variables.put("data", bytes);
+    variables.put("name", "not a byte array");
+    variables.put("empty", null);
+    ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("oneTaskProcess", variables);
+    
+    assertTrue(Arrays.equals(bytes, readAndClose(runtimeService.getVariableAsStream(processInstance.getId(), "data"))));
+    assertTrue(Arrays.equals(bytes, readAndClose(runtimeService.getVariableLocalAsStream(processInstance.getId(), "data"))));
+    
+    assertNull(runtimeService.getVariableAsStream(processInstance.getId(), "unexisting"));
+    assertNull(runtimeService.getVariableAsStream(processInstance.getId(), "empty"));
+    
+    try {
+      runtimeService.getVariableAsStream(processInstance.getId(), "name");
+      fail("exception expected");
+    } catch (ActivitiIllegalArgumentException e) {
+      assertTextPresent("only byte[] variables can be streamed", e.getMessage());
+    }
+  }
+  
+  @Deployment(resources={"org/activiti/engine/test/api/oneTaskProcess.bpmn20.xml"})
+  public void testStreamIsOnlyOpenedWhenRead() throws Exception {
+    byte[] bytes = createBytes(1000);
+    Map<String, Object> variables = new HashMap<String, Object>();
+    variables.put("data", bytes);
+    ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("oneTaskProcess", variables);
+    
+    // the command only resolves the byte array, the stream queries it when it is read
+    InputStream unreadStream = runtimeService.getVariableAsStream(processInstance.getId(), "data");
+    assertTrue(unreadStream instanceof DbInputStream);
+    unreadStream.close();
+    
+    InputStream stream = runtimeService.getVariableAsStream(processInstance.getId(), "data");
+    assertEquals(bytes[0] & 0xff, stream.read());
+    stream.close();
+    try {
+      stream.read();
+      fail("exception expected");
+    } catch (IOException e) {
+      // expected
+    }
+  }
+  
+  @Deployment(resources={"org/activiti/engine/test/api/oneTaskProcess.bpmn20.xml"})
+  public void testStreamOfDeletedVariable() throws Exception {
+    Map<String, Object> variables = new HashMap<String, Object>();
+    variables.put("data", createBytes(1000));
+    ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("oneTaskProcess", variables);
+    
+    InputStream stream = runtimeService.getVariableAsStream(processInstance.getId(), "data");
+    runtimeService.deleteProcessInstance(processInstance.getId(), null);
+    if (processEngineConfiguration.getHistoryLevel().isAtLeast(HistoryLevel.ACTIVITY)) {
+      historyService.deleteHistoricProcessInstance(processInstance.getId());
+    }
+    
+    try {
+      stream.read();
+      fail("exception expected");
+    } catch (IOException e) {
+      assertTextPresent("doesn't exist anymore", e.getMessage());
+    } finally {
+      stream.close();
+    }
+  }
+  
+  @Deployment(resources={"org/activiti/engine/test/api/oneTaskProcess.bpmn20.xml"})
+  public void testTaskVariableAsStream() {
+    byte[] processBytes = createBytes(1000);
+    byte[] taskBytes = createBytes(5000);
+    Map<String, Object> variables = new HashMap<String, Object>();
+    variables.put("processData", processBytes);
+    runtimeService.startProcessInstanceByKey("oneTaskProcess", variables);
+    
+    Task task = taskService.createTaskQuery().singleResult();
+    taskService.setVariableLocal(task.getId(), "taskData", taskBytes);
+    
+    assertTrue(Arrays.equals(taskBytes, readAndClose(taskService.getVariableLocalAsStream(task.getId(), "taskData"))));
+    assertTrue(Arrays.equals(taskBytes, readAndClose(taskService.getVariableAsStream(task.getId(), "taskData"))));
+    
+    // process variables are only found when searching the parent scopes
+    assertTrue(Arrays.equals(processBytes, readAndClose(taskService.getVariableAsStream(task.getId(), "processData"))));
+    assertNull(taskService.getVariableLocalAsStream(task.getId(), "processData"));
+  }
+  
+  @Deployment(resources={"org/activiti/engine/test/api/oneTaskProcess.bpmn20.xml"})
+  public void testHistoricVariableAsStream() throws Exception {
+    if (processEngineConfiguration.getHistoryLevel().isAtLeast(HistoryLevel.ACTIVITY)) {
+      byte[] bytes = createBytes(100000);
+      Map<String, Object> variables = new HashMap<String, Object>();
+      ArrayList<String> list = new ArrayList<String>();
+      list.add("serialized");
+      variables.put("data", bytes);
+      variables.put("list", list);
+      ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("oneTaskProcess", variables);
+      
+      Task task = taskService.createTaskQuery().singleResult();
+      taskService.complete(task.getId());
+      assertProcessEnded(processInstance.getId());
+      
+      HistoricVariableInstance historicVariable = historyService.createHistoricVariableInstanceQuery()
+        .processInstanceId(processInstance.getId())
+        .variableName("data")
+        .excludeVariableInitialization()
+        .singleResult();
+      
+      assertTrue(Arrays.equals(bytes, readAndClose(historyService.getHistoricVariableAsStream(historicVariable.getId()))));
+      
+      // serializable variables are streamed in their serialized form
+      HistoricVariableInstance historicList = historyService.createHistoricVariableInstanceQuery()
+        .processInstanceId(processInstance.getId())
+        .variableName("list")
+        .excludeVariableInitialization()
+        .singleResult();
+      
+      ObjectInputStream objectStream = new ObjectInputStream(historyService.getHistoricVariableAsStream(historicList.getId()));
+      try {
+        assertEquals(list, objectStream.readObject());
+      } finally {
+        objectStream.close();
+      }
+    }
+  }
+  
+  public void testAttachmentContentAsStream() {
+    if (processEngineConfiguration.getHistoryLevel().isAtLeast(HistoryLevel.ACTIVITY)) {
+      Task task = taskService.newTask();
+      taskService.saveTask(task);
+      
+      byte[] content = createBytes(300000);
+      Attachment attachment = taskService.createAttachment("binary", task.getId(), null, "data", null, new ByteArrayInputStream(content));
+      Attachment urlAttachment = taskService.createAttachment("web page", task.getId(), null, "link", null, "http://activiti.org");
+      
+      assertTrue(Arrays.equals(content, readAndClose(taskService.getAttachmentContentAsStream(attachment.getId()))));
+      assertNull(taskService.getAttachmentContentAsStream(urlAttachment.getId()));
+      
+      taskService.deleteTask(task.getId(), true);
+    }
+  }
+
+}
@@ -0,0 +1,152 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.activiti.engine.test.db;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.activiti.engine.impl.db.DbSqlSession;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.persistence.entity.ByteArrayEntity;
+import org.activiti.engine.impl.test.PluggableActivitiTestCase;
+
+
+/**
+ * Tests the flush of the {@link DbSqlSession}.
+ * 
+ * Some tests flush a large number of entities. The reconciliation of inserts, 
+ * updates and deletes used to be quadratic in the number of entities, 
+ * which made these tests take minutes.
+ */
+public class DbSqlSessionFlushTest extends PluggableActivitiTestCase {
+  
+  protected static final int NR_OF_ENTITIES = 10000;
+  
+  public void testInsertAndDeleteInSameFlush() {
+    long start = System.currentTimeMillis();
+    managementService.executeCommand(new Command<Void>() {
+      public Void execute(CommandContext commandContext) {
+        DbSqlSession dbSqlSession = commandContext.getDbSqlSession();
+        List<ByteArrayEntity> byteArrays = new ArrayList<ByteArrayEntity>();
+        for (int i=0; i<NR_OF_ENTITIES; i++) {
+          byteArrays.add(ByteArrayEntity.createAndInsert("bytes" + i, new byte[] {(byte) i}));
+        }
+        for (ByteArrayEntity byteArray : byteArrays) {
+          dbSqlSession.delete(byteArray);
+          // a second delete of the same entity is ignored
+          dbSqlSession.delete(byteArray);
+        }
+        assertTrue(dbSqlSession.pruneDeletedEntities(byteArrays).isEmpty());
+        return null;
+      }
+    });
+    log.info("insert and delete of {} entities took {} ms", NR_OF_ENTITIES, System.currentTimeMillis() - start);
+    
+    // the inserts and deletes cancel each other, so nothing ends up in the database
+    // (which is verified when the test case checks the database is clean)
+  }
+  
+  public void testDeleteLoadedEntities() {
+    final List<String> byteArrayIds = managementService.executeCommand(new Command<List<String>>() {
+      public List<String> execute(CommandContext commandContext) {
+        List<String> byteArrayIds = new ArrayList<String>();
+        for (int i=0; i<NR_OF_ENTITIES; i++) {
+          byteArrayIds.add(ByteArrayEntity.createAndInsert("bytes" + i, new byte[] {(byte) i}).getId());
+        }
+        return byteArrayIds;
+      }
+    });
+    
+    long start = System.currentTimeMillis();
+    managementService.executeCommand(new Command<Void>() {
+      public Void execute(CommandContext commandContext) {
+        DbSqlSession dbSqlSession = commandContext.getDbSqlSession();
+        List<ByteArrayEntity> byteArrays = new ArrayList<ByteArrayEntity>();
+        for (String byteArrayId : byteArrayIds) {
+          byteArrays.add(dbSqlSession.selectById(ByteArrayEntity.class, byteArrayId));
+        }
+        
+        // delete every other entity and update the rest
+        List<ByteArrayEntity> remainingByteArrays = new ArrayList<ByteArrayEntity>();
+        for (int i=0; i<byteArrays.size(); i++) {
+          if (i % 2 == 0) {
+            dbSqlSession.delete(byteArrays.get(i));
+          } else {
+            byteArrays.get(i).setBytes(new byte[] {(byte) -i});
+            remainingByteArrays.add(byteArrays.get(i));
+          }
+        }
+        assertEquals(remainingByteArrays, dbSqlSession.pruneDeletedEntities(byteArrays));
+        assertEquals(remainingByteArrays.size(), dbSqlSession.getUpdatedObjects().size());
+        return null;
+      }
+    });
+    log.info("delete and update of {} loaded entities took {} ms", NR_OF_ENTITIES, System.currentTimeMillis() - start);
+    
+    managementService.executeCommand(new Command<Void>() {
+      public Void execute(CommandContext commandContext) {
+        DbSqlSession dbSqlSession = commandContext.getDbSqlSession();
+        for (int i=0; i<byteArrayIds.size(); i++) {
+          ByteArrayEntity byteArray = dbSqlSession.selectById(ByteArrayEntity.class, byteArrayIds.get(i));
+          if (i % 2 == 0) {
+            assertNull(byteArray);
+          } else {
+            assertEquals((byte) -i, byteArray.getBytes()[0]);
+            dbSqlSession.delete(byteArray);
+          }
+        }
+        return null;
+      }
+    });
+  }
+  
+  public void testDirtyFlag() {
+    final String byteArrayId = managementService.executeCommand(new Command<String>() {
+      public String execute(CommandContext commandContext) {
+        return ByteArrayEntity.createAndInsert("bytes", new byte[] {1, 2, 3}).getId();
+      }
+    });
+    
+    managementService.executeCommand(new Command<Void>() {
+      public Void execute(CommandContext commandContext) {
+        DbSqlSession dbSqlSession = commandContext.getDbSqlSession();
+        ByteArrayEntity byteArray = dbSqlSession.selectById(ByteArrayEntity.class, byteArrayId);
+        assertFalse(byteArray.isDirty());
+        assertTrue(dbSqlSession.getUpdatedObjects().isEmpty());
+        
+        // setting the same bytes is not a modification
+        byteArray.setBytes(new byte[] {1, 2, 3});
+        assertFalse(byteArray.isDirty());
+        assertTrue(dbSqlSession.getUpdatedObjects().isEmpty());
+        
+        byteArray.setBytes(new byte[] {4, 5, 6});
+        assertTrue(byteArray.isDirty());
+        assertEquals(1, dbSqlSession.getUpdatedObjects().size());
+        return null;
+      }
+    });
+    
+    managementService.executeCommand(new Command<Void>() {
+      public Void execute(CommandContext commandContext) {
+        DbSqlSession dbSqlSession = commandContext.getDbSqlSession();
+        ByteArrayEntity byteArray = dbSqlSession.selectById(ByteArrayEntity.class, byteArrayId);
+        assertEquals(4, byteArray.getBytes()[0]);
+        dbSqlSession.delete(byteArray);
+        return null;
+      }
+    });
+  }
+
+}
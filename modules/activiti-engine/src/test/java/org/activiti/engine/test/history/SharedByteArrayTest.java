@@ -0,0 +1,294 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.test.history;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.activiti.engine.ActivitiOptimisticLockingException;
+import org.activiti.engine.history.HistoricDetail;
+import org.activiti.engine.history.HistoricVariableUpdate;
+import org.activiti.engine.impl.history.HistoryLevel;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.persistence.entity.ByteArrayEntity;
+import org.activiti.engine.impl.persistence.entity.HistoricDetailVariableInstanceUpdateEntity;
+import org.activiti.engine.impl.persistence.entity.HistoricVariableInstanceEntity;
+import org.activiti.engine.impl.persistence.entity.VariableInstanceEntity;
+import org.activiti.engine.impl.test.PluggableActivitiTestCase;
+import org.activiti.engine.runtime.ProcessInstance;
+import org.activiti.engine.task.Task;
+import org.activiti.engine.test.Deployment;
+
+/**
+ * The history of a variable shares the byte array of the variable, instead of copying it.
+ */
+public class SharedByteArrayTest extends PluggableActivitiTestCase {
+  
+  @Deployment(resources = {"org/activiti/engine/test/history/oneTaskProcess.bpmn20.xml"})
+  public void testHistorySharesTheByteArrayOfTheVariable() {
+    if (!processEngineConfiguration.getHistoryLevel().isAtLeast(HistoryLevel.FULL)) {
+      return;
+    }
+    long byteArrayCount = getByteArrayCount();
+    ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("oneTaskProcess");
+    runtimeService.setVariable(processInstance.getId(), "var", new SerializableVariable("first"));
+    
+    String byteArrayId = getVariableByteArrayId(processInstance.getId(), "var");
+    assertNotNull(byteArrayId);
+    assertEquals(byteArrayId, getHistoricVariableByteArrayId(processInstance.getId()));
+    assertEquals(byteArrayId, getHistoricDetailByteArrayIds(processInstance.getId()).get(0));
+    assertEquals(byteArrayCount + 1, getByteArrayCount());
+    
+    // an unchanged value keeps sharing
+    runtimeService.setVariable(processInstance.getId(), "var", new SerializableVariable("first"));
+    assertEquals(byteArrayId, getVariableByteArrayId(processInstance.getId(), "var"));
+    assertEquals(byteArrayCount + 1, getByteArrayCount());
+    
+    Task task = taskService.createTaskQuery().processInstanceId(processInstance.getId()).singleResult();
+    taskService.complete(task.getId());
+    assertProcessEnded(processInstance.getId());
+    
+    // the history keeps the byte array when the variable is deleted
+    assertEquals(new SerializableVariable("first"), historyService.createHistoricVariableInstanceQuery()
+            .processInstanceId(processInstance.getId()).singleResult().getValue());
+    assertEquals(byteArrayCount + 1, getByteArrayCount());
+    
+    historyService.deleteHistoricProcessInstance(processInstance.getId());
+    assertEquals(byteArrayCount, getByteArrayCount());
+  }
+  
+  @Deployment(resources = {"org/activiti/engine/test/history/oneTaskProcess.bpmn20.xml"})
+  public void testChangedVariableGetsItsOwnByteArray() {
+    if (!processEngineConfiguration.getHistoryLevel().isAtLeast(HistoryLevel.FULL)) {
+      return;
+    }
+    long byteArrayCount = getByteArrayCount();
+    ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("oneTaskProcess");
+    runtimeService.setVariable(processInstance.getId(), "var", new SerializableVariable("first"));
+    String firstByteArrayId = getVariableByteArrayId(processInstance.getId(), "var");
+    
+    runtimeService.setVariable(processInstance.getId(), "var", new SerializableVariable("second"));
+    String secondByteArrayId = getVariableByteArrayId(processInstance.getId(), "var");
+    
+    assertFalse(firstByteArrayId.equals(secondByteArrayId));
+    assertEquals(secondByteArrayId, getHistoricVariableByteArrayId(processInstance.getId()));
+    List<String> detailByteArrayIds = getHistoricDetailByteArrayIds(processInstance.getId());
+    assertTrue(detailByteArrayIds.contains(firstByteArrayId));
+    assertTrue(detailByteArrayIds.contains(secondByteArrayId));
+    // the first value is only kept for the first historic detail
+    assertEquals(byteArrayCount + 2, getByteArrayCount());
+    
+    assertEquals(new SerializableVariable("second"), runtimeService.getVariable(processInstance.getId(), "var"));
+    assertEquals(new SerializableVariable("second"), historyService.createHistoricVariableInstanceQuery()
+            .processInstanceId(processInstance.getId()).singleResult().getValue());
+    List<Object> detailValues = new ArrayList<Object>();
+    for (HistoricDetail historicDetail : historyService.createHistoricDetailQuery().processInstanceId(processInstance.getId()).variableUpdates().list()) {
+      detailValues.add(((HistoricVariableUpdate) historicDetail).getValue());
+    }
+    assertTrue(detailValues.contains(new SerializableVariable("first")));
+    assertTrue(detailValues.contains(new SerializableVariable("second")));
+    
+    runtimeService.deleteProcessInstance(processInstance.getId(), "test");
+    historyService.deleteHistoricProcessInstance(processInstance.getId());
+    assertEquals(byteArrayCount, getByteArrayCount());
+  }
+  
+  /**
+   * Two transactions that release the same shared byte array at the same time:
+   * the second one to commit has read a revision that doesn't exist anymore.
+   */
+  public void testConcurrentReleaseOfSharedByteArray() throws Exception {
+    final String byteArrayId = insertByteArray(2);
+    
+    Command<Void> releaseCommand = new Command<Void>() {
+      public Void execute(CommandContext commandContext) {
+        commandContext.getByteArrayEntityManager().releaseReferenceById(byteArrayId);
+        return null;
+      }
+    };
+    Throwable exception = executeInterleaved(releaseCommand, releaseCommand);
+    assertTrue(String.valueOf(exception), exception instanceof ActivitiOptimisticLockingException);
+    
+    // only one reference was released, so the bytes are still there
+    assertEquals(1, findByteArray(byteArrayId).getReferenceCount());
+    deleteByteArray(byteArrayId);
+  }
+  
+  /**
+   * A reference that is added while the last one is released: either the delete 
+   * or the new reference count has to fail, otherwise the new reference is to a deleted row.
+   */
+  public void testConcurrentAddAndReleaseOfByteArray() throws Exception {
+    final String byteArrayId = insertByteArray(1);
+    
+    Command<Void> addCommand = new Command<Void>() {
+      public Void execute(CommandContext commandContext) {
+        ByteArrayEntity byteArray = commandContext.getByteArrayEntityManager().findById(byteArrayId);
+        commandContext.getByteArrayEntityManager().addReference(byteArray);
+        return null;
+      }
+    };
+    Command<Void> releaseCommand = new Command<Void>() {
+      public Void execute(CommandContext commandContext) {
+        commandContext.getByteArrayEntityManager().releaseReferenceById(byteArrayId);
+        return null;
+      }
+    };
+    Throwable exception = executeInterleaved(releaseCommand, addCommand);
+    assertTrue(String.valueOf(exception), exception instanceof ActivitiOptimisticLockingException);
+    assertNull(findByteArray(byteArrayId));
+    
+    final String otherByteArrayId = insertByteArray(1);
+    Command<Void> addOtherCommand = new Command<Void>() {
+      public Void execute(CommandContext commandContext) {
+        ByteArrayEntity byteArray = commandContext.getByteArrayEntityManager().findById(otherByteArrayId);
+        commandContext.getByteArrayEntityManager().addReference(byteArray);
+        return null;
+      }
+    };
+    Command<Void> releaseOtherCommand = new Command<Void>() {
+      public Void execute(CommandContext commandContext) {
+        commandContext.getByteArrayEntityManager().releaseReferenceById(otherByteArrayId);
+        return null;
+      }
+    };
+    exception = executeInterleaved(addOtherCommand, releaseOtherCommand);
+    assertTrue(String.valueOf(exception), exception instanceof ActivitiOptimisticLockingException);
+    assertEquals(2, findByteArray(otherByteArrayId).getReferenceCount());
+    deleteByteArray(otherByteArrayId);
+  }
+  
+  /**
+   * Executes the two commands in two threads, so that both of them have done their reads 
+   * before the first one commits. Returns the exception of the second one, or null.
+   */
+  protected Throwable executeInterleaved(Command<Void> firstCommand, Command<Void> secondCommand) throws Exception {
+    CountDownLatch firstExecuted = new CountDownLatch(1);
+    CountDownLatch firstCommit = new CountDownLatch(1);
+    CountDownLatch secondExecuted = new CountDownLatch(1);
+    CountDownLatch secondCommit = new CountDownLatch(1);
+    CommandThread firstThread = new CommandThread(firstCommand, firstExecuted, firstCommit);
+    CommandThread secondThread = new CommandThread(secondCommand, secondExecuted, secondCommit);
+    
+    firstThread.start();
+    assertTrue(firstExecuted.await(10, TimeUnit.SECONDS));
+    secondThread.start();
+    assertTrue(secondExecuted.await(10, TimeUnit.SECONDS));
+    
+    firstCommit.countDown();
+    firstThread.join(10000);
+    assertNull(firstThread.exception);
+    
+    secondCommit.countDown();
+    secondThread.join(10000);
+    return secondThread.exception;
+  }
+  
+  protected class CommandThread extends Thread {
+    
+    protected Command<Void> command;
+    protected CountDownLatch executed;
+    protected CountDownLatch commit;
+    protected Throwable exception;
+    
+    public CommandThread(Command<Void> command, CountDownLatch executed, CountDownLatch commit) {
+      this.command = command;
+      this.executed = executed;
+      this.commit = commit;
+    }
+    
+    public void run() {
+      try {
+        processEngineConfiguration.getCommandExecutor().execute(new Command<Void>() {
+          public Void execute(CommandContext commandContext) {
+            command.execute(commandContext);
+            executed.countDown();
+            try {
+              // the flush and commit happen when the command context is closed
+              commit.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+            return null;
+          }
+        });
+      } catch (Throwable e) {
+        exception = e;
+      }
+    }
+  }
+  
+  protected String insertByteArray(final int referenceCount) {
+    return processEngineConfiguration.getCommandExecutor().execute(new Command<String>() {
+      public String execute(CommandContext commandContext) {
+        ByteArrayEntity byteArray = ByteArrayEntity.createAndInsert("shared", new byte[] {1, 2, 3});
+        byteArray.setReferenceCount(referenceCount);
+        return byteArray.getId();
+      }
+    });
+  }
+  
+  protected ByteArrayEntity findByteArray(final String byteArrayId) {
+    return processEngineConfiguration.getCommandExecutor().execute(new Command<ByteArrayEntity>() {
+      public ByteArrayEntity execute(CommandContext commandContext) {
+        return commandContext.getByteArrayEntityManager().findById(byteArrayId);
+      }
+    });
+  }
+  
+  protected void deleteByteArray(final String byteArrayId) {
+    processEngineConfiguration.getCommandExecutor().execute(new Command<Void>() {
+      public Void execute(CommandContext commandContext) {
+        commandContext.getByteArrayEntityManager().deleteByteArrayById(byteArrayId);
+        return null;
+      }
+    });
+  }
+  
+  protected long getByteArrayCount() {
+    return managementService.getTableCount().get(managementService.getTableName(ByteArrayEntity.class));
+  }
+  
+  protected String getVariableByteArrayId(final String executionId, final String variableName) {
+    return processEngineConfiguration.getCommandExecutor().execute(new Command<String>() {
+      public String execute(CommandContext commandContext) {
+        for (VariableInstanceEntity variableInstance : commandContext.getVariableInstanceEntityManager().findVariableInstancesByExecutionId(executionId)) {
+          if (variableName.equals(variableInstance.getName())) {
+            return variableInstance.getByteArrayValueId();
+          }
+        }
+        return null;
+      }
+    });
+  }
+  
+  protected String getHistoricVariableByteArrayId(String processInstanceId) {
+    HistoricVariableInstanceEntity historicVariable = (HistoricVariableInstanceEntity) historyService
+            .createHistoricVariableInstanceQuery()
+            .processInstanceId(processInstanceId)
+            .singleResult();
+    return historicVariable.getByteArrayValueId();
+  }
+  
+  protected List<String> getHistoricDetailByteArrayIds(String processInstanceId) {
+    List<String> byteArrayIds = new ArrayList<String>();
+    for (HistoricDetail historicDetail : historyService.createHistoricDetailQuery().processInstanceId(processInstanceId).variableUpdates().list()) {
+      byteArrayIds.add(((HistoricDetailVariableInstanceUpdateEntity) historicDetail).getByteArrayValueId());
+    }
+    return byteArrayIds;
+  }
+
+}
@@ -0,0 +1,175 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.test.jobexecutor;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.jobexecutor.AcquiredJobs;
+import org.activiti.engine.impl.jobexecutor.CallerRunsRejectedJobsHandler;
+import org.activiti.engine.impl.jobexecutor.DefaultJobExecutor;
+import org.activiti.engine.impl.jobexecutor.JobExecutor;
+import org.activiti.engine.impl.persistence.entity.MessageEntity;
+import org.activiti.engine.management.JobExecutorMetrics;
+
+public class AdaptiveJobAcquisitionTest extends JobExecutorTestCase {
+  
+  public void testJobsPerAcquisitionFollowsBacklog() {
+    CapacityJobExecutor jobExecutor = new CapacityJobExecutor();
+    jobExecutor.setAdaptiveAcquisitionEnabled(true);
+    jobExecutor.setMaxJobsPerAcquisition(2);
+    jobExecutor.setMaxJobsPerAcquisitionCeiling(16);
+    jobExecutor.remainingCapacity = 100;
+    
+    // full acquisitions double the size, up to the ceiling
+    int adaptiveJobsPerAcquisition = -1;
+    assertEquals(2, jobExecutor.nextJobsPerAcquisition(adaptiveJobsPerAcquisition));
+    adaptiveJobsPerAcquisition = acquire(jobExecutor, adaptiveJobsPerAcquisition, 2);
+    assertEquals(4, jobExecutor.nextJobsPerAcquisition(adaptiveJobsPerAcquisition));
+    adaptiveJobsPerAcquisition = acquire(jobExecutor, adaptiveJobsPerAcquisition, 4);
+    assertEquals(8, jobExecutor.nextJobsPerAcquisition(adaptiveJobsPerAcquisition));
+    adaptiveJobsPerAcquisition = acquire(jobExecutor, adaptiveJobsPerAcquisition, 8);
+    assertEquals(16, jobExecutor.nextJobsPerAcquisition(adaptiveJobsPerAcquisition));
+    adaptiveJobsPerAcquisition = acquire(jobExecutor, adaptiveJobsPerAcquisition, 16);
+    assertEquals(16, jobExecutor.nextJobsPerAcquisition(adaptiveJobsPerAcquisition));
+    
+    // the size is never more than the executor can start
+    jobExecutor.remainingCapacity = 5;
+    assertEquals(5, jobExecutor.nextJobsPerAcquisition(adaptiveJobsPerAcquisition));
+    jobExecutor.remainingCapacity = 0;
+    assertEquals(0, jobExecutor.nextJobsPerAcquisition(adaptiveJobsPerAcquisition));
+    
+    // acquisitions that aren't full halve the size, down to maxJobsPerAcquisition
+    jobExecutor.remainingCapacity = 100;
+    assertEquals(16, jobExecutor.nextJobsPerAcquisition(adaptiveJobsPerAcquisition));
+    adaptiveJobsPerAcquisition = acquire(jobExecutor, adaptiveJobsPerAcquisition, 3);
+    assertEquals(8, jobExecutor.nextJobsPerAcquisition(adaptiveJobsPerAcquisition));
+    adaptiveJobsPerAcquisition = acquire(jobExecutor, adaptiveJobsPerAcquisition, 0);
+    assertEquals(4, jobExecutor.nextJobsPerAcquisition(adaptiveJobsPerAcquisition));
+    adaptiveJobsPerAcquisition = acquire(jobExecutor, adaptiveJobsPerAcquisition, 0);
+    assertEquals(2, jobExecutor.nextJobsPerAcquisition(adaptiveJobsPerAcquisition));
+    adaptiveJobsPerAcquisition = acquire(jobExecutor, adaptiveJobsPerAcquisition, 0);
+    assertEquals(2, jobExecutor.nextJobsPerAcquisition(adaptiveJobsPerAcquisition));
+    
+    assertEquals(33, jobExecutor.getMetrics().getAcquiredJobs());
+  }
+  
+  public void testJobsPerAcquisitionIsAdaptedPerAcquisitionThread() {
+    CapacityJobExecutor jobExecutor = new CapacityJobExecutor();
+    jobExecutor.setAdaptiveAcquisitionEnabled(true);
+    jobExecutor.setMaxJobsPerAcquisition(2);
+    jobExecutor.remainingCapacity = 100;
+    
+    // a backlog in one partition doesn't change the size of the other one
+    int backlogJobsPerAcquisition = acquire(jobExecutor, -1, 2);
+    backlogJobsPerAcquisition = acquire(jobExecutor, backlogJobsPerAcquisition, 4);
+    int idleJobsPerAcquisition = acquire(jobExecutor, -1, 0);
+    assertEquals(8, jobExecutor.nextJobsPerAcquisition(backlogJobsPerAcquisition));
+    assertEquals(2, jobExecutor.nextJobsPerAcquisition(idleJobsPerAcquisition));
+    
+    // a capacity capped size of one thread isn't taken over by another one
+    jobExecutor.remainingCapacity = 0;
+    assertEquals(0, jobExecutor.nextJobsPerAcquisition(backlogJobsPerAcquisition));
+    jobExecutor.remainingCapacity = 100;
+    assertEquals(2, jobExecutor.nextJobsPerAcquisition(idleJobsPerAcquisition));
+  }
+  
+  public void testFixedJobsPerAcquisitionWhenNotAdaptive() {
+    CapacityJobExecutor jobExecutor = new CapacityJobExecutor();
+    jobExecutor.setMaxJobsPerAcquisition(3);
+    jobExecutor.remainingCapacity = 0;
+    
+    assertEquals(3, jobExecutor.nextJobsPerAcquisition(-1));
+    acquire(jobExecutor, -1, 3);
+    assertEquals(3, jobExecutor.nextJobsPerAcquisition(-1));
+  }
+  
+  public void testRemainingCapacityIncludesHighPriorityPool() {
+    DefaultJobExecutor jobExecutor = new DefaultJobExecutor();
+    jobExecutor.setCommandExecutor(processEngineConfiguration.getCommandExecutor());
+    jobExecutor.setRejectedJobsHandler(new CallerRunsRejectedJobsHandler());
+    jobExecutor.setWaitTimeInMillis(50);
+    jobExecutor.setCorePoolSize(2);
+    jobExecutor.setMaxPoolSize(2);
+    jobExecutor.setQueueSize(3);
+    jobExecutor.setHighPriorityThreshold(5);
+    jobExecutor.setHighPriorityPoolSize(4);
+    jobExecutor.start();
+    try {
+      // threads and queue places of the normal pool plus those of the high priority pool
+      assertEquals(2 + 3 + 4 + 3, jobExecutor.getRemainingCapacity());
+    } finally {
+      jobExecutor.shutdown();
+    }
+  }
+  
+  public void testJobExecutorMetrics() {
+    JobExecutorMetrics metricsBefore = managementService.getJobExecutorMetrics();
+    
+    for (int i=0; i<3; i++) {
+      processEngineConfiguration.getCommandExecutor().execute(new Command<Void>() {
+        public Void execute(CommandContext commandContext) {
+          MessageEntity message = createTweetMessage("i'm coding a test");
+          commandContext.getJobEntityManager().send(message);
+          return null;
+        }
+      });
+    }
+    
+    waitForJobExecutorToProcessAllJobs(10000L, 100L);
+    
+    JobExecutorMetrics metrics = managementService.getJobExecutorMetrics();
+    assertEquals(3, tweetHandler.getMessages().size());
+    assertEquals(3, metrics.getAcquiredJobs() - metricsBefore.getAcquiredJobs());
+    assertEquals(3, metrics.getExecutedJobs() - metricsBefore.getExecutedJobs());
+    assertTrue(metrics.getExecutedJobsLastMinute() >= 3);
+    assertEquals(metricsBefore.getRejectedJobs(), metrics.getRejectedJobs());
+  }
+  
+  /** runs an acquisition that finds the given number of jobs, returns the adaptive size after it */
+  protected int acquire(JobExecutor jobExecutor, int adaptiveJobsPerAcquisition, int nrOfJobsFound) {
+    int jobsPerAcquisition = jobExecutor.nextJobsPerAcquisition(adaptiveJobsPerAcquisition);
+    AcquiredJobs acquiredJobs = acquiredJobs(nrOfJobsFound);
+    jobExecutor.jobsAcquired(acquiredJobs);
+    return jobExecutor.adaptJobsPerAcquisition(adaptiveJobsPerAcquisition, jobsPerAcquisition, acquiredJobs);
+  }
+  
+  protected AcquiredJobs acquiredJobs(int nrOfJobs) {
+    AcquiredJobs acquiredJobs = new AcquiredJobs();
+    for (int i=0; i<nrOfJobs; i++) {
+      acquiredJobs.addJobIdBatch(Collections.singletonList("job" + i));
+    }
+    return acquiredJobs;
+  }
+  
+  protected static class CapacityJobExecutor extends JobExecutor {
+    
+    protected int remainingCapacity;
+    
+    public int getRemainingCapacity() {
+      return remainingCapacity;
+    }
+    
+    protected void startExecutingJobs() {
+    }
+    
+    protected void stopExecutingJobs() {
+    }
+    
+    protected void executeJobs(List<String> jobIds) {
+    }
+  }
+
+}
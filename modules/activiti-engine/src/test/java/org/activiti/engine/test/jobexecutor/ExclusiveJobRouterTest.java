@@ -0,0 +1,201 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.test.jobexecutor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.activiti.engine.impl.cmd.AcquireJobsCmd;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.jobexecutor.AcquiredJobs;
+import org.activiti.engine.impl.jobexecutor.ExclusiveJobRouter;
+import org.activiti.engine.impl.jobexecutor.JobExecutor;
+import org.activiti.engine.impl.jobexecutor.RejectedJobsHandler;
+import org.activiti.engine.impl.persistence.entity.JobEntity;
+import org.activiti.engine.impl.persistence.entity.MessageEntity;
+
+public class ExclusiveJobRouterTest extends JobExecutorTestCase {
+  
+  protected List<Runnable> scheduledLanes = new ArrayList<Runnable>();
+  protected ExclusiveJobRouter exclusiveJobRouter;
+  protected int maxJobsPerAcquisition;
+  
+  public void setUp() throws Exception {
+    super.setUp();
+    JobExecutor jobExecutor = processEngineConfiguration.getJobExecutor();
+    maxJobsPerAcquisition = jobExecutor.getMaxJobsPerAcquisition();
+    
+    // the lanes are run by the test
+    exclusiveJobRouter = new ExclusiveJobRouter(jobExecutor, new Executor() {
+      public void execute(Runnable lane) {
+        scheduledLanes.add(lane);
+      }
+    }, 3);
+    jobExecutor.setExclusiveJobRouter(exclusiveJobRouter);
+  }
+  
+  public void tearDown() throws Exception {
+    JobExecutor jobExecutor = processEngineConfiguration.getJobExecutor();
+    jobExecutor.setExclusiveJobRouter(null);
+    jobExecutor.setMaxJobsPerAcquisition(maxJobsPerAcquisition);
+    super.tearDown();
+  }
+  
+  public void testOtherExclusiveJobsOfTheProcessInstanceAreNotAcquired() {
+    for (int i=0; i<3; i++) {
+      sendExclusiveMessage("pi1", "message " + i);
+    }
+    JobExecutor jobExecutor = processEngineConfiguration.getJobExecutor();
+    jobExecutor.setMaxJobsPerAcquisition(1);
+    
+    AcquiredJobs acquiredJobs = acquireJobs();
+    assertEquals(1, acquiredJobs.size());
+    assertEquals("pi1", acquiredJobs.getExclusiveJobIdBatchProcessInstanceId(0));
+    
+    // without the router, all exclusive jobs of the process instance are acquired at once
+    jobExecutor.setExclusiveJobRouter(null);
+    acquiredJobs = acquireJobs();
+    assertEquals(2, acquiredJobs.size());
+    assertNull(acquiredJobs.getExclusiveJobIdBatchProcessInstanceId(0));
+  }
+  
+  public void testExclusiveJobsAreGroupedByProcessInstance() {
+    sendExclusiveMessage("pi1", "message 1");
+    sendExclusiveMessage("pi2", "message 2");
+    sendExclusiveMessage("pi1", "message 3");
+    processEngineConfiguration.getJobExecutor().setMaxJobsPerAcquisition(10);
+    
+    AcquiredJobs acquiredJobs = acquireJobs();
+    
+    assertEquals(2, acquiredJobs.getJobIdBatches().size());
+    assertEquals(3, acquiredJobs.getNrOfJobsFound());
+    for (int i=0; i<2; i++) {
+      String processInstanceId = acquiredJobs.getExclusiveJobIdBatchProcessInstanceId(i);
+      assertEquals("pi1".equals(processInstanceId) ? 2 : 1, acquiredJobs.getJobIdBatches().get(i).size());
+    }
+  }
+  
+  public void testLaneIsWorkedOffByOneWorker() {
+    String jobId1 = sendExclusiveMessage("pi1", "message 1");
+    String jobId2 = sendExclusiveMessage("pi1", "message 2");
+    
+    exclusiveJobRouter.route("pi1", Collections.singletonList(jobId1));
+    exclusiveJobRouter.route("pi1", Collections.singletonList(jobId2));
+    
+    // the lane was only scheduled once, the second batch waits in the lane
+    assertEquals(1, scheduledLanes.size());
+    assertEquals(1, exclusiveJobRouter.getNrOfWaitingBatches());
+    assertTrue(exclusiveJobRouter.isRouted("pi1"));
+    assertFalse(exclusiveJobRouter.isRouted("pi2"));
+    
+    scheduledLanes.remove(0).run();
+    
+    assertEquals(2, tweetHandler.getMessages().size());
+    assertEquals(0, managementService.createJobQuery().count());
+    assertFalse(exclusiveJobRouter.isRouted("pi1"));
+    assertEquals(0, exclusiveJobRouter.getNrOfWaitingBatches());
+  }
+  
+  public void testJobOfRoutedProcessInstanceIsQueuedAtCommit() {
+    String jobId1 = sendExclusiveMessage("pi1", "message 1");
+    exclusiveJobRouter.route("pi1", Collections.singletonList(jobId1));
+    
+    String jobId2 = sendExclusiveMessage("pi1", "message 2");
+    
+    // the new job is locked, so no acquisition picks it up
+    JobEntity job2 = findJob(jobId2);
+    assertEquals(processEngineConfiguration.getJobExecutor().getLockOwner(), job2.getLockOwner());
+    
+    assertEquals(1, scheduledLanes.size());
+    scheduledLanes.remove(0).run();
+    
+    assertEquals(2, tweetHandler.getMessages().size());
+    assertEquals(0, managementService.createJobQuery().count());
+  }
+  
+  public void testJobOfOtherProcessInstanceIsNotQueued() {
+    String jobId1 = sendExclusiveMessage("pi1", "message 1");
+    exclusiveJobRouter.route("pi1", Collections.singletonList(jobId1));
+    
+    String jobId2 = sendExclusiveMessage("pi2", "message 2");
+    
+    assertNull(findJob(jobId2).getLockOwner());
+    scheduledLanes.remove(0).run();
+    assertEquals(1, managementService.createJobQuery().count());
+  }
+  
+  public void testOnlyTheRejectedBatchIsHandedToTheHandler() {
+    JobExecutor jobExecutor = processEngineConfiguration.getJobExecutor();
+    RejectedJobsHandler rejectedJobsHandler = jobExecutor.getRejectedJobsHandler();
+    final List<List<String>> rejectedJobIds = new ArrayList<List<String>>();
+    final List<Boolean> routedWhileRejected = new ArrayList<Boolean>();
+    final ExclusiveJobRouter rejectingRouter = new ExclusiveJobRouter(jobExecutor, new Executor() {
+      public void execute(Runnable lane) {
+        throw new RejectedExecutionException("no worker available");
+      }
+    }, 1);
+    
+    jobExecutor.setRejectedJobsHandler(new RejectedJobsHandler() {
+      public void jobsRejected(JobExecutor jobExecutor, List<String> jobIds) {
+        rejectedJobIds.add(jobIds);
+        routedWhileRejected.add(rejectingRouter.isRouted("pi1"));
+        if (rejectedJobIds.size() == 1) {
+          // another acquisition routes a batch to the lane while the rejected one is handled
+          rejectingRouter.route("pi2", Collections.singletonList("job2"));
+        }
+      }
+    });
+    try {
+      rejectingRouter.route("pi1", Collections.singletonList("job1"));
+    } finally {
+      jobExecutor.setRejectedJobsHandler(rejectedJobsHandler);
+    }
+    
+    // every rejection hands one batch to the handler, which stays routed until it is handled
+    assertEquals(2, rejectedJobIds.size());
+    assertEquals(Collections.singletonList("job1"), rejectedJobIds.get(0));
+    assertEquals(Collections.singletonList("job2"), rejectedJobIds.get(1));
+    assertEquals(Boolean.TRUE, routedWhileRejected.get(0));
+    assertFalse(rejectingRouter.isRouted("pi1"));
+    assertFalse(rejectingRouter.isRouted("pi2"));
+  }
+  
+  protected AcquiredJobs acquireJobs() {
+    JobExecutor jobExecutor = processEngineConfiguration.getJobExecutor();
+    return processEngineConfiguration.getCommandExecutor().execute(new AcquireJobsCmd(jobExecutor));
+  }
+  
+  protected JobEntity findJob(final String jobId) {
+    return processEngineConfiguration.getCommandExecutor().execute(new Command<JobEntity>() {
+      public JobEntity execute(CommandContext commandContext) {
+        return commandContext.getJobEntityManager().findJobById(jobId);
+      }
+    });
+  }
+  
+  protected String sendExclusiveMessage(final String processInstanceId, final String msg) {
+    return processEngineConfiguration.getCommandExecutor().execute(new Command<String>() {
+      public String execute(CommandContext commandContext) {
+        MessageEntity message = createTweetMessage(msg);
+        message.setProcessInstanceId(processInstanceId);
+        message.setExclusive(true);
+        commandContext.getJobEntityManager().send(message);
+        return message.getId();
+      }
+    });
+  }
+}
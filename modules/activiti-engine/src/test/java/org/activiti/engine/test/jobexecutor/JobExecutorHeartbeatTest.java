@@ -0,0 +1,185 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.test.jobexecutor;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.activiti.engine.impl.cmd.DeleteJobExecutorHeartbeatCmd;
+import org.activiti.engine.impl.cmd.JobExecutorHeartbeatCmd;
+import org.activiti.engine.impl.cmd.ReleaseJobLocksCmd;
+import org.activiti.engine.impl.db.DbSqlSessionFactory;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.jobexecutor.ExclusiveJobRouter;
+import org.activiti.engine.impl.persistence.entity.JobEntity;
+import org.activiti.engine.impl.persistence.entity.MessageEntity;
+import org.activiti.engine.impl.util.ClockUtil;
+
+public class JobExecutorHeartbeatTest extends JobExecutorTestCase {
+  
+  protected static final long HEARTBEAT_TIMEOUT = 60 * 1000L;
+  
+  public void tearDown() throws Exception {
+    deleteHeartbeat("dead-node");
+    deleteHeartbeat("live-node");
+    ClockUtil.reset();
+    super.tearDown();
+  }
+  
+  public void testLocksOfOwnerWithExpiredHeartbeatAreReleased() {
+    ClockUtil.setCurrentTime(new Date(JobExecutorCmdHappyTest.SOME_TIME));
+    String jobId = sendLockedMessage("dead-node");
+    assertEquals(0, heartbeat("dead-node"));
+    assertEquals(1L, getHeartbeatCount());
+    
+    ClockUtil.setCurrentTime(new Date(JobExecutorCmdHappyTest.SOME_TIME + HEARTBEAT_TIMEOUT + 1000));
+    assertEquals(1, heartbeat("live-node"));
+    
+    JobEntity job = findJob(jobId);
+    assertNull(job.getLockOwner());
+    assertNull(job.getLockExpirationTime());
+    // only the heartbeat of the live node is left
+    assertEquals(1L, getHeartbeatCount());
+    
+    managementService.executeJob(jobId);
+    assertEquals(1, tweetHandler.getMessages().size());
+  }
+  
+  public void testLocksOfOwnerWithRecentHeartbeatAreKept() {
+    ClockUtil.setCurrentTime(new Date(JobExecutorCmdHappyTest.SOME_TIME));
+    String jobId = sendLockedMessage("dead-node");
+    heartbeat("dead-node");
+    
+    ClockUtil.setCurrentTime(new Date(JobExecutorCmdHappyTest.SOME_TIME + HEARTBEAT_TIMEOUT - 1000));
+    assertEquals(0, heartbeat("live-node"));
+    assertEquals("dead-node", findJob(jobId).getLockOwner());
+    assertEquals(2L, getHeartbeatCount());
+    
+    deleteLockedJob("dead-node", jobId);
+  }
+  
+  public void testLocksOfOwnerWithoutHeartbeatAreKept() {
+    ClockUtil.setCurrentTime(new Date(JobExecutorCmdHappyTest.SOME_TIME));
+    String jobId = sendLockedMessage("dead-node");
+    
+    ClockUtil.setCurrentTime(new Date(JobExecutorCmdHappyTest.SOME_TIME + HEARTBEAT_TIMEOUT + 1000));
+    assertEquals(0, heartbeat("live-node"));
+    assertEquals("dead-node", findJob(jobId).getLockOwner());
+    
+    deleteLockedJob("dead-node", jobId);
+  }
+  
+  public void testHeartbeatWithJdbcBatching() {
+    DbSqlSessionFactory dbSqlSessionFactory = processEngineConfiguration.getDbSqlSessionFactory();
+    boolean jdbcBatchEnabled = dbSqlSessionFactory.isJdbcBatchEnabled();
+    dbSqlSessionFactory.setJdbcBatchEnabled(true);
+    try {
+      ClockUtil.setCurrentTime(new Date(JobExecutorCmdHappyTest.SOME_TIME));
+      String jobId = sendLockedMessage("dead-node");
+      String ownJobId = sendLockedMessage("live-node");
+      assertEquals(0, heartbeat("dead-node"));
+      assertEquals(1L, getHeartbeatCount());
+      
+      // the second heartbeat of the same node updates its row
+      assertEquals(0, heartbeat("dead-node"));
+      assertEquals(1L, getHeartbeatCount());
+      
+      ClockUtil.setCurrentTime(new Date(JobExecutorCmdHappyTest.SOME_TIME + HEARTBEAT_TIMEOUT + 1000));
+      assertEquals(1, heartbeat("live-node"));
+      assertNull(findJob(jobId).getLockOwner());
+      assertEquals(1L, getHeartbeatCount());
+      
+      int releasedLocks = processEngineConfiguration.getCommandExecutor()
+        .execute(new ReleaseJobLocksCmd("live-node", Arrays.asList(jobId, ownJobId)));
+      assertEquals(1, releasedLocks);
+      
+      managementService.deleteJob(jobId);
+      managementService.deleteJob(ownJobId);
+    } finally {
+      dbSqlSessionFactory.setJdbcBatchEnabled(jdbcBatchEnabled);
+    }
+  }
+  
+  public void testReleaseJobLocks() {
+    String ownJobId = sendLockedMessage("live-node");
+    String otherJobId = sendLockedMessage("dead-node");
+    
+    int releasedLocks = processEngineConfiguration.getCommandExecutor()
+      .execute(new ReleaseJobLocksCmd("live-node", Arrays.asList(ownJobId, otherJobId)));
+    
+    assertEquals(1, releasedLocks);
+    assertNull(findJob(ownJobId).getLockOwner());
+    assertEquals("dead-node", findJob(otherJobId).getLockOwner());
+    
+    managementService.deleteJob(ownJobId);
+    deleteLockedJob("dead-node", otherJobId);
+  }
+  
+  public void testStoppedRouterReturnsTheQueuedJobs() {
+    // an executor that never starts the lanes, so all batches stay queued
+    ExclusiveJobRouter exclusiveJobRouter = new ExclusiveJobRouter(processEngineConfiguration.getJobExecutor(), new Executor() {
+      public void execute(Runnable command) {
+      }
+    }, 2);
+    exclusiveJobRouter.route("pi1", Arrays.asList("job1", "job2"));
+    exclusiveJobRouter.route("pi2", Arrays.asList("job3"));
+    
+    List<String> queuedJobIds = exclusiveJobRouter.stop();
+    
+    assertEquals(3, queuedJobIds.size());
+    assertTrue(queuedJobIds.containsAll(Arrays.asList("job1", "job2", "job3")));
+    assertFalse(exclusiveJobRouter.isRouted("pi1"));
+    assertFalse(exclusiveJobRouter.isRouted("pi2"));
+  }
+  
+  protected String sendLockedMessage(final String lockOwner) {
+    return processEngineConfiguration.getCommandExecutor().execute(new Command<String>() {
+      public String execute(CommandContext commandContext) {
+        MessageEntity message = createTweetMessage("locked by " + lockOwner);
+        message.setLockOwner(lockOwner);
+        message.setLockExpirationTime(new Date(ClockUtil.getCurrentTime().getTime() + 60 * 60 * 1000L));
+        message.insert();
+        return message.getId();
+      }
+    });
+  }
+  
+  protected void deleteLockedJob(String lockOwner, String jobId) {
+    processEngineConfiguration.getCommandExecutor().execute(new ReleaseJobLocksCmd(lockOwner, Arrays.asList(jobId)));
+    managementService.deleteJob(jobId);
+  }
+  
+  protected int heartbeat(String lockOwner) {
+    return processEngineConfiguration.getCommandExecutor().execute(new JobExecutorHeartbeatCmd(lockOwner, HEARTBEAT_TIMEOUT));
+  }
+  
+  protected void deleteHeartbeat(String lockOwner) {
+    processEngineConfiguration.getCommandExecutor().execute(new DeleteJobExecutorHeartbeatCmd(lockOwner));
+  }
+  
+  protected long getHeartbeatCount() {
+    return managementService.getTableCount().get(processEngineConfiguration.getDatabaseTablePrefix() + "ACT_RU_JOB_HEARTBEAT");
+  }
+  
+  protected JobEntity findJob(final String jobId) {
+    return processEngineConfiguration.getCommandExecutor().execute(new Command<JobEntity>() {
+      public JobEntity execute(CommandContext commandContext) {
+        return commandContext.getJobEntityManager().findJobById(jobId);
+      }
+    });
+  }
+
+}
@@ -0,0 +1,92 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.test.jobexecutor;
+
+import java.util.Collections;
+import java.util.Date;
+
+import org.activiti.engine.impl.cmd.AcquireJobsCmd;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.jobexecutor.ExecuteJobsRunnable;
+import org.activiti.engine.impl.jobexecutor.JobExecutor;
+import org.activiti.engine.impl.jobexecutor.LatencyRecorder;
+import org.activiti.engine.impl.persistence.entity.TimerEntity;
+import org.activiti.engine.impl.util.ClockUtil;
+import org.activiti.engine.management.JobExecutorMetrics;
+import org.activiti.engine.management.LatencyHistogram;
+
+public class JobExecutorMetricsTest extends JobExecutorTestCase {
+  
+  public void testLatencyRecorderPercentiles() {
+    LatencyRecorder latencyRecorder = new LatencyRecorder();
+    assertEquals(0, latencyRecorder.getHistogram().getCount());
+    
+    for (int i=1; i<=1000; i++) {
+      latencyRecorder.record(i);
+    }
+    
+    LatencyHistogram histogram = latencyRecorder.getHistogram();
+    assertEquals(1000, histogram.getCount());
+    assertEquals(1000, histogram.getMax());
+    assertEquals(500.5, histogram.getMean(), 0.001);
+    assertWithinPrecision(500, histogram.getP50());
+    assertWithinPrecision(900, histogram.getP90());
+    assertWithinPrecision(990, histogram.getP99());
+    assertWithinPrecision(999, histogram.getP999());
+  }
+  
+  public void testSmallAndHugeLatencies() {
+    LatencyRecorder latencyRecorder = new LatencyRecorder();
+    latencyRecorder.record(-5);
+    latencyRecorder.record(3);
+    latencyRecorder.record(Long.MAX_VALUE / 2);
+    
+    LatencyHistogram histogram = latencyRecorder.getHistogram();
+    assertEquals(3, histogram.getCount());
+    assertTrue(histogram.getP50() <= 3);
+    assertEquals(Long.MAX_VALUE / 2, histogram.getMax());
+  }
+  
+  public void testJobLagAndExecutionTime() {
+    Date now = new Date();
+    ClockUtil.setCurrentTime(now);
+    try {
+      final TimerEntity timer = createTweetTimer("i'm coding a test", new Date(now.getTime() - 2000));
+      processEngineConfiguration.getCommandExecutor().execute(new Command<Void>() {
+        public Void execute(CommandContext commandContext) {
+          commandContext.getJobEntityManager().schedule(timer);
+          return null;
+        }
+      });
+      
+      JobExecutor jobExecutor = processEngineConfiguration.getJobExecutor();
+      processEngineConfiguration.getCommandExecutor().execute(new AcquireJobsCmd(jobExecutor));
+      new ExecuteJobsRunnable(jobExecutor, Collections.singletonList(timer.getId())).run();
+      
+      JobExecutorMetrics metrics = jobExecutor.getMetrics();
+      LatencyHistogram lags = metrics.getJobLags().get("tweet");
+      assertNotNull(lags);
+      assertTrue(lags.getMax() >= 2000);
+      assertNotNull(metrics.getJobExecutionTimes().get("tweet"));
+      assertTrue(metrics.getJobExecutionTimes().get("tweet").getCount() >= 1);
+      assertEquals(0, managementService.createJobQuery().count());
+    } finally {
+      ClockUtil.reset();
+    }
+  }
+  
+  protected void assertWithinPrecision(long expected, long actual) {
+    assertTrue("expected " + expected + " but was " + actual, Math.abs(expected - actual) <= expected / 16 + 1);
+  }
+}
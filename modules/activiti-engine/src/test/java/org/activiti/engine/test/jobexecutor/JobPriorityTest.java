@@ -0,0 +1,78 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.test.jobexecutor;
+
+import java.util.List;
+
+import org.activiti.engine.impl.cmd.AcquireJobsCmd;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.jobexecutor.AcquiredJobs;
+import org.activiti.engine.impl.jobexecutor.JobExecutor;
+import org.activiti.engine.impl.persistence.entity.JobEntity;
+import org.activiti.engine.impl.persistence.entity.MessageEntity;
+import org.activiti.engine.runtime.Job;
+import org.activiti.engine.test.Deployment;
+
+public class JobPriorityTest extends JobExecutorTestCase {
+  
+  public void testJobsWithHighestPriorityAcquiredFirst() {
+    sendMessage("low", 0);
+    String highPriorityJobId = sendMessage("high", 10);
+    sendMessage("normal", 5);
+    
+    JobExecutor jobExecutor = processEngineConfiguration.getJobExecutor();
+    int maxJobsPerAcquisition = jobExecutor.getMaxJobsPerAcquisition();
+    jobExecutor.setMaxJobsPerAcquisition(1);
+    try {
+      AcquiredJobs acquiredJobs = processEngineConfiguration.getCommandExecutor().execute(new AcquireJobsCmd(jobExecutor));
+      List<List<String>> jobIdBatches = acquiredJobs.getJobIdBatches();
+      assertEquals(1, jobIdBatches.size());
+      assertEquals(highPriorityJobId, jobIdBatches.get(0).get(0));
+      assertEquals(10, acquiredJobs.getJobIdBatchPriority(0));
+    } finally {
+      jobExecutor.setMaxJobsPerAcquisition(maxJobsPerAcquisition);
+    }
+    
+    for (Job job : managementService.createJobQuery().list()) {
+      managementService.executeJob(job.getId());
+    }
+    assertEquals(3, tweetHandler.getMessages().size());
+  }
+  
+  @Deployment
+  public void testJobPriorityFromProcessDefinition() {
+    runtimeService.startProcessInstanceByKey("jobPriority");
+    
+    // the async continuation
+    Job job = managementService.createJobQuery().singleResult();
+    assertEquals(5, ((JobEntity) job).getPriority());
+    managementService.executeJob(job.getId());
+    
+    // the timer
+    job = managementService.createJobQuery().singleResult();
+    assertEquals(7, ((JobEntity) job).getPriority());
+  }
+  
+  protected String sendMessage(final String msg, final int priority) {
+    return processEngineConfiguration.getCommandExecutor().execute(new Command<String>() {
+      public String execute(CommandContext commandContext) {
+        MessageEntity message = createTweetMessage(msg);
+        message.setPriority(priority);
+        commandContext.getJobEntityManager().send(message);
+        return message.getId();
+      }
+    });
+  }
+
+}
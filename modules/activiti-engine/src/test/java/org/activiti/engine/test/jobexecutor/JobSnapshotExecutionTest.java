@@ -0,0 +1,150 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.test.jobexecutor;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.activiti.engine.ActivitiOptimisticLockingException;
+import org.activiti.engine.impl.cmd.AcquireJobsCmd;
+import org.activiti.engine.impl.cmd.ExecuteJobsCmd;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.interceptor.CommandExecutor;
+import org.activiti.engine.impl.jobexecutor.AcquiredJobs;
+import org.activiti.engine.impl.jobexecutor.JobExecutor;
+import org.activiti.engine.impl.persistence.entity.JobEntity;
+import org.activiti.engine.impl.persistence.entity.MessageEntity;
+import org.activiti.engine.impl.util.ClockUtil;
+import org.activiti.engine.runtime.Execution;
+import org.activiti.engine.test.Deployment;
+
+public class JobSnapshotExecutionTest extends JobExecutorTestCase {
+  
+  public void setUp() throws Exception {
+    super.setUp();
+    processEngineConfiguration.getJobExecutor().setJobSnapshotsEnabled(true);
+  }
+  
+  public void tearDown() throws Exception {
+    processEngineConfiguration.getJobExecutor().setJobSnapshotsEnabled(false);
+    super.tearDown();
+  }
+
+  public void testExecuteJobSnapshot() {
+    CommandExecutor commandExecutor = processEngineConfiguration.getCommandExecutor();
+    JobExecutor jobExecutor = processEngineConfiguration.getJobExecutor();
+    String jobId = sendTweetMessage("i'm coding a test");
+
+    AcquiredJobs acquiredJobs = commandExecutor.execute(new AcquireJobsCmd(jobExecutor));
+    JobEntity jobSnapshot = acquiredJobs.getJobSnapshots().get(jobId);
+    assertNotNull(jobSnapshot);
+    assertEquals(jobExecutor.getLockOwner(), jobSnapshot.getLockOwner());
+    assertEquals(2, jobSnapshot.getRevision());
+
+    commandExecutor.execute(new ExecuteJobsCmd(jobSnapshot));
+
+    assertEquals(1, tweetHandler.getMessages().size());
+    assertEquals(0, managementService.createJobQuery().count());
+  }
+  
+  public void testStaleJobSnapshot() {
+    CommandExecutor commandExecutor = processEngineConfiguration.getCommandExecutor();
+    JobExecutor jobExecutor = processEngineConfiguration.getJobExecutor();
+    String jobId = sendTweetMessage("i'm coding a test");
+
+    AcquiredJobs acquiredJobs = commandExecutor.execute(new AcquireJobsCmd(jobExecutor));
+    JobEntity jobSnapshot = acquiredJobs.getJobSnapshots().get(jobId);
+    
+    // the job is changed after it was acquired
+    managementService.setJobRetries(jobId, 5);
+    
+    try {
+      commandExecutor.execute(new ExecuteJobsCmd(jobSnapshot));
+      fail("expected optimistic locking exception");
+    } catch (ActivitiOptimisticLockingException e) {
+      // expected
+    }
+    assertEquals(1, managementService.createJobQuery().count());
+
+    // executing the job by id reads the current version
+    commandExecutor.execute(new ExecuteJobsCmd(jobId));
+    assertEquals(0, managementService.createJobQuery().count());
+  }
+  
+  public void testNoSnapshotsWhenDisabled() {
+    CommandExecutor commandExecutor = processEngineConfiguration.getCommandExecutor();
+    JobExecutor jobExecutor = processEngineConfiguration.getJobExecutor();
+    jobExecutor.setJobSnapshotsEnabled(false);
+    String jobId = sendTweetMessage("i'm coding a test");
+
+    AcquiredJobs acquiredJobs = commandExecutor.execute(new AcquireJobsCmd(jobExecutor));
+    assertTrue(acquiredJobs.getJobSnapshots().isEmpty());
+
+    commandExecutor.execute(new ExecuteJobsCmd(jobId));
+    assertEquals(0, managementService.createJobQuery().count());
+  }
+  
+  public void testExpiredJobSnapshotsAreRemoved() {
+    CommandExecutor commandExecutor = processEngineConfiguration.getCommandExecutor();
+    JobExecutor jobExecutor = processEngineConfiguration.getJobExecutor();
+    String jobId = sendTweetMessage("i'm coding a test");
+
+    // the batch of the acquired job never reaches a worker
+    AcquiredJobs acquiredJobs = commandExecutor.execute(new AcquireJobsCmd(jobExecutor));
+    jobExecutor.addJobSnapshots(acquiredJobs.getJobSnapshots());
+    
+    try {
+      ClockUtil.setCurrentTime(new Date(System.currentTimeMillis() + jobExecutor.getLockTimeInMillis() + 1000L));
+      Map<String, JobEntity> noSnapshots = new HashMap<String, JobEntity>();
+      jobExecutor.addJobSnapshots(noSnapshots);
+    } finally {
+      ClockUtil.reset();
+    }
+    
+    assertNull(jobExecutor.takeJobSnapshot(jobId));
+    commandExecutor.execute(new ExecuteJobsCmd(jobId));
+    assertEquals(0, managementService.createJobQuery().count());
+  }
+  
+  @Deployment(resources={"org/activiti/engine/test/bpmn/async/AsyncTaskTest.testAsycScript.bpmn20.xml"})
+  public void testJobExecutorWithJobSnapshots() {
+    for (int i=0; i<5; i++) {
+      runtimeService.startProcessInstanceByKey("asyncScript");
+    }
+    assertEquals(5, managementService.createJobQuery().count());
+    
+    waitForJobExecutorToProcessAllJobs(10000L, 25L);
+    
+    assertEquals(0, managementService.createJobQuery().count());
+    List<Execution> executions = runtimeService.createExecutionQuery().list();
+    assertEquals(5, executions.size());
+    for (Execution execution : executions) {
+      assertEquals("true", runtimeService.getVariable(execution.getId(), "invoked"));
+      runtimeService.signal(execution.getId());
+    }
+  }
+  
+  protected String sendTweetMessage(final String msg) {
+    return processEngineConfiguration.getCommandExecutor().execute(new Command<String>() {
+      public String execute(CommandContext commandContext) {
+        MessageEntity message = createTweetMessage(msg);
+        commandContext.getJobEntityManager().send(message);
+        return message.getId();
+      }
+    });
+  }
+
+}
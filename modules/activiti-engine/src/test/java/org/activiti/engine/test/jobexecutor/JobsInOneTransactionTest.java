@@ -0,0 +1,172 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.test.jobexecutor;
+
+import java.util.List;
+
+import org.activiti.engine.impl.cmd.AcquireJobsCmd;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.jobexecutor.AcquiredJobs;
+import org.activiti.engine.impl.jobexecutor.ExecuteJobsRunnable;
+import org.activiti.engine.impl.jobexecutor.JobExecutor;
+import org.activiti.engine.impl.jobexecutor.JobIdBatchInOneTransaction;
+import org.activiti.engine.impl.persistence.entity.MessageEntity;
+import org.activiti.engine.impl.persistence.entity.TimerEntity;
+import org.activiti.engine.impl.util.ClockUtil;
+import org.activiti.engine.runtime.Job;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class JobsInOneTransactionTest extends JobExecutorTestCase {
+  
+  private static Logger log = LoggerFactory.getLogger(JobsInOneTransactionTest.class);
+  
+  protected static final int NR_OF_BENCHMARK_JOBS = 512;
+  protected static final int[] JOBS_PER_TRANSACTION = {1, 8, 32};
+  
+  protected TweetExceptionHandler tweetExceptionHandler = new TweetExceptionHandler();
+  protected int maxJobsPerAcquisition;
+  
+  public void setUp() throws Exception {
+    super.setUp();
+    processEngineConfiguration.getJobHandlers().put(tweetExceptionHandler.getType(), tweetExceptionHandler);
+    JobExecutor jobExecutor = processEngineConfiguration.getJobExecutor();
+    maxJobsPerAcquisition = jobExecutor.getMaxJobsPerAcquisition();
+    jobExecutor.setMaxJobsPerAcquisition(100);
+    jobExecutor.setJobsPerTransaction(8);
+  }
+  
+  public void tearDown() throws Exception {
+    JobExecutor jobExecutor = processEngineConfiguration.getJobExecutor();
+    jobExecutor.setMaxJobsPerAcquisition(maxJobsPerAcquisition);
+    jobExecutor.setJobsPerTransaction(1);
+    processEngineConfiguration.getJobHandlers().remove(tweetExceptionHandler.getType());
+    super.tearDown();
+  }
+
+  public void testMessagesAreAcquiredInTransactionBatches() {
+    for (int i=0; i<10; i++) {
+      sendMessage(createTweetMessage("message " + i));
+    }
+    scheduleTimer(createTweetTimer("timer", ClockUtil.getCurrentTime()));
+    
+    AcquiredJobs acquiredJobs = acquireJobs();
+    
+    // 8 + 2 messages in one transaction each, the timer on its own
+    List<List<String>> batches = acquiredJobs.getJobIdBatchesInOneTransaction();
+    assertEquals(2, batches.size());
+    assertEquals(8, batches.get(0).size());
+    assertEquals(2, batches.get(1).size());
+    assertTrue(batches.get(0) instanceof JobIdBatchInOneTransaction);
+    assertEquals(3, acquiredJobs.getJobIdBatches().size());
+    assertEquals(11, acquiredJobs.getNrOfJobsFound());
+  }
+  
+  public void testNoTransactionBatchesWhenDisabled() {
+    processEngineConfiguration.getJobExecutor().setJobsPerTransaction(1);
+    for (int i=0; i<5; i++) {
+      sendMessage(createTweetMessage("message " + i));
+    }
+    
+    AcquiredJobs acquiredJobs = acquireJobs();
+    
+    assertTrue(acquiredJobs.getJobIdBatchesInOneTransaction().isEmpty());
+    assertEquals(5, acquiredJobs.getJobIdBatches().size());
+  }
+  
+  public void testExecuteJobsInOneTransaction() {
+    for (int i=0; i<5; i++) {
+      sendMessage(createTweetMessage("message " + i));
+    }
+    
+    executeAcquiredJobs();
+    
+    assertEquals(5, tweetHandler.getMessages().size());
+    assertEquals(0, managementService.createJobQuery().count());
+  }
+  
+  public void testFailingJobDoesNotRollBackTheOtherJobs() {
+    for (int i=0; i<3; i++) {
+      sendMessage(createTweetMessage("message " + i));
+    }
+    MessageEntity failingMessage = new MessageEntity();
+    failingMessage.setJobHandlerType(tweetExceptionHandler.getType());
+    String failingJobId = sendMessage(failingMessage);
+    tweetExceptionHandler.setExceptionsRemaining(2);
+    
+    executeAcquiredJobs();
+    
+    // the transaction failed, the jobs were executed again one by one
+    assertEquals(0, tweetExceptionHandler.getExceptionsRemaining());
+    
+    Job failingJob = managementService.createJobQuery().singleResult();
+    assertEquals(failingJobId, failingJob.getId());
+    assertEquals(2, failingJob.getRetries());
+  }
+  
+  /**
+   * Logs the throughput of async messages for 1, 8 and 32 jobs per transaction.
+   */
+  public void testBenchmark() {
+    JobExecutor jobExecutor = processEngineConfiguration.getJobExecutor();
+    for (int jobsPerTransaction : JOBS_PER_TRANSACTION) {
+      jobExecutor.setJobsPerTransaction(jobsPerTransaction);
+      for (int i=0; i<NR_OF_BENCHMARK_JOBS; i++) {
+        sendMessage(createTweetMessage("message " + i));
+      }
+      
+      long start = System.currentTimeMillis();
+      while (executeAcquiredJobs() > 0) {
+        // until all jobs are executed
+      }
+      long duration = System.currentTimeMillis() - start;
+      
+      assertEquals(0, managementService.createJobQuery().count());
+      log.info("{} jobs per transaction: {} jobs/s", jobsPerTransaction, NR_OF_BENCHMARK_JOBS * 1000L / Math.max(duration, 1));
+    }
+  }
+  
+  protected AcquiredJobs acquireJobs() {
+    JobExecutor jobExecutor = processEngineConfiguration.getJobExecutor();
+    return processEngineConfiguration.getCommandExecutor().execute(new AcquireJobsCmd(jobExecutor));
+  }
+  
+  /** acquires and executes the jobs like the job executor does, in the current thread */
+  protected int executeAcquiredJobs() {
+    JobExecutor jobExecutor = processEngineConfiguration.getJobExecutor();
+    AcquiredJobs acquiredJobs = acquireJobs();
+    for (List<String> jobIds : acquiredJobs.getJobIdBatches()) {
+      new ExecuteJobsRunnable(jobExecutor, jobIds).run();
+    }
+    return acquiredJobs.size();
+  }
+  
+  protected String sendMessage(final MessageEntity message) {
+    return processEngineConfiguration.getCommandExecutor().execute(new Command<String>() {
+      public String execute(CommandContext commandContext) {
+        commandContext.getJobEntityManager().send(message);
+        return message.getId();
+      }
+    });
+  }
+  
+  protected String scheduleTimer(final TimerEntity timer) {
+    return processEngineConfiguration.getCommandExecutor().execute(new Command<String>() {
+      public String execute(CommandContext commandContext) {
+        commandContext.getJobEntityManager().schedule(timer);
+        return timer.getId();
+      }
+    });
+  }
+}
@@ -0,0 +1,168 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.test.jobexecutor;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.activiti.engine.impl.cmd.AcquireJobsCmd;
+import org.activiti.engine.impl.cmd.ExecuteJobsCmd;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.interceptor.CommandExecutor;
+import org.activiti.engine.impl.jobexecutor.AcquiredJobs;
+import org.activiti.engine.impl.jobexecutor.JobAcquisitionPartition;
+import org.activiti.engine.impl.jobexecutor.JobExecutor;
+import org.activiti.engine.impl.persistence.entity.JobEntity;
+import org.activiti.engine.impl.persistence.entity.MessageEntity;
+import org.activiti.engine.impl.persistence.entity.TimerEntity;
+import org.activiti.engine.impl.util.ClockUtil;
+
+public class PartitionedJobAcquisitionTest extends JobExecutorTestCase {
+  
+  public void testPartitionRangesCoverAllPartitions() {
+    int nrOfRanges = 3;
+    int expectedFrom = 0;
+    for (int i=0; i<nrOfRanges; i++) {
+      JobAcquisitionPartition partition = new JobAcquisitionPartition(null, i, nrOfRanges);
+      assertEquals(expectedFrom, partition.getPartitionFrom());
+      assertTrue(partition.getPartitionTo() > partition.getPartitionFrom());
+      assertEquals(i == 0, partition.isIncludingUnpartitioned());
+      expectedFrom = partition.getPartitionTo();
+    }
+    assertEquals(JobAcquisitionPartition.NR_OF_PARTITIONS, expectedFrom);
+    
+    assertFalse(JobAcquisitionPartition.ALL.isPartitioned());
+  }
+  
+  public void testPartitionsAcquireDisjointJobs() {
+    Set<String> jobIds = new HashSet<String>();
+    for (int i=0; i<20; i++) {
+      jobIds.add(sendMessage("message " + i));
+    }
+    
+    JobExecutor jobExecutor = processEngineConfiguration.getJobExecutor();
+    int maxJobsPerAcquisition = jobExecutor.getMaxJobsPerAcquisition();
+    jobExecutor.setMaxJobsPerAcquisition(100);
+    try {
+      int nrOfRanges = 3;
+      Set<String> acquiredJobIds = new HashSet<String>();
+      for (int i=0; i<nrOfRanges; i++) {
+        JobAcquisitionPartition partition = new JobAcquisitionPartition(null, i, nrOfRanges);
+        for (String jobId : acquireJobs(partition)) {
+          JobEntity job = findJob(jobId);
+          assertTrue(job.getPartition() >= partition.getPartitionFrom());
+          assertTrue(job.getPartition() < partition.getPartitionTo());
+          // every job is acquired by one partition only
+          assertTrue(acquiredJobIds.add(jobId));
+        }
+      }
+      assertEquals(jobIds, acquiredJobIds);
+      
+    } finally {
+      jobExecutor.setMaxJobsPerAcquisition(maxJobsPerAcquisition);
+    }
+    
+    executeJobs(jobIds);
+    assertEquals(20, tweetHandler.getMessages().size());
+  }
+  
+  public void testTimersAndMessagesAcquiredSeparately() {
+    ClockUtil.setCurrentTime(new Date(JobExecutorCmdHappyTest.SOME_TIME));
+    
+    Set<String> messageIds = new HashSet<String>();
+    messageIds.add(sendMessage("message 1"));
+    messageIds.add(sendMessage("message 2"));
+    Set<String> timerIds = new HashSet<String>();
+    timerIds.add(scheduleTimer("timer 1", new Date(JobExecutorCmdHappyTest.SOME_TIME - 1000)));
+    
+    JobAcquisitionPartition timerPartition = new JobAcquisitionPartition(JobAcquisitionPartition.JOB_TYPE_TIMER, 0, 1);
+    assertEquals(timerIds, acquireJobs(timerPartition));
+    
+    JobAcquisitionPartition messagePartition = new JobAcquisitionPartition(JobAcquisitionPartition.JOB_TYPE_MESSAGE, 0, 1);
+    assertEquals(messageIds, acquireJobs(messagePartition));
+    
+    executeJobs(messageIds);
+    executeJobs(timerIds);
+    assertEquals(3, tweetHandler.getMessages().size());
+  }
+  
+  public void testMultipleAcquisitionThreads() {
+    JobExecutor jobExecutor = processEngineConfiguration.getJobExecutor();
+    jobExecutor.setNrOfAcquisitionThreads(2);
+    jobExecutor.setTimerAcquisitionSeparated(true);
+    try {
+      for (int i=0; i<10; i++) {
+        sendMessage("message " + i);
+      }
+      scheduleTimer("timer", new Date(ClockUtil.getCurrentTime().getTime() - 1000));
+      
+      waitForJobExecutorToProcessAllJobs(10000L, 100L);
+      
+      assertEquals(11, tweetHandler.getMessages().size());
+      
+    } finally {
+      jobExecutor.setNrOfAcquisitionThreads(1);
+      jobExecutor.setTimerAcquisitionSeparated(false);
+    }
+  }
+  
+  protected String sendMessage(final String msg) {
+    return processEngineConfiguration.getCommandExecutor().execute(new Command<String>() {
+      public String execute(CommandContext commandContext) {
+        MessageEntity message = createTweetMessage(msg);
+        commandContext.getJobEntityManager().send(message);
+        return message.getId();
+      }
+    });
+  }
+  
+  protected String scheduleTimer(final String msg, final Date duedate) {
+    return processEngineConfiguration.getCommandExecutor().execute(new Command<String>() {
+      public String execute(CommandContext commandContext) {
+        TimerEntity timer = createTweetTimer(msg, duedate);
+        commandContext.getJobEntityManager().schedule(timer);
+        return timer.getId();
+      }
+    });
+  }
+  
+  protected JobEntity findJob(final String jobId) {
+    return processEngineConfiguration.getCommandExecutor().execute(new Command<JobEntity>() {
+      public JobEntity execute(CommandContext commandContext) {
+        return commandContext.getJobEntityManager().findJobById(jobId);
+      }
+    });
+  }
+  
+  protected Set<String> acquireJobs(JobAcquisitionPartition partition) {
+    JobExecutor jobExecutor = processEngineConfiguration.getJobExecutor();
+    AcquiredJobs acquiredJobs = processEngineConfiguration.getCommandExecutor()
+      .execute(new AcquireJobsCmd(jobExecutor, partition));
+    Set<String> jobIds = new HashSet<String>();
+    for (List<String> jobIdBatch : acquiredJobs.getJobIdBatches()) {
+      jobIds.addAll(jobIdBatch);
+    }
+    return jobIds;
+  }
+  
+  protected void executeJobs(Set<String> jobIds) {
+    CommandExecutor commandExecutor = processEngineConfiguration.getCommandExecutor();
+    for (String jobId : jobIds) {
+      commandExecutor.execute(new ExecuteJobsCmd(jobId));
+    }
+  }
+
+}
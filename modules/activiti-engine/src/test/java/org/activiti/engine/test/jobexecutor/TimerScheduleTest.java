@@ -0,0 +1,99 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.test.jobexecutor;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.activiti.engine.impl.jobexecutor.TimerSchedule;
+import org.activiti.engine.impl.persistence.entity.TimerEntity;
+
+public class TimerScheduleTest extends TestCase {
+  
+  public void testLookAhead() {
+    TimerSchedule timerSchedule = new TimerSchedule(10);
+    assertTrue(timerSchedule.isLookAheadNeeded(0));
+    assertEquals(-1, timerSchedule.getMillisTillNextTimer(0));
+    
+    timerSchedule.lookAheadDone(createTimers(1000, 3000), 0, 5000, 10);
+    assertEquals(2, timerSchedule.size());
+    assertEquals(5000, timerSchedule.getLookAheadUntil());
+    assertFalse(timerSchedule.isLookAheadNeeded(4999));
+    assertTrue(timerSchedule.isLookAheadNeeded(5000));
+    
+    assertEquals(1000, timerSchedule.getMillisTillNextTimer(0));
+    // overdue timers must be acquired right away
+    assertEquals(0, timerSchedule.getMillisTillNextTimer(2000));
+    
+    timerSchedule.removeDuedatesBefore(2000);
+    assertEquals(1, timerSchedule.size());
+    assertEquals(1000, timerSchedule.getMillisTillNextTimer(2000));
+  }
+
+  public void testLookAheadWithMoreTimersThanFitInTheSchedule() {
+    TimerSchedule timerSchedule = new TimerSchedule(2);
+    timerSchedule.lookAheadDone(createTimers(1000, 2000), 0, 5000, 2);
+    
+    // there might be more timers after the last one that was loaded
+    assertEquals(2000, timerSchedule.getLookAheadUntil());
+    assertTrue(timerSchedule.isLookAheadNeeded(2000));
+  }
+  
+  public void testLookAheadDuringBacklogOfDueTimers() {
+    TimerSchedule timerSchedule = new TimerSchedule(2);
+    timerSchedule.lookAheadDone(createTimers(1000, 2000), 10000, 15000, 2);
+    
+    // the window doesn't end in the past, so the next acquisition doesn't look ahead right away
+    assertEquals(10000, timerSchedule.getLookAheadUntil());
+    assertFalse(timerSchedule.isLookAheadNeeded(9999));
+    
+    // the due timers that the acquisition started with don't make it run again right away
+    timerSchedule.removeDuedatesBefore(9000);
+    assertEquals(-1, timerSchedule.getMillisTillNextTimer(10000));
+  }
+  
+  public void testScheduledTimers() {
+    TimerSchedule timerSchedule = new TimerSchedule(2);
+    
+    // without look ahead, the schedule doesn't know about other timers
+    timerSchedule.add(new Date(1000));
+    assertEquals(0, timerSchedule.size());
+
+    timerSchedule.lookAheadDone(createTimers(3000), 0, 5000, 2);
+    timerSchedule.add(new Date(1000));
+    assertEquals(1000, timerSchedule.getMillisTillNextTimer(0));
+    
+    // beyond the look ahead window
+    timerSchedule.add(new Date(6000));
+    assertEquals(2, timerSchedule.size());
+    
+    // the schedule is full, so it is only complete up to its last timer now 
+    timerSchedule.add(new Date(2000));
+    assertEquals(2, timerSchedule.size());
+    assertEquals(2000, timerSchedule.getLookAheadUntil());
+  }
+  
+  /** the look ahead query returns the timers ordered by due date */
+  protected List<TimerEntity> createTimers(long... duedates) {
+    List<TimerEntity> timers = new ArrayList<TimerEntity>();
+    for (long duedate : duedates) {
+      TimerEntity timer = new TimerEntity();
+      timer.setDuedate(new Date(duedate));
+      timers.add(timer);
+    }
+    return timers;
+  }
+}
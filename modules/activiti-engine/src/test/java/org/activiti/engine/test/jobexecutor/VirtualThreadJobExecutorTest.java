@@ -0,0 +1,113 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.engine.test.jobexecutor;
+
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.jobexecutor.CallerRunsRejectedJobsHandler;
+import org.activiti.engine.impl.jobexecutor.VirtualThreadJobExecutor;
+import org.activiti.engine.impl.persistence.entity.MessageEntity;
+
+public class VirtualThreadJobExecutorTest extends JobExecutorTestCase {
+  
+  public void testExecuteJobs() throws Exception {
+    VirtualThreadJobExecutor jobExecutor = createJobExecutor();
+    for (int i=0; i<20; i++) {
+      sendMessage("message " + i);
+    }
+    
+    jobExecutor.start();
+    try {
+      // virtual threads are used whenever the JVM has them
+      assertEquals(hasVirtualThreads(), jobExecutor.isUsingVirtualThreads());
+      
+      long timeout = System.currentTimeMillis() + 10000L;
+      while (managementService.createJobQuery().count() > 0 && System.currentTimeMillis() < timeout) {
+        Thread.sleep(50L);
+      }
+    } finally {
+      jobExecutor.shutdown();
+    }
+    
+    assertEquals(0, managementService.createJobQuery().count());
+    assertEquals(20, tweetHandler.getMessages().size());
+    assertFalse(jobExecutor.isUsingVirtualThreads());
+  }
+  
+  public void testBatchesWaitForMaxConcurrentJobsInsteadOfBeingRejected() throws Exception {
+    if (!hasVirtualThreads()) {
+      return;
+    }
+    VirtualThreadJobExecutor jobExecutor = createJobExecutor();
+    jobExecutor.setMaxConcurrentJobs(1);
+    jobExecutor.setMaxJobsPerAcquisition(10);
+    for (int i=0; i<20; i++) {
+      sendMessage("message " + i);
+    }
+    
+    jobExecutor.start();
+    try {
+      long timeout = System.currentTimeMillis() + 10000L;
+      while (managementService.createJobQuery().count() > 0 && System.currentTimeMillis() < timeout) {
+        Thread.sleep(50L);
+      }
+    } finally {
+      jobExecutor.shutdown();
+    }
+    
+    assertEquals(20, tweetHandler.getMessages().size());
+    // rejected batches would have been run by the acquisition thread
+    assertEquals(0, jobExecutor.getMetrics().getRejectedJobs());
+  }
+  
+  public void testRemainingCapacityIsLimitedByMaxConcurrentJobs() {
+    if (!hasVirtualThreads()) {
+      return;
+    }
+    VirtualThreadJobExecutor jobExecutor = createJobExecutor();
+    jobExecutor.setMaxConcurrentJobs(7);
+    jobExecutor.start();
+    try {
+      assertEquals(7, jobExecutor.getRemainingCapacity());
+    } finally {
+      jobExecutor.shutdown();
+    }
+  }
+  
+  protected VirtualThreadJobExecutor createJobExecutor() {
+    VirtualThreadJobExecutor jobExecutor = new VirtualThreadJobExecutor();
+    jobExecutor.setCommandExecutor(processEngineConfiguration.getCommandExecutor());
+    jobExecutor.setRejectedJobsHandler(new CallerRunsRejectedJobsHandler());
+    jobExecutor.setWaitTimeInMillis(50);
+    return jobExecutor;
+  }
+  
+  protected boolean hasVirtualThreads() {
+    try {
+      Thread.class.getMethod("ofVirtual").invoke(null);
+      return true;
+    } catch (Exception e) {
+      return false;
+    }
+  }
+  
+  protected String sendMessage(final String msg) {
+    return processEngineConfiguration.getCommandExecutor().execute(new Command<String>() {
+      public String execute(CommandContext commandContext) {
+        MessageEntity message = createTweetMessage(msg);
+        commandContext.getJobEntityManager().send(message);
+        return message.getId();
+      }
+    });
+  }
+}
@@ -0,0 +1,86 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.standalone.cfg;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.activiti.engine.history.HistoricVariableInstance;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.persistence.entity.TaskEntity;
+import org.activiti.engine.impl.test.ResourceActivitiTestCase;
+import org.activiti.engine.runtime.ProcessInstance;
+import org.activiti.engine.task.Task;
+import org.activiti.engine.test.Deployment;
+
+public class BulkInsertTest extends ResourceActivitiTestCase {
+  
+  public BulkInsertTest() {
+    super("org/activiti/standalone/cfg/bulkinsert.activiti.cfg.xml");
+  }
+  
+  @Deployment(resources = {"org/activiti/engine/test/api/oneTaskProcess.bpmn20.xml"})
+  public void testBulkInsertVariables() {
+    Map<String, Object> variables = new HashMap<String, Object>();
+    for (int i=0; i<50; i++) {
+      variables.put("var" + i, i);
+    }
+    ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("oneTaskProcess", variables);
+    
+    Map<String, Object> storedVariables = runtimeService.getVariables(processInstance.getId());
+    assertEquals(50, storedVariables.size());
+    for (int i=0; i<50; i++) {
+      assertEquals(i, storedVariables.get("var" + i));
+    }
+    
+    assertEquals(50, historyService.createHistoricVariableInstanceQuery().processInstanceId(processInstance.getId()).count());
+    assertEquals(50, historyService.createHistoricDetailQuery().processInstanceId(processInstance.getId()).variableUpdates().count());
+    for (HistoricVariableInstance historicVariableInstance : historyService.createHistoricVariableInstanceQuery().processInstanceId(processInstance.getId()).list()) {
+      assertEquals(variables.get(historicVariableInstance.getVariableName()), historicVariableInstance.getValue());
+    }
+    
+    Task task = taskService.createTaskQuery().processInstanceId(processInstance.getId()).singleResult();
+    taskService.complete(task.getId());
+    assertProcessEnded(processInstance.getId());
+  }
+  
+  @Deployment(resources = {"org/activiti/engine/test/api/oneTaskProcess.bpmn20.xml"})
+  public void testBulkInsertIdentityLinks() {
+    ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("oneTaskProcess");
+    Task task = taskService.createTaskQuery().processInstanceId(processInstance.getId()).singleResult();
+    
+    final String taskId = task.getId();
+    managementService.executeCommand(new Command<Void>() {
+      public Void execute(CommandContext commandContext) {
+        // all candidate users are added in one flush
+        TaskEntity taskEntity = commandContext.getTaskEntityManager().findTaskById(taskId);
+        List<String> candidateUsers = new ArrayList<String>();
+        for (int i=0; i<10; i++) {
+          candidateUsers.add("user" + i);
+        }
+        taskEntity.addCandidateUsers(candidateUsers);
+        return null;
+      }
+    });
+    
+    assertEquals(10, taskService.getIdentityLinksForTask(task.getId()).size());
+    assertEquals(1, taskService.createTaskQuery().taskCandidateUser("user7").count());
+    
+    taskService.complete(task.getId());
+    assertProcessEnded(processInstance.getId());
+  }
+  
+}
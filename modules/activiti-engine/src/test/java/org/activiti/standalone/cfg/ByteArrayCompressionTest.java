@@ -0,0 +1,150 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.standalone.cfg;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.activiti.engine.ActivitiException;
+import org.activiti.engine.history.HistoricVariableInstance;
+import org.activiti.engine.impl.db.DbSqlSessionFactory;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.persistence.entity.VariableInstanceEntity;
+import org.activiti.engine.impl.test.ResourceActivitiTestCase;
+import org.activiti.engine.impl.util.CompressionUtil;
+import org.activiti.engine.impl.util.IoUtil;
+import org.activiti.engine.repository.ProcessDefinition;
+import org.activiti.engine.runtime.ProcessInstance;
+import org.activiti.engine.test.Deployment;
+
+public class ByteArrayCompressionTest extends ResourceActivitiTestCase {
+  
+  public ByteArrayCompressionTest() {
+    super("org/activiti/standalone/cfg/bytearraycompression.activiti.cfg.xml");
+  }
+  
+  @Deployment(resources = {"org/activiti/engine/test/api/oneTaskProcess.bpmn20.xml"})
+  public void testLargeVariablesAreCompressed() {
+    List<String> largeValue = createValue(500);
+    ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("oneTaskProcess");
+    runtimeService.setVariable(processInstance.getId(), "large", largeValue);
+    runtimeService.setVariable(processInstance.getId(), "small", createValue(1));
+    
+    assertTrue(CompressionUtil.isCompressed(selectStoredBytes(processInstance.getId(), "large")));
+    assertFalse(CompressionUtil.isCompressed(selectStoredBytes(processInstance.getId(), "small")));
+    
+    assertEquals(largeValue, runtimeService.getVariable(processInstance.getId(), "large"));
+    assertEquals(createValue(1), runtimeService.getVariable(processInstance.getId(), "small"));
+    
+    // updates are compressed as well
+    List<String> updatedValue = createValue(600);
+    runtimeService.setVariable(processInstance.getId(), "large", updatedValue);
+    assertTrue(CompressionUtil.isCompressed(selectStoredBytes(processInstance.getId(), "large")));
+    assertEquals(updatedValue, runtimeService.getVariable(processInstance.getId(), "large"));
+    
+    HistoricVariableInstance historicVariable = historyService.createHistoricVariableInstanceQuery()
+      .processInstanceId(processInstance.getId())
+      .variableName("large")
+      .singleResult();
+    assertEquals(updatedValue, historicVariable.getValue());
+  }
+  
+  @Deployment(resources = {"org/activiti/engine/test/api/oneTaskProcess.bpmn20.xml"})
+  public void testUncompressedVariablesAreStillRead() {
+    List<String> largeValue = createValue(500);
+    ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("oneTaskProcess");
+    
+    // as if the value was stored before compression was enabled
+    DbSqlSessionFactory dbSqlSessionFactory = processEngineConfiguration.getDbSqlSessionFactory();
+    int threshold = dbSqlSessionFactory.getByteArrayCompressionThreshold();
+    dbSqlSessionFactory.setByteArrayCompressionThreshold(-1);
+    try {
+      runtimeService.setVariable(processInstance.getId(), "large", largeValue);
+    } finally {
+      dbSqlSessionFactory.setByteArrayCompressionThreshold(threshold);
+    }
+    
+    assertFalse(CompressionUtil.isCompressed(selectStoredBytes(processInstance.getId(), "large")));
+    assertEquals(largeValue, runtimeService.getVariable(processInstance.getId(), "large"));
+  }
+  
+  @Deployment(resources = {"org/activiti/engine/test/api/oneTaskProcess.bpmn20.xml"})
+  public void testDeploymentResourcesAreCompressed() {
+    ProcessDefinition processDefinition = repositoryService.createProcessDefinitionQuery().singleResult();
+    
+    byte[] resourceBytes = IoUtil.readInputStream(repositoryService.getResourceAsStream(
+            processDefinition.getDeploymentId(), processDefinition.getResourceName()), "resource");
+    byte[] originalBytes = IoUtil.readInputStream(getClass().getClassLoader().getResourceAsStream(
+            "org/activiti/engine/test/api/oneTaskProcess.bpmn20.xml"), "original");
+    assertTrue(Arrays.equals(originalBytes, resourceBytes));
+    assertTrue(CompressionUtil.isCompressed(selectStoredResourceBytes(processDefinition.getDeploymentId(), processDefinition.getResourceName())));
+    
+    assertNotNull(runtimeService.startProcessInstanceByKey("oneTaskProcess"));
+  }
+  
+  protected List<String> createValue(int size) {
+    List<String> value = new ArrayList<String>();
+    for (int i = 0; i < size; i++) {
+      value.add("line " + i + " of a value that compresses well");
+    }
+    return value;
+  }
+  
+  /** the contents of the variable as they are in ACT_GE_BYTEARRAY */
+  protected byte[] selectStoredBytes(final String executionId, final String variableName) {
+    return processEngineConfiguration.getCommandExecutor().execute(new Command<byte[]>() {
+      public byte[] execute(CommandContext commandContext) {
+        for (VariableInstanceEntity variableInstance : commandContext.getVariableInstanceEntityManager().findVariableInstancesByExecutionId(executionId)) {
+          if (variableName.equals(variableInstance.getName())) {
+            return selectStoredBytes(commandContext, "select BYTES_ from ACT_GE_BYTEARRAY where ID_ = ?", variableInstance.getByteArrayValueId());
+          }
+        }
+        return null;
+      }
+    });
+  }
+  
+  protected byte[] selectStoredResourceBytes(final String deploymentId, final String resourceName) {
+    return processEngineConfiguration.getCommandExecutor().execute(new Command<byte[]>() {
+      public byte[] execute(CommandContext commandContext) {
+        return selectStoredBytes(commandContext, "select BYTES_ from ACT_GE_BYTEARRAY where DEPLOYMENT_ID_ = ? and NAME_ = ?", deploymentId, resourceName);
+      }
+    });
+  }
+  
+  protected byte[] selectStoredBytes(CommandContext commandContext, String sql, String... parameters) {
+    try {
+      Connection connection = commandContext.getDbSqlSession().getSqlSession().getConnection();
+      PreparedStatement statement = connection.prepareStatement(sql);
+      try {
+        for (int i = 0; i < parameters.length; i++) {
+          statement.setString(i + 1, parameters[i]);
+        }
+        ResultSet resultSet = statement.executeQuery();
+        assertTrue(resultSet.next());
+        return resultSet.getBytes(1);
+      } finally {
+        statement.close();
+      }
+    } catch (SQLException e) {
+      throw new ActivitiException("couldn't select the stored bytes", e);
+    }
+  }
+
+}
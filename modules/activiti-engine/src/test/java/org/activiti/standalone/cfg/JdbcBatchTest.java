@@ -0,0 +1,75 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.standalone.cfg;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.activiti.engine.ActivitiOptimisticLockingException;
+import org.activiti.engine.impl.test.ResourceActivitiTestCase;
+import org.activiti.engine.runtime.ProcessInstance;
+import org.activiti.engine.task.Task;
+import org.activiti.engine.test.Deployment;
+
+public class JdbcBatchTest extends ResourceActivitiTestCase {
+  
+  public JdbcBatchTest() {
+    super("org/activiti/standalone/cfg/jdbcbatch.activiti.cfg.xml");
+  }
+  
+  @Deployment(resources = {"org/activiti/engine/test/api/oneTaskProcess.bpmn20.xml"})
+  public void testProcessWithManyVariables() {
+    Map<String, Object> variables = new HashMap<String, Object>();
+    for (int i=0; i<50; i++) {
+      variables.put("var" + i, "value" + i);
+    }
+    ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("oneTaskProcess", variables);
+    assertEquals(50, runtimeService.getVariables(processInstance.getId()).size());
+    
+    Task task = taskService.createTaskQuery().processInstanceId(processInstance.getId()).singleResult();
+    taskService.addCandidateUser(task.getId(), "kermit");
+    taskService.addCandidateGroup(task.getId(), "management");
+    assertEquals(1, taskService.createTaskQuery().taskCandidateUser("kermit").count());
+    
+    variables.put("var0", "updated");
+    taskService.complete(task.getId(), variables);
+    
+    assertProcessEnded(processInstance.getId());
+    assertEquals(50, historyService.createHistoricVariableInstanceQuery().processInstanceId(processInstance.getId()).count());
+    assertEquals("updated", historyService.createHistoricVariableInstanceQuery()
+            .processInstanceId(processInstance.getId()).variableName("var0").singleResult().getValue());
+  }
+  
+  public void testOptimisticLockingOnBatchedUpdate() {
+    Task task = taskService.newTask();
+    taskService.saveTask(task);
+    String taskId = task.getId();
+    
+    Task task1 = taskService.createTaskQuery().taskId(taskId).singleResult();
+    Task task2 = taskService.createTaskQuery().taskId(taskId).singleResult();
+    
+    task1.setDescription("first modification");
+    taskService.saveTask(task1);
+    
+    task2.setDescription("second modification");
+    try {
+      taskService.saveTask(task2);
+      fail("should get an exception here as the task was modified by someone else.");
+    } catch (ActivitiOptimisticLockingException expected) {
+      //  exception was thrown as expected
+    }
+    
+    taskService.deleteTask(taskId, true);
+  }
+
+}
@@ -0,0 +1,76 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.standalone.cfg;
+
+import org.activiti.engine.impl.test.ResourceActivitiTestCase;
+import org.activiti.engine.runtime.Execution;
+import org.activiti.engine.runtime.ProcessInstance;
+import org.activiti.engine.task.Task;
+import org.activiti.engine.test.Deployment;
+
+public class PartialUpdateTest extends ResourceActivitiTestCase {
+  
+  public PartialUpdateTest() {
+    super("org/activiti/standalone/cfg/partialupdate.activiti.cfg.xml");
+  }
+  
+  @Deployment(resources = {"org/activiti/engine/test/api/oneTaskProcess.bpmn20.xml"})
+  public void testPartialTaskUpdate() {
+    ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("oneTaskProcess");
+    Task task = taskService.createTaskQuery().processInstanceId(processInstance.getId()).singleResult();
+    
+    taskService.setAssignee(task.getId(), "kermit");
+    taskService.setPriority(task.getId(), 77);
+    
+    task = taskService.createTaskQuery().taskId(task.getId()).singleResult();
+    assertEquals("kermit", task.getAssignee());
+    assertEquals(77, task.getPriority());
+    // the columns that didn't change are left untouched
+    assertEquals("my task", task.getName());
+    assertEquals(processInstance.getId(), task.getProcessInstanceId());
+    assertEquals("theTask", task.getTaskDefinitionKey());
+    
+    // a property that is set to null is a change as well
+    taskService.setAssignee(task.getId(), null);
+    task = taskService.createTaskQuery().taskId(task.getId()).singleResult();
+    assertNull(task.getAssignee());
+    assertEquals(77, task.getPriority());
+    
+    taskService.complete(task.getId());
+    assertProcessEnded(processInstance.getId());
+  }
+  
+  @Deployment(resources = {"org/activiti/engine/test/api/twoTasksProcess.bpmn20.xml"})
+  public void testPartialExecutionUpdate() {
+    ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("twoTasksProcess", "myBusinessKey");
+    Task task = taskService.createTaskQuery().processInstanceId(processInstance.getId()).singleResult();
+    assertEquals("First task", task.getName());
+    taskService.complete(task.getId());
+    
+    Execution execution = runtimeService.createExecutionQuery().executionId(processInstance.getId()).singleResult();
+    assertEquals("secondTask", execution.getActivityId());
+    
+    runtimeService.suspendProcessInstanceById(processInstance.getId());
+    processInstance = runtimeService.createProcessInstanceQuery().processInstanceId(processInstance.getId()).singleResult();
+    assertTrue(processInstance.isSuspended());
+    assertEquals("myBusinessKey", processInstance.getBusinessKey());
+    assertEquals("secondTask", processInstance.getActivityId());
+    
+    runtimeService.activateProcessInstanceById(processInstance.getId());
+    task = taskService.createTaskQuery().processInstanceId(processInstance.getId()).singleResult();
+    assertEquals("Second task", task.getName());
+    taskService.complete(task.getId());
+    assertProcessEnded(processInstance.getId());
+  }
+  
+}
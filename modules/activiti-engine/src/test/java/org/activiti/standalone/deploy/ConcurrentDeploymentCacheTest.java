@@ -0,0 +1,149 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.standalone.deploy;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.activiti.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.activiti.engine.impl.persistence.deploy.ConcurrentDeploymentCache;
+import org.activiti.engine.impl.persistence.deploy.DeploymentCacheWeigher;
+import org.activiti.engine.impl.persistence.entity.ProcessDefinitionEntity;
+import org.activiti.engine.impl.test.ResourceActivitiTestCase;
+import org.activiti.engine.repository.Deployment;
+import org.activiti.engine.runtime.ProcessInstance;
+import org.activiti.engine.task.Task;
+
+public class ConcurrentDeploymentCacheTest extends ResourceActivitiTestCase {
+  
+  public ConcurrentDeploymentCacheTest() {
+    super("org/activiti/standalone/deploy/concurrent.deployment.cache.test.activiti.cfg.xml");
+  }
+  
+  public void testCacheWeightLimit() {
+    ConcurrentDeploymentCache<ProcessDefinitionEntity> processDefinitionCache = (ConcurrentDeploymentCache<ProcessDefinitionEntity>) 
+            ((ProcessEngineConfigurationImpl) processEngineConfiguration).getProcessDefinitionCache();
+    assertEquals(0, processDefinitionCache.size());
+    
+    String processDefinitionTemplate = DeploymentCacheTestUtil.readTemplateFile(
+            "/org/activiti/standalone/deploy/deploymentCacheTest.bpmn20.xml");
+    for (int i = 1; i <= 5; i++) {
+      repositoryService.createDeployment()
+              .addString("Process " + i + ".bpmn20.xml", MessageFormat.format(processDefinitionTemplate, i))
+              .deploy();
+      
+      // the max weight of 12 fits 3 process definitions
+      assertEquals(Math.min(i, 3), processDefinitionCache.size());
+      assertEquals(Math.min(i, 3) * 4, processDefinitionCache.getWeight());
+    }
+    assertEquals(2, processDefinitionCache.getEvictionCount());
+    
+    // the first process definition was evicted, and is deployed again when it is used
+    long missCount = processDefinitionCache.getMissCount();
+    ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("myProcess1");
+    assertTrue(processDefinitionCache.getMissCount() > missCount);
+    assertEquals(3, processDefinitionCache.size());
+    
+    long hitCount = processDefinitionCache.getHitCount();
+    Task task = taskService.createTaskQuery().processInstanceId(processInstance.getId()).singleResult();
+    taskService.complete(task.getId());
+    assertTrue(processDefinitionCache.getHitCount() > hitCount);
+    assertProcessEnded(processInstance.getId());
+    
+    // Cleanup
+    for (Deployment deployment : repositoryService.createDeploymentQuery().list()) {
+      repositoryService.deleteDeployment(deployment.getId(), true);
+    }
+    assertEquals(0, processDefinitionCache.size());
+    assertEquals(0, processDefinitionCache.getWeight());
+  }
+  
+  public void testConcurrentStartOfEvictedProcessDefinition() throws Exception {
+    String processDefinitionTemplate = DeploymentCacheTestUtil.readTemplateFile(
+            "/org/activiti/standalone/deploy/deploymentCacheTest.bpmn20.xml");
+    for (int i = 1; i <= 4; i++) {
+      repositoryService.createDeployment()
+              .addString("Process " + i + ".bpmn20.xml", MessageFormat.format(processDefinitionTemplate, i))
+              .deploy();
+    }
+    
+    // myProcess1 is no longer cached, all threads need it at the same time
+    final List<String> processInstanceIds = Collections.synchronizedList(new ArrayList<String>());
+    final List<Throwable> exceptions = Collections.synchronizedList(new ArrayList<Throwable>());
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int i = 0; i < 10; i++) {
+      threads.add(new Thread() {
+        public void run() {
+          try {
+            processInstanceIds.add(runtimeService.startProcessInstanceByKey("myProcess1").getId());
+          } catch (Throwable e) {
+            exceptions.add(e);
+          }
+        }
+      });
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    
+    assertTrue(exceptions.toString(), exceptions.isEmpty());
+    assertEquals(10, processInstanceIds.size());
+    
+    // Cleanup
+    for (Deployment deployment : repositoryService.createDeploymentQuery().list()) {
+      repositoryService.deleteDeployment(deployment.getId(), true);
+    }
+  }
+  
+  public void testReferencedEntriesAreEvictedLast() {
+    ConcurrentDeploymentCache<String> cache = new ConcurrentDeploymentCache<String>(10, new DeploymentCacheWeigher<String>() {
+      public int weigh(String object) {
+        return object.length();
+      }
+    });
+    
+    cache.add("a", "aaaa");
+    cache.add("b", "bbbb");
+    cache.add("c", "cc");
+    assertEquals(10, cache.getWeight());
+    
+    // all entries start referenced, so the oldest one is evicted
+    cache.add("d", "dddd");
+    assertNull(cache.get("a"));
+    assertEquals(1, cache.getEvictionCount());
+    assertEquals(10, cache.getWeight());
+    
+    // 'b' is used again, so 'c' is evicted instead
+    assertEquals("bbbb", cache.get("b"));
+    cache.add("e", "ee");
+    assertNull(cache.get("c"));
+    assertEquals("bbbb", cache.get("b"));
+    assertEquals(2, cache.getEvictionCount());
+    assertEquals(10, cache.getWeight());
+    
+    // the last element is kept, even when it exceeds the max weight on its own
+    cache.add("f", "ffffffffffffffffffff");
+    assertEquals("ffffffffffffffffffff", cache.get("f"));
+    assertEquals(1, cache.size());
+    
+    cache.clear();
+    assertEquals(0, cache.size());
+    assertEquals(0, cache.getWeight());
+  }
+
+}
@@ -0,0 +1,80 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.standalone.deploy;
+
+import org.activiti.engine.ActivitiException;
+import org.activiti.engine.impl.test.ResourceActivitiTestCase;
+import org.activiti.engine.repository.Deployment;
+import org.activiti.engine.repository.ProcessDefinition;
+import org.activiti.engine.runtime.ProcessInstance;
+
+public class LatestProcessDefinitionKeyCacheTest extends ResourceActivitiTestCase {
+  
+  public LatestProcessDefinitionKeyCacheTest() {
+    super("org/activiti/standalone/deploy/latest.key.cache.test.activiti.cfg.xml");
+  }
+  
+  public void testLatestVersionIsInvalidated() {
+    String deploymentId1 = deployOneTaskProcess();
+    assertEquals(1, getVersion(runtimeService.startProcessInstanceByKey("oneTaskProcess")));
+    assertEquals(1, getVersion(runtimeService.startProcessInstanceByKey("oneTaskProcess")));
+    
+    // a new deployment contains a new latest version
+    String deploymentId2 = deployOneTaskProcess();
+    assertEquals(2, getVersion(runtimeService.startProcessInstanceByKey("oneTaskProcess")));
+    
+    // when the latest version is deleted, the previous one is the latest again
+    repositoryService.deleteDeployment(deploymentId2, true);
+    assertEquals(1, getVersion(runtimeService.startProcessInstanceByKey("oneTaskProcess")));
+    
+    // suspension
+    repositoryService.suspendProcessDefinitionByKey("oneTaskProcess");
+    try {
+      runtimeService.startProcessInstanceByKey("oneTaskProcess");
+      fail("Exception expected, the process definition is suspended");
+    } catch (ActivitiException e) {
+      // expected
+    }
+    repositoryService.activateProcessDefinitionByKey("oneTaskProcess");
+    assertEquals(1, getVersion(runtimeService.startProcessInstanceByKey("oneTaskProcess")));
+    
+    repositoryService.deleteDeployment(deploymentId1, true);
+  }
+  
+  public void testStartByIdOfCachedProcessDefinition() {
+    String deploymentId = deployOneTaskProcess();
+    ProcessDefinition processDefinition = repositoryService.createProcessDefinitionQuery().deploymentId(deploymentId).singleResult();
+    
+    ProcessInstance processInstance = runtimeService.startProcessInstanceById(processDefinition.getId());
+    assertEquals(processDefinition.getId(), processInstance.getProcessDefinitionId());
+    processInstance = runtimeService.startProcessInstanceById(processDefinition.getId());
+    assertEquals(processDefinition.getId(), processInstance.getProcessDefinitionId());
+    
+    repositoryService.deleteDeployment(deploymentId, true);
+  }
+  
+  protected String deployOneTaskProcess() {
+    Deployment deployment = repositoryService.createDeployment()
+      .addClasspathResource("org/activiti/engine/test/api/oneTaskProcess.bpmn20.xml")
+      .deploy();
+    return deployment.getId();
+  }
+  
+  protected int getVersion(ProcessInstance processInstance) {
+    return repositoryService.createProcessDefinitionQuery()
+      .processDefinitionId(processInstance.getProcessDefinitionId())
+      .singleResult()
+      .getVersion();
+  }
+
+}
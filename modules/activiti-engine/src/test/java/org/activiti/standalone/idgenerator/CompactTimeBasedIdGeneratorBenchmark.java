@@ -0,0 +1,142 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.standalone.idgenerator;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.activiti.engine.impl.cfg.IdGenerator;
+import org.activiti.engine.impl.persistence.CompactTimeBasedIdGenerator;
+import org.activiti.engine.impl.persistence.StrongUuidGenerator;
+import org.activiti.engine.impl.test.ResourceActivitiTestCase;
+
+/**
+ * Not part of the regular build (the class name doesn't match the surefire includes), 
+ * run it from the IDE to compare the id generators.
+ */
+public class CompactTimeBasedIdGeneratorBenchmark extends ResourceActivitiTestCase {
+  
+  protected static final int[] NR_OF_THREADS = {1, 2, 4, 8, 16, 32, 64};
+  protected static final int NR_OF_IDS = 64000;
+  protected static final int NR_OF_INDEXED_IDS = 20000;
+  
+  public CompactTimeBasedIdGeneratorBenchmark() {
+    super("org/activiti/standalone/idgenerator/compact.idgenerator.test.activiti.cfg.xml");
+  }
+  
+  /**
+   * Compares the throughput of the {@link StrongUuidGenerator} and the {@link CompactTimeBasedIdGenerator} 
+   * for 1 to 64 threads, and the size of a primary key index on their ids.
+   */
+  public void testBenchmark() throws Exception {
+    IdGenerator uuidGenerator = new StrongUuidGenerator();
+    CompactTimeBasedIdGenerator compactIdGenerator = new CompactTimeBasedIdGenerator();
+    compactIdGenerator.setNodeId(2);
+    
+    for (int nrOfThreads : NR_OF_THREADS) {
+      long uuidMillis = generateIds(uuidGenerator, nrOfThreads);
+      long compactMillis = generateIds(compactIdGenerator, nrOfThreads);
+      log.info("{} threads: StrongUuidGenerator {} ids/s, CompactTimeBasedIdGenerator {} ids/s", 
+              nrOfThreads, idsPerSecond(uuidMillis), idsPerSecond(compactMillis));
+    }
+    
+    logIndexSize("StrongUuidGenerator", uuidGenerator);
+    logIndexSize("CompactTimeBasedIdGenerator", compactIdGenerator);
+  }
+  
+  protected long idsPerSecond(long millis) {
+    return NR_OF_IDS * 1000L / Math.max(millis, 1);
+  }
+  
+  /** returns the time in milliseconds it took the threads to generate NR_OF_IDS unique ids */
+  protected long generateIds(final IdGenerator idGenerator, int nrOfThreads) throws Exception {
+    final int nrOfIdsPerThread = NR_OF_IDS / nrOfThreads;
+    final List<String> ids = Collections.synchronizedList(new ArrayList<String>());
+    final List<Throwable> exceptions = Collections.synchronizedList(new ArrayList<Throwable>());
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int i=0; i<nrOfThreads; i++) {
+      threads.add(new Thread() {
+        public void run() {
+          try {
+            List<String> threadIds = new ArrayList<String>(nrOfIdsPerThread);
+            for (int j=0; j<nrOfIdsPerThread; j++) {
+              threadIds.add(idGenerator.getNextId());
+            }
+            ids.addAll(threadIds);
+          } catch (Throwable e) {
+            exceptions.add(e);
+          }
+        }
+      });
+    }
+    
+    long start = System.currentTimeMillis();
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    long duration = System.currentTimeMillis() - start;
+    
+    assertTrue(exceptions.toString(), exceptions.isEmpty());
+    assertEquals(nrOfIdsPerThread * nrOfThreads, ids.size());
+    assertEquals(ids.size(), new HashSet<String>(ids).size());
+    return duration;
+  }
+  
+  /** inserts ids in an indexed varchar column, like the ID_ columns of the Activiti tables */
+  protected void logIndexSize(String generatorName, IdGenerator idGenerator) throws Exception {
+    Connection connection = processEngineConfiguration.getDataSource().getConnection();
+    try {
+      connection.setAutoCommit(true);
+      Statement statement = connection.createStatement();
+      statement.execute("create table ID_BENCHMARK (ID_ varchar(64), primary key (ID_))");
+      try {
+        long keyBytes = 0;
+        PreparedStatement insert = connection.prepareStatement("insert into ID_BENCHMARK values (?)");
+        for (int i=0; i<NR_OF_INDEXED_IDS; i++) {
+          String id = idGenerator.getNextId();
+          keyBytes += id.length();
+          insert.setString(1, id);
+          insert.executeUpdate();
+        }
+        insert.close();
+        
+        String diskSpaceUsed = "n/a";
+        try {
+          ResultSet resultSet = statement.executeQuery("select DISK_SPACE_USED('ID_BENCHMARK')");
+          resultSet.next();
+          diskSpaceUsed = Long.toString(resultSet.getLong(1));
+          resultSet.close();
+        } catch (Exception e) {
+          // not supported by this database
+        }
+        log.info("{}: {} ids, {} bytes of keys, disk space used by the table and its index: {}", 
+                generatorName, NR_OF_INDEXED_IDS, keyBytes, diskSpaceUsed);
+      } finally {
+        statement.execute("drop table ID_BENCHMARK");
+        statement.close();
+      }
+    } finally {
+      connection.close();
+    }
+  }
+
+}
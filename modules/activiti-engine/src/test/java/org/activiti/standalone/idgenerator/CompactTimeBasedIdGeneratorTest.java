@@ -0,0 +1,128 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.standalone.idgenerator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.activiti.engine.ActivitiIllegalArgumentException;
+import org.activiti.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.activiti.engine.impl.persistence.CompactTimeBasedIdGenerator;
+import org.activiti.engine.impl.test.ResourceActivitiTestCase;
+import org.activiti.engine.runtime.ProcessInstance;
+
+public class CompactTimeBasedIdGeneratorTest extends ResourceActivitiTestCase {
+  
+  protected static final int NR_OF_THREADS = 8;
+  protected static final int NR_OF_IDS_PER_THREAD = 2000;
+  
+  public CompactTimeBasedIdGeneratorTest() {
+    super("org/activiti/standalone/idgenerator/compact.idgenerator.test.activiti.cfg.xml");
+  }
+  
+  public void testCompactIdGeneratorUsage() {
+    assertTrue(((ProcessEngineConfigurationImpl) processEngineConfiguration).getIdGenerator() instanceof CompactTimeBasedIdGenerator);
+    
+    String deploymentId = repositoryService.createDeployment()
+      .addClasspathResource("org/activiti/engine/test/api/oneTaskProcess.bpmn20.xml")
+      .deploy()
+      .getId();
+    
+    for (int i=0; i<10; i++) {
+      ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("oneTaskProcess");
+      assertEquals(13, processInstance.getId().length());
+    }
+    assertEquals(10, taskService.createTaskQuery().count());
+    
+    repositoryService.deleteDeployment(deploymentId, true);
+  }
+  
+  public void testIdsAreOrdered() {
+    CompactTimeBasedIdGenerator idGenerator = new CompactTimeBasedIdGenerator();
+    idGenerator.setNodeId(1023);
+    
+    String previousId = idGenerator.getNextId();
+    long previousValue = -1;
+    // more ids than fit in one millisecond
+    for (int i=0; i<10000; i++) {
+      long value = idGenerator.nextValue();
+      String id = CompactTimeBasedIdGenerator.toString(value);
+      assertTrue(value > previousValue);
+      assertTrue(id.compareTo(previousId) > 0);
+      previousValue = value;
+      previousId = id;
+    }
+  }
+  
+  public void testClockGoingBackwards() {
+    final long[] time = {CompactTimeBasedIdGenerator.EPOCH + 1000000L};
+    CompactTimeBasedIdGenerator idGenerator = new CompactTimeBasedIdGenerator() {
+      protected long currentTimeMillis() {
+        return time[0];
+      }
+    };
+    idGenerator.setNodeId(0);
+    
+    long first = idGenerator.nextValue();
+    time[0] -= 500;
+    long second = idGenerator.nextValue();
+    assertTrue(second > first);
+  }
+  
+  public void testIdsAreUniqueAcrossThreads() throws Exception {
+    final CompactTimeBasedIdGenerator idGenerator = new CompactTimeBasedIdGenerator();
+    final Set<String> ids = Collections.synchronizedSet(new HashSet<String>());
+    final List<Throwable> exceptions = Collections.synchronizedList(new ArrayList<Throwable>());
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int i=0; i<NR_OF_THREADS; i++) {
+      threads.add(new Thread() {
+        public void run() {
+          try {
+            String previousId = "";
+            for (int j=0; j<NR_OF_IDS_PER_THREAD; j++) {
+              String id = idGenerator.getNextId();
+              // the ids of one thread are ordered as well
+              assertTrue(id.compareTo(previousId) > 0);
+              ids.add(id);
+              previousId = id;
+            }
+          } catch (Throwable e) {
+            exceptions.add(e);
+          }
+        }
+      });
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    
+    assertTrue(exceptions.toString(), exceptions.isEmpty());
+    assertEquals(NR_OF_THREADS * NR_OF_IDS_PER_THREAD, ids.size());
+  }
+  
+  public void testInvalidNodeId() {
+    try {
+      new CompactTimeBasedIdGenerator().setNodeId(1024);
+      fail();
+    } catch (ActivitiIllegalArgumentException e) {
+      // expected
+    }
+  }
+
+}
@@ -0,0 +1,53 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.standalone.idgenerator;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.activiti.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.activiti.engine.impl.db.DbSequenceIdGenerator;
+import org.activiti.engine.impl.test.ResourceActivitiTestCase;
+import org.activiti.engine.runtime.ProcessInstance;
+
+/**
+ * The id sequence table must also work when the updates are batched.
+ */
+public class DbSequenceIdGeneratorJdbcBatchTest extends ResourceActivitiTestCase {
+  
+  public DbSequenceIdGeneratorJdbcBatchTest() {
+    super("org/activiti/standalone/idgenerator/dbsequence.jdbcbatch.idgenerator.test.activiti.cfg.xml");
+  }
+  
+  public void testDbSequenceIdGeneratorWithJdbcBatching() {
+    ProcessEngineConfigurationImpl configuration = (ProcessEngineConfigurationImpl) processEngineConfiguration;
+    assertTrue(configuration.isJdbcBatchEnabled());
+    assertTrue(configuration.getIdGenerator() instanceof DbSequenceIdGenerator);
+    
+    String deploymentId = repositoryService.createDeployment()
+      .addClasspathResource("org/activiti/engine/test/api/oneTaskProcess.bpmn20.xml")
+      .deploy()
+      .getId();
+    
+    // the id block size is 10, so many blocks are fetched
+    Set<String> processInstanceIds = new HashSet<String>();
+    for (int i=0; i<30; i++) {
+      ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("oneTaskProcess");
+      assertTrue(processInstanceIds.add(processInstance.getId()));
+    }
+    assertEquals(30, taskService.createTaskQuery().count());
+    
+    repositoryService.deleteDeployment(deploymentId, true);
+  }
+
+}
@@ -0,0 +1,97 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.standalone.idgenerator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.activiti.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.activiti.engine.impl.db.DbSequenceIdGenerator;
+import org.activiti.engine.impl.test.ResourceActivitiTestCase;
+import org.activiti.engine.runtime.ProcessInstance;
+
+public class DbSequenceIdGeneratorTest extends ResourceActivitiTestCase {
+  
+  public DbSequenceIdGeneratorTest() {
+    super("org/activiti/standalone/idgenerator/dbsequence.idgenerator.test.activiti.cfg.xml");
+  }
+  
+  public void testDbSequenceIdGeneratorUsage() {
+    assertTrue(((ProcessEngineConfigurationImpl) processEngineConfiguration).getIdGenerator() instanceof DbSequenceIdGenerator);
+    
+    String deploymentId = repositoryService.createDeployment()
+      .addClasspathResource("org/activiti/engine/test/api/oneTaskProcess.bpmn20.xml")
+      .deploy()
+      .getId();
+    
+    // the id block size is 10, so many blocks are needed
+    Set<String> processInstanceIds = new HashSet<String>();
+    for (int i=0; i<50; i++) {
+      ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("oneTaskProcess");
+      assertTrue(processInstanceIds.add(processInstance.getId()));
+    }
+    assertEquals(50, taskService.createTaskQuery().count());
+    
+    repositoryService.deleteDeployment(deploymentId, true);
+  }
+  
+  /**
+   * Two generators on the same sequence behave like two engines in a cluster:
+   * they must never hand out the same id.
+   */
+  public void testGeneratorsSharingTheSequence() throws Exception {
+    final DbSequenceIdGenerator idGenerator1 = createIdGenerator();
+    final DbSequenceIdGenerator idGenerator2 = createIdGenerator();
+    
+    final List<String> ids = Collections.synchronizedList(new ArrayList<String>());
+    final List<Throwable> exceptions = Collections.synchronizedList(new ArrayList<Throwable>());
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int i=0; i<4; i++) {
+      final DbSequenceIdGenerator idGenerator = (i%2==0 ? idGenerator1 : idGenerator2);
+      threads.add(new Thread() {
+        public void run() {
+          try {
+            for (int j=0; j<1000; j++) {
+              ids.add(idGenerator.getNextId());
+            }
+          } catch (Throwable e) {
+            exceptions.add(e);
+          }
+        }
+      });
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    
+    assertTrue(exceptions.toString(), exceptions.isEmpty());
+    assertEquals(4000, ids.size());
+    assertEquals(ids.size(), new HashSet<String>(ids).size());
+  }
+  
+  protected DbSequenceIdGenerator createIdGenerator() {
+    ProcessEngineConfigurationImpl configuration = (ProcessEngineConfigurationImpl) processEngineConfiguration;
+    DbSequenceIdGenerator idGenerator = new DbSequenceIdGenerator();
+    idGenerator.setIdBlockSize(25);
+    idGenerator.setCommandExecutor(configuration.getCommandExecutor());
+    idGenerator.setCommandConfig(configuration.getDefaultCommandConfig().transactionRequiresNew());
+    return idGenerator;
+  }
+
+}
@@ -0,0 +1,124 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.standalone.idgenerator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.activiti.engine.impl.cfg.IdGenerator;
+import org.activiti.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.activiti.engine.impl.db.DbIdGenerator;
+import org.activiti.engine.impl.db.PrefetchingDbIdGenerator;
+import org.activiti.engine.impl.test.ResourceActivitiTestCase;
+import org.activiti.engine.runtime.ProcessInstance;
+
+public class PrefetchingDbIdGeneratorTest extends ResourceActivitiTestCase {
+  
+  protected static final int NR_OF_THREADS = 8;
+  protected static final int NR_OF_IDS_PER_THREAD = 5000;
+  
+  public PrefetchingDbIdGeneratorTest() {
+    super("org/activiti/standalone/idgenerator/prefetching.idgenerator.test.activiti.cfg.xml");
+  }
+  
+  public void testPrefetchingIdGeneratorUsage() {
+    assertTrue(((ProcessEngineConfigurationImpl) processEngineConfiguration).getIdGenerator() instanceof PrefetchingDbIdGenerator);
+    
+    String deploymentId = repositoryService.createDeployment()
+      .addClasspathResource("org/activiti/engine/test/api/oneTaskProcess.bpmn20.xml")
+      .deploy()
+      .getId();
+    
+    // the id block size is 10, so many blocks are needed
+    Set<String> processInstanceIds = new HashSet<String>();
+    for (int i=0; i<50; i++) {
+      ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("oneTaskProcess");
+      assertTrue(processInstanceIds.add(processInstance.getId()));
+    }
+    assertEquals(50, taskService.createTaskQuery().count());
+    
+    repositoryService.deleteDeployment(deploymentId, true);
+  }
+  
+  /**
+   * Compares the throughput of the {@link DbIdGenerator} and the {@link PrefetchingDbIdGenerator} 
+   * when many threads generate ids at the same time, and verifies that no id is handed out twice.
+   */
+  public void testConcurrentIdGeneration() throws Exception {
+    ProcessEngineConfigurationImpl configuration = (ProcessEngineConfigurationImpl) processEngineConfiguration;
+    
+    DbIdGenerator dbIdGenerator = new DbIdGenerator();
+    initIdGenerator(dbIdGenerator, configuration);
+    
+    PrefetchingDbIdGenerator prefetchingDbIdGenerator = new PrefetchingDbIdGenerator();
+    initIdGenerator(prefetchingDbIdGenerator, configuration);
+    prefetchingDbIdGenerator.setNrOfPrefetchedBlocks(2);
+    
+    try {
+      long dbIdGeneratorMillis = generateIds(dbIdGenerator);
+      long prefetchingDbIdGeneratorMillis = generateIds(prefetchingDbIdGenerator);
+      
+      int nrOfIds = NR_OF_THREADS * NR_OF_IDS_PER_THREAD;
+      log.info("DbIdGenerator: {} ids with {} threads in {} ms", nrOfIds, NR_OF_THREADS, dbIdGeneratorMillis);
+      log.info("PrefetchingDbIdGenerator: {} ids with {} threads in {} ms", nrOfIds, NR_OF_THREADS, prefetchingDbIdGeneratorMillis);
+    } finally {
+      prefetchingDbIdGenerator.shutdown();
+    }
+  }
+  
+  protected void initIdGenerator(DbIdGenerator idGenerator, ProcessEngineConfigurationImpl configuration) {
+    idGenerator.setIdBlockSize(100);
+    idGenerator.setCommandExecutor(configuration.getCommandExecutor());
+    idGenerator.setCommandConfig(configuration.getDefaultCommandConfig().transactionRequiresNew());
+  }
+  
+  /** returns the time in milliseconds it took the threads to generate their ids */
+  protected long generateIds(final IdGenerator idGenerator) throws Exception {
+    final List<String> ids = Collections.synchronizedList(new ArrayList<String>());
+    final List<Throwable> exceptions = Collections.synchronizedList(new ArrayList<Throwable>());
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int i=0; i<NR_OF_THREADS; i++) {
+      threads.add(new Thread() {
+        public void run() {
+          try {
+            List<String> threadIds = new ArrayList<String>(NR_OF_IDS_PER_THREAD);
+            for (int j=0; j<NR_OF_IDS_PER_THREAD; j++) {
+              threadIds.add(idGenerator.getNextId());
+            }
+            ids.addAll(threadIds);
+          } catch (Throwable e) {
+            exceptions.add(e);
+          }
+        }
+      });
+    }
+    
+    long start = System.currentTimeMillis();
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    long duration = System.currentTimeMillis() - start;
+    
+    assertTrue(exceptions.toString(), exceptions.isEmpty());
+    assertEquals(NR_OF_THREADS * NR_OF_IDS_PER_THREAD, ids.size());
+    assertEquals(ids.size(), new HashSet<String>(ids).size());
+    return duration;
+  }
+
+}
@@ -0,0 +1,320 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.activiti.standalone.variables;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.activiti.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.activiti.engine.impl.interceptor.Command;
+import org.activiti.engine.impl.interceptor.CommandContext;
+import org.activiti.engine.impl.persistence.entity.ExecutionEntity;
+import org.activiti.engine.impl.persistence.entity.VariableInstanceEntity;
+import org.activiti.engine.impl.test.ResourceActivitiTestCase;
+import org.activiti.engine.impl.variable.CompactBinaryCodec;
+import org.activiti.engine.impl.variable.SerializableType;
+import org.activiti.engine.runtime.ProcessInstance;
+
+public class CompactBinaryCodecTest extends ResourceActivitiTestCase {
+  
+  protected static final int NR_OF_BENCHMARK_ROUNDS = 2000;
+  
+  public enum Status {
+    OPEN, 
+    CLOSED {
+      public boolean isFinal() {
+        return true;
+      }
+    };
+    
+    public boolean isFinal() {
+      return false;
+    }
+  }
+  
+  public static class Address implements Serializable {
+    private static final long serialVersionUID = 1L;
+    protected String street;
+    protected String city;
+    
+    protected Address() {
+    }
+    
+    public Address(String street, String city) {
+      this.street = street;
+      this.city = city;
+    }
+  }
+  
+  public static class OrderLine implements Serializable {
+    private static final long serialVersionUID = 1L;
+    protected Order order;
+    protected String product;
+    protected int quantity;
+    protected BigDecimal price;
+    
+    protected OrderLine() {
+    }
+    
+    public OrderLine(Order order, String product, int quantity, BigDecimal price) {
+      this.order = order;
+      this.product = product;
+      this.quantity = quantity;
+      this.price = price;
+    }
+  }
+  
+  public static class Order implements Serializable {
+    private static final long serialVersionUID = 1L;
+    protected long id;
+    protected UUID reference = UUID.randomUUID();
+    protected Date created = new Date(1234567890L);
+    protected Status status = Status.OPEN;
+    protected boolean express;
+    protected double discount = 0.05;
+    protected Address shippingAddress;
+    protected Address billingAddress;
+    protected List<OrderLine> lines = new ArrayList<OrderLine>();
+    protected Map<String, Object> attributes = new LinkedHashMap<String, Object>();
+    protected int[] priorities = {3, 1, 2};
+    protected transient String cachedDescription = "not stored";
+    
+    protected Order() {
+    }
+    
+    public Order(long id, int nrOfLines) {
+      this.id = id;
+      this.shippingAddress = new Address("Main Street 1", "Springfield");
+      this.billingAddress = shippingAddress;
+      for (int i = 0; i < nrOfLines; i++) {
+        lines.add(new OrderLine(this, "product " + i, i + 1, new BigDecimal("19.95")));
+      }
+      attributes.put("channel", "web");
+      attributes.put("tags", new ArrayList<String>(Arrays.asList("new", "gift")));
+    }
+  }
+  
+  protected CompactBinaryCodec codec = new CompactBinaryCodec();
+  
+  public CompactBinaryCodecTest() {
+    super("org/activiti/standalone/variables/compact.binary.variables.test.activiti.cfg.xml");
+  }
+  
+  public void testObjectGraph() {
+    Order order = new Order(7, 3);
+    order.status = Status.CLOSED;
+    
+    Order decoded = (Order) codec.decode(codec.encode(order));
+    
+    assertEquals(7, decoded.id);
+    assertEquals(order.reference, decoded.reference);
+    assertEquals(order.created, decoded.created);
+    assertSame(Status.CLOSED, decoded.status);
+    assertEquals(0.05, decoded.discount);
+    assertEquals("Springfield", decoded.shippingAddress.city);
+    // shared references and cycles are kept
+    assertSame(decoded.shippingAddress, decoded.billingAddress);
+    assertEquals(3, decoded.lines.size());
+    assertSame(decoded, decoded.lines.get(2).order);
+    assertEquals("product 2", decoded.lines.get(2).product);
+    assertEquals(3, decoded.lines.get(2).quantity);
+    assertEquals(new BigDecimal("19.95"), decoded.lines.get(2).price);
+    assertEquals(Arrays.asList("channel", "tags"), new ArrayList<String>(decoded.attributes.keySet()));
+    assertEquals(Arrays.asList("new", "gift"), decoded.attributes.get("tags"));
+    assertTrue(Arrays.equals(new int[] {3, 1, 2}, decoded.priorities));
+    assertNull(decoded.cachedDescription);
+  }
+  
+  public void testJavaValues() {
+    Map<String, Object> values = new HashMap<String, Object>();
+    values.put("string", "\u00e9t\u00e9");
+    values.put("int", Integer.MIN_VALUE);
+    values.put("long", Long.MAX_VALUE);
+    values.put("short", (short) -3);
+    values.put("byte", (byte) -128);
+    values.put("char", 'x');
+    values.put("float", 1.5f);
+    values.put("boolean", Boolean.TRUE);
+    values.put("bytes", new byte[] {1, 2, 3});
+    values.put("unmodifiable", Collections.unmodifiableList(Arrays.asList(1, 2)));
+    TreeMap<String, Integer> sorted = new TreeMap<String, Integer>(String.CASE_INSENSITIVE_ORDER);
+    sorted.put("b", 2);
+    sorted.put("A", 1);
+    values.put("sorted", sorted);
+    
+    @SuppressWarnings("unchecked")
+    Map<String, Object> decoded = (Map<String, Object>) codec.decode(codec.encode(values));
+    
+    assertEquals(values.keySet(), decoded.keySet());
+    for (String key : values.keySet()) {
+      if (!"bytes".equals(key)) {
+        assertEquals(key, values.get(key), decoded.get(key));
+      }
+    }
+    assertTrue(Arrays.equals(new byte[] {1, 2, 3}, (byte[]) decoded.get("bytes")));
+    assertEquals(Integer.valueOf(1), ((TreeMap<?, ?>) decoded.get("sorted")).get("a"));
+  }
+  
+  public void testRegisteredClassesAreWrittenByNumber() {
+    Order order = new Order(1, 10);
+    CompactBinaryCodec registeringCodec = new CompactBinaryCodec(
+            Arrays.<Class<?>>asList(Order.class, OrderLine.class, Address.class, Status.class));
+    
+    byte[] registeredBytes = registeringCodec.encode(order);
+    
+    assertTrue(registeredBytes.length < codec.encode(order).length);
+    assertEquals(10, ((Order) registeringCodec.decode(registeredBytes)).lines.size());
+  }
+  
+  public void testVariablesAreStoredWithTheCodec() {
+    String deploymentId = repositoryService.createDeployment()
+      .addClasspathResource("org/activiti/engine/test/api/oneTaskProcess.bpmn20.xml")
+      .deploy()
+      .getId();
+    
+    ProcessInstance processInstance = runtimeService.startProcessInstanceByKey("oneTaskProcess", 
+            Collections.<String, Object>singletonMap("order", new Order(1, 2)));
+    assertEquals(CompactBinaryCodec.NAME, getVariableTypeName(processInstance.getId(), "order"));
+    
+    // a change of the object is found by the dirty check
+    final String processInstanceId = processInstance.getId();
+    processEngineConfiguration.getCommandExecutor().execute(new Command<Void>() {
+      public Void execute(CommandContext commandContext) {
+        ExecutionEntity execution = commandContext.getExecutionEntityManager().findExecutionById(processInstanceId);
+        ((Order) execution.getVariable("order")).status = Status.CLOSED;
+        return null;
+      }
+    });
+    
+    Order order = (Order) runtimeService.getVariable(processInstanceId, "order");
+    assertSame(Status.CLOSED, order.status);
+    assertSame(order, order.lines.get(1).order);
+    
+    repositoryService.deleteDeployment(deploymentId, true);
+  }
+  
+  public void testSerializableVariablesAreStillRead() {
+    String deploymentId = repositoryService.createDeployment()
+      .addClasspathResource("org/activiti/engine/test/api/oneTaskProcess.bpmn20.xml")
+      .deploy()
+      .getId();
+    final String processInstanceId = runtimeService.startProcessInstanceByKey("oneTaskProcess").getId();
+    
+    // as if it was stored before the codec was configured
+    processEngineConfiguration.getCommandExecutor().execute(new Command<Void>() {
+      public Void execute(CommandContext commandContext) {
+        ExecutionEntity execution = commandContext.getExecutionEntityManager().findExecutionById(processInstanceId);
+        VariableInstanceEntity variableInstance = VariableInstanceEntity.createAndInsert("order", 
+                getProcessEngineConfiguration().getVariableTypes().getVariableType(SerializableType.TYPE_NAME), new Order(2, 1));
+        variableInstance.setExecution(execution);
+        return null;
+      }
+    });
+    
+    assertEquals(SerializableType.TYPE_NAME, getVariableTypeName(processInstanceId, "order"));
+    Order order = (Order) runtimeService.getVariable(processInstanceId, "order");
+    assertEquals(2, order.id);
+    assertEquals(1, order.lines.size());
+    
+    repositoryService.deleteDeployment(deploymentId, true);
+  }
+  
+  /**
+   * Logs the size, encode and decode time of an order with 100 lines for 
+   * java serialization and the {@link CompactBinaryCodec}.
+   */
+  public void testBenchmark() {
+    Order order = new Order(1, 100);
+    CompactBinaryCodec registeringCodec = new CompactBinaryCodec(
+            Arrays.<Class<?>>asList(Order.class, OrderLine.class, Address.class, Status.class));
+    
+    // warm up
+    for (int i = 0; i < NR_OF_BENCHMARK_ROUNDS; i++) {
+      new SerializableTypeDecoder().decode(SerializableType.serialize(order, null));
+      codec.decode(codec.encode(order));
+      registeringCodec.decode(registeringCodec.encode(order));
+    }
+    
+    byte[] serializedBytes = SerializableType.serialize(order, null);
+    long start = System.nanoTime();
+    for (int i = 0; i < NR_OF_BENCHMARK_ROUNDS; i++) {
+      SerializableType.serialize(order, null);
+    }
+    long serializeNanos = System.nanoTime() - start;
+    start = System.nanoTime();
+    for (int i = 0; i < NR_OF_BENCHMARK_ROUNDS; i++) {
+      new SerializableTypeDecoder().decode(serializedBytes);
+    }
+    long deserializeNanos = System.nanoTime() - start;
+    log.info("java serialization: {} bytes, encode {} us, decode {} us", 
+            serializedBytes.length, serializeNanos / NR_OF_BENCHMARK_ROUNDS / 1000, deserializeNanos / NR_OF_BENCHMARK_ROUNDS / 1000);
+    
+    logBenchmark("compact binary", codec, order);
+    logBenchmark("compact binary with registered classes", registeringCodec, order);
+  }
+  
+  protected void logBenchmark(String name, CompactBinaryCodec codec, Object value) {
+    byte[] bytes = codec.encode(value);
+    long start = System.nanoTime();
+    for (int i = 0; i < NR_OF_BENCHMARK_ROUNDS; i++) {
+      codec.encode(value);
+    }
+    long encodeNanos = System.nanoTime() - start;
+    start = System.nanoTime();
+    for (int i = 0; i < NR_OF_BENCHMARK_ROUNDS; i++) {
+      codec.decode(bytes);
+    }
+    long decodeNanos = System.nanoTime() - start;
+    log.info("{}: {} bytes, encode {} us, decode {} us", 
+            name, bytes.length, encodeNanos / NR_OF_BENCHMARK_ROUNDS / 1000, decodeNanos / NR_OF_BENCHMARK_ROUNDS / 1000);
+  }
+  
+  /** the deserialization of the SerializableType, without the registration for the dirty check */
+  protected static class SerializableTypeDecoder extends SerializableType {
+    public Object decode(byte[] bytes) {
+      try {
+        return createObjectInputStream(new java.io.ByteArrayInputStream(bytes)).readObject();
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+  
+  protected String getVariableTypeName(final String executionId, final String variableName) {
+    return processEngineConfiguration.getCommandExecutor().execute(new Command<String>() {
+      public String execute(CommandContext commandContext) {
+        for (VariableInstanceEntity variableInstance : commandContext.getVariableInstanceEntityManager().findVariableInstancesByExecutionId(executionId)) {
+          if (variableName.equals(variableInstance.getName())) {
+            return variableInstance.getType().getTypeName();
+          }
+        }
+        return null;
+      }
+    });
+  }
+  
+  protected ProcessEngineConfigurationImpl getProcessEngineConfiguration() {
+    return processEngineConfiguration;
+  }
+
+}
@@ -62,6 +62,8 @@ public final class RestUrls {
   public static final String SEGMENT_DATA = "data";
   public static final String SEGMENT_JOBS = "jobs";
   public static final String SEGMENT_JOB_EXCEPTION_STACKTRACE = "exception-stacktrace";
+  public static final String SEGMENT_JOB_EXECUTOR = "job-executor";
+  public static final String SEGMENT_METRICS = "metrics";
   public static final String SEGMENT_USERS = "users";
   public static final String SEGMENT_GROUPS = "groups";
   public static final String SEGMENT_PICTURE = "picture";
@@ -449,6 +451,11 @@ public final class RestUrls {
    */
   public static final String[] URL_JOB_COLLECTION = {SEGMENT_MANAGEMENT_RESOURCES, SEGMENT_JOBS};
   
+  /**
+   * URL template for the metrics of the job executor: <i>management/job-executor/metrics</i>
+   */
+  public static final String[] URL_JOB_EXECUTOR_METRICS = {SEGMENT_MANAGEMENT_RESOURCES, SEGMENT_JOB_EXECUTOR, SEGMENT_METRICS};
+  
   /**
    * URL template for the collection of properties: <i>management/properties</i>
    */
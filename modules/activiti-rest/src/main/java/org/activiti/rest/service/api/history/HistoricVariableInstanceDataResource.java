@@ -13,21 +13,14 @@
 
 package org.activiti.rest.service.api.history;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.ObjectOutputStream;
-
 import org.activiti.engine.ActivitiIllegalArgumentException;
 import org.activiti.engine.ActivitiObjectNotFoundException;
 import org.activiti.engine.history.HistoricVariableInstance;
 import org.activiti.engine.impl.persistence.entity.VariableInstanceEntity;
+import org.activiti.engine.impl.variable.ByteArrayType;
+import org.activiti.engine.impl.variable.SerializableType;
 import org.activiti.rest.common.api.ActivitiUtil;
 import org.activiti.rest.common.api.SecuredResource;
-import org.activiti.rest.service.api.RestResponseFactory;
-import org.activiti.rest.service.api.engine.variable.RestVariable;
-import org.activiti.rest.service.application.ActivitiRestServicesApplication;
 import org.restlet.data.MediaType;
 import org.restlet.data.Status;
 import org.restlet.representation.InputRepresentation;
@@ -44,45 +37,32 @@ public class HistoricVariableInstanceDataResource extends SecuredResource {
     if (authenticate() == false)
       return null;
 
-    try {
-      InputStream dataStream = null;
-      MediaType mediaType = null;
-      RestVariable variable = getVariableFromRequest(true);
-      if(RestResponseFactory.BYTE_ARRAY_VARIABLE_TYPE.equals(variable.getType())) {
-        dataStream = new ByteArrayInputStream((byte[]) variable.getValue());
-        mediaType = MediaType.APPLICATION_OCTET_STREAM;
-      } else if(RestResponseFactory.SERIALIZABLE_VARIABLE_TYPE.equals(variable.getType())) {
-        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-        ObjectOutputStream outputStream = new ObjectOutputStream(buffer);
-        outputStream.writeObject(variable.getValue());
-        outputStream.close();
-        dataStream = new ByteArrayInputStream(buffer.toByteArray());
-        mediaType = MediaType.APPLICATION_JAVA_OBJECT;
-        
-      } else {
-        throw new ResourceException(new Status(Status.CLIENT_ERROR_NOT_FOUND.getCode(), "The variable does not have a binary data stream.", null, null));
-      }
-      return new InputRepresentation(dataStream, mediaType);
-    } catch(IOException ioe) {
-      // Re-throw IOException
-      throw new ResourceException(Status.SERVER_ERROR_INTERNAL, ioe);
+    HistoricVariableInstance varObject = getHistoricVariableFromRequest();
+    
+    // byte arrays and serialized objects are streamed from the database instead of being loaded in memory first
+    MediaType mediaType = null;
+    if (ByteArrayType.TYPE_NAME.equals(varObject.getVariableTypeName())) {
+      mediaType = MediaType.APPLICATION_OCTET_STREAM;
+    } else if (SerializableType.TYPE_NAME.equals(varObject.getVariableTypeName())) {
+      mediaType = MediaType.APPLICATION_JAVA_OBJECT;
+    } else {
+      throw new ResourceException(new Status(Status.CLIENT_ERROR_NOT_FOUND.getCode(), "The variable does not have a binary data stream.", null, null));
     }
+    return new InputRepresentation(ActivitiUtil.getHistoryService().getHistoricVariableAsStream(varObject.getId()), mediaType);
   }
   
-  public RestVariable getVariableFromRequest(boolean includeBinary) {
+  protected HistoricVariableInstance getHistoricVariableFromRequest() {
     String varInstanceId = getAttribute("varInstanceId");
     if (varInstanceId == null) {
       throw new ActivitiIllegalArgumentException("The varInstanceId cannot be null");
     }
     
-    HistoricVariableInstance varObject = ActivitiUtil.getHistoryService().createHistoricVariableInstanceQuery().id(varInstanceId).singleResult();
+    HistoricVariableInstance varObject = ActivitiUtil.getHistoryService().createHistoricVariableInstanceQuery()
+        .id(varInstanceId).excludeVariableInitialization().singleResult();
     
     if(varObject == null) {
-        throw new ActivitiObjectNotFoundException("Historic variable instance '" + varInstanceId + "' couldn't be found.", VariableInstanceEntity.class);
-    } else {
-      RestResponseFactory responseFactory = getApplication(ActivitiRestServicesApplication.class).getRestResponseFactory();
-      return responseFactory.createRestVariable(this, varObject.getVariableName(), varObject.getValue(), null, varInstanceId, 
-          RestResponseFactory.VARIABLE_HISTORY_VARINSTANCE, includeBinary);
+      throw new ActivitiObjectNotFoundException("Historic variable instance '" + varInstanceId + "' couldn't be found.", VariableInstanceEntity.class);
     }
+    return varObject;
   }
 }
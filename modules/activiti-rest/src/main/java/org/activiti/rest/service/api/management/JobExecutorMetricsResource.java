@@ -0,0 +1,33 @@
+/* Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.activiti.rest.service.api.management;
+
+import org.activiti.engine.management.JobExecutorMetrics;
+import org.activiti.rest.common.api.ActivitiUtil;
+import org.activiti.rest.common.api.SecuredResource;
+import org.restlet.resource.Get;
+
+/**
+ * The counters and latency histograms of the job executor.
+ */
+public class JobExecutorMetricsResource extends SecuredResource {
+
+  @Get
+  public JobExecutorMetrics getJobExecutorMetrics() {
+    if (authenticate() == false)
+      return null;
+
+    return ActivitiUtil.getManagementService().getJobExecutorMetrics();
+  }
+}
@@ -48,7 +48,7 @@ public class TaskAttachmentContentResource extends TaskBaseResource {
       throw new ActivitiObjectNotFoundException("Task '" + task.getId() +"' doesn't have an attachment with id '" + attachmentId + "'.", Attachment.class);
     }
     
-    InputStream attachmentStream = ActivitiUtil.getTaskService().getAttachmentContent(attachmentId);
+    InputStream attachmentStream = ActivitiUtil.getTaskService().getAttachmentContentAsStream(attachmentId);
     if(attachmentStream == null) {
       throw new ActivitiObjectNotFoundException("Attachment with id '" + attachmentId + "' doesn't have content associated with it.", Attachment.class);
     }
@@ -75,6 +75,7 @@ import org.activiti.rest.service.api.legacy.process.StartProcessInstanceResource
 import org.activiti.rest.service.api.legacy.task.LegacyTaskResource;
 import org.activiti.rest.service.api.management.JobCollectionResource;
 import org.activiti.rest.service.api.management.JobExceptionStacktraceResource;
+import org.activiti.rest.service.api.management.JobExecutorMetricsResource;
 import org.activiti.rest.service.api.management.JobResource;
 import org.activiti.rest.service.api.management.ProcessEngineResource;
 import org.activiti.rest.service.api.management.PropertiesCollectionResource;
@@ -211,6 +212,7 @@ public class RestServicesInit {
     router.attach("/management/jobs", JobCollectionResource.class);
     router.attach("/management/jobs/{jobId}", JobResource.class);
     router.attach("/management/jobs/{jobId}/exception-stacktrace", JobExceptionStacktraceResource.class);
+    router.attach("/management/job-executor/metrics", JobExecutorMetricsResource.class);
     router.attach("/management/properties", PropertiesCollectionResource.class);
     router.attach("/management/engine", ProcessEngineResource.class);
     
@@ -67,7 +67,9 @@ public class BaseRestTestCase extends PvmTestCase {
   protected ObjectMapper objectMapper = new ObjectMapper();
   
   private static final List<String> TABLENAMES_EXCLUDED_FROM_DB_CLEAN_CHECK = Arrays.asList(
-      "ACT_GE_PROPERTY"
+      "ACT_GE_PROPERTY",
+      "ACT_GE_ID_SEQ",
+      "ACT_RU_JOB_HEARTBEAT"
     );
 
   protected ProcessEngine processEngine;
@@ -0,0 +1,34 @@
+package org.activiti.rest.service.api.management;
+
+import org.activiti.engine.management.JobExecutorMetrics;
+import org.activiti.rest.service.BaseRestTestCase;
+import org.activiti.rest.service.api.RestUrls;
+import org.codehaus.jackson.JsonNode;
+import org.restlet.data.Status;
+import org.restlet.representation.Representation;
+import org.restlet.resource.ClientResource;
+
+/**
+ * Test for the REST-operation that returns the job executor metrics.
+ */
+public class JobExecutorMetricsResourceTest extends BaseRestTestCase {
+
+  /**
+   * Test getting the job executor metrics.
+   */
+  public void testGetJobExecutorMetrics() throws Exception {
+    ClientResource client = getAuthenticatedClient(RestUrls.createRelativeResourceUrl(RestUrls.URL_JOB_EXECUTOR_METRICS));
+    Representation response = client.get();
+    assertEquals(Status.SUCCESS_OK, client.getResponse().getStatus());
+    
+    JobExecutorMetrics metrics = managementService.getJobExecutorMetrics();
+    
+    JsonNode responseNode = objectMapper.readTree(response.getStream());
+    assertNotNull(responseNode);
+    assertEquals(metrics.isActive(), responseNode.get("active").getBooleanValue());
+    assertTrue(responseNode.get("executedJobs").isNumber());
+    assertTrue(responseNode.get("acquisitionTimes").has("p99"));
+    assertTrue(responseNode.get("jobExecutionTimes").isObject());
+    assertTrue(responseNode.get("jobLags").isObject());
+  }
+}
@@ -55,7 +55,7 @@ public class SpringJobExecutor extends JobExecutor {
 		try {
 			taskExecutor.execute(new ExecuteJobsRunnable(this, jobIds));
 		} catch (RejectedExecutionException e) {
-			rejectedJobsHandler.jobsRejected(this, jobIds);
+			rejectJobs(jobIds);
 		}
 	}
 